@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+plugins {
+    id("io.github.mzmine.java-common-conv")
+    id("io.github.mzmine.javafx-conv")
+    alias(libs.plugins.jmh)
+}
+
+repositories {
+    mavenCentral()
+    // local libraries
+    maven { url = uri("file://" + layout.projectDirectory.dir("../local-repo")) }
+}
+
+dependencies {
+    jmhImplementation(project(":mzmine-community"))
+    jmhImplementation(project(":taskcontroller"))
+    jmhImplementation(libs.bundles.mzio)
+    jmhImplementation(libs.guava)
+    jmhImplementation(libs.bundles.jackson)
+    jmhImplementation(libs.jmh.core)
+    jmhAnnotationProcessor(libs.jmh.generator.annprocess)
+}
+
+// run all: gradlew :benchmarks:jmh
+// run a subset: gradlew :benchmarks:jmh -Pjmh.includes=SpectralSimilarity
+jmh {
+    jmhVersion = libs.versions.jmh.get()
+    if (project.hasProperty("jmh.includes")) {
+        includes.add(project.property("jmh.includes").toString())
+    }
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+    jvmArgsAppend.add("--enable-preview")
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("reports/jmh/results.json")
+}
+
+tasks.jmhRunBytecodeGenerator {
+    jvmArgs.add("--enable-preview")
+}
+
+// keep the results of a run as baseline, e.g. before starting a change:
+// gradlew :benchmarks:jmh :benchmarks:saveBenchmarkBaseline
+tasks.register<Copy>("saveBenchmarkBaseline") {
+    group = "benchmark"
+    description = "Copies the last JMH results to the baseline file"
+    from(layout.buildDirectory.file("reports/jmh/results.json"))
+    into(layout.projectDirectory.dir("baseline"))
+    rename { "baseline.json" }
+}
+
+// compare the last JMH results to the baseline:
+// gradlew :benchmarks:compareBenchmarks [-Pbaseline=file] [-Pcurrent=file] [-Pthreshold=0.1]
+tasks.register<JavaExec>("compareBenchmarks") {
+    group = "benchmark"
+    description = "Compares JMH results to a baseline and fails on regressions"
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass = "io.github.mzmine.benchmarks.BenchmarkComparison"
+    args(
+        project.findProperty("baseline") ?: layout.projectDirectory.file("baseline/baseline.json")
+            .asFile.path,
+        project.findProperty("current") ?: layout.buildDirectory.file("reports/jmh/results.json")
+            .get().asFile.path,
+        project.findProperty("threshold") ?: "0.1"
+    )
+}
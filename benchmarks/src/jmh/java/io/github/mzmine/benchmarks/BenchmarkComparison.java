@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Compares two JMH result files in JSON format, usually a baseline of an earlier commit and the
+ * current results. Prints the relative change of each benchmark and exits with status 1 if a
+ * benchmark got slower by more than the threshold and more than the combined score errors.
+ * <p>
+ * Usage: BenchmarkComparison baseline.json current.json [threshold, default 0.1 = 10%]
+ */
+public class BenchmarkComparison {
+
+  private static final String PACKAGE_PREFIX = BenchmarkComparison.class.getPackageName() + ".";
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("Usage: BenchmarkComparison baseline.json current.json [threshold]");
+      System.exit(2);
+    }
+    final File baselineFile = new File(args[0]);
+    if (!baselineFile.exists()) {
+      System.err.println("Baseline " + baselineFile.getAbsolutePath()
+          + " does not exist. Run the benchmarks and saveBenchmarkBaseline first.");
+      System.exit(2);
+    }
+    final double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.1;
+
+    final Map<String, BenchmarkResult> baseline = readResults(baselineFile);
+    final Map<String, BenchmarkResult> current = readResults(new File(args[1]));
+
+    final Set<String> names = new LinkedHashSet<>(baseline.keySet());
+    names.addAll(current.keySet());
+
+    final List<Comparison> comparisons = new ArrayList<>();
+    for (String name : names) {
+      comparisons.add(new Comparison(name, baseline.get(name), current.get(name), threshold));
+    }
+    print(comparisons, threshold);
+
+    if (comparisons.stream().anyMatch(Comparison::isRegression)) {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * @return results mapped to their name including the parameters in the order of the file
+   */
+  static Map<String, BenchmarkResult> readResults(@NotNull File file) throws IOException {
+    final Map<String, BenchmarkResult> results = new LinkedHashMap<>();
+    for (JsonNode node : new ObjectMapper().readTree(file)) {
+      final String benchmark = node.get("benchmark").asText().replace(PACKAGE_PREFIX, "");
+
+      // params are not sorted in the file
+      final Map<String, String> params = new TreeMap<>();
+      final JsonNode paramsNode = node.get("params");
+      if (paramsNode != null) {
+        for (Iterator<Entry<String, JsonNode>> it = paramsNode.fields(); it.hasNext(); ) {
+          final Entry<String, JsonNode> param = it.next();
+          params.put(param.getKey(), param.getValue().asText());
+        }
+      }
+      final String name = params.isEmpty() ? benchmark : benchmark + params;
+
+      final JsonNode metric = node.get("primaryMetric");
+      final double error = metric.get("scoreError").asDouble();
+      results.put(name, new BenchmarkResult(node.get("mode").asText(),
+          metric.get("score").asDouble(), Double.isNaN(error) ? 0d : error,
+          metric.get("scoreUnit").asText()));
+    }
+    return results;
+  }
+
+  private static void print(List<Comparison> comparisons, double threshold) {
+    final int nameWidth = comparisons.stream().mapToInt(c -> c.name().length()).max().orElse(10);
+    final String format = "%-" + nameWidth + "s %14s %14s %-10s %9s  %s%n";
+    System.out.printf(format, "Benchmark", "Baseline", "Current", "Unit", "Change", "");
+    for (Comparison c : comparisons) {
+      System.out.printf(format, c.name(), formatScore(c.baseline()), formatScore(c.current()),
+          c.unit(), Double.isNaN(c.change()) ? "" : "%+.1f%%".formatted(c.change() * 100),
+          c.status());
+    }
+    final long regressions = comparisons.stream().filter(Comparison::isRegression).count();
+    System.out.printf("%d of %d benchmarks regressed by more than %.0f%%%n", regressions,
+        comparisons.size(), threshold * 100);
+  }
+
+  private static String formatScore(@Nullable BenchmarkResult result) {
+    return result == null ? "-" : "%.3f".formatted(result.score());
+  }
+
+  /**
+   * @param mode  the JMH mode, only throughput scores are better when higher
+   * @param error half width of the confidence interval, 0 if unknown
+   */
+  record BenchmarkResult(String mode, double score, double error, String unit) {
+
+    boolean isHigherBetter() {
+      return "thrpt".equals(mode);
+    }
+  }
+
+  /**
+   * Comparison of the same benchmark. Baseline or current are null if the benchmark was added or
+   * removed.
+   */
+  record Comparison(String name, @Nullable BenchmarkResult baseline,
+                    @Nullable BenchmarkResult current, double threshold) {
+
+    /**
+     * @return relative change of the score or NaN if one result is missing
+     */
+    double change() {
+      if (baseline == null || current == null || baseline.score() == 0) {
+        return Double.NaN;
+      }
+      return (current.score() - baseline.score()) / baseline.score();
+    }
+
+    /**
+     * @return the relative change where positive values are worse
+     */
+    private double worsening() {
+      final double change = change();
+      return current != null && current.isHigherBetter() ? -change : change;
+    }
+
+    /**
+     * @return true if the difference is larger than the confidence intervals of both results
+     */
+    private boolean isSignificant() {
+      return baseline != null && current != null
+          && Math.abs(current.score() - baseline.score()) > baseline.error() + current.error();
+    }
+
+    boolean isRegression() {
+      return !Double.isNaN(change()) && worsening() > threshold && isSignificant();
+    }
+
+    boolean isImprovement() {
+      return !Double.isNaN(change()) && -worsening() > threshold && isSignificant();
+    }
+
+    String unit() {
+      return current != null ? current.unit() : baseline != null ? baseline.unit() : "";
+    }
+
+    String status() {
+      if (baseline == null) {
+        return "new";
+      }
+      if (current == null) {
+        return "removed";
+      }
+      return isRegression() ? "REGRESSION" : isImprovement() ? "improved" : "";
+    }
+  }
+}
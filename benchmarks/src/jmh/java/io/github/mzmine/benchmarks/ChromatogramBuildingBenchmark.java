@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.benchmarks;
+
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.modules.dataprocessing.featdet_adapchromatogrambuilder.ADAPChromatogramBuilderParameters;
+import io.github.mzmine.modules.dataprocessing.featdet_adapchromatogrambuilder.ModularADAPChromatogramBuilderModule;
+import io.github.mzmine.modules.dataprocessing.featdet_adapchromatogrambuilder.ModularADAPChromatogramBuilderTask;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.project.impl.MZmineProjectImpl;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * ADAP chromatogram building on a synthetic LC-MS run with 1000 MS1 scans. The raw data and mass
+ * lists are kept in RAM so that only the chromatogram building is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ChromatogramBuildingBenchmark {
+
+  @Param({"500", "5000"})
+  public int ions;
+
+  private RawDataFile dataFile;
+  private ParameterSet parameters;
+
+  @Setup
+  public void setup() throws IOException {
+    dataFile = SyntheticData.lcmsRawDataFile(new Random(42), "adap.mzML", 1000, ions, 200, null);
+
+    parameters = new ADAPChromatogramBuilderParameters().cloneParameterSet();
+    parameters.setParameter(ADAPChromatogramBuilderParameters.scanSelection, ScanSelection.MS1);
+    parameters.setParameter(ADAPChromatogramBuilderParameters.minimumConsecutiveScans, 4);
+    parameters.setParameter(ADAPChromatogramBuilderParameters.mzTolerance,
+        new MZTolerance(0.002, 10));
+    parameters.setParameter(ADAPChromatogramBuilderParameters.minHighestPoint, 1E4);
+    parameters.setParameter(ADAPChromatogramBuilderParameters.minGroupIntensity, 3E3);
+    parameters.setParameter(ADAPChromatogramBuilderParameters.suffix, "chroms");
+  }
+
+  @Benchmark
+  public MZmineProject buildChromatograms() {
+    final MZmineProject project = new MZmineProjectImpl();
+    ModularADAPChromatogramBuilderTask.forChromatography(project, dataFile, parameters, null,
+        Instant.now(), ModularADAPChromatogramBuilderModule.class).run();
+    return project;
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.benchmarks;
+
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.modules.io.projectload.version_3_0.FeatureListLoadTask;
+import io.github.mzmine.modules.io.projectsave.FeatureListSaveFormat;
+import io.github.mzmine.modules.io.projectsave.FeatureListSaveTask;
+import io.github.mzmine.project.impl.MZmineProjectImpl;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Saving and loading of a feature list in the project format. The XML format is the compatible
+ * format, the columnar format is benchmarked for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FeatureListSaveLoadBenchmark {
+
+  @Param({"1000", "10000"})
+  public int rows;
+
+  @Param({"XML", "COLUMNAR"})
+  public FeatureListSaveFormat format;
+
+  private RawDataFile dataFile;
+  private ModularFeatureList flist;
+  private File savedFile;
+  private ZipFile savedZip;
+
+  @Setup
+  public void setup() throws IOException {
+    dataFile = SyntheticData.lcmsRawDataFile(new Random(1), "flist.mzML", 1000, 0, 10, null);
+    flist = SyntheticData.featureList(new Random(42), dataFile, rows, null);
+    final MZmineProject project = new MZmineProjectImpl();
+    project.addFile(dataFile);
+    project.addFeatureList(flist);
+
+    savedFile = File.createTempFile("mzmine_benchmark_flist", ".zip");
+    Files.write(savedFile.toPath(), save().toByteArray());
+    savedZip = new ZipFile(savedFile);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    savedZip.close();
+    Files.deleteIfExists(savedFile.toPath());
+  }
+
+  @Benchmark
+  public ByteArrayOutputStream saveFeatureList() throws IOException {
+    return save();
+  }
+
+  @Benchmark
+  public MZmineProject loadFeatureList() {
+    final MZmineProject project = new MZmineProjectImpl();
+    project.addFile(dataFile);
+    final FeatureListLoadTask task = new FeatureListLoadTask(null, project, savedZip);
+    task.run();
+    if (task.getStatus() != TaskStatus.FINISHED) {
+      throw new IllegalStateException("Feature list loading failed: " + task.getErrorMessage());
+    }
+    return project;
+  }
+
+  private ByteArrayOutputStream save() throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ZipOutputStream zos = new ZipOutputStream(bytes)) {
+      final FeatureListSaveTask task = new FeatureListSaveTask(flist, zos, format);
+      task.run();
+      if (task.getStatus() != TaskStatus.FINISHED) {
+        throw new IllegalStateException("Feature list saving failed: " + task.getErrorMessage());
+      }
+    }
+    return bytes;
+  }
+}
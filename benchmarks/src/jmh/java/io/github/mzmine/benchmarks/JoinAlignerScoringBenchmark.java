@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.benchmarks;
+
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.modules.dataprocessing.align_join.JoinAlignerParameters;
+import io.github.mzmine.modules.dataprocessing.align_join.JoinRowAlignScorer;
+import io.github.mzmine.modules.dataprocessing.align_join.RowVsRowScore;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
+import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance.Unit;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Scoring of the join aligner: all rows of one feature list are scored against the m/z sorted
+ * rows of a second feature list, which holds features at the same positions in another sample.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JoinAlignerScoringBenchmark {
+
+  @Param({"1000", "10000"})
+  public int rows;
+
+  private JoinRowAlignScorer scorer;
+  private List<FeatureListRow> baseRowsByMz;
+  private List<FeatureListRow> rowsToAdd;
+
+  @Setup
+  public void setup() throws IOException {
+    // same seed for the feature lists to create features at the same positions in both samples
+    final var base = SyntheticData.featureList(new Random(42),
+        SyntheticData.lcmsRawDataFile(new Random(1), "a.mzML", 1000, 0, 10, null), rows, null);
+    final var toAdd = SyntheticData.featureList(new Random(42),
+        SyntheticData.lcmsRawDataFile(new Random(2), "b.mzML", 1000, 0, 10, null), rows, null);
+    baseRowsByMz = base.getRows().stream()
+        .sorted(Comparator.comparingDouble(FeatureListRow::getAverageMZ)).toList();
+    rowsToAdd = toAdd.getRows();
+
+    final ParameterSet parameters = new JoinAlignerParameters().cloneParameterSet();
+    parameters.setParameter(JoinAlignerParameters.MZTolerance, new MZTolerance(0.005, 10));
+    parameters.setParameter(JoinAlignerParameters.MZWeight, 3d);
+    parameters.setParameter(JoinAlignerParameters.RTTolerance, new RTTolerance(0.1f, Unit.MINUTES));
+    parameters.setParameter(JoinAlignerParameters.RTWeight, 1d);
+    parameters.setParameter(JoinAlignerParameters.mobilityTolerance, false);
+    parameters.setParameter(JoinAlignerParameters.mobilityWeight, 1d);
+    parameters.setParameter(JoinAlignerParameters.SameChargeRequired, false);
+    parameters.setParameter(JoinAlignerParameters.SameIDRequired, false);
+    parameters.setParameter(JoinAlignerParameters.compareIsotopePattern, false);
+    parameters.setParameter(JoinAlignerParameters.compareSpectraSimilarity, false);
+    scorer = new JoinRowAlignScorer(parameters);
+  }
+
+  @Benchmark
+  public ConcurrentLinkedDeque<RowVsRowScore> scoreRows() {
+    final ConcurrentLinkedDeque<RowVsRowScore> scores = new ConcurrentLinkedDeque<>();
+    for (FeatureListRow row : rowsToAdd) {
+      scorer.scoreRowAgainstBaseRows(baseRowsByMz, row, scores);
+    }
+    return scores;
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.benchmarks;
+
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.util.MSNumpress;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * MS-Numpress codecs without base64 and zlib: linear prediction for m/z values and short logged
+ * float for intensities.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MSNumpressBenchmark {
+
+  @Param({"1000", "20000"})
+  public int points;
+
+  private double[] mzs;
+  private double[] intensities;
+  private double linearFixedPoint;
+  private double slofFixedPoint;
+  private byte[] encodeBuffer;
+  private byte[] linearEncoded;
+  private int linearLength;
+  private byte[] slofEncoded;
+  private int slofLength;
+  private double[] decodeBuffer;
+
+  @Setup
+  public void setup() {
+    final double[][] spectrum = SyntheticData.centroidSpectrum(new Random(42), points, 50, 2000);
+    mzs = spectrum[0];
+    intensities = spectrum[1];
+    linearFixedPoint = MSNumpress.optimalLinearFixedPoint(mzs, points);
+    slofFixedPoint = MSNumpress.optimalSlofFixedPoint(intensities, points);
+
+    encodeBuffer = new byte[points * 5 + 8];
+    linearEncoded = new byte[points * 5 + 8];
+    linearLength = MSNumpress.encodeLinear(mzs, points, linearEncoded, linearFixedPoint);
+    slofEncoded = new byte[points * 2 + 8];
+    slofLength = MSNumpress.encodeSlof(intensities, points, slofEncoded, slofFixedPoint);
+    decodeBuffer = new double[points];
+  }
+
+  @Benchmark
+  public int encodeLinear() {
+    return MSNumpress.encodeLinear(mzs, points, encodeBuffer, linearFixedPoint);
+  }
+
+  @Benchmark
+  public double[] decodeLinear() {
+    MSNumpress.decodeLinear(linearEncoded, linearLength, decodeBuffer);
+    return decodeBuffer;
+  }
+
+  @Benchmark
+  public int encodeSlof() {
+    return MSNumpress.encodeSlof(intensities, points, encodeBuffer, slofFixedPoint);
+  }
+
+  @Benchmark
+  public double[] decodeSlof() {
+    MSNumpress.decodeSlof(slofEncoded, slofLength, decodeBuffer);
+    return decodeBuffer;
+  }
+}
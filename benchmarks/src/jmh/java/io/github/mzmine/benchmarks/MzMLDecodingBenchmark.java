@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.benchmarks;
+
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLBinaryDataInfo;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLBitLength;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLCompressionType;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLPeaksDecoder;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.util.MSNumpress;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Decoding of a base64 encoded m/z array of an mzML spectrum with the common compressions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MzMLDecodingBenchmark {
+
+  @Param({"1000", "20000"})
+  public int points;
+
+  @Param({"NO_COMPRESSION", "ZLIB", "NUMPRESS_LINPRED", "NUMPRESS_LINPRED_ZLIB"})
+  public MzMLCompressionType compression;
+
+  private String binaryData;
+  private MzMLBinaryDataInfo binaryDataInfo;
+  private double[] buffer;
+
+  @Setup
+  public void setup() {
+    final double[] mzs = SyntheticData.centroidSpectrum(new Random(42), points, 50, 2000)[0];
+
+    byte[] bytes;
+    if (compression.isNumpress()) {
+      final byte[] encoded = new byte[points * 5 + 8];
+      final int length = MSNumpress.encodeLinear(mzs, points, encoded,
+          MSNumpress.optimalLinearFixedPoint(mzs, points));
+      bytes = Arrays.copyOf(encoded, length);
+    } else {
+      final ByteBuffer raw = ByteBuffer.allocate(points * Double.BYTES)
+          .order(ByteOrder.LITTLE_ENDIAN);
+      raw.asDoubleBuffer().put(mzs);
+      bytes = raw.array();
+    }
+    if (compression.isZlibCompressed()) {
+      bytes = deflate(bytes);
+    }
+    binaryData = Base64.getEncoder().encodeToString(bytes);
+
+    binaryDataInfo = new MzMLBinaryDataInfo(binaryData.length(), points);
+    binaryDataInfo.setCompressionType(compression);
+    binaryDataInfo.setBitLength(MzMLBitLength.SIXTY_FOUR_BIT_FLOAT);
+    buffer = new double[points];
+  }
+
+  @Benchmark
+  public double[] decodeToDouble() {
+    return MzMLPeaksDecoder.decodeToDoubleAsArray(binaryData, binaryDataInfo, buffer);
+  }
+
+  private static byte[] deflate(byte[] data) {
+    final Deflater deflater = new Deflater();
+    deflater.setInput(data);
+    deflater.finish();
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(data.length);
+    final byte[] chunk = new byte[8192];
+    while (!deflater.finished()) {
+      out.write(chunk, 0, deflater.deflate(chunk));
+    }
+    deflater.end();
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.benchmarks;
+
+import io.github.mzmine.datamodel.featuredata.impl.SpectralDataPrecision;
+import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
+import io.github.mzmine.datamodel.featuredata.impl.StoredDoubleValues;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.nio.DoubleBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Buffer creation for spectral data in RAM and in memory mapped storage. Memory mapped storage
+ * only grows, so each iteration stores a fixed batch of spectra into a new storage instead of
+ * running for a fixed time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(batchSize = 200)
+@Measurement(batchSize = 200)
+public class StorageBenchmark {
+
+  @Param({"1000", "10000"})
+  public int points;
+
+  @Param({"true", "false"})
+  public boolean memoryMapped;
+
+  @Param({"FULL", "REDUCED"})
+  public SpectralDataPrecision precision;
+
+  private double[][] spectrum;
+  private MemoryMapStorage storage;
+
+  @Setup
+  public void setup() {
+    spectrum = SyntheticData.centroidSpectrum(new Random(42), points, 50, 2000);
+  }
+
+  @Setup(Level.Iteration)
+  public void createStorage() {
+    storage = memoryMapped ? MemoryMapStorage.create() : null;
+  }
+
+  @Benchmark
+  public DoubleBuffer storeDoubleBuffer() {
+    // RAM storage wraps the array, copy so that both modes copy the data once
+    return StorageUtils.storeValuesToDoubleBuffer(storage,
+        memoryMapped ? spectrum[0] : spectrum[0].clone());
+  }
+
+  @Benchmark
+  public void storeSpectrum(Blackhole bh) {
+    final StoredDoubleValues mzs = StorageUtils.storeMzValues(storage, precision,
+        memoryMapped ? spectrum[0] : spectrum[0].clone());
+    final StoredDoubleValues intensities = StorageUtils.storeIntensityValues(storage,
+        precision, memoryMapped ? spectrum[1] : spectrum[1].clone());
+    bh.consume(mzs);
+    bh.consume(intensities);
+  }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.benchmarks;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.featuredata.impl.SimpleIonTimeSeries;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.datamodel.impl.masslist.ScanPointerMassList;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import javafx.scene.paint.Color;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Synthetic but realistic data for the benchmarks. All generators only depend on the provided
+ * {@link Random}, so a fixed seed creates the same data for every run and results can be compared
+ * across commits.
+ */
+final class SyntheticData {
+
+  private SyntheticData() {
+  }
+
+  /**
+   * Centroid spectrum with uniformly distributed m/z values and log-normal intensities.
+   *
+   * @return [mzs, intensities] sorted by m/z
+   */
+  static double[][] centroidSpectrum(@NotNull Random random, int numSignals, double minMz,
+      double maxMz) {
+    final double[] mzs = new double[numSignals];
+    for (int i = 0; i < numSignals; i++) {
+      mzs[i] = minMz + random.nextDouble() * (maxMz - minMz);
+    }
+    Arrays.sort(mzs);
+    final double[] intensities = new double[numSignals];
+    for (int i = 0; i < numSignals; i++) {
+      intensities[i] = logNormalIntensity(random, 8, 2.5);
+    }
+    return new double[][]{mzs, intensities};
+  }
+
+  /**
+   * Profile spectrum on a regular m/z grid with gaussian peaks (resolution of about 30,000) and
+   * baseline noise.
+   *
+   * @return [mzs, intensities] sorted by m/z
+   */
+  static double[][] profileSpectrum(@NotNull Random random, int numPeaks, double minMz,
+      double maxMz, double mzStep) {
+    final int size = (int) ((maxMz - minMz) / mzStep) + 1;
+    final double[] mzs = new double[size];
+    final double[] intensities = new double[size];
+    for (int i = 0; i < size; i++) {
+      mzs[i] = minMz + i * mzStep;
+      intensities[i] = Math.abs(random.nextGaussian()) * 50;
+    }
+    for (int p = 0; p < numPeaks; p++) {
+      final double center = minMz + random.nextDouble() * (maxMz - minMz);
+      final double sigma = center / 30_000 / 2.355;
+      final double height = logNormalIntensity(random, 8, 2);
+      final int first = Math.max(0, (int) ((center - 4 * sigma - minMz) / mzStep));
+      final int last = Math.min(size - 1, (int) ((center + 4 * sigma - minMz) / mzStep) + 1);
+      for (int i = first; i <= last; i++) {
+        intensities[i] += gaussian(mzs[i], center, sigma, height);
+      }
+    }
+    return new double[][]{mzs, intensities};
+  }
+
+  /**
+   * Chromatogram with partially overlapping gaussian peaks and noise.
+   *
+   * @return [retention times, intensities]
+   */
+  static double[][] chromatogram(@NotNull Random random, int numPoints, int numPeaks,
+      double rtStart, double rtEnd) {
+    final double[] rts = new double[numPoints];
+    final double[] intensities = new double[numPoints];
+    final double step = (rtEnd - rtStart) / (numPoints - 1);
+    for (int i = 0; i < numPoints; i++) {
+      rts[i] = rtStart + i * step;
+      intensities[i] = Math.abs(random.nextGaussian()) * 1E3;
+    }
+    for (int p = 0; p < numPeaks; p++) {
+      final double center = rtStart + random.nextDouble() * (rtEnd - rtStart);
+      final double sigma = 0.02 + random.nextDouble() * 0.04;
+      final double height = logNormalIntensity(random, 12, 1.5);
+      for (int i = 0; i < numPoints; i++) {
+        intensities[i] += gaussian(rts[i], center, sigma, height);
+      }
+    }
+    return new double[][]{rts, intensities};
+  }
+
+  static DataPoint[] toDataPoints(double[][] spectrum) {
+    final DataPoint[] dps = new DataPoint[spectrum[0].length];
+    for (int i = 0; i < dps.length; i++) {
+      dps[i] = new SimpleDataPoint(spectrum[0][i], spectrum[1][i]);
+    }
+    return dps;
+  }
+
+  /**
+   * A spectrum that shares a fraction of the signals with the given spectrum. Shared signals are
+   * shifted by up to maxPpm and their intensities vary, all other signals are random noise in the
+   * same m/z range.
+   *
+   * @return data points sorted by m/z
+   */
+  static DataPoint[] similarSpectrum(@NotNull Random random, @NotNull DataPoint[] spectrum,
+      double sharedFraction, double maxPpm) {
+    final double minMz = spectrum[0].getMZ();
+    final double maxMz = spectrum[spectrum.length - 1].getMZ();
+    final DataPoint[] result = new DataPoint[spectrum.length];
+    for (int i = 0; i < spectrum.length; i++) {
+      if (random.nextDouble() < sharedFraction) {
+        final double shift = (random.nextDouble() * 2 - 1) * maxPpm * 1E-6;
+        result[i] = new SimpleDataPoint(spectrum[i].getMZ() * (1 + shift),
+            spectrum[i].getIntensity() * (0.5 + random.nextDouble()));
+      } else {
+        result[i] = new SimpleDataPoint(minMz + random.nextDouble() * (maxMz - minMz),
+            logNormalIntensity(random, 8, 2.5));
+      }
+    }
+    Arrays.sort(result, Comparator.comparingDouble(DataPoint::getMZ));
+    return result;
+  }
+
+  /**
+   * LC-MS run with MS1 scans every 0.6 s. Ions elute as gaussian peaks over a few scans and each
+   * scan contains the eluting ions and random noise signals. The scans are centroided and have a
+   * mass list that points to the scan data, as after the mass detection.
+   */
+  static RawDataFile lcmsRawDataFile(@NotNull Random random, @NotNull String name, int numScans,
+      int numIons, int noiseSignalsPerScan, @Nullable MemoryMapStorage storage)
+      throws IOException {
+    final RawDataFileImpl file = new RawDataFileImpl(name, null, storage, Color.BLACK);
+
+    final double[] ionMzs = new double[numIons];
+    final double[] ionApex = new double[numIons];
+    final double[] ionWidth = new double[numIons];
+    final double[] ionHeight = new double[numIons];
+    for (int i = 0; i < numIons; i++) {
+      ionMzs[i] = 100 + random.nextDouble() * 900;
+      ionApex[i] = random.nextDouble() * numScans;
+      ionWidth[i] = 3 + random.nextDouble() * 5;
+      ionHeight[i] = logNormalIntensity(random, 12, 1.5);
+    }
+
+    final double[] mzs = new double[numIons + noiseSignalsPerScan];
+    final double[] intensities = new double[mzs.length];
+    for (int s = 0; s < numScans; s++) {
+      int n = 0;
+      for (int i = 0; i < numIons; i++) {
+        if (Math.abs(s - ionApex[i]) < 4 * ionWidth[i]) {
+          mzs[n] = ionMzs[i] * (1 + (random.nextDouble() * 2 - 1) * 2E-6);
+          intensities[n] = gaussian(s, ionApex[i], ionWidth[i], ionHeight[i]);
+          n++;
+        }
+      }
+      for (int i = 0; i < noiseSignalsPerScan; i++) {
+        mzs[n] = 100 + random.nextDouble() * 900;
+        intensities[n] = Math.abs(random.nextGaussian()) * 1E3;
+        n++;
+      }
+      final double[][] sorted = sortByMz(mzs, intensities, n);
+
+      final SimpleScan scan = new SimpleScan(file, s + 1, 1, s * 0.01f, null, sorted[0],
+          sorted[1], MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "",
+          Range.closed(100d, 1000d));
+      scan.addMassList(new ScanPointerMassList(scan));
+      file.addScan(scan);
+    }
+    return file;
+  }
+
+  /**
+   * Feature list of a raw data file with one feature per row. Each feature spans 10 to 20 scans.
+   */
+  static ModularFeatureList featureList(@NotNull Random random, @NotNull RawDataFile file,
+      int numRows, @Nullable MemoryMapStorage storage) {
+    final List<Scan> scans = file.getScans();
+    final ModularFeatureList flist = new ModularFeatureList(file.getName() + " features", storage,
+        file);
+    flist.setSelectedScans(file, scans);
+
+    for (int id = 1; id <= numRows; id++) {
+      final int length = 10 + random.nextInt(11);
+      final int start = random.nextInt(scans.size() - length);
+      final double mz = 100 + random.nextDouble() * 900;
+      final double height = logNormalIntensity(random, 12, 1.5);
+      final double[] mzs = new double[length];
+      final double[] intensities = new double[length];
+      for (int i = 0; i < length; i++) {
+        mzs[i] = mz * (1 + (random.nextDouble() * 2 - 1) * 2E-6);
+        intensities[i] = gaussian(i, length / 2d, length / 6d, height);
+      }
+      final SimpleIonTimeSeries series = new SimpleIonTimeSeries(storage, mzs, intensities,
+          scans.subList(start, start + length));
+
+      final ModularFeatureListRow row = new ModularFeatureListRow(flist, id);
+      row.addFeature(file, new ModularFeature(flist, file, series, FeatureStatus.DETECTED));
+      flist.addRow(row);
+    }
+    return flist;
+  }
+
+  private static double[][] sortByMz(double[] mzs, double[] intensities, int size) {
+    final Integer[] order = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, Comparator.comparingDouble(i -> mzs[i]));
+    final double[] sortedMzs = new double[size];
+    final double[] sortedIntensities = new double[size];
+    for (int i = 0; i < size; i++) {
+      sortedMzs[i] = mzs[order[i]];
+      sortedIntensities[i] = intensities[order[i]];
+    }
+    return new double[][]{sortedMzs, sortedIntensities};
+  }
+
+  private static double logNormalIntensity(Random random, double mu, double sigma) {
+    return Math.exp(mu + sigma * random.nextGaussian());
+  }
+
+  private static double gaussian(double x, double center, double sigma, double height) {
+    final double d = (x - center) / sigma;
+    return height * Math.exp(-0.5 * d * d);
+  }
+}
@@ -29,6 +29,8 @@ import static java.util.Objects.requireNonNullElse;
 
 import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.features.FeatureList.FeatureListAppliedMethod;
+import io.github.mzmine.datamodel.data_access.MassListIndex;
+import io.github.mzmine.datamodel.impl.ScanMetadataIndex;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.collections.BinarySearch;
 import io.github.mzmine.util.collections.BinarySearch.DefaultTo;
@@ -302,6 +304,34 @@ public interface RawDataFile {
     return getScans().stream();
   }
 
+  /**
+   * Columnar index of the scan metadata for range queries on retention time and precursor m/z.
+   * Implementations should cache the index, this default creates a new index on every call.
+   *
+   * @return the index of all scans in {@link #getScans()}
+   */
+  default @NotNull ScanMetadataIndex getScanMetadataIndex() {
+    return new ScanMetadataIndex(getScans());
+  }
+
+  /**
+   * The m/z index over the MS1 mass lists. Implementations that support the index reset it when
+   * scans are added or mass lists change.
+   *
+   * @return the index or null if none was built or it was reset
+   */
+  default @Nullable MassListIndex getMassListIndex() {
+    return null;
+  }
+
+  /**
+   * Sets the m/z index over the current MS1 mass lists. This default does not keep the index.
+   *
+   * @param index the index or null to remove it
+   */
+  default void setMassListIndex(@Nullable MassListIndex index) {
+  }
+
   /**
    * Mass list has changed. reset all precomputed values
    *
@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.data_access;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.MassList;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
+import io.github.mzmine.datamodel.featuredata.impl.SimpleIonTimeSeries;
+import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
+import io.github.mzmine.util.MemoryMapStorage;
+import io.github.mzmine.util.RangeUtils;
+import io.github.mzmine.util.collections.BinarySearch;
+import io.github.mzmine.util.collections.BinarySearch.DefaultTo;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntHeapPriorityQueue;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * m/z index over the MS1 mass lists of a raw data file. All signals are sorted by m/z, each with
+ * the index of its scan and its intensity, so that an extracted ion chromatogram only reads the
+ * signals within its m/z range instead of all scans of the file. The signals are stored in blocks
+ * and the index is limited to {@link #MAX_SIGNALS} signals.
+ * <p>
+ * The index is built once after mass detection (see {@link #build(RawDataFile, MemoryMapStorage)})
+ * and set to the data file with {@link RawDataFile#setMassListIndex(MassListIndex)}. The data file
+ * owns the index and resets it when scans are added or mass lists change.
+ */
+public class MassListIndex {
+
+  /**
+   * Maximum number of signals, signals are addressed by int
+   */
+  public static final int MAX_SIGNALS = Integer.MAX_VALUE - 8;
+  // signals per stored block, limits the heap used while building the index
+  private static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+  private static final Logger logger = Logger.getLogger(MassListIndex.class.getName());
+  private final Reference2IntOpenHashMap<Scan> scanIndices;
+  private final int numSignals;
+  private final int chunkSize;
+  // all signals sorted by m/z in blocks of chunkSize signals
+  private final DoubleBuffer[] mzs;
+  private final DoubleBuffer[] intensities;
+  private final IntBuffer[] signalScanIndices;
+
+  private MassListIndex(Scan[] scans, int numSignals, int chunkSize, DoubleBuffer[] mzs,
+      DoubleBuffer[] intensities, IntBuffer[] signalScanIndices) {
+    this.numSignals = numSignals;
+    this.chunkSize = chunkSize;
+    this.mzs = mzs;
+    this.intensities = intensities;
+    this.signalScanIndices = signalScanIndices;
+    scanIndices = new Reference2IntOpenHashMap<>(scans.length);
+    scanIndices.defaultReturnValue(-1);
+    for (int i = 0; i < scans.length; i++) {
+      scanIndices.put(scans[i], i);
+    }
+  }
+
+  /**
+   * Indexes the mass lists of all MS1 scans of a data file. Scans without mass list are not
+   * indexed.
+   *
+   * @param storage storage for the signals or null to keep them in RAM
+   * @return the index or null if the file has more than {@link #MAX_SIGNALS} signals
+   */
+  @Nullable
+  public static MassListIndex build(@NotNull RawDataFile file, @Nullable MemoryMapStorage storage) {
+    return build(file, storage, DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Indexes the mass lists of all MS1 scans of a data file. The sorted mass lists are merged and
+   * the signals are stored in blocks, so only one block is held on the heap while building.
+   *
+   * @param storage   storage for the signals or null to keep them in RAM
+   * @param chunkSize number of signals per stored block
+   * @return the index or null if the file has more than {@link #MAX_SIGNALS} signals
+   */
+  @Nullable
+  public static MassListIndex build(@NotNull RawDataFile file, @Nullable MemoryMapStorage storage,
+      int chunkSize) {
+    final List<Scan> scanList = new ArrayList<>();
+    final List<MassList> massListList = new ArrayList<>();
+    long totalSignals = 0;
+    for (Scan scan : file.getScans()) {
+      final MassList massList = scan.getMassList();
+      if (scan.getMSLevel() == 1 && massList != null) {
+        scanList.add(scan);
+        massListList.add(massList);
+        totalSignals += massList.getNumberOfDataPoints();
+      }
+    }
+    if (totalSignals > MAX_SIGNALS) {
+      final long signals = totalSignals;
+      logger.warning(() -> "Cannot index %d signals of %s, the maximum is %d. Chromatograms are "
+          .formatted(signals, file.getName(), MAX_SIGNALS) + "extracted from the mass lists.");
+      return null;
+    }
+    final int numSignals = (int) totalSignals;
+    final MassList[] massLists = massListList.toArray(MassList[]::new);
+
+    // merge the sorted mass lists by m/z, signals of the same m/z stay in scan order
+    final int[] positions = new int[massLists.length];
+    final double[] nextMzs = new double[massLists.length];
+    final IntHeapPriorityQueue queue = new IntHeapPriorityQueue(massLists.length, (a, b) -> {
+      final int compare = Double.compare(nextMzs[a], nextMzs[b]);
+      return compare != 0 ? compare : Integer.compare(a, b);
+    });
+    for (int i = 0; i < massLists.length; i++) {
+      if (massLists[i].getNumberOfDataPoints() > 0) {
+        nextMzs[i] = massLists[i].getMzValue(0);
+        queue.enqueue(i);
+      }
+    }
+
+    final int numChunks = Math.ceilDiv(numSignals, chunkSize);
+    final DoubleBuffer[] mzs = new DoubleBuffer[numChunks];
+    final DoubleBuffer[] intensities = new DoubleBuffer[numChunks];
+    final IntBuffer[] scanIndices = new IntBuffer[numChunks];
+    double[] chunkMzs = null;
+    double[] chunkIntensities = null;
+    int[] chunkScanIndices = null;
+    for (int c = 0; c < numChunks; c++) {
+      final int size = Math.min(chunkSize, numSignals - c * chunkSize);
+      // without storage, the arrays are wrapped and cannot be reused
+      if (storage == null || chunkMzs == null || chunkMzs.length != size) {
+        chunkMzs = new double[size];
+        chunkIntensities = new double[size];
+        chunkScanIndices = new int[size];
+      }
+      for (int i = 0; i < size; i++) {
+        final int scanIndex = queue.firstInt();
+        final MassList massList = massLists[scanIndex];
+        final int position = positions[scanIndex]++;
+        chunkMzs[i] = nextMzs[scanIndex];
+        chunkIntensities[i] = massList.getIntensityValue(position);
+        chunkScanIndices[i] = scanIndex;
+        if (position + 1 < massList.getNumberOfDataPoints()) {
+          nextMzs[scanIndex] = massList.getMzValue(position + 1);
+          queue.changed();
+        } else {
+          queue.dequeueInt();
+        }
+      }
+      mzs[c] = StorageUtils.storeValuesToDoubleBuffer(storage, chunkMzs);
+      intensities[c] = StorageUtils.storeValuesToDoubleBuffer(storage, chunkIntensities);
+      scanIndices[c] = StorageUtils.storeValuesToIntBuffer(storage, chunkScanIndices);
+    }
+
+    logger.finest(() -> "Indexed " + numSignals + " signals of " + scanList.size() + " scans in "
+                        + file.getName());
+    return new MassListIndex(scanList.toArray(Scan[]::new), numSignals, chunkSize, mzs,
+        intensities, scanIndices);
+  }
+
+  /**
+   * @return number of indexed signals
+   */
+  public int getNumberOfSignals() {
+    return numSignals;
+  }
+
+  private double getMz(int signal) {
+    return mzs[signal / chunkSize].get(signal % chunkSize);
+  }
+
+  /**
+   * Extracts an ion chromatogram of the given scans from the index. Uses the same definition as
+   * {@link io.github.mzmine.datamodel.featuredata.IonTimeSeriesUtils#extractIonTimeSeries(ScanDataAccess,
+   * Range, Range, MemoryMapStorage)}: the signal closest to the center of the m/z range is used
+   * for every scan in the rt range. Scans without signal are added with zero intensity.
+   *
+   * @param selectedScans the scans in the chromatogram
+   * @param rtRange       if null, all selected scans are used
+   * @return the chromatogram or null if a selected scan is not indexed
+   */
+  @Nullable
+  public IonTimeSeries<Scan> extractIonTimeSeries(@NotNull List<? extends Scan> selectedScans,
+      @NotNull Range<Double> mzRange, @Nullable Range<Float> rtRange,
+      @Nullable MemoryMapStorage storage) {
+    final List<Scan> scansInRt = new ArrayList<>();
+    // index in the chromatogram for the indexed scans in the chromatogram only
+    final Int2IntOpenHashMap chromatogramIndices = new Int2IntOpenHashMap(selectedScans.size());
+    chromatogramIndices.defaultReturnValue(-1);
+    for (Scan scan : selectedScans) {
+      if (rtRange != null && !rtRange.contains(scan.getRetentionTime())) {
+        continue;
+      }
+      final int index = scanIndices.getInt(scan);
+      if (index == -1) {
+        return null;
+      }
+      chromatogramIndices.put(index, scansInRt.size());
+      scansInRt.add(scan);
+    }
+
+    final double centerMz = RangeUtils.rangeCenter(mzRange);
+    final double[] chromMzs = new double[scansInRt.size()];
+    final double[] chromIntensities = new double[scansInRt.size()];
+    final double[] deltas = new double[scansInRt.size()];
+    Arrays.fill(deltas, Double.POSITIVE_INFINITY);
+
+    final double lowerMz = mzRange.lowerEndpoint();
+    int first = BinarySearch.binarySearch(lowerMz, DefaultTo.GREATER_EQUALS, numSignals,
+        this::getMz);
+    if (first == -1) {
+      first = numSignals;
+    }
+    // the search returns any of multiple equal values
+    while (first > 0 && getMz(first - 1) >= lowerMz) {
+      first--;
+    }
+    for (int i = first; i < numSignals; i++) {
+      final int chunk = i / chunkSize;
+      final int offset = i % chunkSize;
+      final double mz = mzs[chunk].get(offset);
+      if (mz > mzRange.upperEndpoint()) {
+        break;
+      }
+      final int chromIndex = chromatogramIndices.get(signalScanIndices[chunk].get(offset));
+      if (chromIndex == -1 || !mzRange.contains(mz)) {
+        continue;
+      }
+      final double delta = Math.abs(mz - centerMz);
+      if (delta < deltas[chromIndex]) {
+        deltas[chromIndex] = delta;
+        chromMzs[chromIndex] = mz;
+        chromIntensities[chromIndex] = intensities[chunk].get(offset);
+      }
+    }
+
+    return new SimpleIonTimeSeries(storage, chromMzs, chromIntensities, scansInRt);
+  }
+}
@@ -30,6 +30,7 @@ import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.data_access.EfficientDataAccess;
 import io.github.mzmine.datamodel.data_access.EfficientDataAccess.ScanDataType;
+import io.github.mzmine.datamodel.data_access.MassListIndex;
 import io.github.mzmine.datamodel.data_access.ScanDataAccess;
 import io.github.mzmine.datamodel.featuredata.impl.SimpleIonTimeSeries;
 import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
@@ -161,21 +162,42 @@ public class IonTimeSeriesUtils {
    * {@link IonTimeSeriesUtils#extractIonTimeSeries(ScanDataAccess, Range, Range, MemoryMapStorage)}
    * instead.
    *
+   * <p></p>
+   * Uses the {@link MassListIndex} of the file if one was built.
+   *
    * @return A chromatogram across the whole RT range of the scan selection.
    */
   public static IonTimeSeries<Scan> extractIonTimeSeries(@NotNull RawDataFile file,
       @NotNull ScanSelection selection, @NotNull Range<Double> mzRange,
       @Nullable MemoryMapStorage storage) {
+    final MassListIndex index = file.getMassListIndex();
+    if (index != null) {
+      final IonTimeSeries<Scan> series = index.extractIonTimeSeries(
+          selection.getMatchingScans(file.getScans()), mzRange, null, storage);
+      if (series != null) {
+        return series;
+      }
+    }
     final ScanDataAccess access = EfficientDataAccess.of(file, ScanDataType.MASS_LIST, selection);
     return extractIonTimeSeries(access, mzRange, null, storage);
   }
 
   /**
+   * Uses the {@link MassListIndex} of the file if one was built.
+   *
    * @see IonTimeSeriesUtils#extractIonTimeSeries(ScanDataAccess, Range, Range, MemoryMapStorage)
    */
   public static IonTimeSeries<Scan> extractIonTimeSeries(@NotNull RawDataFile file,
       @NotNull List<Scan> scans, @NotNull Range<Double> mzRange, @Nullable Range<Float> rtRange,
       @Nullable MemoryMapStorage storage) {
+    final MassListIndex index = file.getMassListIndex();
+    if (index != null) {
+      final IonTimeSeries<Scan> series = index.extractIonTimeSeries(scans, mzRange, rtRange,
+          storage);
+      if (series != null) {
+        return series;
+      }
+    }
     final ScanDataAccess access = EfficientDataAccess.of(file, ScanDataType.MASS_LIST, scans);
     return extractIonTimeSeries(access, mzRange, rtRange, storage);
   }
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.featuredata.impl;
+
+/**
+ * Precision of m/z and intensity values of spectra (scans, mass lists, mobility scans) in the
+ * storage. Set in the preferences and only applies to newly created spectra, see
+ * {@link StorageUtils#getSpectralDataPrecision()}.
+ */
+public enum SpectralDataPrecision {
+
+  /**
+   * m/z and intensity values as 64 bit doubles
+   */
+  FULL,
+  /**
+   * Intensities as 32 bit floats (relative error < 6E-8) and m/z values as 32 bit float deltas to
+   * the lowest m/z of each spectrum (absolute error < 6E-8 times the m/z spread of the spectrum,
+   * which is < 0.1 ppm). Halves the memory and temp file size of spectral data.
+   */
+  REDUCED;
+
+  @Override
+  public String toString() {
+    return switch (this) {
+      case FULL -> "Full (64 bit)";
+      case REDUCED -> "Reduced (32 bit)";
+    };
+  }
+}
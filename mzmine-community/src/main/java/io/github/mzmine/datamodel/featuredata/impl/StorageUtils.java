@@ -25,12 +25,17 @@
 
 package io.github.mzmine.datamodel.featuredata.impl;
 
+import static java.util.Objects.requireNonNullElse;
+
 import io.github.mzmine.datamodel.featuredata.IonSeries;
 import io.github.mzmine.datamodel.impl.AbstractStorableSpectrum;
+import io.github.mzmine.gui.preferences.MZminePreferences;
+import io.github.mzmine.main.ConfigService;
 import io.github.mzmine.util.DataPointUtils;
 import io.github.mzmine.util.MemoryMapStorage;
 import java.io.IOException;
 import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -47,6 +52,96 @@ import org.jetbrains.annotations.Nullable;
  */
 public class StorageUtils {
 
+  /**
+   * @return the precision of newly stored spectral data from the preferences
+   */
+  @NotNull
+  public static SpectralDataPrecision getSpectralDataPrecision() {
+    return requireNonNullElse(
+        ConfigService.getPreference(MZminePreferences.spectralDataPrecision),
+        SpectralDataPrecision.FULL);
+  }
+
+  /**
+   * Stores the m/z values of spectral data with the {@link SpectralDataPrecision} of the
+   * preferences.
+   *
+   * @see #storeMzValues(MemoryMapStorage, SpectralDataPrecision, double[])
+   */
+  @NotNull
+  public static StoredDoubleValues storeMzValues(@Nullable final MemoryMapStorage storage,
+      @NotNull final double[] mzs) {
+    return storeMzValues(storage, getSpectralDataPrecision(), mzs);
+  }
+
+  /**
+   * Stores the m/z values of spectral data. With reduced precision, the values are stored as float
+   * deltas to the lowest value.
+   *
+   * @param storage   The storage to be used. If null, the values are kept in RAM.
+   * @param precision the precision of the stored values
+   * @param mzs       the m/z values
+   * @return the stored values
+   */
+  @NotNull
+  public static StoredDoubleValues storeMzValues(@Nullable final MemoryMapStorage storage,
+      @NotNull final SpectralDataPrecision precision, @NotNull final double[] mzs) {
+    if (mzs.length == 0) {
+      return StoredDoubleValues.EMPTY;
+    }
+    if (precision == SpectralDataPrecision.FULL) {
+      return new StoredDoubleValues.Doubles(storeValuesToDoubleBuffer(storage, mzs));
+    }
+
+    double base = mzs[0];
+    for (double mz : mzs) {
+      base = Math.min(base, mz);
+    }
+    final float[] deltas = new float[mzs.length];
+    for (int i = 0; i < mzs.length; i++) {
+      deltas[i] = (float) (mzs[i] - base);
+    }
+    return new StoredDoubleValues.FloatDeltas(base, storeValuesToFloatBuffer(storage, deltas));
+  }
+
+  /**
+   * Stores the intensity values of spectral data with the {@link SpectralDataPrecision} of the
+   * preferences.
+   *
+   * @see #storeIntensityValues(MemoryMapStorage, SpectralDataPrecision, double[])
+   */
+  @NotNull
+  public static StoredDoubleValues storeIntensityValues(@Nullable final MemoryMapStorage storage,
+      @NotNull final double[] intensities) {
+    return storeIntensityValues(storage, getSpectralDataPrecision(), intensities);
+  }
+
+  /**
+   * Stores the intensity values of spectral data. With reduced precision, the values are stored as
+   * floats.
+   *
+   * @param storage     The storage to be used. If null, the values are kept in RAM.
+   * @param precision   the precision of the stored values
+   * @param intensities the intensity values
+   * @return the stored values
+   */
+  @NotNull
+  public static StoredDoubleValues storeIntensityValues(@Nullable final MemoryMapStorage storage,
+      @NotNull final SpectralDataPrecision precision, @NotNull final double[] intensities) {
+    if (intensities.length == 0) {
+      return StoredDoubleValues.EMPTY;
+    }
+    if (precision == SpectralDataPrecision.FULL) {
+      return new StoredDoubleValues.Doubles(storeValuesToDoubleBuffer(storage, intensities));
+    }
+
+    final float[] values = new float[intensities.length];
+    for (int i = 0; i < intensities.length; i++) {
+      values[i] = (float) intensities[i];
+    }
+    return new StoredDoubleValues.Floats(storeValuesToFloatBuffer(storage, values));
+  }
+
   public static <T> List<double[][]> mapTo2dDoubleArrayList(List<T> objects,
       Function<T, double[]> firstDimension, Function<T, double[]> secondDimension) {
     return objects.stream().<double[][]>mapMulti((scan, c) -> {
@@ -215,4 +310,30 @@ public class StorageUtils {
     }
     return buffer;
   }
+
+  /**
+   * Stores the given array into a float buffer.
+   *
+   * @param storage The storage to be used. If null, the values will be wrapped using
+   *                {@link FloatBuffer#wrap(float[])}.
+   * @param values  The values to be stored.
+   * @return The float buffer the values were stored in.
+   */
+  @NotNull
+  public static FloatBuffer storeValuesToFloatBuffer(@Nullable final MemoryMapStorage storage,
+      @NotNull final float[] values) {
+
+    FloatBuffer buffer;
+    if (storage != null) {
+      try {
+        buffer = storage.storeData(values);
+      } catch (IOException e) {
+        e.printStackTrace();
+        buffer = FloatBuffer.wrap(values);
+      }
+    } else {
+      buffer = FloatBuffer.wrap(values);
+    }
+    return buffer;
+  }
 }
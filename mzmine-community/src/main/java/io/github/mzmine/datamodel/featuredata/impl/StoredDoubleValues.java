@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.featuredata.impl;
+
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Read access to double values that were stored in full or reduced precision, see
+ * {@link SpectralDataPrecision}. Values are decoded on access, so callers always work with
+ * doubles.
+ */
+public sealed interface StoredDoubleValues {
+
+  StoredDoubleValues EMPTY = new Doubles(DoubleBuffer.wrap(new double[0]));
+
+  /**
+   * @return the number of stored values
+   */
+  int size();
+
+  double get(int index);
+
+  /**
+   * Bulk read into dst
+   *
+   * @param index  first value to read
+   * @param dst    the destination array
+   * @param offset offset in dst
+   * @param length number of values
+   */
+  void get(int index, double[] dst, int offset, int length);
+
+  /**
+   * Decodes all values into dst
+   *
+   * @param dst the destination array, a new array is allocated if dst is smaller than
+   *            {@link #size()}
+   * @return dst or the new array
+   */
+  @NotNull
+  default double[] get(@NotNull double[] dst) {
+    final int size = size();
+    if (dst.length < size) {
+      dst = new double[size];
+    }
+    get(0, dst, 0, size);
+    return dst;
+  }
+
+  /**
+   * Values stored as 64 bit doubles
+   */
+  record Doubles(@NotNull DoubleBuffer buffer) implements StoredDoubleValues {
+
+    @Override
+    public int size() {
+      return buffer.limit();
+    }
+
+    @Override
+    public double get(int index) {
+      return buffer.get(index);
+    }
+
+    @Override
+    public void get(int index, double[] dst, int offset, int length) {
+      buffer.get(index, dst, offset, length);
+    }
+  }
+
+  /**
+   * Values stored as 32 bit floats, e.g., intensities
+   */
+  record Floats(@NotNull FloatBuffer buffer) implements StoredDoubleValues {
+
+    @Override
+    public int size() {
+      return buffer.limit();
+    }
+
+    @Override
+    public double get(int index) {
+      return buffer.get(index);
+    }
+
+    @Override
+    public void get(int index, double[] dst, int offset, int length) {
+      for (int i = 0; i < length; i++) {
+        dst[offset + i] = buffer.get(index + i);
+      }
+    }
+  }
+
+  /**
+   * Values stored as 32 bit float differences to a 64 bit base value, e.g., m/z values of a
+   * spectrum with the lowest m/z as base. The absolute error is limited by the spread of the values
+   * and not by their magnitude. The order of sorted values is retained.
+   */
+  record FloatDeltas(double base, @NotNull FloatBuffer deltas) implements StoredDoubleValues {
+
+    @Override
+    public int size() {
+      return deltas.limit();
+    }
+
+    @Override
+    public double get(int index) {
+      return base + deltas.get(index);
+    }
+
+    @Override
+    public void get(int index, double[] dst, int offset, int length) {
+      for (int i = 0; i < length; i++) {
+        dst[offset + i] = base + deltas.get(index + i);
+      }
+    }
+  }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.features;
+
+import io.github.mzmine.datamodel.features.types.DataType;
+import java.util.AbstractMap;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import javafx.beans.InvalidationListener;
+import javafx.collections.MapChangeListener;
+import javafx.collections.ObservableMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Value map of a {@link ModularFeature} or {@link ModularFeatureListRow} in the compact storage
+ * mode. Numeric values are stored in the {@link DataTypeColumns} of the feature list, all other
+ * values in a map that is only created for the first such value. Listener lists are only created
+ * when a listener is added, e.g., by a GUI component.
+ * <p>
+ * Reads do not lock this map. The map of other values is replaced on each change instead of being
+ * modified. The entry set is an unmodifiable snapshot of the current values. The slot in the
+ * columns is released when the row is removed from its feature list or the map is moved to
+ * other columns, see {@link #release()}.
+ */
+class CompactDataModelMap extends AbstractMap<DataType, Object> implements
+    ObservableMap<DataType, Object> {
+
+  private final DataTypeColumns columns;
+  private final int slot;
+  // copy on write, never modified after publication
+  @Nullable
+  private volatile Map<DataType, Object> others;
+  @Nullable
+  private List<MapChangeListener<? super DataType, ? super Object>> changeListeners;
+  @Nullable
+  private List<InvalidationListener> invalidationListeners;
+
+  CompactDataModelMap(@NotNull DataTypeColumns columns, int slot) {
+    this.columns = columns;
+    this.slot = slot;
+  }
+
+  @Override
+  public Object get(Object key) {
+    if (!(key instanceof DataType type)) {
+      return null;
+    }
+    final Object value = columns.get(type, slot);
+    if (value != null) {
+      return value;
+    }
+    final Map<DataType, Object> others = this.others;
+    return others == null ? null : others.get(type);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    if (!(key instanceof DataType type)) {
+      return false;
+    }
+    final Map<DataType, Object> others = this.others;
+    return columns.contains(type, slot) || (others != null && others.containsKey(type));
+  }
+
+  @Override
+  public synchronized Object put(DataType key, Object value) {
+    Objects.requireNonNull(key);
+    final Object old;
+    if (value != null && DataTypeColumns.isColumnValue(key, value)) {
+      final Object otherOld = removeOther(key);
+      final Object columnOld = columns.set(key, slot, value);
+      old = columnOld != null ? columnOld : otherOld;
+    } else {
+      final Map<DataType, Object> changed =
+          others == null ? new HashMap<>(4) : new HashMap<>(others);
+      final Object columnOld = columns.remove(key, slot);
+      final Object otherOld = changed.put(key, value);
+      others = changed;
+      old = columnOld != null ? columnOld : otherOld;
+    }
+    columns.registerType(key);
+    fireChange(key, old, value, true);
+    return old;
+  }
+
+  @Override
+  public synchronized Object remove(Object key) {
+    if (!(key instanceof DataType type) || !containsKey(type)) {
+      return null;
+    }
+    final Object columnOld = columns.remove(type, slot);
+    final Object otherOld = removeOther(type);
+    final Object old = columnOld != null ? columnOld : otherOld;
+    fireChange(type, old, null, false);
+    return old;
+  }
+
+  /**
+   * Replaces the map of other values without this type
+   *
+   * @return the removed value or null
+   */
+  @Nullable
+  private Object removeOther(@NotNull DataType type) {
+    final Map<DataType, Object> others = this.others;
+    if (others == null || !others.containsKey(type)) {
+      return null;
+    }
+    final Map<DataType, Object> changed = new HashMap<>(others);
+    final Object old = changed.remove(type);
+    this.others = changed.isEmpty() ? null : changed;
+    return old;
+  }
+
+  @Override
+  public synchronized void clear() {
+    for (DataType type : List.copyOf(keySet())) {
+      remove(type);
+    }
+  }
+
+  @Override
+  public int size() {
+    final Map<DataType, Object> others = this.others;
+    return columns.size(slot) + (others == null ? 0 : others.size());
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @NotNull
+  @Override
+  public synchronized Set<Entry<DataType, Object>> entrySet() {
+    final Set<Entry<DataType, Object>> entries = new LinkedHashSet<>();
+    columns.forEach(slot,
+        (type, value) -> entries.add(new SimpleImmutableEntry<>(type, value)));
+    final Map<DataType, Object> others = this.others;
+    if (others != null) {
+      for (Entry<DataType, Object> entry : others.entrySet()) {
+        entries.add(new SimpleImmutableEntry<>(entry.getKey(), entry.getValue()));
+      }
+    }
+    return Collections.unmodifiableSet(entries);
+  }
+
+  /**
+   * Moves all values and listeners to a new map backed by other columns. Listeners are attached
+   * after the values were moved, as the values did not change.
+   */
+  @NotNull
+  synchronized CompactDataModelMap copyTo(@NotNull DataTypeColumns target) {
+    final CompactDataModelMap copy = target.createMap();
+    for (Entry<DataType, Object> entry : entrySet()) {
+      copy.put(entry.getKey(), entry.getValue());
+    }
+    if (changeListeners != null) {
+      changeListeners.forEach(copy::addListener);
+    }
+    if (invalidationListeners != null) {
+      invalidationListeners.forEach(copy::addListener);
+    }
+    release();
+    return copy;
+  }
+
+  /**
+   * Removes all values and makes the slot available for new maps of the same columns. The map
+   * must not be used afterwards, e.g., after its row was removed from the feature list.
+   */
+  synchronized void release() {
+    others = null;
+    columns.releaseSlot(slot);
+  }
+
+  int getSlot() {
+    return slot;
+  }
+
+  private void fireChange(DataType key, Object old, Object value, boolean added) {
+    if (invalidationListeners != null) {
+      for (InvalidationListener listener : List.copyOf(invalidationListeners)) {
+        listener.invalidated(this);
+      }
+    }
+    if (changeListeners == null) {
+      return;
+    }
+    final MapChangeListener.Change<DataType, Object> change = new MapChangeListener.Change<>(
+        this) {
+      @Override
+      public boolean wasAdded() {
+        return added;
+      }
+
+      @Override
+      public boolean wasRemoved() {
+        return !added || old != null;
+      }
+
+      @Override
+      public DataType getKey() {
+        return key;
+      }
+
+      @Override
+      public Object getValueAdded() {
+        return added ? value : null;
+      }
+
+      @Override
+      public Object getValueRemoved() {
+        return old;
+      }
+    };
+    for (MapChangeListener<? super DataType, ? super Object> listener : List.copyOf(
+        changeListeners)) {
+      listener.onChanged(change);
+    }
+  }
+
+  @Override
+  public synchronized void addListener(
+      MapChangeListener<? super DataType, ? super Object> listener) {
+    if (changeListeners == null) {
+      changeListeners = new ArrayList<>(1);
+    }
+    changeListeners.add(listener);
+  }
+
+  @Override
+  public synchronized void removeListener(
+      MapChangeListener<? super DataType, ? super Object> listener) {
+    if (changeListeners != null) {
+      changeListeners.remove(listener);
+    }
+  }
+
+  @Override
+  public synchronized void addListener(InvalidationListener listener) {
+    if (invalidationListeners == null) {
+      invalidationListeners = new ArrayList<>(1);
+    }
+    invalidationListeners.add(listener);
+  }
+
+  @Override
+  public synchronized void removeListener(InvalidationListener listener) {
+    if (invalidationListeners != null) {
+      invalidationListeners.remove(listener);
+    }
+  }
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.features;
+
+import io.github.mzmine.datamodel.features.types.DataType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.DoubleType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.FloatType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.IntegerType;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Typed value columns for all features or all rows of a {@link ModularFeatureList} in the compact
+ * storage mode. Each data model gets a slot in all columns and the values of {@link FloatType},
+ * {@link DoubleType} and {@link IntegerType} are stored in primitive arrays instead of boxed
+ * values in a map of each feature. The slot of a map is released and reused once its row was
+ * removed from the feature list or the map was moved to another feature list. Values are read
+ * without locking.
+ *
+ * @see CompactDataModelMap
+ */
+class DataTypeColumns {
+
+  private static final int MIN_CAPACITY = 256;
+
+  private final AtomicInteger nextSlot = new AtomicInteger();
+  // released slots of removed or moved maps
+  private final Queue<Integer> freeSlots = new ConcurrentLinkedQueue<>();
+  private final Map<DataType, Column> columns = new ConcurrentHashMap<>();
+  private final Consumer<DataType> typeRegistration;
+
+  /**
+   * @param typeRegistration called whenever a value is set for a type, usually adds the type to
+   *                         the feature or row types of the feature list
+   */
+  DataTypeColumns(@NotNull Consumer<DataType> typeRegistration) {
+    this.typeRegistration = typeRegistration;
+  }
+
+  /**
+   * @return true if values of this type are stored in a column of these exact classes
+   */
+  static boolean isColumnValue(@NotNull DataType type, @NotNull Object value) {
+    return switch (type) {
+      case FloatType _ -> value.getClass() == Float.class;
+      case DoubleType _ -> value.getClass() == Double.class;
+      case IntegerType _ -> value.getClass() == Integer.class;
+      default -> false;
+    };
+  }
+
+  /**
+   * @return a new map for a data model, backed by a new slot of these columns
+   */
+  @NotNull
+  CompactDataModelMap createMap() {
+    final Integer free = freeSlots.poll();
+    return new CompactDataModelMap(this, free != null ? free : nextSlot.getAndIncrement());
+  }
+
+  /**
+   * Removes all values of a slot that is no longer used by a map and makes it available for new
+   * maps.
+   *
+   * @see CompactDataModelMap#release()
+   */
+  void releaseSlot(int slot) {
+    clear(slot);
+    freeSlots.add(slot);
+  }
+
+  /**
+   * @return the number of slots that were ever assigned, including released slots
+   */
+  int getNumberOfSlots() {
+    return nextSlot.get();
+  }
+
+  void registerType(@NotNull DataType type) {
+    typeRegistration.accept(type);
+  }
+
+  @Nullable
+  Object get(@NotNull DataType type, int slot) {
+    final Column column = columns.get(type);
+    return column == null ? null : column.get(slot);
+  }
+
+  boolean contains(@NotNull DataType type, int slot) {
+    final Column column = columns.get(type);
+    return column != null && column.contains(slot);
+  }
+
+  /**
+   * @param value a value that is accepted by {@link #isColumnValue(DataType, Object)}
+   * @return the old value or null
+   */
+  @Nullable
+  Object set(@NotNull DataType type, int slot, @NotNull Object value) {
+    return columns.computeIfAbsent(type, DataTypeColumns::createColumn).set(slot, value);
+  }
+
+  /**
+   * @return the removed value or null
+   */
+  @Nullable
+  Object remove(@NotNull DataType type, int slot) {
+    final Column column = columns.get(type);
+    return column == null ? null : column.remove(slot);
+  }
+
+  /**
+   * @return the number of values in this slot
+   */
+  int size(int slot) {
+    int size = 0;
+    for (Column column : columns.values()) {
+      if (column.contains(slot)) {
+        size++;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Calls the consumer for all types with a value in this slot
+   */
+  void forEach(int slot, @NotNull BiConsumer<DataType, Object> consumer) {
+    columns.forEach((type, column) -> {
+      final Object value = column.get(slot);
+      if (value != null) {
+        consumer.accept(type, value);
+      }
+    });
+  }
+
+  /**
+   * Removes all values of this slot
+   */
+  void clear(int slot) {
+    for (Column column : columns.values()) {
+      column.remove(slot);
+    }
+  }
+
+  @NotNull
+  private static Column createColumn(@NotNull DataType type) {
+    return switch (type) {
+      case FloatType _ -> new FloatColumn();
+      case DoubleType _ -> new DoubleColumn();
+      case IntegerType _ -> new IntColumn();
+      default -> throw new IllegalArgumentException(
+          "No column for data type " + type.getClass().getName());
+    };
+  }
+
+  /**
+   * A column of primitive values with a bit mask for the slots that have a value. Reads are
+   * optimistic and only fall back to a read lock if a write happened concurrently.
+   */
+  private abstract static class Column {
+
+    private final StampedLock lock = new StampedLock();
+    private long[] present = new long[0];
+
+    protected abstract int capacity();
+
+    protected abstract void resize(int capacity);
+
+    /**
+     * @return the value or null if the slot is outside the capacity, which can only happen for
+     * optimistic reads that are discarded
+     */
+    protected abstract Object value(int slot);
+
+    protected abstract void store(int slot, Object value);
+
+    boolean contains(int slot) {
+      long stamp = lock.tryOptimisticRead();
+      boolean contains = isPresent(slot);
+      if (!lock.validate(stamp)) {
+        stamp = lock.readLock();
+        try {
+          contains = isPresent(slot);
+        } finally {
+          lock.unlockRead(stamp);
+        }
+      }
+      return contains;
+    }
+
+    Object get(int slot) {
+      long stamp = lock.tryOptimisticRead();
+      Object value = read(slot);
+      if (!lock.validate(stamp)) {
+        stamp = lock.readLock();
+        try {
+          value = read(slot);
+        } finally {
+          lock.unlockRead(stamp);
+        }
+      }
+      return value;
+    }
+
+    private boolean isPresent(int slot) {
+      final long[] present = this.present;
+      final int word = slot >>> 6;
+      return word < present.length && (present[word] & (1L << slot)) != 0;
+    }
+
+    private Object read(int slot) {
+      return isPresent(slot) ? value(slot) : null;
+    }
+
+    Object set(int slot, Object value) {
+      final long stamp = lock.writeLock();
+      try {
+        if (slot >= capacity()) {
+          final int capacity = Math.max(MIN_CAPACITY, Math.max(slot + 1, capacity() * 2));
+          resize(capacity);
+          present = Arrays.copyOf(present, (capacity + 63) >>> 6);
+        }
+        final Object old = read(slot);
+        store(slot, value);
+        present[slot >>> 6] |= 1L << slot;
+        return old;
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+    Object remove(int slot) {
+      final long stamp = lock.writeLock();
+      try {
+        final Object old = read(slot);
+        if (old != null) {
+          present[slot >>> 6] &= ~(1L << slot);
+        }
+        return old;
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+  }
+
+  private static class FloatColumn extends Column {
+
+    private float[] values = new float[0];
+
+    @Override
+    protected int capacity() {
+      return values.length;
+    }
+
+    @Override
+    protected void resize(int capacity) {
+      values = Arrays.copyOf(values, capacity);
+    }
+
+    @Override
+    protected Object value(int slot) {
+      final float[] values = this.values;
+      return slot < values.length ? values[slot] : null;
+    }
+
+    @Override
+    protected void store(int slot, Object value) {
+      values[slot] = (Float) value;
+    }
+  }
+
+  private static class DoubleColumn extends Column {
+
+    private double[] values = new double[0];
+
+    @Override
+    protected int capacity() {
+      return values.length;
+    }
+
+    @Override
+    protected void resize(int capacity) {
+      values = Arrays.copyOf(values, capacity);
+    }
+
+    @Override
+    protected Object value(int slot) {
+      final double[] values = this.values;
+      return slot < values.length ? values[slot] : null;
+    }
+
+    @Override
+    protected void store(int slot, Object value) {
+      values[slot] = (Double) value;
+    }
+  }
+
+  private static class IntColumn extends Column {
+
+    private int[] values = new int[0];
+
+    @Override
+    protected int capacity() {
+      return values.length;
+    }
+
+    @Override
+    protected void resize(int capacity) {
+      values = Arrays.copyOf(values, capacity);
+    }
+
+    @Override
+    protected Object value(int slot) {
+      final int[] values = this.values;
+      return slot < values.length ? values[slot] : null;
+    }
+
+    @Override
+    protected void store(int slot, Object value) {
+      values[slot] = (Integer) value;
+    }
+  }
+}
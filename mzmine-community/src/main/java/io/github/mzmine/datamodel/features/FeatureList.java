@@ -30,7 +30,7 @@ import io.github.mzmine.datamodel.ImagingRawDataFile;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.featuredata.IonMobilogramTimeSeries;
-import io.github.mzmine.datamodel.features.correlation.R2RMap;
+import io.github.mzmine.datamodel.features.correlation.R2RGraph;
 import io.github.mzmine.datamodel.features.correlation.R2RNetworkingMaps;
 import io.github.mzmine.datamodel.features.correlation.RowGroup;
 import io.github.mzmine.datamodel.features.correlation.RowsRelationship;
@@ -422,7 +422,7 @@ public interface FeatureList {
    *
    * @return the map for {@link Type#MS1_FEATURE_CORR}
    */
-  default Optional<R2RMap<RowsRelationship>> getMs1CorrelationMap() {
+  default Optional<R2RGraph<RowsRelationship>> getMs1CorrelationMap() {
     return getRowMap(Type.MS1_FEATURE_CORR);
   }
 
@@ -431,7 +431,7 @@ public interface FeatureList {
    *
    * @return the map for {@link Type#MS2_COSINE_SIM}
    */
-  default Optional<R2RMap<RowsRelationship>> getMs2SimilarityMap() {
+  default Optional<R2RGraph<RowsRelationship>> getMs2SimilarityMap() {
     return getRowMap(Type.MS2_COSINE_SIM);
   }
 
@@ -441,7 +441,7 @@ public interface FeatureList {
    * @param relationship the relationship between two rows
    * @return
    */
-  default Optional<R2RMap<RowsRelationship>> getRowMap(Type relationship) {
+  default Optional<R2RGraph<RowsRelationship>> getRowMap(Type relationship) {
     return getRowMap(relationship.toString());
   }
 
@@ -451,7 +451,7 @@ public interface FeatureList {
    * @param type the relationship between two rows
    * @return
    */
-  default Optional<R2RMap<RowsRelationship>> getRowMap(String type) {
+  default Optional<R2RGraph<RowsRelationship>> getRowMap(String type) {
     return getRowMaps().getRowsMap(type);
   }
 
@@ -85,7 +85,8 @@ import org.jetbrains.annotations.Nullable;
 public class ModularFeature implements Feature, ModularDataModel {
 
   private static final Logger logger = Logger.getLogger(ModularFeature.class.getName());
-  private final ObservableMap<DataType, Object> map = FXCollections.observableMap(new HashMap<>());
+  // values of all types or a compact map backed by the feature columns of the feature list
+  private ObservableMap<DataType, Object> map;
   // buffert col charts and nodes
   @NotNull
   private ModularFeatureList flist;
@@ -95,7 +96,14 @@ public class ModularFeature implements Feature, ModularDataModel {
   public ModularFeature(@NotNull ModularFeatureList flist) {
     this.flist = flist;
 
-    //
+    final DataTypeColumns columns = flist.getFeatureColumns();
+    if (columns != null) {
+      // compact mode registers types in the columns
+      map = columns.createMap();
+      return;
+    }
+
+    map = FXCollections.observableMap(new HashMap<>());
     map.addListener((MapChangeListener<? super DataType, ? super Object>) change -> {
       if (change.wasAdded()) {
         flist.addFeatureType(change.getKey());
@@ -430,7 +438,13 @@ public class ModularFeature implements Feature, ModularDataModel {
 
   @Override
   public void setFeatureList(@NotNull FeatureList flist) {
-    this.flist = (ModularFeatureList) flist;
+    final ModularFeatureList newList = (ModularFeatureList) flist;
+    final DataTypeColumns columns = newList.getFeatureColumns();
+    if (newList != this.flist && map instanceof CompactDataModelMap compact && columns != null) {
+      // slots are only valid in the columns of one feature list
+      map = compact.copyTo(columns);
+    }
+    this.flist = newList;
   }
 
   @Override
@@ -39,6 +39,7 @@ import io.github.mzmine.datamodel.features.types.annotations.ManualAnnotationTyp
 import io.github.mzmine.datamodel.features.types.modifiers.GraphicalColumType;
 import io.github.mzmine.datamodel.features.types.numbers.IDType;
 import io.github.mzmine.datamodel.features.types.tasks.NodeGenerationThread;
+import io.github.mzmine.gui.preferences.MZminePreferences;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.io.projectload.CachedIMSFrame;
 import io.github.mzmine.modules.io.projectload.CachedIMSRawDataFile;
@@ -115,6 +116,12 @@ public class ModularFeatureList implements FeatureList {
 
   private final R2RNetworkingMaps r2rNetworkingMaps = new R2RNetworkingMaps();
 
+  // typed value columns of features and rows in the compact storage mode, otherwise null
+  @Nullable
+  private final DataTypeColumns featureColumns;
+  @Nullable
+  private final DataTypeColumns rowColumns;
+
   @NotNull
   private String nameProperty = "";
   private String dateCreated;
@@ -139,6 +146,16 @@ public class ModularFeatureList implements FeatureList {
 
   public ModularFeatureList(String name, @Nullable MemoryMapStorage storage,
       @NotNull List<RawDataFile> dataFiles) {
+    this(name, storage, false, dataFiles);
+  }
+
+  /**
+   * @param compactStorage store numeric values of features and rows in typed columns of this
+   *                       feature list instead of a map in each feature or row, see
+   *                       {@link MZminePreferences#compactFeatureStorage}
+   */
+  public ModularFeatureList(String name, @Nullable MemoryMapStorage storage,
+      boolean compactStorage, @NotNull List<RawDataFile> dataFiles) {
     setName(name);
     this.dataFiles = FXCollections.observableList(dataFiles);
     featureListRows = FXCollections.observableArrayList();
@@ -147,6 +164,14 @@ public class ModularFeatureList implements FeatureList {
     selectedScans = FXCollections.observableMap(new HashMap<>());
     this.memoryMapStorage = storage;
 
+    if (compactStorage) {
+      featureColumns = new DataTypeColumns(this::addFeatureType);
+      rowColumns = new DataTypeColumns(this::addRowType);
+    } else {
+      featureColumns = null;
+      rowColumns = null;
+    }
+
     // only a few standard types
     addRowType(new IDType());
     addRowType(new ManualAnnotationType());
@@ -352,6 +377,29 @@ public class ModularFeatureList implements FeatureList {
     }
   }
 
+  /**
+   * @return true if numeric values of features and rows are stored in typed columns
+   */
+  public boolean isCompactStorage() {
+    return featureColumns != null;
+  }
+
+  /**
+   * @return the value columns of all features in the compact storage mode or null
+   */
+  @Nullable
+  DataTypeColumns getFeatureColumns() {
+    return featureColumns;
+  }
+
+  /**
+   * @return the value columns of all rows in the compact storage mode or null
+   */
+  @Nullable
+  DataTypeColumns getRowColumns() {
+    return rowColumns;
+  }
+
   /**
    * Summary of all feature type columns
    *
@@ -592,7 +640,27 @@ public class ModularFeatureList implements FeatureList {
    */
   @Override
   public void removeRow(FeatureListRow row) {
-    featureListRows.remove(row);
+    if (featureListRows.remove(row) && row instanceof ModularFeatureListRow modularRow) {
+      releaseCompactValues(modularRow);
+    }
+  }
+
+  /**
+   * Makes the column slots of a removed row and its features available for new rows and features
+   * in the compact storage mode. The removed row must not be used afterward.
+   */
+  private void releaseCompactValues(@NotNull ModularFeatureListRow row) {
+    if (!isCompactStorage()) {
+      return;
+    }
+    for (ModularFeature feature : row.getFilesFeatures().values()) {
+      if (feature.getFeatureList() == this && feature.getMap() instanceof CompactDataModelMap map) {
+        map.release();
+      }
+    }
+    if (row.getFeatureList() == this && row.getMap() instanceof CompactDataModelMap map) {
+      map.release();
+    }
   }
 
   /**
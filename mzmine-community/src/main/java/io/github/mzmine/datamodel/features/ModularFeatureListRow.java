@@ -107,7 +107,7 @@ public class ModularFeatureListRow implements FeatureListRow {
    * this final map is used in the FeaturesType - only ModularFeatureListRow is supposed to change
    * this map see {@link #addFeature}
    */
-  private final ObservableMap<DataType, Object> map = FXCollections.observableMap(new HashMap<>());
+  private ObservableMap<DataType, Object> map;
   private final Map<RawDataFile, ModularFeature> features;
   @NotNull
   private ModularFeatureList flist;
@@ -121,18 +121,26 @@ public class ModularFeatureListRow implements FeatureListRow {
   public ModularFeatureListRow(@NotNull ModularFeatureList flist, int id) {
     this.flist = flist;
 
-    map.addListener((MapChangeListener<? super DataType, ? super Object>) change -> {
-      if (change.wasAdded()) {
-        flist.addRowType(change.getKey());
-      }
-    });
+    final DataTypeColumns columns = flist.getRowColumns();
+    if (columns != null) {
+      // compact mode registers types in the columns
+      map = columns.createMap();
+    } else {
+      map = FXCollections.observableMap(new HashMap<>());
+      map.addListener((MapChangeListener<? super DataType, ? super Object>) change -> {
+        if (change.wasAdded()) {
+          flist.addRowType(change.getKey());
+        }
+      });
+    }
 
     // features
     List<RawDataFile> raws = flist.getRawDataFiles();
     if (!raws.isEmpty()) {
       // init FeaturesType map (is final)
       HashMap<RawDataFile, ModularFeature> fmap = new HashMap<>(raws.size());
-      features = (FXCollections.observableMap(fmap));
+      // no observable wrapper in compact mode
+      features = columns != null ? fmap : FXCollections.observableMap(fmap);
       // set
       set(FeaturesType.class, features);
     } else {
@@ -379,7 +387,13 @@ public class ModularFeatureListRow implements FeatureListRow {
       throw new IllegalArgumentException(
           "Cannot set non-modular feature list to modular feature list row.");
     }
-    this.flist = (ModularFeatureList) flist;
+    final ModularFeatureList newList = (ModularFeatureList) flist;
+    final DataTypeColumns columns = newList.getRowColumns();
+    if (newList != this.flist && map instanceof CompactDataModelMap compact && columns != null) {
+      // slots are only valid in the columns of one feature list
+      map = compact.copyTo(columns);
+    }
+    this.flist = newList;
   }
 
   @Override
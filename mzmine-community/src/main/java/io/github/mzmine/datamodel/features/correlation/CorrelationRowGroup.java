@@ -44,7 +44,7 @@ public class CorrelationRowGroup extends RowGroupFull {
    *
    * @param corrMap
    */
-  public void recalcGroupCorrelation(R2RMap<R2RCorrelationData> corrMap) {
+  public void recalcGroupCorrelation(R2RGraph<R2RCorrelationData> corrMap) {
     // init
     corr = new R2GroupCorrelationData[this.size()];
 
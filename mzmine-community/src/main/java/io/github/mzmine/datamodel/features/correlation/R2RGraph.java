@@ -0,0 +1,475 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.features.correlation;
+
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Immutable graph of row-2-row relationships in compressed sparse row (CSR) format. Each
+ * undirected edge is stored once with its relationship and score in primitive columns, the
+ * adjacency of each row is stored twice (once per direction) as sorted row IDs. Neighbours of a
+ * row are found in O(log(rows) + degree) without boxing, pairing keys are not needed. Use
+ * {@link Builder} to collect relationships.
+ * <p>
+ * Edges that are fully described by their rows and score can be added without a relationship
+ * object, see {@link Builder#add(FeatureListRow, FeatureListRow, float)}. The relationship is then
+ * created by the {@link EdgeFactory} of the graph on access and is not kept.
+ *
+ * @param <T> the relationship type
+ */
+public class R2RGraph<T extends RowsRelationship> {
+
+  // sorted IDs of all rows with at least one edge
+  private final int[] rowIds;
+  // rows of edges without relationship object, otherwise null
+  private final FeatureListRow[] rows;
+  // row i has its adjacency in [offsets[i], offsets[i+1])
+  private final int[] offsets;
+  // adjacency sorted by the neighbour row ID for each row, with the index of the edge
+  private final int[] neighbourIds;
+  private final int[] neighbourEdges;
+  // edge columns, each undirected edge once. Row IDs a and b of edge e are at 2e and 2e+1
+  private final int[] edgeRowIds;
+  // null for edges that are created by the factory
+  private final RowsRelationship[] edges;
+  private final float[] scores;
+  private final @Nullable EdgeFactory<T> factory;
+
+  private R2RGraph(int[] rowIds, FeatureListRow[] rows, int[] offsets, int[] neighbourIds,
+      int[] neighbourEdges, int[] edgeRowIds, RowsRelationship[] edges, float[] scores,
+      @Nullable EdgeFactory<T> factory) {
+    this.rowIds = rowIds;
+    this.rows = rows;
+    this.offsets = offsets;
+    this.neighbourIds = neighbourIds;
+    this.neighbourEdges = neighbourEdges;
+    this.edgeRowIds = edgeRowIds;
+    this.edges = edges;
+    this.scores = scores;
+    this.factory = factory;
+  }
+
+  /**
+   * Builds the graph from the edges of a builder. Pairs are undirected, the last edge of a pair is
+   * kept.
+   */
+  private static <T extends RowsRelationship> R2RGraph<T> of(@NotNull Builder<T> builder) {
+    final int size = builder.size();
+    final int[] low = new int[size];
+    final int[] high = new int[size];
+    for (int i = 0; i < size; i++) {
+      final int a = builder.ids.getInt(i * 2);
+      final int b = builder.ids.getInt(i * 2 + 1);
+      low[i] = Math.min(a, b);
+      high[i] = Math.max(a, b);
+    }
+    // stable sort keeps the insertion order of duplicate pairs
+    final int[] order = new int[size];
+    Arrays.setAll(order, i -> i);
+    IntArrays.mergeSort(order, (i, j) -> low[i] != low[j] ? Integer.compare(low[i], low[j])
+        : Integer.compare(high[i], high[j]));
+
+    // unique edges sorted by low and high row ID, keep the last of duplicates
+    final IntArrayList unique = new IntArrayList(size);
+    for (int k = 0; k < size; k++) {
+      final int i = order[k];
+      if (k + 1 < size && low[order[k + 1]] == low[i] && high[order[k + 1]] == high[i]) {
+        continue;
+      }
+      unique.add(i);
+    }
+    final int numEdges = unique.size();
+
+    final int[] ids = new int[numEdges * 2];
+    for (int e = 0; e < numEdges; e++) {
+      ids[e * 2] = low[unique.getInt(e)];
+      ids[e * 2 + 1] = high[unique.getInt(e)];
+    }
+    final int[] rowIds = Arrays.stream(ids).sorted().distinct().toArray();
+    final FeatureListRow[] rows = new FeatureListRow[rowIds.length];
+    for (int r = 0; r < rowIds.length; r++) {
+      rows[r] = builder.rows.get(rowIds[r]);
+    }
+
+    final int[] offsets = new int[rowIds.length + 1];
+    for (int e = 0; e < numEdges; e++) {
+      final int i = unique.getInt(e);
+      offsets[Arrays.binarySearch(rowIds, low[i]) + 1]++;
+      if (low[i] != high[i]) {
+        offsets[Arrays.binarySearch(rowIds, high[i]) + 1]++;
+      }
+    }
+    for (int r = 0; r < rowIds.length; r++) {
+      offsets[r + 1] += offsets[r];
+    }
+
+    // edges are sorted by (low, high): for each row, all smaller neighbours (row is high) are
+    // added before all larger neighbours (row is low) and both in ascending order
+    final int[] cursor = Arrays.copyOf(offsets, rowIds.length);
+    final int[] neighbourIds = new int[offsets[rowIds.length]];
+    final int[] neighbourEdges = new int[neighbourIds.length];
+    final int[] edgeRowIds = new int[numEdges * 2];
+    final RowsRelationship[] edges = new RowsRelationship[numEdges];
+    final float[] scores = new float[numEdges];
+    for (int e = 0; e < numEdges; e++) {
+      final int i = unique.getInt(e);
+      edgeRowIds[e * 2] = builder.ids.getInt(i * 2);
+      edgeRowIds[e * 2 + 1] = builder.ids.getInt(i * 2 + 1);
+      edges[e] = builder.relationships.get(i);
+      scores[e] = builder.scores.getFloat(i);
+
+      final int a = Arrays.binarySearch(rowIds, low[i]);
+      neighbourIds[cursor[a]] = high[i];
+      neighbourEdges[cursor[a]++] = e;
+      if (low[i] != high[i]) {
+        final int b = Arrays.binarySearch(rowIds, high[i]);
+        neighbourIds[cursor[b]] = low[i];
+        neighbourEdges[cursor[b]++] = e;
+      }
+    }
+    return new R2RGraph<>(rowIds, rows, offsets, neighbourIds, neighbourEdges, edgeRowIds, edges,
+        scores, builder.factory);
+  }
+
+  /**
+   * @return the relationship of an edge, created by the factory if it was added without
+   */
+  @SuppressWarnings("unchecked")
+  private T edge(int e) {
+    final RowsRelationship relationship = edges[e];
+    if (relationship != null) {
+      return (T) relationship;
+    }
+    assert factory != null;
+    return factory.create(getRow(edgeRowIds[e * 2]), getRow(edgeRowIds[e * 2 + 1]), scores[e]);
+  }
+
+  private FeatureListRow getRow(int rowId) {
+    return rows[Arrays.binarySearch(rowIds, rowId)];
+  }
+
+  /**
+   * @return number of edges
+   */
+  public int size() {
+    return edges.length;
+  }
+
+  public boolean isEmpty() {
+    return edges.length == 0;
+  }
+
+  /**
+   * @return all relationships, each undirected edge once. Relationships of edges without
+   * relationship object are created on access.
+   */
+  public List<T> values() {
+    return new AbstractList<>() {
+      @Override
+      public T get(int index) {
+        return edge(index);
+      }
+
+      @Override
+      public int size() {
+        return edges.length;
+      }
+    };
+  }
+
+  /**
+   * Arguments a and b yield the same result in any order.
+   *
+   * @return the relationship of a-b (== b-a) or null if no edge exists
+   */
+  @Nullable
+  public T get(FeatureListRow a, FeatureListRow b) {
+    return get(a.getID(), b.getID());
+  }
+
+  /**
+   * Arguments a and b yield the same result in any order.
+   *
+   * @return the relationship of the rows with ID a and b or null if no edge exists
+   */
+  @Nullable
+  public T get(int rowIdA, int rowIdB) {
+    final int edge = findEdge(rowIdA, rowIdB);
+    return edge < 0 ? null : edge(edge);
+  }
+
+  /**
+   * The order of arguments does not matter
+   *
+   * @return true if an edge exists between a and b
+   */
+  public boolean contains(FeatureListRow a, FeatureListRow b) {
+    return findEdge(a.getID(), b.getID()) >= 0;
+  }
+
+  /**
+   * @return the score of the edge between a and b from the primitive score column or NaN if no
+   * edge exists
+   */
+  public float getScore(FeatureListRow a, FeatureListRow b) {
+    final int edge = findEdge(a.getID(), b.getID());
+    return edge < 0 ? Float.NaN : scores[edge];
+  }
+
+  /**
+   * @return number of edges of this row
+   */
+  public int getDegree(FeatureListRow row) {
+    final int r = Arrays.binarySearch(rowIds, row.getID());
+    return r < 0 ? 0 : offsets[r + 1] - offsets[r];
+  }
+
+  /**
+   * @return the IDs of all rows that share an edge with this row in ascending order
+   */
+  public int[] getNeighbourIds(FeatureListRow row) {
+    final int r = Arrays.binarySearch(rowIds, row.getID());
+    return r < 0 ? new int[0] : Arrays.copyOfRange(neighbourIds, offsets[r], offsets[r + 1]);
+  }
+
+  /**
+   * All relationships of a row in O(degree). Mapping is based on the ID of the rows. Make sure the
+   * row originates from the same feature list as this graph.
+   *
+   * @param row the row to search relationships for
+   * @return all relationships of this row sorted by the ID of the other row
+   */
+  public List<T> getRelationships(FeatureListRow row) {
+    final int r = Arrays.binarySearch(rowIds, row.getID());
+    if (r < 0) {
+      return List.of();
+    }
+    final List<T> result = new ArrayList<>(offsets[r + 1] - offsets[r]);
+    for (int i = offsets[r]; i < offsets[r + 1]; i++) {
+      result.add(edge(neighbourEdges[i]));
+    }
+    return result;
+  }
+
+  /**
+   * All relationships of a row to one of the rows in allRows. Mapping is based on the ID of the
+   * rows, use the rows of the current feature list to skip edges to rows that were removed or
+   * that belong to other feature lists with the same ID.
+   *
+   * @param row     the row to search relationships for
+   * @param allRows a collection of all rows to check for relationships
+   * @return relationships in the order of allRows
+   */
+  public Stream<T> streamAllCorrelatedRows(FeatureListRow row,
+      Collection<? extends FeatureListRow> allRows) {
+    final int r = Arrays.binarySearch(rowIds, row.getID());
+    if (r < 0) {
+      return Stream.empty();
+    }
+    return allRows.stream().<T>mapMulti((otherRow, consumer) -> {
+      final int i = Arrays.binarySearch(neighbourIds, offsets[r], offsets[r + 1],
+          otherRow.getID());
+      if (i >= 0) {
+        consumer.accept(edge(neighbourEdges[i]));
+      }
+    });
+  }
+
+  /**
+   * @return the edge index or -1
+   */
+  private int findEdge(int rowIdA, int rowIdB) {
+    final int r = Arrays.binarySearch(rowIds, rowIdA);
+    if (r < 0) {
+      return -1;
+    }
+    final int i = Arrays.binarySearch(neighbourIds, offsets[r], offsets[r + 1], rowIdB);
+    return i < 0 ? -1 : neighbourEdges[i];
+  }
+
+  /**
+   * Creates the relationship of an edge that was added only with its rows and score
+   */
+  @FunctionalInterface
+  public interface EdgeFactory<T extends RowsRelationship> {
+
+    @NotNull T create(@NotNull FeatureListRow a, @NotNull FeatureListRow b, float score);
+  }
+
+  /**
+   * Collects relationships in append buffers. A builder is owned by its caller and is not thread
+   * safe, concurrent callers need to synchronize or use one builder each and combine them with
+   * {@link #addAll(Builder)}. Pairs are undirected, the last relationship added for a pair is
+   * kept.
+   */
+  public static class Builder<T extends RowsRelationship> {
+
+    // row IDs a and b of edge i at 2i and 2i+1
+    private final IntArrayList ids = new IntArrayList();
+    private final FloatArrayList scores = new FloatArrayList();
+    // null for edges added without relationship
+    private final List<RowsRelationship> relationships = new ArrayList<>();
+    // rows of edges added without relationship
+    private final Int2ObjectOpenHashMap<FeatureListRow> rows = new Int2ObjectOpenHashMap<>();
+    private @Nullable EdgeFactory<T> factory;
+
+    public Builder() {
+      this(null);
+    }
+
+    /**
+     * @param factory creates the relationships of edges that are added only with their score
+     */
+    public Builder(@Nullable EdgeFactory<T> factory) {
+      this.factory = factory;
+    }
+
+    /**
+     * Adds a relationship for its rows A and B
+     */
+    public void add(@NotNull T relationship) {
+      add(relationship.getRowA(), relationship.getRowB(), relationship);
+    }
+
+    /**
+     * Maps a relationship to two rows. Arguments a and b are interchangeable.
+     */
+    public void add(FeatureListRow a, FeatureListRow b, @NotNull T relationship) {
+      addEdge(a.getID(), b.getID(), relationship, (float) relationship.getScore());
+    }
+
+    /**
+     * Adds an edge without relationship object. The relationship is created by the factory of
+     * this builder on access. Arguments a and b are interchangeable.
+     */
+    public void add(@NotNull FeatureListRow a, @NotNull FeatureListRow b, float score) {
+      if (factory == null) {
+        throw new IllegalStateException("Edges without relationship require an edge factory");
+      }
+      rows.putIfAbsent(a.getID(), a);
+      rows.putIfAbsent(b.getID(), b);
+      addEdge(a.getID(), b.getID(), null, score);
+    }
+
+    private void addEdge(int a, int b, @Nullable RowsRelationship relationship, float score) {
+      ids.add(a);
+      ids.add(b);
+      relationships.add(relationship);
+      scores.add(score);
+    }
+
+    public void addAll(@NotNull Collection<? extends T> relationships) {
+      for (final T relationship : relationships) {
+        add(relationship);
+      }
+    }
+
+    /**
+     * Adds all edges of a graph. Edges without relationship object stay without if this builder
+     * uses the same factory or has none yet.
+     */
+    @SuppressWarnings("unchecked")
+    public void addAll(@NotNull R2RGraph<? extends T> graph) {
+      if (factory == null) {
+        factory = (EdgeFactory<T>) graph.factory;
+      }
+      final boolean sameFactory = factory == graph.factory;
+      for (int e = 0; e < graph.size(); e++) {
+        final int a = graph.edgeRowIds[e * 2];
+        final int b = graph.edgeRowIds[e * 2 + 1];
+        final RowsRelationship relationship = graph.edges[e];
+        if (relationship == null && sameFactory) {
+          rows.putIfAbsent(a, graph.getRow(a));
+          rows.putIfAbsent(b, graph.getRow(b));
+          addEdge(a, b, null, graph.scores[e]);
+        } else {
+          addEdge(a, b, relationship != null ? relationship : graph.edge(e), graph.scores[e]);
+        }
+      }
+    }
+
+    /**
+     * Adds all edges of another builder, e.g., of another thread
+     */
+    @SuppressWarnings("unchecked")
+    public void addAll(@NotNull Builder<? extends T> other) {
+      if (factory == null) {
+        factory = (EdgeFactory<T>) other.factory;
+      }
+      final boolean sameFactory = factory == other.factory;
+      for (int i = 0; i < other.size(); i++) {
+        final int a = other.ids.getInt(i * 2);
+        final int b = other.ids.getInt(i * 2 + 1);
+        final RowsRelationship relationship = other.relationships.get(i);
+        final float score = other.scores.getFloat(i);
+        if (relationship != null) {
+          addEdge(a, b, relationship, score);
+        } else if (sameFactory) {
+          rows.putIfAbsent(a, other.rows.get(a));
+          rows.putIfAbsent(b, other.rows.get(b));
+          addEdge(a, b, null, score);
+        } else {
+          addEdge(a, b, other.factory.create(other.rows.get(a), other.rows.get(b), score), score);
+        }
+      }
+    }
+
+    /**
+     * @return number of added relationships including duplicate pairs
+     */
+    public int size() {
+      return relationships.size();
+    }
+
+    public boolean isEmpty() {
+      return relationships.isEmpty();
+    }
+
+    /**
+     * Freezes all edges into a graph and clears this builder
+     */
+    public R2RGraph<T> build() {
+      final R2RGraph<T> graph = of(this);
+      ids.clear();
+      scores.clear();
+      relationships.clear();
+      rows.clear();
+      return graph;
+    }
+  }
+}
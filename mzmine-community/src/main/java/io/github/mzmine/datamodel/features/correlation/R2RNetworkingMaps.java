@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2004-2023 The MZmine Development Team
+ * Copyright (c) 2004-2024 The MZmine Development Team
  *
  * Permission is hereby granted, free of charge, to any person
  * obtaining a copy of this software and associated documentation
@@ -27,63 +27,125 @@ package io.github.mzmine.datamodel.features.correlation;
 
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.correlation.RowsRelationship.Type;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 /**
- * Contains all the {@link R2RMap} for networking of rows
+ * Contains all the {@link R2RGraph} for networking of rows. Added relationships are collected per
+ * type and merged into the graphs once on the next read, so that multiple additions only rebuild
+ * each graph once.
  */
 public class R2RNetworkingMaps {
 
-  // a map that stores row-2-row relationship maps for MS1, MS2, and other relationships
+  // graphs that store row-2-row relationships for MS1, MS2, and other relationships
   // key is the type of the relationship
-  private final Map<String, R2RMap<RowsRelationship>> r2rMaps = new ConcurrentHashMap<>();
+  private final Map<String, R2RGraph<RowsRelationship>> r2rGraphs = new ConcurrentHashMap<>();
+  // added relationships that are not yet part of the graphs, guarded by this
+  private final Map<String, R2RGraph.Builder<RowsRelationship>> pending = new HashMap<>();
+  // fast path for reads without pending changes
+  private volatile boolean hasPending = false;
 
-  public void addAllRowsRelationships(R2RMap<? extends RowsRelationship> map, Type relationship) {
-    addAllRowsRelationships(map, relationship.toString());
+  public void addAllRowsRelationships(R2RGraph<? extends RowsRelationship> graph,
+      Type relationship) {
+    addAllRowsRelationships(graph, relationship.toString());
   }
 
-  public void addAllRowsRelationships(R2RMap<? extends RowsRelationship> map, String type) {
-    R2RMap<RowsRelationship> rowMap = r2rMaps.computeIfAbsent(type, key -> new R2RMap<>());
-    rowMap.putAll(map);
+  /**
+   * Adds all edges of the graph to the graph of this type on the next read. Relationships replace
+   * existing relationships of the same pair of rows.
+   */
+  public synchronized void addAllRowsRelationships(R2RGraph<? extends RowsRelationship> graph,
+      String type) {
+    getPending(type).addAll(graph);
   }
 
-  public void addRowsRelationship(FeatureListRow a, FeatureListRow b,
+  /**
+   * Adds the relationships to the graph of this type on the next read. Relationships replace
+   * existing relationships of the same pair of rows.
+   */
+  public synchronized void addAllRowsRelationships(
+      Collection<? extends RowsRelationship> relationships, String type) {
+    getPending(type).addAll(relationships);
+  }
+
+  /**
+   * Adds a single relationship on the next read. Can be called concurrently.
+   */
+  public synchronized void addRowsRelationship(FeatureListRow a, FeatureListRow b,
       RowsRelationship relationship) {
-    R2RMap<RowsRelationship> rowMap = r2rMaps.computeIfAbsent(relationship.getType(),
-        key -> new R2RMap<>());
-    rowMap.add(a, b, relationship);
+    getPending(relationship.getType()).add(a, b, relationship);
+  }
+
+  private R2RGraph.Builder<RowsRelationship> getPending(String type) {
+    hasPending = true;
+    return pending.computeIfAbsent(type, _ -> new R2RGraph.Builder<>());
+  }
+
+  /**
+   * Merges all pending relationships into the graphs. Each graph is rebuilt once.
+   */
+  private void mergePending() {
+    if (!hasPending) {
+      return;
+    }
+    synchronized (this) {
+      for (final Entry<String, R2RGraph.Builder<RowsRelationship>> entry : pending.entrySet()) {
+        final R2RGraph<RowsRelationship> current = r2rGraphs.get(entry.getKey());
+        final R2RGraph.Builder<RowsRelationship> builder;
+        if (current == null) {
+          builder = entry.getValue();
+        } else {
+          // current edges first so that added relationships replace them
+          builder = new R2RGraph.Builder<>();
+          builder.addAll(current);
+          builder.addAll(entry.getValue());
+        }
+        r2rGraphs.put(entry.getKey(), builder.build());
+      }
+      pending.clear();
+      hasPending = false;
+    }
   }
 
   @Nullable
-  public R2RMap<RowsRelationship> removeAllRowRelationships(Type type) {
+  public R2RGraph<RowsRelationship> removeAllRowRelationships(Type type) {
     return removeAllRowRelationships(type.toString());
   }
 
   @Nullable
-  public R2RMap<RowsRelationship> removeAllRowRelationships(String type) {
-    return r2rMaps.remove(type);
+  public synchronized R2RGraph<RowsRelationship> removeAllRowRelationships(String type) {
+    mergePending();
+    return r2rGraphs.remove(type);
   }
 
-  public Map<String, R2RMap<RowsRelationship>> getRowsMaps() {
-    return r2rMaps;
+  /**
+   * @return unmodifiable map of all graphs, key is the type of the relationship
+   */
+  public @NotNull Map<String, R2RGraph<RowsRelationship>> getRowsMaps() {
+    mergePending();
+    return Collections.unmodifiableMap(r2rGraphs);
   }
 
-  public Optional<R2RMap<RowsRelationship>> getRowsMap(String type) {
-    return Optional.ofNullable(r2rMaps.get(type));
+  public Optional<R2RGraph<RowsRelationship>> getRowsMap(String type) {
+    mergePending();
+    return Optional.ofNullable(r2rGraphs.get(type));
   }
 
 
   public boolean isEmpty() {
-    return r2rMaps.isEmpty();
+    return r2rGraphs.isEmpty() && !hasPending;
   }
 
   public void addAll(final R2RNetworkingMaps maps) {
-    for (final Entry<String, R2RMap<RowsRelationship>> map : maps.getRowsMaps().entrySet()) {
-      addAllRowsRelationships(map.getValue(), map.getKey());
+    for (final Entry<String, R2RGraph<RowsRelationship>> graph : maps.getRowsMaps().entrySet()) {
+      addAllRowsRelationships(graph.getValue(), graph.getKey());
     }
   }
 }
@@ -33,7 +33,7 @@ import org.jetbrains.annotations.NotNull;
  */
 public class R2RSpectralSimilarity extends InternalTypedRowsRelationship {
 
-  private final SpectralSimilarity similarity;
+  private final double cosine;
 
   /**
    * Modified cosine similarity imported from GNPS
@@ -45,13 +45,23 @@ public class R2RSpectralSimilarity extends InternalTypedRowsRelationship {
    */
   public R2RSpectralSimilarity(FeatureListRow a, FeatureListRow b, Type type,
       SpectralSimilarity similarity) {
+    this(a, b, type, similarity.cosine());
+  }
+
+  /**
+   * @param a      the two rows
+   * @param b      the two rows
+   * @param type   the similarity type
+   * @param cosine cosine similarity
+   */
+  public R2RSpectralSimilarity(FeatureListRow a, FeatureListRow b, Type type, double cosine) {
     super(a, b, type);
-    this.similarity = similarity;
+    this.cosine = cosine;
   }
 
   @Override
   public double getScore() {
-    return similarity.cosine();
+    return cosine;
   }
 
   @NotNull
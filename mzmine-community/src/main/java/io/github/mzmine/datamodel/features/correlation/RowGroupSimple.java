@@ -37,12 +37,12 @@ import java.util.List;
 public class RowGroupSimple implements RowGroup {
 
   // running index of groups
-  private final R2RMap<RowsRelationship> map;
+  private final R2RGraph<RowsRelationship> map;
   protected int groupID;
   protected List<FeatureListRow> rows;
 
 
-  public RowGroupSimple(final int groupID, R2RMap<RowsRelationship> map) {
+  public RowGroupSimple(final int groupID, R2RGraph<RowsRelationship> map) {
     this.groupID = groupID;
     this.map = map;
     rows = new ArrayList<>();
@@ -75,7 +75,7 @@ public class RowGroupSimple implements RowGroup {
 
   @Override
   public boolean isCorrelated(final FeatureListRow a, final FeatureListRow b) {
-    return map.get(a, b) != null;
+    return map.contains(a, b);
   }
 
   @Override
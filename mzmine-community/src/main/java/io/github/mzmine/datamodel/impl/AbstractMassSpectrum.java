@@ -29,9 +29,7 @@ import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.MassSpectrum;
 import io.github.mzmine.datamodel.MassSpectrumType;
-import io.github.mzmine.util.DataPointUtils;
 import io.github.mzmine.util.scans.ScanUtils;
-import java.nio.DoubleBuffer;
 import java.util.Iterator;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
@@ -52,15 +50,9 @@ public abstract class AbstractMassSpectrum implements MassSpectrum {
 
   protected synchronized void updateMzRangeAndTICValues() {
 
-    final DoubleBuffer mzValues = getMzValues();
-    final DoubleBuffer intensityValues = getIntensityValues();
+    final int numDp = getNumberOfDataPoints();
 
-    assert mzValues != null;
-    assert intensityValues != null;
-    assert mzValues.limit() == intensityValues.limit();
-
-
-    if (mzValues.limit() == 0) {
+    if (numDp == 0) {
       totalIonCurrent = 0.0;
       mzRange = null;
       basePeakIndex = null;
@@ -69,19 +61,19 @@ public abstract class AbstractMassSpectrum implements MassSpectrum {
 
     basePeakIndex = 0;
 
-    double lastMz = mzValues.get(0);
-    double maxIntensity = intensityValues.get(0);
+    double lastMz = getMzValue(0);
+    double maxIntensity = getIntensityValue(0);
     totalIonCurrent = maxIntensity;
-    for (int i = 1; i < mzValues.limit(); i++) {
+    for (int i = 1; i < numDp; i++) {
 
       // Check the order of the m/z values
-      double mz = mzValues.get(i);
+      double mz = getMzValue(i);
       if (lastMz > mz) {
         throw new IllegalArgumentException("The m/z values must be sorted in ascending order");
       }
 
       // Update base peak index
-      double intensity = intensityValues.get(i);
+      double intensity = getIntensityValue(i);
       if (intensity > maxIntensity) {
         basePeakIndex = i;
         maxIntensity = intensity;
@@ -93,18 +85,10 @@ public abstract class AbstractMassSpectrum implements MassSpectrum {
       lastMz = mz;
     }
     // set range after checking the order
-    mzRange = Range.closed(mzValues.get(0), mzValues.get(mzValues.limit() - 1));
+    mzRange = Range.closed(getMzValue(0), getMzValue(numDp - 1));
   }
 
 
-  /**
-   * @see io.github.mzmine.datamodel.Scan#getNumberOfDataPoints()
-   */
-  @Override
-  public int getNumberOfDataPoints() {
-    return getMzValues().limit();
-  }
-
   /**
    * @see io.github.mzmine.datamodel.Scan#
    */
@@ -133,9 +117,9 @@ public abstract class AbstractMassSpectrum implements MassSpectrum {
   @Override
   public MassSpectrumType getSpectrumType() {
     if (spectrumType == null) {
-      spectrumType = ScanUtils.detectSpectrumType(
-          DataPointUtils.getDoubleBufferAsArray(getMzValues()),
-          DataPointUtils.getDoubleBufferAsArray(getIntensityValues()));
+      final int numDp = getNumberOfDataPoints();
+      spectrumType = ScanUtils.detectSpectrumType(getMzValues(new double[numDp]),
+          getIntensityValues(new double[numDp]));
     }
 
     return spectrumType;
@@ -145,23 +129,13 @@ public abstract class AbstractMassSpectrum implements MassSpectrum {
     this.spectrumType = spectrumType;
   }
 
-  @Override
-  public double getMzValue(int index) {
-    return getMzValues().get(index);
-  }
-
-  @Override
-  public double getIntensityValue(int index) {
-    return getIntensityValues().get(index);
-  }
-
   @Override
   @Nullable
   public Double getBasePeakMz() {
     if (basePeakIndex == null) {
       return null;
     } else {
-      return getMzValues().get(basePeakIndex);
+      return getMzValue(basePeakIndex);
     }
   }
 
@@ -171,14 +145,10 @@ public abstract class AbstractMassSpectrum implements MassSpectrum {
     if (basePeakIndex == null) {
       return null;
     } else {
-      return getIntensityValues().get(basePeakIndex);
+      return getIntensityValue(basePeakIndex);
     }
   }
 
-  abstract DoubleBuffer getMzValues();
-
-  abstract DoubleBuffer getIntensityValues();
-
   @Override
   public Iterator<DataPoint> iterator() {
     return new DataPointIterator(this);
@@ -27,6 +27,7 @@ package io.github.mzmine.datamodel.impl;
 
 import io.github.mzmine.datamodel.Frame;
 import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
+import io.github.mzmine.datamodel.featuredata.impl.StoredDoubleValues;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SimpleSpectralArrays;
 import io.github.mzmine.util.DataPointUtils;
 import io.github.mzmine.util.MemoryMapStorage;
@@ -43,8 +44,8 @@ public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
   private static final Logger logger = Logger.getLogger(AbstractStorableSpectrum.class.getName());
   public static final DoubleBuffer EMPTY_BUFFER = DoubleBuffer.wrap(new double[0]);
 
-  protected DoubleBuffer mzValues;
-  protected DoubleBuffer intensityValues;
+  protected StoredDoubleValues mzValues;
+  protected StoredDoubleValues intensityValues;
 
   /**
    * Note: mz and intensity values for a scan shall only be set once and are enforced to be
@@ -66,12 +67,22 @@ public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
 
   public AbstractStorableSpectrum(@Nullable DoubleBuffer mzValues,
       @Nullable DoubleBuffer intensityValues) {
+    this(mzValues == null ? null : new StoredDoubleValues.Doubles(mzValues),
+        intensityValues == null ? null : new StoredDoubleValues.Doubles(intensityValues));
+  }
+
+  /**
+   * @param mzValues        already stored m/z values, e.g., with reduced precision
+   * @param intensityValues already stored intensity values
+   */
+  public AbstractStorableSpectrum(@Nullable StoredDoubleValues mzValues,
+      @Nullable StoredDoubleValues intensityValues) {
     if (mzValues == null ^ intensityValues == null) {
       // one is null the other not
       throw new IllegalArgumentException(
           "%s is null and the other not".formatted(mzValues == null ? "mzs" : "intensities"));
     } else if (mzValues != null) {
-      assert mzValues.limit() == intensityValues.limit();
+      assert mzValues.size() == intensityValues.size();
       this.mzValues = mzValues;
       this.intensityValues = intensityValues;
       //todo transfer checks
@@ -99,8 +110,9 @@ public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
     SimpleSpectralArrays sorted = DataPointUtils.ensureSortingMzAscendingDefault(
         new SimpleSpectralArrays(mzValues, intensityValues));
 
-    this.mzValues = StorageUtils.storeValuesToDoubleBuffer(storage, sorted.mzs());
-    this.intensityValues = StorageUtils.storeValuesToDoubleBuffer(storage, sorted.intensities());
+    // stored with the precision set in the preferences
+    this.mzValues = StorageUtils.storeMzValues(storage, sorted.mzs());
+    this.intensityValues = StorageUtils.storeIntensityValues(storage, sorted.intensities());
     onDataChangedEvent();
   }
 
@@ -108,20 +120,19 @@ public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
     updateMzRangeAndTICValues();
   }
 
-  DoubleBuffer getMzValues() {
-    if (mzValues == null) {
-      return EMPTY_BUFFER;
-    } else {
-      return mzValues;
-    }
+  @Override
+  public int getNumberOfDataPoints() {
+    return mzValues == null ? 0 : mzValues.size();
   }
 
-  DoubleBuffer getIntensityValues() {
-    if (intensityValues == null) {
-      return EMPTY_BUFFER;
-    } else {
-      return intensityValues;
-    }
+  @Override
+  public double getMzValue(int index) {
+    return mzValues.get(index);
+  }
+
+  @Override
+  public double getIntensityValue(int index) {
+    return intensityValues.get(index);
   }
 
   @Override
@@ -129,11 +140,7 @@ public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
     if (mzValues == null) {
       return new double[0];
     }
-    if (dst.length < getNumberOfDataPoints()) {
-      dst = new double[getNumberOfDataPoints()];
-    }
-    mzValues.get(0, dst, 0, getNumberOfDataPoints());
-    return dst;
+    return mzValues.get(dst);
   }
 
   @Override
@@ -141,12 +148,24 @@ public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
     if (intensityValues == null) {
       return new double[0];
     }
+    return intensityValues.get(dst);
+  }
 
-    if (dst.length < getNumberOfDataPoints()) {
-      dst = new double[getNumberOfDataPoints()];
-    }
-    intensityValues.get(0, dst, 0, getNumberOfDataPoints());
-    return dst;
+  /**
+   * @return the m/z values in the precision they were stored with or null if no values were set
+   */
+  @Nullable
+  public StoredDoubleValues getStoredMzValues() {
+    return mzValues;
+  }
+
+  /**
+   * @return the intensity values in the precision they were stored with or null if no values were
+   * set
+   */
+  @Nullable
+  public StoredDoubleValues getStoredIntensityValues() {
+    return intensityValues;
   }
 
 }
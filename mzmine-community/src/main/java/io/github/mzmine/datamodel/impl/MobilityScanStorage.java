@@ -30,12 +30,12 @@ import io.github.mzmine.datamodel.MassList;
 import io.github.mzmine.datamodel.MobilityScan;
 import io.github.mzmine.datamodel.featuredata.impl.SimpleIonMobilogramTimeSeries;
 import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
+import io.github.mzmine.datamodel.featuredata.impl.StoredDoubleValues;
 import io.github.mzmine.datamodel.impl.masslist.StoredMobilityScanMassList;
 import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetector;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.exceptions.MissingMassListException;
 import io.github.mzmine.util.scans.ScanUtils;
-import java.nio.DoubleBuffer;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.List;
@@ -54,8 +54,8 @@ public class MobilityScanStorage {
 
   // raw data
   private final Frame frame;
-  private final DoubleBuffer rawMzValues;
-  private final DoubleBuffer rawIntensityValues;
+  private final StoredDoubleValues rawMzValues;
+  private final StoredDoubleValues rawIntensityValues;
   /**
    * Per scan
    */
@@ -67,8 +67,8 @@ public class MobilityScanStorage {
   private final int rawMaxNumPoints;
 
   // mass list
-  private DoubleBuffer massListMzValues = null;
-  private DoubleBuffer massListIntensityValues = null;
+  private StoredDoubleValues massListMzValues = null;
+  private StoredDoubleValues massListIntensityValues = null;
   /**
    * Per scan
    */
@@ -109,8 +109,8 @@ public class MobilityScanStorage {
     final int[] rawBasePeakIndices = StorageUtils.putAllValuesIntoOneArray(data, 1, intensities);
     this.rawBasePeakIndices = StorageUtils.storeValuesToIntBuffer(storage, rawBasePeakIndices);
 
-    rawMzValues = StorageUtils.storeValuesToDoubleBuffer(storage, mzs);
-    rawIntensityValues = StorageUtils.storeValuesToDoubleBuffer(storage, intensities);
+    rawMzValues = StorageUtils.storeMzValues(storage, mzs);
+    rawIntensityValues = StorageUtils.storeIntensityValues(storage, intensities);
   }
 
   public MobilityScanStorage(@Nullable MemoryMapStorage storage, @NotNull final Frame frame,
@@ -138,7 +138,8 @@ public class MobilityScanStorage {
    * @param useAsMassList
    */
   public MobilityScanStorage(final @Nullable MemoryMapStorage storage, final SimpleFrame frame,
-      final DoubleBuffer mzValues, final DoubleBuffer intensityValues, final int maxNumPoints,
+      final StoredDoubleValues mzValues, final StoredDoubleValues intensityValues,
+      final int maxNumPoints,
       final int[] storageOffsets, final int[] basePeakIndices, final boolean useAsMassList) {
     this.frame = frame;
     rawBasePeakIndices = StorageUtils.storeValuesToIntBuffer(storage, basePeakIndices);
@@ -173,8 +174,21 @@ public class MobilityScanStorage {
       return;
     }
 
+    setMassLists(storage, detectMobilityScanMassLists(massDetector, denormalizeMSnScans));
+  }
+
+  /**
+   * Detects the masses of all mobility scans without storing them. This is independent of other
+   * frames and may run concurrently. The result is stored by
+   * {@link #setMassLists(MemoryMapStorage, List)}, e.g., to keep the storage in frame order.
+   *
+   * @param massDetector The mass detector
+   * @return the masslists as [0,1] as [mzs, intensities] arrays, one for each MobilityScan
+   */
+  public List<double[][]> detectMobilityScanMassLists(@NotNull MassDetector massDetector,
+      boolean denormalizeMSnScans) {
     // mobility scan -> [0][] = mzs, [1][] = intensities
-    final List<double[][]> data = new ArrayList<>();
+    final List<double[][]> data = new ArrayList<>(getNumberOfMobilityScans());
 
     for (MobilityScan mobilityScan : getMobilityScans()) {
       double[][] mzIntensity = massDetector.getMassValues(mobilityScan);
@@ -184,8 +198,7 @@ public class MobilityScanStorage {
       }
       data.add(mzIntensity);
     }
-
-    setMassLists(storage, data);
+    return data;
   }
 
   /**
@@ -212,8 +225,8 @@ public class MobilityScanStorage {
         intensities);
     this.massListBasePeakIndices = StorageUtils.storeValuesToIntBuffer(storage,
         massListBasePeakIndices);
-    massListMzValues = StorageUtils.storeValuesToDoubleBuffer(storage, mzs);
-    massListIntensityValues = StorageUtils.storeValuesToDoubleBuffer(storage, intensities);
+    massListMzValues = StorageUtils.storeMzValues(storage, mzs);
+    massListIntensityValues = StorageUtils.storeIntensityValues(storage, intensities);
   }
 
   public MassList getMassList(int mobilityScanIndex) {
@@ -267,7 +280,7 @@ public class MobilityScanStorage {
     if (index < rawStorageOffsets.capacity() - 1) {
       return rawStorageOffsets.get(index + 1) - rawStorageOffsets.get(index);
     } else {
-      return rawMzValues.capacity() - rawStorageOffsets.get(index);
+      return rawMzValues.size() - rawStorageOffsets.get(index);
     }
   }
 
@@ -291,7 +304,7 @@ public class MobilityScanStorage {
    * @return The total number of points in this {@link  MobilityScanStorage}.
    */
   public int getRawTotalNumPoints() {
-    return rawMzValues.capacity();
+    return rawMzValues.size();
   }
 
   public Frame getFrame() {
@@ -344,7 +357,7 @@ public class MobilityScanStorage {
     if (index < massListStorageOffsets.capacity() - 1) {
       return massListStorageOffsets.get(index + 1) - massListStorageOffsets.get(index);
     } else {
-      return massListMzValues.capacity() - massListStorageOffsets.get(index);
+      return massListMzValues.size() - massListStorageOffsets.get(index);
     }
   }
 
@@ -395,7 +408,7 @@ public class MobilityScanStorage {
           "No mass list present for mobility scans. Run mass detection for scan type \"Mobility scans\" prior.",
           null);
     }
-    return massListIntensityValues.capacity();
+    return massListIntensityValues.size();
   }
 
   public void getMassListMzValues(int mobilityScanIndex, double[] dst, int offset) {
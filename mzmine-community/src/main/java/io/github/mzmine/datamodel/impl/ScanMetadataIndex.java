@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.impl;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.msms.DDAMsMsInfo;
+import io.github.mzmine.datamodel.msms.MsMsInfo;
+import io.github.mzmine.util.collections.BinarySearch;
+import io.github.mzmine.util.collections.BinarySearch.DefaultTo;
+import io.github.mzmine.util.collections.IndexRange;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Columnar index of the scan metadata of a raw data file. Retention time, MS level, polarity,
+ * precursor m/z, isolation window and TIC of all scans are kept in primitive arrays in the order of
+ * the scans, which are sorted by retention time. Fragment scans with a precursor m/z are
+ * additionally sorted by precursor m/z, so that range queries on retention time and precursor m/z
+ * use binary searches instead of testing every scan of the file.
+ * <p>
+ * The index is a snapshot of the scans it was created for and needs to be recreated when scans are
+ * added.
+ */
+public class ScanMetadataIndex {
+
+  private static final PolarityType[] POLARITIES = PolarityType.values();
+
+  private final Scan[] scans;
+  private final List<Scan> scanList;
+  private final float[] rts;
+  private final byte[] msLevels;
+  private final byte[] polarities;
+  // 0 if a scan has no precursor m/z
+  private final double[] precursorMzs;
+  // NaN if a scan has no isolation window
+  private final double[] isolationLower;
+  private final double[] isolationUpper;
+  private final double[] tics;
+
+  // fragment scans with precursor m/z as scan indices sorted by precursor m/z
+  private final int[] fragmentsByPrecursorMz;
+  private final double[] sortedPrecursorMzs;
+  // fragment scans with precursor m/z as scan indices in retention time order
+  private final int[] fragmentsByRt;
+  private final float[] fragmentRts;
+
+  /**
+   * @param scans all scans of a raw data file sorted by retention time
+   */
+  public ScanMetadataIndex(@NotNull List<? extends Scan> scans) {
+    this.scans = scans.toArray(Scan[]::new);
+    scanList = Collections.unmodifiableList(Arrays.asList(this.scans));
+    final int size = this.scans.length;
+    rts = new float[size];
+    msLevels = new byte[size];
+    polarities = new byte[size];
+    precursorMzs = new double[size];
+    isolationLower = new double[size];
+    isolationUpper = new double[size];
+    tics = new double[size];
+
+    final IntArrayList fragments = new IntArrayList();
+    for (int i = 0; i < size; i++) {
+      final Scan scan = this.scans[i];
+      rts[i] = scan.getRetentionTime();
+      msLevels[i] = (byte) scan.getMSLevel();
+      polarities[i] = (byte) scan.getPolarity().ordinal();
+      tics[i] = Objects.requireNonNullElse(scan.getTIC(), 0d);
+
+      final MsMsInfo info = scan.getMsMsInfo();
+      final Range<Double> isolation = info == null ? null : info.getIsolationWindow();
+      isolationLower[i] = isolation == null ? Double.NaN : isolation.lowerEndpoint();
+      isolationUpper[i] = isolation == null ? Double.NaN : isolation.upperEndpoint();
+
+      precursorMzs[i] = scan.getMSLevel() > 1 ? extractPrecursorMz(scan) : 0d;
+      if (precursorMzs[i] > 0) {
+        fragments.add(i);
+      }
+    }
+
+    fragmentsByRt = fragments.toIntArray();
+    fragmentRts = new float[fragmentsByRt.length];
+    for (int i = 0; i < fragmentsByRt.length; i++) {
+      fragmentRts[i] = rts[fragmentsByRt[i]];
+    }
+
+    fragmentsByPrecursorMz = fragments.toIntArray();
+    IntArrays.quickSort(fragmentsByPrecursorMz,
+        (a, b) -> Double.compare(precursorMzs[a], precursorMzs[b]));
+    sortedPrecursorMzs = new double[fragmentsByPrecursorMz.length];
+    for (int i = 0; i < fragmentsByPrecursorMz.length; i++) {
+      sortedPrecursorMzs[i] = precursorMzs[fragmentsByPrecursorMz[i]];
+    }
+  }
+
+  /**
+   * The precursor m/z of a fragment scan. For MSn scans this is the precursor m/z of the MS2 step.
+   *
+   * @return the precursor m/z or 0 if the scan has no precursor m/z
+   */
+  public static double extractPrecursorMz(@NotNull Scan scan) {
+    if (scan.getMsMsInfo() instanceof MSnInfoImpl msn) {
+      return msn.getMS2PrecursorMz();
+    } else if (scan.getMsMsInfo() instanceof DDAMsMsInfo info) {
+      return info.getIsolationMz();
+    }
+    return Objects.requireNonNullElse(scan.getPrecursorMz(), 0d);
+  }
+
+  public int size() {
+    return scans.length;
+  }
+
+  public Scan getScan(int index) {
+    return scans[index];
+  }
+
+  public float getRetentionTime(int index) {
+    return rts[index];
+  }
+
+  public int getMsLevel(int index) {
+    return msLevels[index];
+  }
+
+  public PolarityType getPolarity(int index) {
+    return POLARITIES[polarities[index]];
+  }
+
+  /**
+   * @return the precursor m/z or 0 if the scan has no precursor m/z
+   */
+  public double getPrecursorMz(int index) {
+    return precursorMzs[index];
+  }
+
+  public @Nullable Range<Double> getIsolationWindow(int index) {
+    return Double.isNaN(isolationLower[index]) ? null
+        : Range.closed(isolationLower[index], isolationUpper[index]);
+  }
+
+  public double getTIC(int index) {
+    return tics[index];
+  }
+
+  /**
+   * @return the indices of all scans within the retention time range, bounds are always included
+   */
+  public @NotNull IndexRange indexRange(double minRt, double maxRt) {
+    return BinarySearch.indexRange(minRt, maxRt, rts.length, i -> rts[i]);
+  }
+
+  /**
+   * @return index of the scan closest to the retention time or -1 if there are no scans
+   */
+  public int closestIndex(float rt) {
+    if (rts.length == 0) {
+      return -1;
+    }
+    final int index = Math.abs(
+        BinarySearch.binarySearch(rt, DefaultTo.CLOSEST_VALUE, rts.length, i -> rts[i]));
+    return Math.min(index, rts.length - 1);
+  }
+
+  /**
+   * @param rtRange retention time range or null for all scans
+   * @return all scans in the retention time range as a view in retention time order
+   */
+  public @NotNull List<Scan> getScans(@Nullable Range<? extends Number> rtRange) {
+    if (rtRange == null) {
+      return scanList;
+    }
+    return indexRange(lower(rtRange), upper(rtRange)).sublist(scanList);
+  }
+
+  /**
+   * @param msLevel only scans of this MS level
+   * @param rtRange retention time range or null for all scans
+   * @return all scans of the MS level in the retention time range in retention time order
+   */
+  public @NotNull List<Scan> getScans(int msLevel, @Nullable Range<? extends Number> rtRange) {
+    int from = 0;
+    int to = scans.length;
+    if (rtRange != null) {
+      final IndexRange range = indexRange(lower(rtRange), upper(rtRange));
+      if (range.isEmpty()) {
+        return List.of();
+      }
+      from = range.min();
+      to = range.maxExclusive();
+    }
+    final List<Scan> result = new ArrayList<>();
+    for (int i = from; i < to; i++) {
+      if (msLevels[i] == msLevel) {
+        result.add(scans[i]);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Fragment scans (MS level > 1) with a precursor m/z within range. Either the precursor or the
+   * retention time dimension is searched first, whichever contains fewer scans, and the other
+   * dimension is filtered on the primitive values.
+   *
+   * @param precursorMzRange precursor m/z range, bounds are included
+   * @param rtRange          retention time range, bounds are included, or null for all scans
+   * @return fragment scans in retention time order
+   */
+  public @NotNull List<Scan> getFragmentScans(@NotNull Range<Double> precursorMzRange,
+      @Nullable Range<? extends Number> rtRange) {
+    final double minMz = precursorMzRange.lowerEndpoint();
+    final double maxMz = precursorMzRange.upperEndpoint();
+    final double minRt = rtRange == null ? Double.NEGATIVE_INFINITY : lower(rtRange);
+    final double maxRt = rtRange == null ? Double.POSITIVE_INFINITY : upper(rtRange);
+
+    final IndexRange byMz = BinarySearch.indexRange(sortedPrecursorMzs, minMz, maxMz);
+    if (byMz.isEmpty()) {
+      return List.of();
+    }
+    final IndexRange byRt = BinarySearch.indexRange(minRt, maxRt, fragmentRts.length,
+        i -> fragmentRts[i]);
+    if (byRt.isEmpty()) {
+      return List.of();
+    }
+
+    final List<Scan> result = new ArrayList<>();
+    if (byRt.size() <= byMz.size()) {
+      for (int i = byRt.min(); i < byRt.maxExclusive(); i++) {
+        final double mz = precursorMzs[fragmentsByRt[i]];
+        if (mz >= minMz && mz <= maxMz) {
+          result.add(scans[fragmentsByRt[i]]);
+        }
+      }
+      return result;
+    }
+
+    final int[] matches = new int[byMz.size()];
+    int n = 0;
+    for (int i = byMz.min(); i < byMz.maxExclusive(); i++) {
+      final float rt = rts[fragmentsByPrecursorMz[i]];
+      if (rt >= minRt && rt <= maxRt) {
+        matches[n++] = fragmentsByPrecursorMz[i];
+      }
+    }
+    // back to retention time order
+    IntArrays.quickSort(matches, 0, n);
+    for (int i = 0; i < n; i++) {
+      result.add(scans[matches[i]]);
+    }
+    return result;
+  }
+
+  private static double lower(@NotNull Range<? extends Number> range) {
+    return range.hasLowerBound() ? range.lowerEndpoint().doubleValue() : Double.NEGATIVE_INFINITY;
+  }
+
+  private static double upper(@NotNull Range<? extends Number> range) {
+    return range.hasUpperBound() ? range.upperEndpoint().doubleValue() : Double.POSITIVE_INFINITY;
+  }
+}
@@ -25,6 +25,7 @@
 
 package io.github.mzmine.gui.preferences;
 
+import io.github.mzmine.datamodel.featuredata.impl.SpectralDataPrecision;
 import io.github.mzmine.gui.chartbasics.chartthemes.ChartThemeParameters;
 import io.github.mzmine.gui.chartbasics.chartutils.paintscales.PaintScaleTransform;
 import io.github.mzmine.main.ConfigService;
@@ -39,6 +40,7 @@ import io.github.mzmine.parameters.parametertypes.ComboParameter;
 import io.github.mzmine.parameters.parametertypes.FontSpecs;
 import io.github.mzmine.parameters.parametertypes.HiddenParameter;
 import io.github.mzmine.parameters.parametertypes.OptOutParameter;
+import io.github.mzmine.parameters.parametertypes.OptionalParameter;
 import io.github.mzmine.parameters.parametertypes.StringParameter;
 import io.github.mzmine.parameters.parametertypes.WindowSettingsParameter;
 import io.github.mzmine.parameters.parametertypes.colorpalette.ColorPaletteParameter;
@@ -161,6 +163,43 @@ public class MZminePreferences extends SimpleParameterSet {
       KeepInMemory.ALL, KeepInMemory.MASSES_AND_FEATURES), KeepInMemory.values(),
       KeepInMemory.NONE);
 
+  public static final BooleanParameter compactFeatureStorage = new BooleanParameter(
+      "Compact feature storage",
+      "Stores numeric values of features and rows in typed columns of their feature list instead "
+      + "of a map in each feature. Reduces the memory of large aligned feature lists. Applies to "
+      + "feature lists created by feature detection and alignment, derived feature lists keep "
+      + "the mode of their source.", false);
+
+  public static final ComboParameter<SpectralDataPrecision> spectralDataPrecision =
+      new ComboParameter<>("Spectral data precision", """
+          Precision of m/z and intensity values of newly imported or detected spectra, mass lists \
+          and mobility scans. %s stores 64 bit values. %s stores intensities as 32 bit floats \
+          and m/z values as 32 bit differences to the lowest m/z of each spectrum (deviations \
+          below 0.1 ppm), which halves the size of spectral data in memory and in the temp \
+          directory.""".formatted(SpectralDataPrecision.FULL, SpectralDataPrecision.REDUCED),
+          SpectralDataPrecision.values(), SpectralDataPrecision.FULL);
+
+  public static final BooleanParameter massListIndex = new BooleanParameter(
+      "Index mass lists for EIC extraction",
+      "Builds an m/z index over the MS1 mass lists of each data file after mass detection. Speeds up "
+      + "the extraction of many ion chromatograms (e.g., manual feature picking, gap filling of GC "
+      + "alignments) at the cost of storing all MS1 signals a second time.", false);
+
+  public static final BooleanParameter streamBatchFiles = new BooleanParameter(
+      "Stream files through batch",
+      "Processes the leading per-file steps of a batch (import, mass detection, chromatogram "
+      + "building, resolving, ...) for each data file independently on a bounded pool. The batch "
+      + "waits for all files at the first step that needs all feature lists, e.g., alignment.",
+      false);
+
+  public static final OptionalParameter<DirectoryParameter> batchCheckpoints = new OptionalParameter<>(
+      new DirectoryParameter("Batch checkpoint directory",
+          "Saves the project after each batch step that creates data as a checkpoint in this "
+          + "directory. Running the same batch again restores the last checkpoint of the unchanged "
+          + "steps and continues with the first changed step. Only the checkpoint of the last "
+          + "saved step is kept for each batch, older checkpoints of the same batch are removed."),
+      false);
+
   /*public static final BooleanParameter applyTimsPressureCompensation = new BooleanParameter(
       "Use MALDI-TIMS pressure compensation", """
       Specifies if mobility values from Bruker timsTOF fleX MALDI raw data shall be recalibrated using a Bruker algorithm.
@@ -195,7 +234,8 @@ public class MZminePreferences extends SimpleParameterSet {
 
   public MZminePreferences() {
     super(// start with performance
-        numOfThreads, memoryOption, tempDirectory, proxySettings,
+        numOfThreads, memoryOption, spectralDataPrecision, compactFeatureStorage, massListIndex,
+        streamBatchFiles, batchCheckpoints, tempDirectory, proxySettings,
         /*applyTimsPressureCompensation,*/
         // visuals
         // number formats
@@ -233,7 +273,8 @@ public class MZminePreferences extends SimpleParameterSet {
 
     // add groups
     dialog.addParameterGroup("General",
-        new Parameter[]{numOfThreads, memoryOption, tempDirectory, proxySettings,
+        new Parameter[]{numOfThreads, memoryOption, spectralDataPrecision, compactFeatureStorage,
+            massListIndex, streamBatchFiles, batchCheckpoints, tempDirectory, proxySettings,
             /*, applyTimsPressureCompensation*/});
     dialog.addParameterGroup("Formats",
         new Parameter[]{mzFormat, rtFormat, mobilityFormat, ccsFormat, intensityFormat, ppmFormat,
@@ -28,6 +28,7 @@ package io.github.mzmine.modules.batchmode;
 import io.github.mzmine.parameters.Parameter;
 import io.github.mzmine.parameters.impl.SimpleParameterSet;
 import io.github.mzmine.parameters.parametertypes.BooleanParameter;
+import io.github.mzmine.parameters.parametertypes.IntegerParameter;
 import io.github.mzmine.parameters.parametertypes.filenames.DirectoryParameter;
 
 public class AdvancedBatchModeParameters extends SimpleParameterSet {
@@ -47,9 +48,17 @@ public class AdvancedBatchModeParameters extends SimpleParameterSet {
       "Search for files in sub directories. Still uses the first subdirectories as datasets each.",
       false);
 
+  public static final IntegerParameter parallelDatasets = new IntegerParameter(
+      "Parallel datasets",
+      "Number of datasets (sub directories) processed at the same time, each in its own project. "
+      + "All datasets share the number of threads from the preferences and further datasets are "
+      + "only started while enough memory is free. Requires a batch that starts with the data "
+      + "import without metadata, where all later steps use the data files and feature lists of "
+      + "the previous step and no project metadata.", 1, 1, null);
+
   public AdvancedBatchModeParameters() {
     super(new Parameter[]{skipOnError, processingParentDir, includeSubdirectories,
-        createResultsDirectory});
+        createResultsDirectory, parallelDatasets});
   }
 
 }
@@ -0,0 +1,366 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.batchmode;
+
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.featuredata.impl.SpectralDataPrecision;
+import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.modules.MZmineProcessingStep;
+import io.github.mzmine.modules.io.import_rawdata_all.AllSpectralDataImportParameters;
+import io.github.mzmine.modules.io.projectload.ProjectOpeningTask;
+import io.github.mzmine.modules.io.projectsave.FeatureListSaveFormat;
+import io.github.mzmine.modules.io.projectsave.ProjectSaveAsParameters;
+import io.github.mzmine.modules.io.projectsave.ProjectSaveOption;
+import io.github.mzmine.modules.io.projectsave.ProjectSavingTask;
+import io.github.mzmine.parameters.Parameter;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.EmbeddedParameter;
+import io.github.mzmine.parameters.parametertypes.EmbeddedParameterSet;
+import io.github.mzmine.parameters.parametertypes.filenames.FileNameParameter;
+import io.github.mzmine.parameters.parametertypes.filenames.FileNamesParameter;
+import io.github.mzmine.parameters.parametertypes.filenames.FileSelectionType;
+import io.github.mzmine.project.ProjectService;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.FeatureListUtils;
+import io.github.mzmine.util.io.SemverVersionReader;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Checkpoints of a batch queue on disk. After a step, the project is saved as a referencing project
+ * with a raw data snapshot, keyed by a hash of the module, its parameters, the size and
+ * modification date of its input files and the key of the previous step. The key of the import
+ * step also includes the imported files. The first key depends on the MZmine version and the
+ * preferences that change the stored data. A re-run of the same queue restores the last checkpoint
+ * of the unchanged prefix and continues with the first changed step.
+ * <p>
+ * Each checkpoint consists of the project file and a small list of the last batch data files and
+ * feature lists, which is written after the project and marks the checkpoint as complete. The list
+ * also records the chain of the checkpoint, which is the key of the first step. After each save,
+ * all other checkpoints of the same chain are removed, so that the disk usage does not grow with
+ * the number of steps. This keeps only the latest checkpoint per chain.
+ */
+class BatchCheckpointStore {
+
+  private static final Logger logger = Logger.getLogger(BatchCheckpointStore.class.getName());
+  private static final String PROJECT_SUFFIX = ".mzmine";
+  private static final String BATCH_LAST_SUFFIX = ".batchlast";
+  private static final String RAW_PREFIX = "raw\t";
+  private static final String FLIST_PREFIX = "flist\t";
+  private static final String CHAIN_PREFIX = "chain\t";
+
+  private final File directory;
+  private final String[] stepKeys;
+
+  /**
+   * @param directory the checkpoint directory
+   * @param queue     keys are computed for all steps of this queue
+   */
+  BatchCheckpointStore(@NotNull File directory, @NotNull BatchQueue queue) {
+    this.directory = directory;
+    this.stepKeys = computeStepKeys(queue);
+  }
+
+  /**
+   * Chained keys of all steps. Each key depends on all previous steps.
+   */
+  static String[] computeStepKeys(@NotNull BatchQueue queue) {
+    return computeStepKeys(queue, StorageUtils.getSpectralDataPrecision(),
+        FeatureListUtils.isCompactFeatureStorage());
+  }
+
+  /**
+   * @param precision      precision of stored spectral data
+   * @param compactStorage compact storage mode of feature lists
+   */
+  static String[] computeStepKeys(@NotNull BatchQueue queue,
+      @NotNull SpectralDataPrecision precision, boolean compactStorage) {
+    final String[] keys = new String[queue.size()];
+    // preferences that change the data of all steps
+    String previousKey = SemverVersionReader.getMZmineVersion() + "\t" + precision + "\t"
+                         + compactStorage;
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = computeStepKey(previousKey, queue.get(i));
+      previousKey = keys[i];
+    }
+    return keys;
+  }
+
+  private static String computeStepKey(@NotNull String previousKey,
+      @NotNull MZmineProcessingStep<?> step) {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(previousKey.getBytes(StandardCharsets.UTF_8));
+      digest.update(step.getModule().getClass().getName().getBytes(StandardCharsets.UTF_8));
+
+      final ParameterSet parameters = step.getParameterSet();
+      if (parameters != null) {
+        digest.update(parametersToXml(parameters).getBytes(StandardCharsets.UTF_8));
+        if (AllSpectralDataImportParameters.isParameterSetClass(parameters)) {
+          // changed files need to be imported again
+          AllSpectralDataImportParameters.streamValidatedFiles(parameters)
+              .map(BatchCheckpointStore::stampFile)
+              .forEach(stamp -> digest.update(stamp.getBytes(StandardCharsets.UTF_8)));
+        }
+        // changed libraries, databases or other input files need the step to run again
+        for (final String stamp : inputFileStamps(parameters)) {
+          digest.update(stamp.getBytes(StandardCharsets.UTF_8));
+        }
+      }
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException | ParserConfigurationException | TransformerException e) {
+      throw new IllegalStateException("Cannot compute batch checkpoint key", e);
+    }
+  }
+
+  /**
+   * @return the path, size and modification date of all input files of the parameters, also of
+   * embedded parameters. Output files are not included.
+   */
+  static List<String> inputFileStamps(@NotNull ParameterSet parameters) {
+    final List<String> stamps = new ArrayList<>();
+    for (final Parameter<?> p : parameters.getParameters()) {
+      addInputFileStamps(p, stamps);
+    }
+    return stamps;
+  }
+
+  private static void addInputFileStamps(@NotNull Parameter<?> p, @NotNull List<String> stamps) {
+    if (p instanceof FileNameParameter fnp && fnp.getSelectionType() == FileSelectionType.OPEN) {
+      if (fnp.getValue() != null) {
+        stamps.add(stampFile(fnp.getValue()));
+      }
+    } else if (p instanceof FileNamesParameter fnp && fnp.getValue() != null) {
+      for (final File file : fnp.getValue()) {
+        stamps.add(stampFile(file));
+      }
+    } else if (p instanceof EmbeddedParameterSet<?, ?> embedded) {
+      stamps.addAll(inputFileStamps(embedded.getEmbeddedParameters()));
+    } else if (p instanceof EmbeddedParameter<?, ?, ?> embedded) {
+      addInputFileStamps(embedded.getEmbeddedParameter(), stamps);
+    }
+  }
+
+  private static String stampFile(@NotNull File file) {
+    return file.getAbsolutePath() + "\t" + file.length() + "\t" + file.lastModified();
+  }
+
+  private static String parametersToXml(@NotNull ParameterSet parameters)
+      throws ParserConfigurationException, TransformerException {
+    final Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+        .newDocument();
+    final Element element = document.createElement("parameters");
+    document.appendChild(element);
+    element.setAttribute("version", String.valueOf(parameters.getVersion()));
+    parameters.saveValuesToXML(element);
+
+    final StringWriter writer = new StringWriter();
+    TransformerFactory.newInstance().newTransformer()
+        .transform(new DOMSource(document), new StreamResult(writer));
+    return writer.toString();
+  }
+
+  private File getProjectFile(int step) {
+    return new File(directory, stepKeys[step] + PROJECT_SUFFIX);
+  }
+
+  private File getBatchLastFile(int step) {
+    return new File(directory, stepKeys[step] + BATCH_LAST_SUFFIX);
+  }
+
+  /**
+   * @return the last step of the queue with a complete checkpoint or -1 if there is none
+   */
+  int findLastCheckpointedStep() {
+    for (int step = stepKeys.length - 1; step >= 0; step--) {
+      if (getBatchLastFile(step).exists() && getProjectFile(step).exists()) {
+        return step;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Saves the project after a step
+   *
+   * @return true on success
+   */
+  boolean save(int step, @NotNull MZmineProject project, @NotNull List<RawDataFile> dataFiles,
+      @NotNull List<FeatureList> featureLists) {
+    final ProjectSaveAsParameters parameters = new ProjectSaveAsParameters();
+    parameters.setParameter(ProjectSaveAsParameters.projectFile, getProjectFile(step));
+    parameters.setParameter(ProjectSaveAsParameters.option, ProjectSaveOption.REFERENCING);
+    parameters.setParameter(ProjectSaveAsParameters.featureListFormat,
+        FeatureListSaveFormat.COLUMNAR);
+    parameters.setParameter(ProjectSaveAsParameters.rawDataSnapshot, true);
+
+    final ProjectSavingTask task = new ProjectSavingTask(project, parameters, Instant.now());
+    task.run();
+    if (task.getStatus() != TaskStatus.FINISHED) {
+      logger.warning(() -> "Could not save batch checkpoint of step " + (step + 1) + ": "
+                           + task.getErrorMessage());
+      return false;
+    }
+
+    final List<String> lines = new ArrayList<>();
+    lines.add(CHAIN_PREFIX + stepKeys[0]);
+    dataFiles.forEach(raw -> lines.add(RAW_PREFIX + raw.getName()));
+    featureLists.forEach(flist -> lines.add(FLIST_PREFIX + flist.getName()));
+    try {
+      Files.write(getBatchLastFile(step).toPath(), lines, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Could not save batch checkpoint of step " + (step + 1), e);
+      return false;
+    }
+    logger.info(
+        () -> STR."Saved batch checkpoint of step \{step + 1} to \{getProjectFile(step)}");
+    evictSupersededCheckpoints(step);
+    return true;
+  }
+
+  /**
+   * Removes all checkpoints of the same chain except the checkpoint of the latest step, including
+   * the checkpoints of old runs with changed steps
+   *
+   * @param latestStep the step of the checkpoint that is kept
+   * @return the number of removed checkpoints
+   */
+  int evictSupersededCheckpoints(int latestStep) {
+    final File[] batchLastFiles = directory.listFiles(
+        (_, name) -> name.endsWith(BATCH_LAST_SUFFIX));
+    if (batchLastFiles == null || stepKeys.length == 0) {
+      return 0;
+    }
+    final String latestKey = stepKeys[latestStep];
+    final String chain = CHAIN_PREFIX + stepKeys[0];
+    int removed = 0;
+    for (final File batchLast : batchLastFiles) {
+      final String name = batchLast.getName();
+      final String key = name.substring(0, name.length() - BATCH_LAST_SUFFIX.length());
+      if (key.equals(latestKey) || !chain.equals(readFirstLine(batchLast))) {
+        continue;
+      }
+      try {
+        // remove the marker first so that a partly removed checkpoint is never restored
+        Files.deleteIfExists(batchLast.toPath());
+        Files.deleteIfExists(new File(directory, key + PROJECT_SUFFIX).toPath());
+        removed++;
+      } catch (IOException e) {
+        logger.log(Level.WARNING, "Could not remove old batch checkpoint " + key, e);
+      }
+    }
+    if (removed > 0) {
+      final int finalRemoved = removed;
+      logger.info(() -> STR."Removed \{finalRemoved} old batch checkpoints of this batch");
+    }
+    return removed;
+  }
+
+  @Nullable
+  private static String readFirstLine(@NotNull File file) {
+    try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+      return reader.readLine();
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Opens the checkpoint of a step as the current project
+   *
+   * @return the last batch data files and feature lists or null if the checkpoint could not be
+   * restored
+   */
+  @Nullable
+  Restored restore(int step) {
+    final List<String> lines;
+    try {
+      lines = Files.readAllLines(getBatchLastFile(step).toPath(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Could not read batch checkpoint of step " + (step + 1), e);
+      return null;
+    }
+
+    final ProjectOpeningTask task = new ProjectOpeningTask(getProjectFile(step), Instant.now());
+    task.run();
+    if (task.getStatus() != TaskStatus.FINISHED) {
+      logger.warning(() -> "Could not open batch checkpoint of step " + (step + 1) + ": "
+                           + task.getErrorMessage());
+      return null;
+    }
+
+    final MZmineProject project = ProjectService.getProject();
+    final List<RawDataFile> dataFiles = new ArrayList<>();
+    final List<FeatureList> featureLists = new ArrayList<>();
+    for (final String line : lines) {
+      if (line.startsWith(RAW_PREFIX)) {
+        dataFiles.add(project.getDataFileByName(line.substring(RAW_PREFIX.length())));
+      } else if (line.startsWith(FLIST_PREFIX)) {
+        featureLists.add(project.getFeatureList(line.substring(FLIST_PREFIX.length())));
+      }
+    }
+    if (dataFiles.contains(null) || featureLists.contains(null)) {
+      logger.warning(() -> "Batch checkpoint of step " + (step + 1)
+                           + " misses data files or feature lists");
+      return null;
+    }
+    logger.info(
+        () -> STR."Restored batch checkpoint of step \{step + 1} from \{getProjectFile(step)}");
+    return new Restored(project, dataFiles, featureLists);
+  }
+
+  /**
+   * The project of a restored checkpoint and the last batch data files and feature lists
+   */
+  record Restored(@NotNull MZmineProject project, @NotNull List<RawDataFile> dataFiles,
+                  @NotNull List<FeatureList> featureLists) {
+
+  }
+}
@@ -165,8 +165,7 @@ public class BatchModeModule implements MZmineProcessingModule {
 
     final BatchTask newTask;
     // check if advanced
-//    boolean useAdvanced = parameters.getValue(BatchModeParameters.advanced);
-    boolean useAdvanced = false;
+    boolean useAdvanced = parameters.getValue(BatchModeParameters.advanced);
     if (useAdvanced) {
       AdvancedBatchModeParameters params = parameters.getParameter(BatchModeParameters.advanced)
           .getEmbeddedParameters();
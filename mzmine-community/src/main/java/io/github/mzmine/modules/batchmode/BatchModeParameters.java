@@ -41,9 +41,7 @@ public class BatchModeParameters extends SimpleParameterSet {
       new AdvancedBatchModeParameters());
 
   public BatchModeParameters() {
-    super(new Parameter[]{batchQueue,
-//        advanced,
-        lastFiles});
+    super(new Parameter[]{batchQueue, advanced, lastFiles});
   }
 
   @Override
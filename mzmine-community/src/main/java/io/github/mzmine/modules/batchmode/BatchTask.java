@@ -28,10 +28,14 @@ package io.github.mzmine.modules.batchmode;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.gui.preferences.MZminePreferences;
+import io.github.mzmine.main.ConfigService;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.MZmineProcessingModule;
 import io.github.mzmine.modules.MZmineProcessingStep;
 import io.github.mzmine.modules.batchmode.change_outfiles.ChangeOutputFilesUtils;
+import io.github.mzmine.modules.batchmode.timing.BatchStepReport;
+import io.github.mzmine.modules.batchmode.timing.StepResourceProfiler;
 import io.github.mzmine.modules.batchmode.timing.StepTimeMeasurement;
 import io.github.mzmine.modules.io.import_rawdata_all.AllSpectralDataImportParameters;
 import io.github.mzmine.parameters.Parameter;
@@ -42,6 +46,7 @@ import io.github.mzmine.parameters.parametertypes.selectors.FeatureListsSelectio
 import io.github.mzmine.parameters.parametertypes.selectors.RawDataFilesParameter;
 import io.github.mzmine.parameters.parametertypes.selectors.RawDataFilesSelection;
 import io.github.mzmine.project.ProjectService;
+import io.github.mzmine.project.impl.MZmineProjectImpl;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.Task;
 import io.github.mzmine.taskcontrol.TaskController;
@@ -54,7 +59,9 @@ import io.github.mzmine.taskcontrol.utils.TaskUtils;
 import io.github.mzmine.util.ExitCode;
 import io.github.mzmine.util.files.ExtensionFilters;
 import io.github.mzmine.util.files.FileAndPathUtil;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibrary;
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Paths;
 import java.time.Duration;
 import java.time.Instant;
@@ -64,24 +71,46 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Batch mode task
  */
 public class BatchTask extends AbstractTask {
 
+  /**
+   * Further datasets are only started concurrently while the used heap is below this fraction of
+   * the max heap
+   */
+  private static final double MAX_HEAP_USAGE_TO_START_DATASET = 0.7;
+
   private final BatchQueue queue;
   // advanced parameters
   private final int stepsPerDataset;
   private final Logger logger = Logger.getLogger(this.getClass().getName());
   private final int totalSteps;
-  private final MZmineProject project;
-  private int processedSteps;
+  private MZmineProject project;
+  private volatile int processedSteps;
   private final boolean useAdvanced;
   private final int datasets;
+  // number of datasets of the advanced mode that are processed concurrently
+  private final int parallelDatasets;
+  // datasets that are currently processed concurrently, each as its own batch
+  private final List<BatchTask> runningDatasets = new CopyOnWriteArrayList<>();
+  // process the leading per file steps for each file independently
+  private final boolean streamFiles;
+  // saves and restores the project after steps, null if disabled
+  @Nullable
+  private final BatchCheckpointStore checkpoints;
   private List<File> subDirectories;
   private List<RawDataFile> createdDataFiles;
   private List<RawDataFile> previousCreatedDataFiles;
@@ -92,7 +121,7 @@ public class BatchTask extends AbstractTask {
   private Boolean createResultsDir;
   private File parentDir;
   private int currentDataset;
-  private List<StepTimeMeasurement> stepTimes = new ArrayList<>();
+  private final List<StepTimeMeasurement> stepTimes = new ArrayList<>();
 
   BatchTask(MZmineProject project, ParameterSet parameters, @NotNull Instant moduleCallDate) {
     this(project, parameters, moduleCallDate,
@@ -101,27 +130,55 @@ public class BatchTask extends AbstractTask {
 
   public BatchTask(final MZmineProject project, final ParameterSet parameters,
       final Instant moduleCallDate, final List<File> subDirectories) {
+    this(project, parameters.getParameter(BatchModeParameters.batchQueue).getValue(),
+        moduleCallDate, getAdvancedParameters(parameters), subDirectories);
+  }
+
+  /**
+   * @param advanced the advanced parameters or null to run the queue once on the project
+   */
+  private BatchTask(final MZmineProject project, final BatchQueue queue,
+      final Instant moduleCallDate, @Nullable final AdvancedBatchModeParameters advanced,
+      final List<File> subDirectories) {
     super(null, moduleCallDate);
     setName("Batch task");
     this.project = project;
-    this.queue = parameters.getParameter(BatchModeParameters.batchQueue).getValue();
+    this.queue = queue;
     // advanced parameters
-    useAdvanced = false;
-//    useAdvanced = parameters.getParameter(BatchModeParameters.advanced).getValue();
+    useAdvanced = advanced != null;
     if (useAdvanced) {
       // if sub directories is set - the input and output files are changed to each sub directory
-      // each sub dir is processed sequentially as a different dataset
-      AdvancedBatchModeParameters advanced = parameters.getParameter(BatchModeParameters.advanced)
-          .getEmbeddedParameters();
+      // each sub dir is processed as a different dataset
       skipOnError = advanced.getValue(AdvancedBatchModeParameters.skipOnError);
       searchSubdirs = advanced.getValue(AdvancedBatchModeParameters.includeSubdirectories);
       createResultsDir = advanced.getValue(AdvancedBatchModeParameters.createResultsDirectory);
       parentDir = advanced.getValue(AdvancedBatchModeParameters.processingParentDir);
+      final int parallel = Math.max(1, Objects.requireNonNullElse(
+          advanced.getValue(AdvancedBatchModeParameters.parallelDatasets), 1));
+      // datasets run in their own projects, selections and metadata of the current project would
+      // mix the datasets
+      if (parallel > 1 && !PerFileBatchSteps.isProjectIndependent(queue)) {
+        logger.warning("""
+            Processing batch datasets one after another. Parallel datasets require a batch that \
+            starts with the data import without metadata and where all later steps use the data \
+            files and feature lists of the previous step and no project metadata.""");
+        parallelDatasets = 1;
+      } else {
+        parallelDatasets = parallel;
+      }
       this.subDirectories = subDirectories;
       datasets = subDirectories == null || subDirectories.isEmpty() ? 1 : subDirectories.size();
     } else {
+      parallelDatasets = 1;
       datasets = 1;
     }
+    streamFiles = Boolean.TRUE.equals(
+        ConfigService.getPreference(MZminePreferences.streamBatchFiles));
+    // the advanced mode changes the queue for each dataset, which invalidates the keys
+    final File checkpointDir = ConfigService.getPreferences()
+        .getEmbeddedParameterValueIfSelectedOrElse(MZminePreferences.batchCheckpoints, null);
+    checkpoints = checkpointDir == null || useAdvanced ? null
+        : new BatchCheckpointStore(checkpointDir, queue);
     stepsPerDataset = queue.size();
     totalSteps = stepsPerDataset * datasets;
     createdDataFiles = new ArrayList<>();
@@ -130,6 +187,15 @@ public class BatchTask extends AbstractTask {
     previousCreatedFeatureLists = new ArrayList<>();
   }
 
+  /**
+   * @return the advanced parameters if selected, otherwise null
+   */
+  @Nullable
+  private static AdvancedBatchModeParameters getAdvancedParameters(ParameterSet parameters) {
+    final var advanced = parameters.getParameter(BatchModeParameters.advanced);
+    return Boolean.TRUE.equals(advanced.getValue()) ? advanced.getEmbeddedParameters() : null;
+  }
+
   /**
    * Runs all tasks in a single {@link ThreadPoolTask} on the {@link TaskController#getExecutor()}
    * default executor
@@ -164,21 +230,30 @@ public class BatchTask extends AbstractTask {
     setStatus(TaskStatus.PROCESSING);
     logger.info("Starting a batch of " + totalSteps + " steps");
 
+    if (useAdvanced && parallelDatasets > 1 && datasets > 1) {
+      processDatasetsConcurrently(batchStart);
+      return;
+    }
+
     int errorDataset = 0;
     currentDataset = -1;
     String datasetName = "";
+    // first measurement of the current dataset, measurements of all datasets are kept
+    int datasetTimesStart = 0;
+    final int restoredSteps = restoreCheckpoint();
     // Process individual batch steps
-    for (int i = 0; i < totalSteps; i++) {
+    for (int i = restoredSteps; i < totalSteps; i++) {
       // at the end of one dataset, clear the project and start over again
       if (useAdvanced && currentStep() == 0) {
-        // clear the old project
+        // clear the old project, all steps of this dataset run on the new project
         ProjectService.getProjectManager().clearProject();
+        project = ProjectService.getProject();
         currentDataset++;
 
-        // print step times
-        if (!stepTimes.isEmpty()) {
-          printBatchTimes(batchStart);
-          stepTimes.clear();
+        // print step times of the previous dataset
+        if (currentDataset > 0) {
+          finishDatasetTimes(batchStart, datasetTimesStart, datasetName);
+          datasetTimesStart = stepTimes.size();
         }
 
         // change files
@@ -206,7 +281,7 @@ public class BatchTask extends AbstractTask {
             }
           }
           // set files to output
-          setOutputFiles(parentDir, createResultsDir, datasetName);
+          setOutputFiles(queue, parentDir, createResultsDir, datasetName);
 
         } else {
           errorDataset++;
@@ -223,9 +298,18 @@ public class BatchTask extends AbstractTask {
         }
       }
 
-      // run step
-      processQueueStep(i % stepsPerDataset);
-      processedSteps++;
+      final List<RawDataFile> lastDataFiles = previousCreatedDataFiles;
+      final List<FeatureList> lastFeatureLists = previousCreatedFeatureLists;
+
+      // run step or stream all files through the leading per file steps
+      final int streamedSteps = streamFiles && currentStep() == 0 ? processPerFileSteps() : 0;
+      if (streamedSteps > 0) {
+        i += streamedSteps - 1;
+        processedSteps += streamedSteps;
+      } else {
+        processQueueStep(i % stepsPerDataset);
+        processedSteps++;
+      }
 
       // If we are canceled or ran into error, stop here
       if (isCanceled()) {
@@ -241,25 +325,214 @@ public class BatchTask extends AbstractTask {
           return;
         }
       }
+
+      // only save checkpoints after steps that created data, e.g., not after exports
+      if (checkpoints != null && (lastDataFiles != previousCreatedDataFiles
+                                  || lastFeatureLists != previousCreatedFeatureLists)) {
+        checkpoints.save(processedSteps - 1, project, previousCreatedDataFiles,
+            previousCreatedFeatureLists);
+      }
     }
 
     logger.info("Finished a batch of " + totalSteps + " steps");
     setStatus(TaskStatus.FINISHED);
-    printBatchTimes(batchStart);
+    if (useAdvanced) {
+      finishDatasetTimes(batchStart, datasetTimesStart, datasetName);
+      writeDatasetsReport();
+    } else {
+      printBatchTimes(batchStart, stepTimes, ChangeOutputFilesUtils.findFirstOutputFile(queue));
+    }
     Duration duration = Duration.between(batchStart, Instant.now());
     stepTimes.addFirst(new StepTimeMeasurement(0, getName(), duration));
   }
 
-  private void printBatchTimes(final Instant batchStart) {
+  /**
+   * Marks the measurements of a dataset in the advanced mode and writes its report next to the
+   * output of the dataset. The measurements are kept for the report of all datasets.
+   *
+   * @param start first measurement of the dataset
+   */
+  private void finishDatasetTimes(final Instant batchStart, final int start,
+      final String datasetName) {
+    final List<StepTimeMeasurement> datasetTimes = stepTimes.subList(start, stepTimes.size());
+    datasetTimes.replaceAll(time -> time.withDataset(datasetName));
+    printBatchTimes(batchStart, datasetTimes, ChangeOutputFilesUtils.findFirstOutputFile(queue));
+  }
+
+  /**
+   * Writes the measurements of all datasets of the advanced mode to the processing parent
+   * directory
+   */
+  private void writeDatasetsReport() {
+    if (parentDir != null) {
+      writeBatchStepReport(new File(parentDir, parentDir.getName()), stepTimes);
+    }
+  }
+
+  private void printBatchTimes(final Instant batchStart, final List<StepTimeMeasurement> times,
+      @Nullable final File outputFile) {
     Duration duration = Duration.between(batchStart, Instant.now());
-    String times = stepTimes.stream().map(Objects::toString).collect(Collectors.joining("\n"));
+    String timesText = times.stream().map(Objects::toString).collect(Collectors.joining("\n"));
     logger.info(STR."""
     Timing: Whole batch took \{duration} to finish
-    \{times}""");
+    \{timesText}""");
+
+    // machine-readable report next to the batch output
+    if (outputFile != null) {
+      writeBatchStepReport(outputFile, times);
+    }
   }
 
-  private void setOutputFiles(final File parentDir, final boolean createResultsDir,
-      final String datasetName) {
+  private void writeBatchStepReport(final File baseFile, final List<StepTimeMeasurement> times) {
+    try {
+      BatchStepReport.write(baseFile, times);
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Could not write batch step report " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Processes the datasets of the advanced mode concurrently. Each dataset runs as its own batch on
+   * a copy of the queue and in its own project, so that the data of a dataset and its memory mapped
+   * storage can be released as soon as it is finished. All datasets share the task executor and
+   * therefore the number of threads set in the preferences. Further datasets are only started while
+   * the used heap is below {@link #MAX_HEAP_USAGE_TO_START_DATASET}. Only used for queues that do
+   * not resolve anything through the current project, see
+   * {@link PerFileBatchSteps#isProjectIndependent(BatchQueue)}.
+   */
+  private void processDatasetsConcurrently(final Instant batchStart) {
+    final int threads = Math.min(parallelDatasets, datasets);
+    logger.info(STR."Processing \{datasets} batch datasets with \{threads} in parallel");
+
+    final List<Future<TaskStatus>> futures = new ArrayList<>(datasets);
+    try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+      for (final File datasetDir : subDirectories) {
+        futures.add(executor.submit(() -> processDataset(datasetDir)));
+      }
+    }
+
+    int errorDatasets = 0;
+    for (final Future<TaskStatus> future : futures) {
+      try {
+        if (future.get() == TaskStatus.ERROR) {
+          errorDatasets++;
+        }
+      } catch (InterruptedException | ExecutionException e) {
+        logger.log(Level.WARNING, "Error in batch dataset " + e.getMessage(), e);
+        errorDatasets++;
+      }
+    }
+
+    final Duration duration = Duration.between(batchStart, Instant.now());
+    logger.info(
+        STR."Finished \{datasets} batch datasets in \{duration}, \{errorDatasets} with errors");
+    writeDatasetsReport();
+    if (isCanceled() || getStatus() == TaskStatus.ERROR) {
+      return;
+    }
+    setStatus(TaskStatus.FINISHED);
+  }
+
+  /**
+   * Runs the queue on the data files of a dataset directory in a new project. The project only
+   * shares the spectral libraries with the current project.
+   *
+   * @return the status of the dataset batch
+   */
+  private TaskStatus processDataset(final File datasetDir) {
+    final String datasetName = datasetDir.getName();
+    waitForFreeMemory();
+    if (isCanceled() || getStatus() == TaskStatus.ERROR) {
+      return TaskStatus.CANCELED;
+    }
+
+    final File[] allFiles = FileAndPathUtil.findFilesInDirFlat(datasetDir,
+        ExtensionFilters.ALL_MS_DATA_FILTER, searchSubdirs);
+    if (allFiles.length == 0) {
+      return failDataset(datasetName, "No data files found in directory: " + datasetName);
+    }
+    // each dataset changes the input and output files of its own queue
+    final BatchQueue datasetQueue = queue.clone();
+    if (!datasetQueue.setImportFiles(allFiles, null)) {
+      return failDataset(datasetName,
+          "Could not set data files in advanced batch mode. " + datasetName);
+    }
+    try {
+      setOutputFiles(datasetQueue, parentDir, createResultsDir, datasetName);
+    } catch (IllegalStateException e) {
+      return failDataset(datasetName, e.getMessage());
+    }
+
+    final MZmineProject datasetProject = new MZmineProjectImpl();
+    datasetProject.addSpectralLibrary(
+        project.getCurrentSpectralLibraries().toArray(new SpectralLibrary[0]));
+    final BatchTask datasetTask = new BatchTask(datasetProject, datasetQueue, getModuleCallDate(),
+        null, null);
+    datasetTask.setName("Batch dataset " + datasetName);
+
+    logger.info(STR."Processing batch dataset \{datasetName}");
+    runningDatasets.add(datasetTask);
+    try {
+      datasetTask.run();
+    } catch (Exception e) {
+      logger.log(Level.WARNING, e.getMessage(), e);
+      datasetTask.setErrorMessage(e.getMessage());
+      datasetTask.setStatus(TaskStatus.ERROR);
+    } finally {
+      runningDatasets.remove(datasetTask);
+      addProcessedSteps(stepsPerDataset);
+      // collect the measurements of all datasets
+      synchronized (stepTimes) {
+        datasetTask.getStepTimes().forEach(time -> stepTimes.add(time.withDataset(datasetName)));
+      }
+    }
+
+    return switch (datasetTask.getStatus()) {
+      case FINISHED -> TaskStatus.FINISHED;
+      case ERROR -> failDataset(datasetName, datasetTask.getErrorMessage());
+      default -> TaskStatus.CANCELED;
+    };
+  }
+
+  /**
+   * Logs the error of a dataset. Without skip on error, the whole batch is stopped.
+   *
+   * @return {@link TaskStatus#ERROR}
+   */
+  private TaskStatus failDataset(final String datasetName, final String message) {
+    logger.warning(STR."Error in batch dataset \{datasetName}: \{message}");
+    if (!skipOnError) {
+      setErrorMessage(STR."Error in batch dataset \{datasetName}: \{message}");
+      setStatus(TaskStatus.ERROR);
+      runningDatasets.forEach(BatchTask::cancel);
+    }
+    return TaskStatus.ERROR;
+  }
+
+  /**
+   * Blocks until the used heap is below {@link #MAX_HEAP_USAGE_TO_START_DATASET} or no other
+   * dataset is running.
+   */
+  private void waitForFreeMemory() {
+    final Runtime runtime = Runtime.getRuntime();
+    while (!runningDatasets.isEmpty() && !isCanceled() && getStatus() != TaskStatus.ERROR
+           && (double) (runtime.totalMemory() - runtime.freeMemory()) / runtime.maxMemory()
+              > MAX_HEAP_USAGE_TO_START_DATASET) {
+      try {
+        Thread.sleep(1000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  private synchronized void addProcessedSteps(final int steps) {
+    processedSteps += steps;
+  }
+
+  private void setOutputFiles(final BatchQueue queue, final File parentDir,
+      final boolean createResultsDir, final String datasetName) {
     File exportPath = createDatasetExportPath(parentDir, createResultsDir, datasetName);
     var countChanged = ChangeOutputFilesUtils.applyTo(queue, exportPath);
 
@@ -293,6 +566,7 @@ public class BatchTask extends AbstractTask {
   private void processQueueStep(int stepNumber) {
 
     Instant start = Instant.now();
+    final StepResourceProfiler profiler = StepResourceProfiler.start();
     logger.info("Starting step # " + (stepNumber + 1));
 
     // Run next step of the batch
@@ -314,21 +588,13 @@ public class BatchTask extends AbstractTask {
 
     // Update the RawDataFilesParameter parameters to reflect the current
     // state of the batch
-    for (Parameter<?> p : batchStepParameters.getParameters()) {
-      if (p instanceof RawDataFilesParameter rdp) {
-        RawDataFile[] createdFiles = createdDataFiles.toArray(new RawDataFile[0]);
-        final RawDataFilesSelection selectedFiles = rdp.getValue();
-        if (selectedFiles == null) {
-          setStatus(TaskStatus.ERROR);
-          setErrorMessage("Invalid parameter settings for module " + method.getName() + ": "
-                          + "Missing parameter value for " + p.getName());
-          return;
-        }
-        selectedFiles.setBatchLastFiles(createdFiles);
-      }
+    if (!setBatchLastFilesToParamSet(method, batchStepParameters,
+        createdDataFiles.toArray(new RawDataFile[0]))) {
+      return;
     }
 
-    if (!setBatchlastFeatureListsToParamSet(method, batchStepParameters)) {
+    if (!setBatchlastFeatureListsToParamSet(method, batchStepParameters,
+        createdFeatureLists.toArray(new FeatureList[0]))) {
       return;
     }
 
@@ -402,7 +668,188 @@ public class BatchTask extends AbstractTask {
     }
 
     Duration duration = Duration.between(start, Instant.now());
-    stepTimes.add(new StepTimeMeasurement(stepNumber, method.getName(), duration));
+    stepTimes.add(new StepTimeMeasurement(stepNumber, method.getName(), duration,
+        profiler.finish(createdFeatureLists)));
+  }
+
+  /**
+   * Opens the last checkpoint of the unchanged steps of the queue as the current project
+   *
+   * @return the number of restored steps or 0 if there is no checkpoint
+   */
+  private int restoreCheckpoint() {
+    if (checkpoints == null) {
+      return 0;
+    }
+    final int step = checkpoints.findLastCheckpointedStep();
+    if (step < 0) {
+      return 0;
+    }
+
+    final Instant start = Instant.now();
+    final BatchCheckpointStore.Restored restored = checkpoints.restore(step);
+    if (restored == null) {
+      return 0;
+    }
+    project = restored.project();
+    createdDataFiles = new ArrayList<>(restored.dataFiles());
+    previousCreatedDataFiles = createdDataFiles;
+    createdFeatureLists = new ArrayList<>(restored.featureLists());
+    previousCreatedFeatureLists = createdFeatureLists;
+    processedSteps = step + 1;
+
+    logger.info(STR."Restored steps 1-\{step + 1} of the batch from a checkpoint");
+    stepTimes.add(new StepTimeMeasurement(step, "Restore checkpoint",
+        Duration.between(start, Instant.now())));
+    return step + 1;
+  }
+
+  /**
+   * Processes the leading per file steps of the queue (see {@link PerFileBatchSteps}) for each data
+   * file independently. Each file is imported and passed through its own chain of steps on a
+   * bounded pool, so that fast files do not wait for slow files. The batch only synchronizes at the
+   * first step that needs all data files or feature lists, e.g., alignment.
+   *
+   * @return the number of processed steps or 0 if the queue cannot be streamed
+   */
+  private int processPerFileSteps() {
+    final int steps = PerFileBatchSteps.countLeadingPerFileSteps(queue);
+    final File[] files = queue.getFirst().getParameterSet()
+        .getValue(AllSpectralDataImportParameters.fileNames);
+    if (steps < 2 || files == null || files.length < 2) {
+      return 0;
+    }
+
+    final Instant start = Instant.now();
+    final StepResourceProfiler profiler = StepResourceProfiler.start();
+    final int threads = Math.min(files.length,
+        Math.max(1, MZmineCore.getConfiguration().getNumOfThreads()));
+    logger.info(
+        STR."Streaming \{files.length} files through the first \{steps} batch steps on \{threads} threads");
+
+    final List<Future<FileChainResult>> futures = new ArrayList<>(files.length);
+    try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+      for (final File file : files) {
+        futures.add(executor.submit(() -> processFileChain(file, steps)));
+      }
+    }
+
+    // merge the results in the order of the input files
+    final List<RawDataFile> dataFiles = new ArrayList<>();
+    final List<FeatureList> featureLists = new ArrayList<>();
+    for (final Future<FileChainResult> future : futures) {
+      final FileChainResult result;
+      try {
+        result = future.get();
+      } catch (InterruptedException | ExecutionException e) {
+        logger.log(Level.WARNING, "Error while streaming files through batch " + e.getMessage(), e);
+        setStatus(TaskStatus.ERROR);
+        setErrorMessage("Error while streaming files through batch: " + e.getMessage());
+        return steps;
+      }
+      if (result == null) {
+        // canceled or error status was set
+        return steps;
+      }
+      dataFiles.addAll(result.dataFiles());
+      featureLists.addAll(result.featureLists());
+    }
+
+    createdDataFiles = dataFiles;
+    previousCreatedDataFiles = dataFiles;
+    createdFeatureLists = featureLists;
+    if (!featureLists.isEmpty()) {
+      previousCreatedFeatureLists = featureLists;
+    }
+
+    final String names = queue.subList(0, steps).stream().map(s -> s.getModule().getName())
+        .collect(Collectors.joining(", "));
+    stepTimes.add(new StepTimeMeasurement(0, STR."Per file steps (\{names})",
+        Duration.between(start, Instant.now()), profiler.finish(featureLists)));
+    return steps;
+  }
+
+  /**
+   * Runs the first steps of the queue on a single data file. The import is restricted to this
+   * file, all other steps are applied to the data file and feature lists created by this chain.
+   *
+   * @return the data files and last feature lists of this chain or null on cancel or error
+   */
+  @Nullable
+  private FileChainResult processFileChain(@NotNull File file, int steps) {
+    List<RawDataFile> dataFiles = List.of();
+    List<FeatureList> featureLists = List.of();
+
+    for (int step = 0; step < steps; step++) {
+      if (isCanceled() || getStatus() == TaskStatus.ERROR) {
+        return null;
+      }
+      final MZmineProcessingStep<?> currentStep = queue.get(step);
+      final MZmineProcessingModule method = (MZmineProcessingModule) currentStep.getModule();
+      final ParameterSet parameters = currentStep.getParameterSet().cloneParameterSet();
+
+      if (step == 0) {
+        parameters.setParameter(AllSpectralDataImportParameters.fileNames, new File[]{file});
+      } else if (!setBatchLastFilesToParamSet(method, parameters,
+          dataFiles.toArray(new RawDataFile[0])) || !setBatchlastFeatureListsToParamSet(method,
+          parameters, featureLists.toArray(new FeatureList[0]))) {
+        return null;
+      }
+
+      final List<String> messages = new ArrayList<>();
+      if (!parameters.checkParameterValues(messages)) {
+        setStatus(TaskStatus.ERROR);
+        setErrorMessage(
+            "Invalid parameter settings for module " + method.getName() + ": " + Arrays.toString(
+                messages.toArray()));
+        return null;
+      }
+
+      final Set<FeatureList> beforeFeatureLists = new HashSet<>(project.getCurrentFeatureLists());
+      final List<Task> tasks = new ArrayList<>();
+      final ExitCode exitCode = method.runModule(project, parameters, tasks, Instant.now());
+      if (exitCode != ExitCode.OK) {
+        setStatus(TaskStatus.ERROR);
+        setErrorMessage(
+            STR."Could not start batch step \{method.getName()} for file \{file.getName()}");
+        return null;
+      }
+
+      if (!tasks.isEmpty()) {
+        final TaskStatus status =
+            tasks.size() > 1 ? runInTaskPool(method, tasks) : runTasksIndividually(tasks);
+        if (status != TaskStatus.FINISHED) {
+          if (!isCanceled()) {
+            setStatus(TaskStatus.ERROR);
+            setErrorMessage(
+                STR."Batch step \{method.getName()} failed for file \{file.getName()}");
+          }
+          return null;
+        }
+      }
+
+      if (step == 0) {
+        dataFiles = AllSpectralDataImportParameters.getLoadedRawDataFiles(project, parameters);
+        if (dataFiles.isEmpty()) {
+          setStatus(TaskStatus.ERROR);
+          setErrorMessage("Could not import file " + file.getAbsolutePath());
+          return null;
+        }
+        continue;
+      }
+
+      // other chains add feature lists concurrently, only keep the ones of this file
+      final Set<RawDataFile> chainFiles = new HashSet<>(dataFiles);
+      final List<FeatureList> created = project.getCurrentFeatureLists().stream()
+          .filter(flist -> !beforeFeatureLists.contains(flist))
+          .filter(flist -> !flist.getRawDataFiles().isEmpty() && chainFiles.containsAll(
+              flist.getRawDataFiles())).toList();
+      // keep the last feature lists if this step did not create any
+      if (!created.isEmpty()) {
+        featureLists = created;
+      }
+    }
+    return new FileChainResult(dataFiles, featureLists);
   }
 
   /**
@@ -423,8 +870,8 @@ public class BatchTask extends AbstractTask {
 
   private void setLastFilesIfAllDataImportStep(final ParameterSet batchStepParameters) {
     if (AllSpectralDataImportParameters.isParameterSetClass(batchStepParameters)) {
-      var loadedRawDataFiles = AllSpectralDataImportParameters.getLoadedRawDataFiles(
-          ProjectService.getProject(), batchStepParameters);
+      var loadedRawDataFiles = AllSpectralDataImportParameters.getLoadedRawDataFiles(project,
+          batchStepParameters);
 
       // because of concurrency - the project may not have all the new raw data files - but all newly created files are in createdDataFiles
       Set<RawDataFile> files = new HashSet<>(loadedRawDataFiles);
@@ -445,6 +892,28 @@ public class BatchTask extends AbstractTask {
     }
   }
 
+  /**
+   * Sets the last data files to all {@link RawDataFilesParameter}s
+   *
+   * @return false on error
+   */
+  private boolean setBatchLastFilesToParamSet(MZmineProcessingModule method,
+      ParameterSet batchStepParameters, RawDataFile[] createdFiles) {
+    for (Parameter<?> p : batchStepParameters.getParameters()) {
+      if (p instanceof RawDataFilesParameter rdp) {
+        final RawDataFilesSelection selectedFiles = rdp.getValue();
+        if (selectedFiles == null) {
+          setStatus(TaskStatus.ERROR);
+          setErrorMessage("Invalid parameter settings for module " + method.getName() + ": "
+                          + "Missing parameter value for " + p.getName());
+          return false;
+        }
+        selectedFiles.setBatchLastFiles(createdFiles);
+      }
+    }
+    return true;
+  }
+
   /**
    * Recursively sets the last feature lists to the parameters since there might be embedded
    * parameters.
@@ -452,12 +921,11 @@ public class BatchTask extends AbstractTask {
    * @return false on error
    */
   private boolean setBatchlastFeatureListsToParamSet(MZmineProcessingModule method,
-      ParameterSet batchStepParameters) {
+      ParameterSet batchStepParameters, FeatureList[] createdFlists) {
     // Update the FeatureListsParameter parameters to reflect the current
     // state of the batch
     for (Parameter<?> p : batchStepParameters.getParameters()) {
       if (p instanceof FeatureListsParameter featureListsParameter) {
-        FeatureList[] createdFlists = createdFeatureLists.toArray(new FeatureList[0]);
         final FeatureListsSelection selectedFeatureLists = featureListsParameter.getValue();
         if (selectedFeatureLists == null) {
           setStatus(TaskStatus.ERROR);
@@ -467,7 +935,8 @@ public class BatchTask extends AbstractTask {
         }
         selectedFeatureLists.setBatchLastFeatureLists(createdFlists);
       } else if (p instanceof EmbeddedParameterSet embedded) {
-        if (!setBatchlastFeatureListsToParamSet(method, embedded.getEmbeddedParameters())) {
+        if (!setBatchlastFeatureListsToParamSet(method, embedded.getEmbeddedParameters(),
+            createdFlists)) {
           return false;
         }
       }
@@ -481,16 +950,27 @@ public class BatchTask extends AbstractTask {
     return TaskPriority.HIGH;
   }
 
+  @Override
+  public void cancel() {
+    super.cancel();
+    runningDatasets.forEach(BatchTask::cancel);
+  }
+
   @Override
   public double getFinishedPercentage() {
     if (totalSteps == 0) {
       return 0;
     }
-    return (double) processedSteps / totalSteps;
+    final int running = runningDatasets.stream().mapToInt(dataset -> dataset.processedSteps).sum();
+    return (double) (processedSteps + running) / totalSteps;
   }
 
   @Override
   public String getTaskDescription() {
+    if (datasets > 1 && parallelDatasets > 1 && stepsPerDataset > 0) {
+      return String.format("Batch datasets: %d/%d finished, %d running",
+          processedSteps / stepsPerDataset, datasets, runningDatasets.size());
+    }
     if (datasets > 1) {
       if (stepsPerDataset == 0) {
         return "Batch mode";
@@ -505,4 +985,10 @@ public class BatchTask extends AbstractTask {
     }
   }
 
+  /**
+   * The data files and the last feature lists of one file passed through the per file steps
+   */
+  private record FileChainResult(List<RawDataFile> dataFiles, List<FeatureList> featureLists) {
+
+  }
 }
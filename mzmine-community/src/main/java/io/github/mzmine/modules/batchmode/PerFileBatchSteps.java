@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.batchmode;
+
+import io.github.mzmine.modules.MZmineModule;
+import io.github.mzmine.modules.MZmineProcessingStep;
+import io.github.mzmine.modules.dataprocessing.featdet_adapchromatogrambuilder.ModularADAPChromatogramBuilderModule;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.FeatureResolverModule;
+import io.github.mzmine.modules.dataprocessing.featdet_imagebuilder.ImageBuilderModule;
+import io.github.mzmine.modules.dataprocessing.featdet_imsexpander.ImsExpanderModule;
+import io.github.mzmine.modules.dataprocessing.featdet_ionmobilitytracebuilder.IonMobilityTraceBuilderModule;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetectionModule;
+import io.github.mzmine.modules.dataprocessing.featdet_mobilityscanmerger.MobilityScanMergerModule;
+import io.github.mzmine.modules.dataprocessing.featdet_mobilogram_summing.MobilogramBinningModule;
+import io.github.mzmine.modules.dataprocessing.featdet_recursiveimsbuilder.RecursiveIMSBuilderModule;
+import io.github.mzmine.modules.dataprocessing.featdet_smoothing.SmoothingModule;
+import io.github.mzmine.modules.dataprocessing.filter_isotopefinder.IsotopeFinderModule;
+import io.github.mzmine.modules.dataprocessing.filter_isotopegrouper.IsotopeGrouperModule;
+import io.github.mzmine.modules.io.import_rawdata_all.AllSpectralDataImportModule;
+import io.github.mzmine.modules.io.import_rawdata_all.AllSpectralDataImportParameters;
+import io.github.mzmine.modules.io.import_spectral_library.SpectralLibraryImportParameters;
+import io.github.mzmine.modules.visualization.projectmetadata.io.ProjectMetadataImportModule;
+import io.github.mzmine.parameters.Parameter;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.EmbeddedParameter;
+import io.github.mzmine.parameters.parametertypes.EmbeddedParameterSet;
+import io.github.mzmine.parameters.parametertypes.metadata.MetadataGroupSelectionParameter;
+import io.github.mzmine.parameters.parametertypes.metadata.MetadataGroupingParameter;
+import io.github.mzmine.parameters.parametertypes.selectors.FeatureListsParameter;
+import io.github.mzmine.parameters.parametertypes.selectors.FeatureListsSelection;
+import io.github.mzmine.parameters.parametertypes.selectors.FeatureListsSelectionType;
+import io.github.mzmine.parameters.parametertypes.selectors.RawDataFilesParameter;
+import io.github.mzmine.parameters.parametertypes.selectors.RawDataFilesSelection;
+import io.github.mzmine.parameters.parametertypes.selectors.RawDataFilesSelectionType;
+import io.github.mzmine.parameters.parametertypes.statistics.TTestConfigurationParameter;
+import java.io.File;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Batch steps that process every data file and its feature lists independently of all other data
+ * files. A leading run of these steps can be processed for each data file on its own, see
+ * {@link BatchTask}.
+ */
+final class PerFileBatchSteps {
+
+  private static final List<Class<? extends MZmineModule>> PER_FILE_MODULES = List.of(
+      AllSpectralDataImportModule.class, MassDetectionModule.class,
+      MobilityScanMergerModule.class, ModularADAPChromatogramBuilderModule.class,
+      IonMobilityTraceBuilderModule.class, RecursiveIMSBuilderModule.class,
+      ImageBuilderModule.class, ImsExpanderModule.class, MobilogramBinningModule.class,
+      SmoothingModule.class, FeatureResolverModule.class, IsotopeFinderModule.class,
+      IsotopeGrouperModule.class);
+
+  private PerFileBatchSteps() {
+  }
+
+  public static boolean isPerFileStep(@NotNull MZmineProcessingStep<?> step) {
+    final MZmineModule module = step.getModule();
+    return PER_FILE_MODULES.stream().anyMatch(type -> type.isInstance(module));
+  }
+
+  /**
+   * The leading run of per file steps. Only the first step may be the data import, which needs to
+   * be splittable by file (see {@link #isSplittableImport(ParameterSet)}). The run ends at the
+   * first step that does not select the data files and feature lists of the previous batch step,
+   * as other selections resolve against the whole project (see
+   * {@link #usesBatchLastSelections(ParameterSet)}).
+   *
+   * @return the number of leading per file steps or 0 if the queue does not start with a
+   * splittable data import
+   */
+  public static int countLeadingPerFileSteps(@NotNull BatchQueue queue) {
+    if (queue.isEmpty() || !(queue.getFirst().getModule() instanceof AllSpectralDataImportModule)
+        || !isSplittableImport(queue.getFirst().getParameterSet())) {
+      return 0;
+    }
+    int steps = 1;
+    while (steps < queue.size() && isPerFileStep(queue.get(steps))
+        && !(queue.get(steps).getModule() instanceof AllSpectralDataImportModule)
+        && usesBatchLastSelections(queue.get(steps).getParameterSet())) {
+      steps++;
+    }
+    return steps;
+  }
+
+  /**
+   * A queue can run in a project of its own, e.g., for concurrent datasets of the advanced batch
+   * mode, if the selections and the project metadata are never resolved through the current
+   * project of the {@link io.github.mzmine.project.ProjectManager}. The queue needs to start with a
+   * data import without metadata file. All later steps need to select the data files and feature
+   * lists of the previous batch step and must not use the project metadata.
+   */
+  public static boolean isProjectIndependent(@NotNull BatchQueue queue) {
+    if (queue.isEmpty() || !(queue.getFirst().getModule() instanceof AllSpectralDataImportModule)
+        || importsMetadata(queue.getFirst().getParameterSet())) {
+      return false;
+    }
+    for (int i = 1; i < queue.size(); i++) {
+      final MZmineProcessingStep<?> step = queue.get(i);
+      if (step.getModule() instanceof AllSpectralDataImportModule
+          || step.getModule() instanceof ProjectMetadataImportModule
+          || !usesBatchLastSelections(step.getParameterSet())
+          || usesProjectMetadata(step.getParameterSet())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return true if any parameter, also in embedded parameters, selects columns or groups of the
+   * project metadata
+   */
+  public static boolean usesProjectMetadata(@NotNull ParameterSet parameters) {
+    for (final Parameter<?> p : parameters.getParameters()) {
+      if (usesProjectMetadata(p)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean usesProjectMetadata(@NotNull Parameter<?> p) {
+    if (p instanceof MetadataGroupingParameter || p instanceof MetadataGroupSelectionParameter
+        || p instanceof TTestConfigurationParameter) {
+      return true;
+    } else if (p instanceof EmbeddedParameterSet<?, ?> embedded) {
+      return usesProjectMetadata(embedded.getEmbeddedParameters());
+    } else if (p instanceof EmbeddedParameter<?, ?, ?> embedded) {
+      return usesProjectMetadata(embedded.getEmbeddedParameter());
+    }
+    return false;
+  }
+
+  private static boolean importsMetadata(@NotNull ParameterSet importParameters) {
+    final var metadataFile = AllSpectralDataImportParameters.metadataFile;
+    return importParameters.hasParameter(metadataFile)
+           && Boolean.TRUE.equals(importParameters.getValue(metadataFile));
+  }
+
+  /**
+   * @return true if all data file and feature list selections, also in embedded parameters, select
+   * the ones created by the previous batch step
+   */
+  public static boolean usesBatchLastSelections(@NotNull ParameterSet parameters) {
+    for (final Parameter<?> p : parameters.getParameters()) {
+      if (p instanceof RawDataFilesParameter rdp) {
+        final RawDataFilesSelection selection = rdp.getValue();
+        if (selection == null
+            || selection.getSelectionType() != RawDataFilesSelectionType.BATCH_LAST_FILES) {
+          return false;
+        }
+      } else if (p instanceof FeatureListsParameter flp) {
+        final FeatureListsSelection selection = flp.getValue();
+        if (selection == null
+            || selection.getSelectionType() != FeatureListsSelectionType.BATCH_LAST_FEATURELISTS) {
+          return false;
+        }
+      } else if (p instanceof EmbeddedParameterSet embedded && !usesBatchLastSelections(
+          embedded.getEmbeddedParameters())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The import can be split into one import per file if it does not import metadata or spectral
+   * libraries, which apply to all files.
+   */
+  public static boolean isSplittableImport(@NotNull ParameterSet importParameters) {
+    if (!AllSpectralDataImportParameters.isParameterSetClass(importParameters)) {
+      return false;
+    }
+    if (importParameters.hasParameter(AllSpectralDataImportParameters.metadataFile)
+        && importParameters.getParameter(AllSpectralDataImportParameters.metadataFile).getValue()) {
+      return false;
+    }
+    final File[] libraries = importParameters.hasParameter(
+        SpectralLibraryImportParameters.dataBaseFiles) ? importParameters.getValue(
+        SpectralLibraryImportParameters.dataBaseFiles) : null;
+    return libraries == null || libraries.length == 0;
+  }
+}
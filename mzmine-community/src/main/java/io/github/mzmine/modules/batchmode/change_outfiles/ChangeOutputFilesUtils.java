@@ -109,4 +109,55 @@ public class ChangeOutputFilesUtils {
     }
     return 0;
   }
+
+  /**
+   * @return the first output file of all parameters of type {@link FileNameSuffixExportParameter}
+   * or null if there is none
+   */
+  @Nullable
+  public static File findFirstOutputFile(
+      @Nullable final List<MZmineProcessingStep<MZmineProcessingModule>> steps) {
+    if (steps == null) {
+      return null;
+    }
+    for (var step : steps) {
+      ParameterSet params = step.getParameterSet();
+      if (params == null) {
+        continue;
+      }
+      for (final Parameter<?> parameter : params.getParameters()) {
+        File file = findOutputFile(parameter);
+        if (file != null) {
+          return file;
+        }
+      }
+    }
+    return null;
+  }
+
+  @Nullable
+  private static File findOutputFile(final Parameter<?> parameter) {
+    if (parameter == null) {
+      return null;
+    }
+    if (parameter instanceof FileNameSuffixExportParameter outParam) {
+      return outParam.getValue();
+    }
+    if (parameter instanceof EmbeddedParameterSet<?, ?> parent) {
+      for (final Parameter<?> embedded : parent.getEmbeddedParameters().getParameters()) {
+        File file = findOutputFile(embedded);
+        if (file != null) {
+          return file;
+        }
+      }
+      return null;
+    }
+    if (parameter instanceof EmbeddedParameter<?, ?, ?> parent) {
+      return findOutputFile(parent.getEmbeddedParameter());
+    }
+    if (parameter instanceof HiddenParameter<?> parent) {
+      return findOutputFile(parent.getEmbeddedParameter());
+    }
+    return null;
+  }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.batchmode.timing;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.mzmine.util.files.FileAndPathUtil;
+import io.github.mzmine.util.io.CsvWriter;
+import io.github.mzmine.util.io.SemverVersionReader;
+import io.github.mzmine.util.io.WriterOptions;
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Writes the timing and resources of all batch steps to a csv and a json file to track performance
+ * between versions.
+ */
+public class BatchStepReport {
+
+  /**
+   * Writes baseFile_batch_steps.csv and baseFile_batch_steps.json
+   *
+   * @param baseFile base path and name, extension is removed
+   * @param steps    all measured steps
+   */
+  public static void write(@NotNull File baseFile, @NotNull List<StepTimeMeasurement> steps)
+      throws IOException {
+    final String version = SemverVersionReader.getMZmineVersion().toString();
+    final String finished = Instant.now().toString();
+    final List<StepReportRow> rows = steps.stream()
+        .map(step -> StepReportRow.of(version, finished, step)).toList();
+
+    final File csvFile = FileAndPathUtil.getRealFilePathWithSuffix(baseFile, "_batch_steps", "csv");
+    final File jsonFile = FileAndPathUtil.getRealFilePathWithSuffix(baseFile, "_batch_steps",
+        "json");
+
+    CsvWriter.writeToFile(csvFile, rows, StepReportRow.class, WriterOptions.REPLACE);
+    new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(jsonFile, rows);
+  }
+
+  /**
+   * One step of the report, resources are -1 if they were not measured. Process values include
+   * everything that ran in parallel, see {@link StepResourceUsage}.
+   */
+  @JsonPropertyOrder({"mzmineVersion", "finished", "dataset", "step", "module", "wallTimeMs",
+      "processCpuTimeMs", "processAllocatedBytes", "processGcCount", "processGcTimeMs",
+      "peakHeapUsedBytes", "mappedCapacityGrowthBytes", "rows", "features"})
+  record StepReportRow(String mzmineVersion, String finished, String dataset, int step,
+                       String module, long wallTimeMs, long processCpuTimeMs,
+                       long processAllocatedBytes, long processGcCount, long processGcTimeMs,
+                       long peakHeapUsedBytes, long mappedCapacityGrowthBytes, long rows,
+                       long features) {
+
+    static StepReportRow of(String version, String finished, StepTimeMeasurement step) {
+      final StepResourceUsage res = Objects.requireNonNullElse(step.resources(),
+          new StepResourceUsage(-1, -1, -1, -1, -1, -1, -1, -1));
+      return new StepReportRow(version, finished, Objects.requireNonNullElse(step.dataset(), ""),
+          step.stepNumber() + 1, step.name(), step.duration().toMillis(),
+          res.processCpuTimeMs(), res.processAllocatedBytes(), res.processGcCount(),
+          res.processGcTimeMs(), res.peakHeapUsedBytes(),
+          res.mappedCapacityGrowthBytes(), res.rows(), res.features());
+    }
+  }
+}
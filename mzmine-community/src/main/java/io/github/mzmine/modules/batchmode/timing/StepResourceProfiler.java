@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.batchmode.timing;
+
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Measures the resources used while a batch step runs between {@link #start()} and
+ * {@link #finish(List)} from the platform MX beans. Measurements are process wide and include
+ * all tasks that run in parallel, see {@link StepResourceUsage}.
+ * <p>
+ * The peak heap usage is taken from the peak usage of the heap memory pools, which is reset when
+ * a measurement starts. Overlapping measurements, e.g., of parallel datasets, would reset the peak
+ * of each other, so the peak is only reset when no other measurement is running. The peak of an
+ * overlapping measurement may therefore include an earlier part of the other measurements.
+ */
+public class StepResourceProfiler {
+
+  // running measurements, profilers that were never finished are removed by the GC
+  private static final Set<StepResourceProfiler> running = Collections.newSetFromMap(
+      new WeakHashMap<>());
+
+  private final long cpuTimeNs;
+  private final long allocatedBytes;
+  private final long gcCount;
+  private final long gcTimeMs;
+  private final long mappedCapacity;
+
+  private StepResourceProfiler() {
+    cpuTimeNs = processCpuTimeNs();
+    allocatedBytes = allocatedBytes();
+    gcCount = gcCount();
+    gcTimeMs = gcTimeMs();
+    mappedCapacity = mappedCapacity();
+  }
+
+  /**
+   * Takes the start values and resets the peak heap usage if no other measurement is running
+   */
+  public static StepResourceProfiler start() {
+    final StepResourceProfiler profiler = new StepResourceProfiler();
+    synchronized (running) {
+      if (running.isEmpty()) {
+        heapPools().forEach(MemoryPoolMXBean::resetPeakUsage);
+      }
+      running.add(profiler);
+    }
+    return profiler;
+  }
+
+  /**
+   * @param createdFeatureLists feature lists created by the step to count rows and features
+   * @return the resources used since {@link #start()}
+   */
+  public StepResourceUsage finish(@NotNull List<FeatureList> createdFeatureLists) {
+    final long cpuTime = processCpuTimeNs();
+    final long allocated = allocatedBytes();
+    final long peakHeapUsed;
+    synchronized (running) {
+      peakHeapUsed = peakHeapUsed();
+      running.remove(this);
+    }
+
+    long rows = 0;
+    long features = 0;
+    for (final FeatureList flist : createdFeatureLists) {
+      rows += flist.getNumberOfRows();
+      features += flist.getRows().stream().mapToLong(FeatureListRow::getNumberOfFeatures).sum();
+    }
+
+    return new StepResourceUsage(
+        cpuTime < 0 || cpuTimeNs < 0 ? -1 : (cpuTime - cpuTimeNs) / 1_000_000,
+        allocated < 0 || allocatedBytes < 0 ? -1 : allocated - allocatedBytes, gcCount() - gcCount,
+        gcTimeMs() - gcTimeMs, peakHeapUsed, Math.max(0, mappedCapacity() - mappedCapacity),
+        rows, features);
+  }
+
+  private static List<MemoryPoolMXBean> heapPools() {
+    return ManagementFactory.getMemoryPoolMXBeans().stream()
+        .filter(pool -> pool.getType() == MemoryType.HEAP && pool.isValid()).toList();
+  }
+
+  /**
+   * The pools reach their peaks at different times, so the sum is an upper bound of the peak of the
+   * whole heap
+   */
+  private static long peakHeapUsed() {
+    return heapPools().stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+  }
+
+  private static long processCpuTimeNs() {
+    if (ManagementFactory.getOperatingSystemMXBean() instanceof
+        com.sun.management.OperatingSystemMXBean os) {
+      return os.getProcessCpuTime();
+    }
+    return -1;
+  }
+
+  private static long allocatedBytes() {
+    if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+        && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+      return threads.getTotalThreadAllocatedBytes();
+    }
+    return -1;
+  }
+
+  private static long gcCount() {
+    return ManagementFactory.getGarbageCollectorMXBeans().stream()
+        .mapToLong(GarbageCollectorMXBean::getCollectionCount).filter(count -> count > 0).sum();
+  }
+
+  private static long gcTimeMs() {
+    return ManagementFactory.getGarbageCollectorMXBeans().stream()
+        .mapToLong(GarbageCollectorMXBean::getCollectionTime).filter(time -> time > 0).sum();
+  }
+
+  /**
+   * Capacity of all buffers in the "mapped" buffer pool, not the number of written bytes
+   */
+  private static long mappedCapacity() {
+    return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+        .filter(pool -> "mapped".equals(pool.getName()))
+        .mapToLong(BufferPoolMXBean::getTotalCapacity).sum();
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.batchmode.timing;
+
+/**
+ * Resources used while a batch step ran. All process values are measured for the whole JVM and
+ * include everything that ran in parallel, e.g., other datasets, file chains or the GUI. Tasks run
+ * on shared thread pools, so the resources of a single step cannot be separated. Values are -1 if
+ * the JVM does not provide the measurement.
+ *
+ * @param processCpuTimeMs          CPU time of the whole process, including all threads and GC
+ * @param processAllocatedBytes     bytes allocated on the heap by all threads
+ * @param processGcCount            number of garbage collections
+ * @param processGcTimeMs           accumulated garbage collection time
+ * @param peakHeapUsedBytes         peak heap usage while the step ran, the sum of the peaks of
+ *                                  all heap memory pools
+ * @param mappedCapacityGrowthBytes growth of the total capacity of the JVM "mapped" buffer pool,
+ *                                  e.g., by new files of
+ *                                  {@link io.github.mzmine.util.MemoryMapStorage}. This is not the
+ *                                  number of written bytes.
+ * @param rows                      rows in the feature lists created by the step
+ * @param features                  features in the feature lists created by the step
+ */
+public record StepResourceUsage(long processCpuTimeMs, long processAllocatedBytes,
+                                long processGcCount, long processGcTimeMs, long peakHeapUsedBytes,
+                                long mappedCapacityGrowthBytes, long rows, long features) {
+
+  @Override
+  public String toString() {
+    return STR."process cpu=\{processCpuTimeMs}ms, "
+           + STR."process allocated=\{processAllocatedBytes / 1_000_000}MB, "
+           + STR."process gc=\{processGcCount}x \{processGcTimeMs}ms, "
+           + STR."peak heap used=\{peakHeapUsedBytes / 1_000_000}MB, "
+           + STR."mapped capacity growth=\{mappedCapacityGrowthBytes / 1_000_000}MB, "
+           + STR."rows=\{rows}, features=\{features}";
+  }
+}
@@ -26,11 +26,37 @@
 package io.github.mzmine.modules.batchmode.timing;
 
 import java.time.Duration;
+import org.jetbrains.annotations.Nullable;
 
-public record StepTimeMeasurement(int stepNumber, String name, Duration duration) {
+/**
+ * @param resources resources used by the step or null if not measured
+ * @param dataset   the dataset of the advanced batch mode or null
+ */
+public record StepTimeMeasurement(int stepNumber, String name, Duration duration,
+                                  @Nullable StepResourceUsage resources,
+                                  @Nullable String dataset) {
+
+  public StepTimeMeasurement(int stepNumber, String name, Duration duration) {
+    this(stepNumber, name, duration, null, null);
+  }
+
+  public StepTimeMeasurement(int stepNumber, String name, Duration duration,
+      @Nullable StepResourceUsage resources) {
+    this(stepNumber, name, duration, resources, null);
+  }
+
+  /**
+   * @return this measurement of a dataset of the advanced batch mode
+   */
+  public StepTimeMeasurement withDataset(@Nullable String dataset) {
+    return new StepTimeMeasurement(stepNumber, name, duration, resources, dataset);
+  }
 
   @Override
   public String toString() {
-    return STR."Step \{stepNumber + 1}: \{name} took \{duration} to finish";
+    final String step = dataset == null ? STR."Step \{stepNumber + 1}"
+        : STR."Dataset \{dataset} step \{stepNumber + 1}";
+    final String time = STR."\{step}: \{name} took \{duration} to finish";
+    return resources == null ? time : STR."\{time} (\{resources})";
   }
 }
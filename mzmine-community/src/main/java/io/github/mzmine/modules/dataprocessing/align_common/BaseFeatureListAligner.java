@@ -100,7 +100,8 @@ public class BaseFeatureListAligner {
     }
 
     // Create a new aligned feature list based on the baseList and renumber IDs
-    var alignedFeatureList = new ModularFeatureList(featureListName, storage, allDataFiles);
+    var alignedFeatureList = new ModularFeatureList(featureListName, storage,
+        FeatureListUtils.isCompactFeatureStorage(), allDataFiles);
     FeatureListUtils.transferRowTypes(alignedFeatureList, featureLists);
     FeatureListUtils.transferSelectedScans(alignedFeatureList, featureLists);
     FeatureListUtils.copyPeakListAppliedMethods(featureLists.getFirst(), alignedFeatureList);
@@ -26,65 +26,77 @@
 
 package io.github.mzmine.modules.dataprocessing.featdet_adapchromatogrambuilder;
 
-import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.Scan;
-import io.github.mzmine.datamodel.impl.SimpleDataPoint;
 import io.github.mzmine.main.MZmineCore;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import org.jetbrains.annotations.NotNull;
 
-
 /**
- * Chromatogram.
+ * Chromatogram. Data points are stored as primitive arrays sorted by scan. Scans are referenced
+ * by their index in all scans used to build chromatograms.
  */
 public class ADAPChromatogram {
 
-  // Data points of the chromatogram (map of scan number -> m/z feature)
-  // private Hashtable<Integer, DataPoint> dataPointsMap;
-  private final TreeMap<Scan, DataPoint> dataPointsMap = new TreeMap<>();
-  public int tmp_see_same_scan_count = 0;
-  // Chromatogram m/z weighted
-  private double mz;
-  private double mzSum = 0;
-  private int mzN = 0;
+  // all scans used to build chromatograms
+  private final Scan[] allScans;
+  // Chromatogram m/z averaged over all detected data points
+  private final double mz;
+  private int[] scanIndices;
+  private double[] mzValues;
+  private double[] intensityValues;
 
   /**
-   * Initializes this Chromatogram
+   * @param allScans        all scans used to build chromatograms
+   * @param mz              the average m/z of the detected data points
+   * @param scanIndices     sorted indices in allScans, one data point per scan
+   * @param mzValues        m/z of the data points
+   * @param intensityValues intensity of the data points
    */
-  public ADAPChromatogram() {
-  }
-
-  public Collection<DataPoint> getDataPoints() {
-    return dataPointsMap.values();
+  public ADAPChromatogram(@NotNull Scan[] allScans, double mz, @NotNull int[] scanIndices,
+      @NotNull double[] mzValues, @NotNull double[] intensityValues) {
+    assert scanIndices.length == mzValues.length && mzValues.length == intensityValues.length;
+    this.allScans = allScans;
+    this.mz = mz;
+    this.scanIndices = scanIndices;
+    this.mzValues = mzValues;
+    this.intensityValues = intensityValues;
   }
 
-
   /**
    * Check for a minimum number of continuous scans
    *
-   * @param allScans        all scans used to build chromatograms
+   * @param scanIndices     sorted indices of detected data points in all scans used to build
+   *                        chromatograms
+   * @param intensities     the intensities of the data points
+   * @param numDp           the number of data points
    * @param intensityThresh minimum intensity to consider data point connected
    * @param minimumScanSpan minimum number of connected dp
    * @return true if a minimum number of scans are connected (without holes)
    */
-  public boolean matchesMinContinuousDataPoints(Scan[] allScans, double intensityThresh,
-      int minimumScanSpan, double minHeight) {
-    if (minimumScanSpan <= 1 && getNumberOfDataPoints() > 0) {
+  public static boolean matchesMinContinuousDataPoints(int[] scanIndices, double[] intensities,
+      int numDp, double intensityThresh, int minimumScanSpan, double minHeight) {
+    if (minimumScanSpan <= 1 && numDp > 0) {
       return true;
     }
 
     int connectedScans = 0;
     double maxCurrentHeight = 0d;
-    for (Scan scan : allScans) {
-      final DataPoint dataPoint = getDataPoint(scan);
-      if (dataPoint != null && dataPoint.getIntensity() >= intensityThresh) {
+    int lastScanIndex = -2;
+    for (int i = 0; i < numDp; i++) {
+      // a scan without data point is a hole
+      if (scanIndices[i] != lastScanIndex + 1) {
+        connectedScans = 0;
+      }
+      lastScanIndex = scanIndices[i];
+
+      final double intensity = intensities[i];
+      if (intensity >= intensityThresh) {
         connectedScans++;
         // track height of current segment
-        if (maxCurrentHeight < dataPoint.getIntensity()) {
-          maxCurrentHeight = dataPoint.getIntensity();
+        if (maxCurrentHeight < intensity) {
+          maxCurrentHeight = intensity;
         }
         // check conditions
         if (connectedScans >= minimumScanSpan && maxCurrentHeight >= minHeight) {
@@ -98,46 +110,38 @@ public class ADAPChromatogram {
   }
 
   /**
-   * Number of detected data points
+   * Number of data points
    */
   public int getNumberOfDataPoints() {
-    return dataPointsMap.size();
+    return scanIndices.length;
   }
 
   /**
-   * This method adds a MzFeature to this Chromatogram. All values of this Chromatogram (rt, m/z,
-   * intensity and ranges) are updated on request
+   * This method returns m/z value of the chromatogram
    */
-  public void addMzFeature(Scan scanNumber, DataPoint mzValue) {
-    // If we already have a mz value for the scan number then we need to add the intensities
-    // together before putting it into the dataPointsMap, otherwise the chromatogram is only
-    // representing the intensities of the last added point for that scan.
-    //
-    // For now just don't add the point if we have it already. The highest point will be the
-    // first one added
-    if (dataPointsMap.containsKey(scanNumber)) {
-      tmp_see_same_scan_count += 1;
-      return;
-    }
-    if (mzValue == null) {
-      return;
-    }
+  public double getMZ() {
+    return mz;
+  }
 
-    dataPointsMap.put(scanNumber, mzValue);
-    mzSum += mzValue.getMZ();
-    mzN++;
-    mz = mzSum / mzN;
+  @NotNull
+  public double[] getMzValues() {
+    return mzValues;
   }
 
-  public DataPoint getDataPoint(Scan scanNumber) {
-    return dataPointsMap.get(scanNumber);
+  @NotNull
+  public double[] getIntensityValues() {
+    return intensityValues;
   }
 
   /**
-   * This method returns m/z value of the chromatogram
+   * @return the scans of all data points
    */
-  private double getMZ() {
-    return mz;
+  public @NotNull List<Scan> getScans() {
+    final List<Scan> scans = new ArrayList<>(scanIndices.length);
+    for (int scanIndex : scanIndices) {
+      scans.add(allScans[scanIndex]);
+    }
+    return scans;
   }
 
   /**
@@ -150,88 +154,43 @@ public class ADAPChromatogram {
     return "Chromatogram " + MZmineCore.getConfiguration().getMZFormat().format(mz) + " m/z";
   }
 
-  public @NotNull Collection<Scan> getScanNumbers() {
-    return dataPointsMap.keySet();
-  }
-
   /**
-   * Adds zeros on the side of each consecutive number of scans.
-   *
-   * @param minGap The minimum number of missing scans to be found, to fill up with zeros.
-   * @param zeros  The number of zeros to add. zeros <= minGap
+   * Adds a zero intensity data point with the chromatogram m/z to each scan without data point
+   * next to a scan with data point.
    */
-  public void addNZeros(Scan[] allChromatogramScans, int minGap, int zeros) {
-    assert minGap >= zeros;
-    // add the same data point multiple times
-    final SimpleDataPoint zeroDataPoint = new SimpleDataPoint(getMZ(), 0d);
-
-    int allScansIndex; // contains the index of the next dp after a gap
-    Map<Scan, DataPoint> dataPointsToAdd = new HashMap<>();
-
-    Scan[] detectedScans = dataPointsMap.keySet().toArray(Scan[]::new);
-
-    // loop through all scans
-    int nextDetectedScanInAllIndex = -1;
-    int nextDetectedScanIndex = 0;
-    int currentGap = 0;
-    int added;
-    for (allScansIndex = 0; allScansIndex < allChromatogramScans.length; allScansIndex++) {
-      added = 0;
-      // was a DP detected in this scan?
-      if (allChromatogramScans[allScansIndex] == detectedScans[nextDetectedScanIndex]) {
-        if (currentGap >= minGap) {
-          // add leading zeros before allScansIndex
-          for (int i = 1; i <= zeros && i <= currentGap && (allScansIndex - i) >= 0; i++) {
-            // add zero data points
-            dataPointsToAdd.put(allChromatogramScans[allScansIndex - i], zeroDataPoint);
-            added++;
-          }
-          currentGap -= added;
-          // add trailing zeros after last detected
-          if (currentGap > 0 && nextDetectedScanInAllIndex >= 0) {
-            for (int i = 1; i <= zeros && i <= currentGap
-                && (nextDetectedScanInAllIndex + i) < allChromatogramScans.length; i++) {
-              // add zero data points after
-              dataPointsToAdd.put(allChromatogramScans[nextDetectedScanInAllIndex + i],
-                  zeroDataPoint);
-            }
-          }
-        }
-        currentGap = 0;
-        nextDetectedScanIndex++;
-        nextDetectedScanInAllIndex = allScansIndex;
-
-        // no more detected scans
-        if (nextDetectedScanIndex == detectedScans.length) {
-          // add trailing zeros after last detected
-          for (int i = 1;
-              i <= zeros && (nextDetectedScanInAllIndex + i) < allChromatogramScans.length; i++) {
-            // add zero data points after
-            dataPointsToAdd.put(allChromatogramScans[nextDetectedScanInAllIndex + i],
-                zeroDataPoint);
-          }
-          break;
-        }
-      } else {
-        currentGap++;
+  public void addZerosToEdges() {
+    final int numScans = allScans.length;
+    final int numDp = scanIndices.length;
+    final int[] newScanIndices = new int[numDp * 3];
+    final double[] newMzs = new double[numDp * 3];
+    final double[] newIntensities = new double[numDp * 3];
+
+    int n = 0;
+    for (int i = 0; i < numDp; i++) {
+      final int scanIndex = scanIndices[i];
+      // leading zero if the previous scan has no data point and was not added as trailing zero
+      final int previous = scanIndex - 1;
+      if (previous >= 0 && (n == 0 || newScanIndices[n - 1] < previous)) {
+        newScanIndices[n] = previous;
+        newMzs[n] = mz;
+        n++;
       }
-
-      // last datapoint
-      if (allScansIndex == allChromatogramScans.length - 1) {
-        if (currentGap >= minGap) {
-          // add trailing zeros after last detected
-          if (currentGap > 0 && nextDetectedScanInAllIndex >= 0) {
-            for (int i = 1; i <= zeros && i <= currentGap
-                && (nextDetectedScanInAllIndex + i) < allChromatogramScans.length; i++) {
-              // add zero data points after
-              dataPointsToAdd.put(allChromatogramScans[nextDetectedScanInAllIndex + i],
-                  zeroDataPoint);
-            }
-          }
-        }
+      newScanIndices[n] = scanIndex;
+      newMzs[n] = mzValues[i];
+      newIntensities[n] = intensityValues[i];
+      n++;
+      // trailing zero if the next scan has no data point
+      final int next = scanIndex + 1;
+      if (next < numScans && (i == numDp - 1 || scanIndices[i + 1] > next)) {
+        newScanIndices[n] = next;
+        newMzs[n] = mz;
+        n++;
       }
     }
-    dataPointsMap.putAll(dataPointsToAdd);
+
+    scanIndices = Arrays.copyOf(newScanIndices, n);
+    mzValues = Arrays.copyOf(newMzs, n);
+    intensityValues = Arrays.copyOf(newIntensities, n);
   }
 
 }
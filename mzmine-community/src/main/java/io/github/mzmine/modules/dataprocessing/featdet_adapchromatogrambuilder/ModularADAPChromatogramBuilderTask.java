@@ -28,9 +28,6 @@ package io.github.mzmine.modules.dataprocessing.featdet_adapchromatogrambuilder;
 
 import static java.util.Objects.requireNonNullElse;
 
-import com.google.common.collect.Range;
-import com.google.common.collect.RangeMap;
-import com.google.common.collect.TreeRangeMap;
 import io.github.mzmine.datamodel.IMSRawDataFile;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.MassSpectrum;
@@ -54,18 +51,15 @@ import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
-import io.github.mzmine.util.DataPointSorter;
 import io.github.mzmine.util.DataTypeUtils;
 import io.github.mzmine.util.FeatureConvertors;
 import io.github.mzmine.util.FeatureListUtils;
 import io.github.mzmine.util.MemoryMapStorage;
-import io.github.mzmine.util.SortingDirection;
-import io.github.mzmine.util.SortingProperty;
 import io.github.mzmine.util.exceptions.MissingMassListException;
+import it.unimi.dsi.fastutil.ints.IntArrays;
 import java.time.Instant;
 import java.util.Arrays;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.List;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -160,7 +154,6 @@ public class ModularADAPChromatogramBuilderTask extends AbstractTask {
     return dataFile;
   }
 
-  @SuppressWarnings("UnstableApiUsage")
   @Override
   public void run() {
     setStatus(TaskStatus.PROCESSING);
@@ -232,10 +225,7 @@ public class ModularADAPChromatogramBuilderTask extends AbstractTask {
     // update mz avg and other stuff
     //
 
-    // map the mz tolerance to chromatograms
-    RangeMap<Double, ADAPChromatogram> rangeToChromMap = TreeRangeMap.create();
-
-    // make a list of all the data points
+    // make a list of all the data points as parallel primitive arrays
     final int totalDps = Arrays.stream(scans).map(s -> {
       if (s.getMassList() != null) {
         return s.getMassList();
@@ -246,21 +236,23 @@ public class ModularADAPChromatogramBuilderTask extends AbstractTask {
     }).mapToInt(MassSpectrum::getNumberOfDataPoints).sum();
     int dpCounter = 0;
 
-    ExpandedDataPoint[] allMzValues = new ExpandedDataPoint[totalDps];
+    final double[] mzs = new double[totalDps];
+    final double[] intensities = new double[totalDps];
+    // index of the scan in scans
+    final int[] scanIndices = new int[totalDps];
 
     ScanDataAccess scanData = EfficientDataAccess.of(dataFile, ScanDataType.MASS_LIST,
         scanSelection);
 
     progress = 0;
     double progressStep = 0.1 / scanData.getNumberOfScans();
-    while (scanData.hasNextScan()) {
+    for (int scanIndex = 0; scanData.hasNextScan(); scanIndex++) {
       if (isCanceled()) {
         return;
       }
 
-      Scan scan;
       try {
-        scan = scanData.nextScan();
+        scanData.nextScan();
       } catch (MissingMassListException e) {
         setStatus(TaskStatus.ERROR);
         StringBuilder b = new StringBuilder("Scan #");
@@ -279,23 +271,27 @@ public class ModularADAPChromatogramBuilderTask extends AbstractTask {
 
       int dps = scanData.getNumberOfDataPoints();
       for (int i = 0; i < dps; i++) {
-        ExpandedDataPoint curDatP = new ExpandedDataPoint(scanData.getMzValue(i),
-            scanData.getIntensityValue(i), scan);
-        allMzValues[dpCounter] = curDatP;
+        mzs[dpCounter] = scanData.getMzValue(i);
+        intensities[dpCounter] = scanData.getIntensityValue(i);
+        scanIndices[dpCounter] = scanIndex;
         dpCounter++;
       }
       progress += progressStep;
     }
 
     // sort data points by intensity
-    Arrays.parallelSort(allMzValues,
-        new DataPointSorter(SortingProperty.Intensity, SortingDirection.Descending));
+    final int[] sortedDps = sortByIntensityDescending(mzs, intensities);
 
     // count starts at 1 since we already have added one with a single point.
     progress = 0.1;
-    progressStep = (allMzValues.length > 0) ? 0.45 / allMzValues.length : 0.0;
+    progressStep = (totalDps > 0) ? 0.45 / totalDps : 0.0;
+
+    // map the mz tolerance to chromatograms, the interval id is the chromatogram id
+    final MzIntervalIndex chromMzRanges = new MzIntervalIndex();
+    final int[] chromatogramOfDp = new int[totalDps];
+    Arrays.fill(chromatogramOfDp, -1);
 
-    for (ExpandedDataPoint mzFeature : allMzValues) {
+    for (final int dp : sortedDps) {
 
       progress += progressStep;
 
@@ -303,54 +299,104 @@ public class ModularADAPChromatogramBuilderTask extends AbstractTask {
         return;
       }
 
-      if (mzFeature == null || Double.isNaN(mzFeature.getMZ()) || Double.isNaN(
-          mzFeature.getIntensity())) {
+      final double mz = mzs[dp];
+      final double intensity = intensities[dp];
+      if (Double.isNaN(mz) || Double.isNaN(intensity)) {
         continue;
       }
 
-      final Entry<Range<Double>, ADAPChromatogram> existing = rangeToChromMap.getEntry(
-          mzFeature.getMZ());
-      if (existing != null) {
+      final int existing = chromMzRanges.find(mz);
+      if (existing >= 0) {
         // add data point to chromatogram
-        existing.getValue().addMzFeature(mzFeature.getScan(), mzFeature);
+        chromatogramOfDp[dp] = existing;
       } else {
         // skip it entierly if the intensity is not high enough
-        if (mzFeature.getIntensity() < minHighestPoint) {
+        if (intensity < minHighestPoint) {
           continue;
         }
         // add a new chromatogram to the range map - limit ranges to avoid overlap
-        startNewChromatogramLimitMzRanges(rangeToChromMap, mzFeature);
+        chromatogramOfDp[dp] = startNewChromatogramLimitMzRanges(chromMzRanges, mz);
       }
     }
 
-    // finish chromatograms sorted by m/z
-    final Map<Range<Double>, ADAPChromatogram> finalRangeMap = rangeToChromMap.asMapOfRanges();
+    // group data points by chromatogram, keeping the order of decreasing intensity
+    final int numChromatograms = chromMzRanges.size();
+    final int[] chromatogramOffsets = new int[numChromatograms + 1];
+    for (final int chrom : chromatogramOfDp) {
+      if (chrom >= 0) {
+        chromatogramOffsets[chrom + 1]++;
+      }
+    }
+    for (int c = 0; c < numChromatograms; c++) {
+      chromatogramOffsets[c + 1] += chromatogramOffsets[c];
+    }
+    final int[] groupedDps = new int[chromatogramOffsets[numChromatograms]];
+    final int[] insertPositions = Arrays.copyOf(chromatogramOffsets, numChromatograms);
+    for (final int dp : sortedDps) {
+      final int chrom = chromatogramOfDp[dp];
+      if (chrom >= 0) {
+        groupedDps[insertPositions[chrom]++] = dp;
+      }
+    }
 
-    int numChromatograms = finalRangeMap.size();
     progressStep = numChromatograms > 0 ? 0.45 / numChromatograms : 0.0;
 
     // Create new feature list
     newFeatureList = new ModularFeatureList(dataFile + " " + suffix, getMemoryMapStorage(),
-        dataFile);
+        FeatureListUtils.isCompactFeatureStorage(), List.of(dataFile));
     // ensure that the default columns are available
     DataTypeUtils.addDefaultChromatographicTypeColumns(newFeatureList);
 
+    // only one data point per scan, the highest is added first
+    final int[] chromatogramOfScan = new int[scans.length];
+    Arrays.fill(chromatogramOfScan, -1);
+    final int[] chromDps = new int[scans.length];
+    final int[] chromScanIndices = new int[scans.length];
+    final double[] chromIntensities = new double[scans.length];
+
     int newFeatureID = 1;
-    // add chromatograms that match criteria
-    for (ADAPChromatogram chromatogram : finalRangeMap.values()) {
+    // add chromatograms that match criteria, sorted by m/z
+    for (final int chrom : chromMzRanges.getIdsSortedByMz()) {
       if (isCanceled()) {
         return;
       }
 
       progress += progressStep;
 
+      double mzSum = 0;
+      int numDp = 0;
+      for (int i = chromatogramOffsets[chrom]; i < chromatogramOffsets[chrom + 1]; i++) {
+        final int dp = groupedDps[i];
+        final int scanIndex = scanIndices[dp];
+        if (chromatogramOfScan[scanIndex] == chrom) {
+          continue;
+        }
+        chromatogramOfScan[scanIndex] = chrom;
+        chromDps[numDp++] = dp;
+        mzSum += mzs[dp];
+      }
+      // sort by scan
+      IntArrays.quickSort(chromDps, 0, numDp,
+          (a, b) -> Integer.compare(scanIndices[a], scanIndices[b]));
+      for (int i = 0; i < numDp; i++) {
+        chromScanIndices[i] = scanIndices[chromDps[i]];
+        chromIntensities[i] = intensities[chromDps[i]];
+      }
+
       // And remove chromatograms who dont have a certain number of continous points above the
       // IntensityThresh2 level.
-      var dps = chromatogram.getNumberOfDataPoints();
-      if (dps >= minimumTotalScans && chromatogram.matchesMinContinuousDataPoints(scans,
-          minGroupIntensity, minimumConsecutiveScans, minHighestPoint)) {
+      if (numDp >= minimumTotalScans && ADAPChromatogram.matchesMinContinuousDataPoints(
+          chromScanIndices, chromIntensities, numDp, minGroupIntensity, minimumConsecutiveScans,
+          minHighestPoint)) {
+        final double[] chromMzs = new double[numDp];
+        for (int i = 0; i < numDp; i++) {
+          chromMzs[i] = mzs[chromDps[i]];
+        }
+        final ADAPChromatogram chromatogram = new ADAPChromatogram(scans, mzSum / numDp,
+            Arrays.copyOf(chromScanIndices, numDp), chromMzs,
+            Arrays.copyOf(chromIntensities, numDp));
         // add zeros to edges
-        chromatogram.addNZeros(scans, 1, 1);
+        chromatogram.addZerosToEdges();
 
         // add to list
         ModularFeature modular = FeatureConvertors.ADAPChromatogramToModularFeature(newFeatureList,
@@ -384,51 +430,65 @@ public class ModularADAPChromatogramBuilderTask extends AbstractTask {
     logger.info(() -> "Finished chromatogram builder on " + dataFile);
   }
 
+  /**
+   * Sorts data points by decreasing intensity and m/z. Equal data points keep their order.
+   *
+   * @return the data point indices in sorted order
+   */
+  private static int[] sortByIntensityDescending(double[] mzs, double[] intensities) {
+    final int[] indices = new int[mzs.length];
+    for (int i = 0; i < indices.length; i++) {
+      indices[i] = i;
+    }
+    IntArrays.parallelQuickSort(indices, (a, b) -> {
+      int result = Double.compare(intensities[b], intensities[a]);
+      if (result == 0) {
+        result = Double.compare(mzs[b], mzs[a]);
+      }
+      return result != 0 ? result : Integer.compare(a, b);
+    });
+    return indices;
+  }
+
   /**
    * Starts a new chromatogram and limits its range so that it does not overlap with existing m/z
    * ranges
    *
-   * @param rangeToChromMap started chromatograms with their non overlapping m/z range
-   * @param mzFeature       current tested data point
+   * @param chromMzRanges started chromatograms with their non overlapping m/z range
+   * @param mz            current tested data point
+   * @return the id of the new chromatogram or of the adjacent chromatogram if no range is left
    */
-  @SuppressWarnings("UnstableApiUsage")
-  private void startNewChromatogramLimitMzRanges(RangeMap<Double, ADAPChromatogram> rangeToChromMap,
-      ExpandedDataPoint mzFeature) {
+  private int startNewChromatogramLimitMzRanges(MzIntervalIndex chromMzRanges, double mz) {
     // start new chromatogram and create new range (subract overlapping existing ranges)
-    Range<Double> toleranceRange = mzTolerance.getToleranceRange(mzFeature.getMZ());
+    final double tolerance = mzTolerance.getMzToleranceForMass(mz);
+    final double lower = mz - tolerance;
+    final double upper = mz + tolerance;
 
     // look +- mz tolerance to see if ther is a range near by.
     // If there is use the proper boundry of that range for the
     // new range to insure than NON OF THE RANGES OVERLAP.
-    final Entry<Range<Double>, ADAPChromatogram> minusRange = rangeToChromMap.getEntry(
-        toleranceRange.lowerEndpoint());
-    final Entry<Range<Double>, ADAPChromatogram> plusRange = rangeToChromMap.getEntry(
-        toleranceRange.upperEndpoint());
+    final int minusRange = chromMzRanges.find(lower);
+    final int plusRange = chromMzRanges.find(upper);
 
     // If both of the above ranges are null then we make the new range spaning the full
     // mz tolerance range.
     // If one or both are not null we need to properly modify the range of the new
     // chromatogram so that none of the points are overlapping.
-    Double toBeLowerBound =
-        minusRange == null ? toleranceRange.lowerEndpoint() : minusRange.getKey().upperEndpoint();
-    Double toBeUpperBound =
-        plusRange == null ? toleranceRange.upperEndpoint() : plusRange.getKey().lowerEndpoint();
+    final double toBeLowerBound =
+        minusRange < 0 ? lower : chromMzRanges.getUpperBound(minusRange);
+    final double toBeUpperBound =
+        plusRange < 0 ? upper : chromMzRanges.getLowerBound(plusRange);
 
     if (toBeLowerBound < toBeUpperBound) {
-      // use closed open so that every value may be captured by rangeMap
-      Range<Double> newRange = Range.closedOpen(toBeLowerBound, toBeUpperBound);
-      ADAPChromatogram newChrom = new ADAPChromatogram();
-      newChrom.addMzFeature(mzFeature.getScan(), mzFeature);
-
-      rangeToChromMap.put(newRange, newChrom);
-    } else if (toBeLowerBound.equals(toBeUpperBound) && plusRange != null) {
-      plusRange.getValue().addMzFeature(mzFeature.getScan(), mzFeature);
+      // closed open so that every value may be captured
+      return chromMzRanges.add(toBeLowerBound, toBeUpperBound);
+    } else if (toBeLowerBound == toBeUpperBound && plusRange >= 0) {
+      return plusRange;
     } else {
       throw new IllegalStateException(
           String.format("Incorrect range [%f, %f] for m/z %f", toBeLowerBound, toBeUpperBound,
-              mzFeature.getMZ()));
+              mz));
     }
   }
 
 }
-
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.featdet_adapchromatogrambuilder;
+
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import java.util.Arrays;
+
+/**
+ * Non-overlapping half open m/z intervals [lower, upper) sorted by their lower bound. Replaces a
+ * range map of boxed ranges by primitive arrays. Intervals are identified by their insertion index
+ * and are kept in blocks of ids sorted by the lower bound, so that inserts only shift one small
+ * block.
+ */
+final class MzIntervalIndex {
+
+  private static final int BLOCK_SIZE = 256;
+
+  // bounds by interval id
+  private final DoubleArrayList lowerBounds = new DoubleArrayList();
+  private final DoubleArrayList upperBounds = new DoubleArrayList();
+
+  // blocks of interval ids sorted by lower bound
+  private int[][] blocks = new int[16][];
+  private int[] blockSizes = new int[16];
+  // lower bound of the first interval in each block
+  private double[] blockLowerBounds = new double[16];
+  private int numBlocks = 0;
+
+  /**
+   * @return the number of intervals
+   */
+  int size() {
+    return lowerBounds.size();
+  }
+
+  double getLowerBound(int id) {
+    return lowerBounds.getDouble(id);
+  }
+
+  double getUpperBound(int id) {
+    return upperBounds.getDouble(id);
+  }
+
+  /**
+   * @param mz the m/z value
+   * @return the id of the interval that contains the m/z (lower <= mz < upper) or -1
+   */
+  int find(double mz) {
+    final int b = floorBlock(mz);
+    if (b < 0) {
+      return -1;
+    }
+    final int[] block = blocks[b];
+    // last interval with lower bound <= mz, the first interval of the block always matches
+    int low = 0;
+    int high = blockSizes[b] - 1;
+    while (low < high) {
+      final int mid = (low + high + 1) >>> 1;
+      if (lowerBounds.getDouble(block[mid]) <= mz) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    final int id = block[low];
+    return mz < upperBounds.getDouble(id) ? id : -1;
+  }
+
+  /**
+   * Adds a new interval that must not overlap with existing intervals.
+   *
+   * @return the id of the new interval
+   */
+  int add(double lower, double upper) {
+    assert lower < upper;
+    final int id = lowerBounds.size();
+    lowerBounds.add(lower);
+    upperBounds.add(upper);
+
+    if (numBlocks == 0) {
+      blocks[0] = new int[BLOCK_SIZE];
+      blocks[0][0] = id;
+      blockSizes[0] = 1;
+      blockLowerBounds[0] = lower;
+      numBlocks = 1;
+      return id;
+    }
+
+    int b = Math.max(0, floorBlock(lower));
+    if (blockSizes[b] == BLOCK_SIZE) {
+      splitBlock(b);
+      if (lower >= blockLowerBounds[b + 1]) {
+        b++;
+      }
+    }
+
+    final int[] block = blocks[b];
+    final int n = blockSizes[b];
+    // first interval with a higher lower bound
+    int pos = 0;
+    int high = n;
+    while (pos < high) {
+      final int mid = (pos + high) >>> 1;
+      if (lowerBounds.getDouble(block[mid]) < lower) {
+        pos = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    System.arraycopy(block, pos, block, pos + 1, n - pos);
+    block[pos] = id;
+    blockSizes[b] = n + 1;
+    if (pos == 0) {
+      blockLowerBounds[b] = lower;
+    }
+    return id;
+  }
+
+  /**
+   * @return all interval ids sorted by m/z
+   */
+  int[] getIdsSortedByMz() {
+    final int[] ids = new int[size()];
+    int i = 0;
+    for (int b = 0; b < numBlocks; b++) {
+      System.arraycopy(blocks[b], 0, ids, i, blockSizes[b]);
+      i += blockSizes[b];
+    }
+    return ids;
+  }
+
+  /**
+   * @return the last block with a first lower bound <= mz or -1
+   */
+  private int floorBlock(double mz) {
+    int low = 0;
+    int high = numBlocks - 1;
+    int result = -1;
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      if (blockLowerBounds[mid] <= mz) {
+        result = mid;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return result;
+  }
+
+  private void splitBlock(int b) {
+    if (numBlocks == blocks.length) {
+      final int capacity = blocks.length * 2;
+      blocks = Arrays.copyOf(blocks, capacity);
+      blockSizes = Arrays.copyOf(blockSizes, capacity);
+      blockLowerBounds = Arrays.copyOf(blockLowerBounds, capacity);
+    }
+    final int moved = numBlocks - b - 1;
+    System.arraycopy(blocks, b + 1, blocks, b + 2, moved);
+    System.arraycopy(blockSizes, b + 1, blockSizes, b + 2, moved);
+    System.arraycopy(blockLowerBounds, b + 1, blockLowerBounds, b + 2, moved);
+
+    final int half = BLOCK_SIZE / 2;
+    final int[] upperHalf = new int[BLOCK_SIZE];
+    System.arraycopy(blocks[b], half, upperHalf, 0, BLOCK_SIZE - half);
+    blocks[b + 1] = upperHalf;
+    blockSizes[b + 1] = BLOCK_SIZE - half;
+    blockLowerBounds[b + 1] = lowerBounds.getDouble(upperHalf[0]);
+    blockSizes[b] = half;
+    numBlocks++;
+  }
+}
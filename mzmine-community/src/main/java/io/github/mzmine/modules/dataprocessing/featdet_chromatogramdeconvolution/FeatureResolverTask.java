@@ -25,6 +25,7 @@
 
 package io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution;
 
+import com.google.common.collect.Lists;
 import io.github.mzmine.datamodel.ImagingRawDataFile;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.RawDataFile;
@@ -35,6 +36,7 @@ import io.github.mzmine.datamodel.featuredata.IonMobilogramTimeSeries;
 import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
 import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.ModularFeatureListRow;
@@ -43,6 +45,7 @@ import io.github.mzmine.datamodel.features.types.ImageType;
 import io.github.mzmine.datamodel.features.types.MaldiSpotType;
 import io.github.mzmine.datamodel.features.types.MobilityUnitType;
 import io.github.mzmine.datamodel.features.types.numbers.RTType;
+import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.dataprocessing.filter_groupms2.GroupMS2Processor;
 import io.github.mzmine.modules.dataprocessing.filter_groupms2.GroupMS2SubParameters;
 import io.github.mzmine.parameters.ParameterSet;
@@ -54,15 +57,25 @@ import io.github.mzmine.util.FeatureListUtils;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.maths.CenterFunction;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class FeatureResolverTask extends AbstractTask {
 
   // Logger.
   private static final Logger logger = Logger.getLogger(FeatureResolverTask.class.getName());
+  private static final ThreadPoolExecutor resolveExecutor = createResolveExecutor();
 
   // Feature lists.
   private final MZmineProject project;
@@ -73,7 +86,7 @@ public class FeatureResolverTask extends AbstractTask {
   private final CenterFunction mzCenterFunction;
   private FeatureList newPeakList;
   // Counters.
-  private int processedRows;
+  private final AtomicInteger processedRows = new AtomicInteger(0);
   private int totalRows;
   private String errorMsg;
   private boolean setMSMSRange, setMSMSRT;
@@ -98,7 +111,6 @@ public class FeatureResolverTask extends AbstractTask {
     parameters = parameterSet;
     originalPeakList = list;
     newPeakList = null;
-    processedRows = 0;
     totalRows = 0;
     this.mzCenterFunction = mzCenterFunction;
   }
@@ -116,7 +128,7 @@ public class FeatureResolverTask extends AbstractTask {
     if (groupMS2Task != null) {
       return groupMS2Task.getFinishedPercentage();
     }
-    return totalRows == 0 ? 0.0 : processedRows / (double) totalRows;
+    return totalRows == 0 ? 0.0 : processedRows.get() / (double) totalRows;
   }
 
   @Override
@@ -140,6 +152,9 @@ public class FeatureResolverTask extends AbstractTask {
               (ModularFeatureList) originalPeakList) != null) {
             dimensionIndependentResolve((ModularFeatureList) originalPeakList);
           }
+          if (isCanceled()) {
+            return;
+          }
           // resolving finished
 
           // sort and reset IDs here to ahve the same sorting for every feature list
@@ -181,7 +196,50 @@ public class FeatureResolverTask extends AbstractTask {
     }
   }
 
+  /**
+   * The executor that resolves the partitions of all resolver tasks. Parallel tasks, e.g., for
+   * multiple feature lists, share the threads so that the number of resolving threads is bounded
+   * by the preferences.
+   *
+   * @param threads number of threads from the preferences
+   */
+  private static synchronized ExecutorService getResolveExecutor(int threads) {
+    // set the larger bound first, core pool size must not exceed the maximum pool size
+    if (threads > resolveExecutor.getMaximumPoolSize()) {
+      resolveExecutor.setMaximumPoolSize(threads);
+      resolveExecutor.setCorePoolSize(threads);
+    } else if (threads < resolveExecutor.getMaximumPoolSize()) {
+      resolveExecutor.setCorePoolSize(threads);
+      resolveExecutor.setMaximumPoolSize(threads);
+    }
+    return resolveExecutor;
+  }
+
+  private static ThreadPoolExecutor createResolveExecutor() {
+    final AtomicInteger threadCounter = new AtomicInteger();
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), r -> {
+      final Thread thread = new Thread(r, "feature-resolver-" + threadCounter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    // release the threads when no feature list is resolved
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
   private void dimensionIndependentResolve(ModularFeatureList originalFeatureList) {
+    dimensionIndependentResolve(originalFeatureList,
+        Math.max(1, MZmineCore.getConfiguration().getNumOfThreads()));
+  }
+
+  /**
+   * Resolves all chromatograms in partitions on multiple threads. The row IDs of the resolved list
+   * do not depend on the number of threads.
+   *
+   * @param threads number of threads to resolve the partitions
+   */
+  void dimensionIndependentResolve(ModularFeatureList originalFeatureList, int threads) {
     final Resolver resolver = ((GeneralResolverParameters) parameters).getResolver(parameters,
         originalFeatureList);
     if (resolver == null) {
@@ -193,45 +251,73 @@ public class FeatureResolverTask extends AbstractTask {
     final RawDataFile dataFile = originalFeatureList.getRawDataFile(0);
     final ModularFeatureList resolvedFeatureList = createNewFeatureList(originalFeatureList);
 
-    final FeatureDataAccess access = EfficientDataAccess.of(originalFeatureList,
-        EfficientDataAccess.FeatureDataType.INCLUDE_ZEROS, dataFile);
-
-    processedRows = 0;
-    totalRows = originalFeatureList.getNumberOfRows();
-    int peakId = 1;
-
-    int c = 0;
-
-    while (access.hasNextFeature()) {
-      final ModularFeature originalFeature = (ModularFeature) access.nextFeature();
-      final List<IonTimeSeries<? extends Scan>> resolvedSeries = resolver.resolve(access,
-          getMemoryMapStorage());
-
-      for (IonTimeSeries<? extends Scan> resolved : resolvedSeries) {
-        final ModularFeatureListRow newRow = new ModularFeatureListRow(resolvedFeatureList,
-            peakId++);
-        final ModularFeature f = new ModularFeature(resolvedFeatureList,
-            originalFeature.getRawDataFile(), resolved, originalFeature.getFeatureStatus());
+    final List<FeatureListRow> rows = List.copyOf(originalFeatureList.getRows());
+    processedRows.set(0);
+    totalRows = rows.size();
+
+    // resolvers keep buffers, so every partition gets its own resolver and data access. Multiple
+    // partitions per thread balance the load of partitions with long chromatograms
+    final int partitionSize = Math.max(1, (int) Math.ceil(rows.size() / (threads * 4d)));
+    final List<List<FeatureListRow>> partitions = Lists.partition(rows, partitionSize);
+
+    final List<Future<List<ResolvedChromatogram>>> futures = new ArrayList<>();
+    final ExecutorService executor = getResolveExecutor(threads);
+    try {
+      for (int i = 0; i < partitions.size(); i++) {
+        final List<FeatureListRow> partition = partitions.get(i);
+        // reuse the initialised resolver for the first partition
+        final Resolver partitionResolver = i == 0 ? resolver
+            : ((GeneralResolverParameters) parameters).getResolver(parameters, originalFeatureList);
+        futures.add(executor.submit(
+            () -> resolvePartition(originalFeatureList, dataFile, partition, partitionResolver)));
+      }
 
-        if (originalFeature.getMobilityUnit() != null) {
-          f.set(MobilityUnitType.class, originalFeature.getMobilityUnit());
+      // add the rows in the original order so that IDs do not depend on the thread scheduling
+      int peakId = 1;
+      int c = 0;
+      for (Future<List<ResolvedChromatogram>> future : futures) {
+        final List<ResolvedChromatogram> resolvedChromatograms = future.get();
+        if (isCanceled()) {
+          return;
         }
-        if (originalFeature.get(ImageType.class) != null) {
-          f.set(ImageType.class, true);
-        }
-        if(originalFeature.get(MaldiSpotType.class) != null) {
-          f.set(MaldiSpotType.class, originalFeature.get(MaldiSpotType.class));
-        }
-        newRow.addFeature(originalFeature.getRawDataFile(), f);
-        resolvedFeatureList.addRow(newRow);
-        if (resolved.getSpectra().size() <= 3) {
-          c++;
+
+        for (ResolvedChromatogram chromatogram : resolvedChromatograms) {
+          final ModularFeature originalFeature = chromatogram.originalFeature();
+          for (IonTimeSeries<? extends Scan> resolved : chromatogram.resolvedSeries()) {
+            final ModularFeatureListRow newRow = new ModularFeatureListRow(resolvedFeatureList,
+                peakId++);
+            final ModularFeature f = new ModularFeature(resolvedFeatureList,
+                originalFeature.getRawDataFile(), resolved, originalFeature.getFeatureStatus());
+
+            if (originalFeature.getMobilityUnit() != null) {
+              f.set(MobilityUnitType.class, originalFeature.getMobilityUnit());
+            }
+            if (originalFeature.get(ImageType.class) != null) {
+              f.set(ImageType.class, true);
+            }
+            if(originalFeature.get(MaldiSpotType.class) != null) {
+              f.set(MaldiSpotType.class, originalFeature.get(MaldiSpotType.class));
+            }
+            newRow.addFeature(originalFeature.getRawDataFile(), f);
+            resolvedFeatureList.addRow(newRow);
+            if (resolved.getSpectra().size() <= 3) {
+              c++;
+            }
+          }
         }
       }
-      processedRows++;
+      logger.info(c + "/" + resolvedFeatureList.getNumberOfRows()
+          + " have less than 4 scans (frames for IMS data)");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Feature resolving was interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(
+          "Error during feature resolving: " + e.getCause().getMessage(), e.getCause());
+    } finally {
+      // only stops the partitions of this task, the executor is shared by all resolver tasks
+      futures.forEach(future -> future.cancel(true));
     }
-    logger.info(c + "/" + resolvedFeatureList.getNumberOfRows()
-        + " have less than 4 scans (frames for IMS data)");
     //    QualityParameters.calculateAndSetModularQualityParameters(resolvedFeatureList);
 
     resolvedFeatureList.addDescriptionOfAppliedTask(
@@ -241,6 +327,35 @@ public class FeatureResolverTask extends AbstractTask {
     newPeakList = resolvedFeatureList;
   }
 
+  /**
+   * Resolves all chromatograms of a partition of rows with a separate data access
+   *
+   * @return the resolved series of each chromatogram in the order of the partition
+   */
+  private List<ResolvedChromatogram> resolvePartition(ModularFeatureList originalFeatureList,
+      RawDataFile dataFile, List<FeatureListRow> partition, Resolver resolver) {
+    final FeatureDataAccess access = EfficientDataAccess.of(originalFeatureList,
+        EfficientDataAccess.FeatureDataType.INCLUDE_ZEROS, dataFile, partition);
+
+    final List<ResolvedChromatogram> result = new ArrayList<>(partition.size());
+    while (access.hasNextFeature() && !isCanceled()) {
+      final ModularFeature originalFeature = (ModularFeature) access.nextFeature();
+      final List<IonTimeSeries<? extends Scan>> resolvedSeries = resolver.resolve(access,
+          getMemoryMapStorage());
+      result.add(new ResolvedChromatogram(originalFeature, resolvedSeries));
+      processedRows.incrementAndGet();
+    }
+    return result;
+  }
+
+  /**
+   * @return the resolved feature list or null if resolving did not finish
+   */
+  @Nullable
+  FeatureList getResolvedFeatureList() {
+    return newPeakList;
+  }
+
   @Override
   public void cancel() {
     super.cancel();
@@ -257,7 +372,8 @@ public class FeatureResolverTask extends AbstractTask {
     // during resolution
     final ModularFeatureList resolvedFeatureList = new ModularFeatureList(
         originalFeatureList.getName() + " " + parameters.getParameter(
-            GeneralResolverParameters.SUFFIX).getValue(), storage, dataFile);
+            GeneralResolverParameters.SUFFIX).getValue(), storage,
+        originalFeatureList.isCompactStorage(), List.of(dataFile));
 
     //    DataTypeUtils.addDefaultChromatographicTypeColumns(resolvedFeatureList);
     resolvedFeatureList.setSelectedScans(dataFile, originalFeatureList.getSeletedScans(dataFile));
@@ -286,4 +402,9 @@ public class FeatureResolverTask extends AbstractTask {
 
     return resolvedFeatureList;
   }
+
+  private record ResolvedChromatogram(ModularFeature originalFeature,
+                                      List<IonTimeSeries<? extends Scan>> resolvedSeries) {
+
+  }
 }
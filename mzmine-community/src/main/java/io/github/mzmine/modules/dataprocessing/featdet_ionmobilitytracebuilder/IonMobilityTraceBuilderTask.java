@@ -530,7 +530,7 @@ public class IonMobilityTraceBuilderTask extends AbstractTask {
   private void buildModularFeatureList(SortedSet<IIonMobilityTrace> ionMobilityTraces) {
     taskDescription = descriptionPrefix + "Building feature list.";
     ModularFeatureList featureList = new ModularFeatureList(rawDataFile + " " + suffix,
-        getMemoryMapStorage(), rawDataFile);
+        getMemoryMapStorage(), FeatureListUtils.isCompactFeatureStorage(), List.of(rawDataFile));
     // ensure that the default columns are available
     DataTypeUtils.addDefaultChromatographicTypeColumns(featureList);
     DataTypeUtils.addDefaultIonMobilityTypeColumns(featureList);
@@ -25,13 +25,17 @@
 
 package io.github.mzmine.modules.dataprocessing.featdet_massdetection;
 
+import io.github.mzmine.datamodel.IMSRawDataFile;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.data_access.EfficientDataAccess;
+import io.github.mzmine.datamodel.data_access.MassListIndex;
 import io.github.mzmine.datamodel.data_access.ScanDataAccess;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.datamodel.impl.SimpleFrame;
 import io.github.mzmine.datamodel.impl.masslist.SimpleMassList;
+import io.github.mzmine.gui.preferences.MZminePreferences;
+import io.github.mzmine.main.ConfigService;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
 import io.github.mzmine.taskcontrol.AbstractTask;
@@ -39,13 +43,18 @@ import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.scans.ScanUtils;
 import java.time.Instant;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class MassDetectionTask extends AbstractTask {
 
   private static final Logger logger = Logger.getLogger(MassDetectionTask.class.getName());
+  // consecutive scans that are processed by one thread with one data access
+  private static final int SCANS_PER_CHUNK = 32;
   private final RawDataFile dataFile;
   private final ScanSelection scanSelection;
   private final SelectedScanTypes scanTypes;
@@ -93,47 +102,39 @@ public class MassDetectionTask extends AbstractTask {
 
       logger.info("Started mass detector on " + dataFile);
 
-      // uses only a single array for each (mz and intensity) to loop over all scans
-      ScanDataAccess data = EfficientDataAccess.of(dataFile, EfficientDataAccess.ScanDataType.RAW,
-          scanSelection);
-      totalScans = data.getNumberOfScans();
-
-      // all scans
-      while (data.hasNextScan()) {
+      final List<Scan> scans = scanSelection.streamMatchingScans(dataFile).toList();
+      totalScans = scans.size();
+
+      // detect masses in parallel chunks of consecutive scans, each with its own data access.
+      // frames contain many mobility scans, so they are processed one by one
+      final boolean ims = dataFile instanceof IMSRawDataFile;
+      final int scansPerChunk = ims ? 1 : SCANS_PER_CHUNK;
+      final int numThreads = Runtime.getRuntime().availableProcessors();
+      // limit the number of uncommitted mass lists in memory
+      final int batchSize = scansPerChunk * numThreads * 2;
+
+      for (int batchStart = 0; batchStart < totalScans; batchStart += batchSize) {
+        final List<Scan> batch = scans.subList(batchStart,
+            Math.min(totalScans, batchStart + batchSize));
+        final DetectedMasses[] results = new DetectedMasses[batch.size()];
+        final int numChunks = (batch.size() + scansPerChunk - 1) / scansPerChunk;
+        IntStream.range(0, numChunks).parallel().forEach(
+            chunk -> detectMasses(batch, chunk * scansPerChunk,
+                Math.min(batch.size(), (chunk + 1) * scansPerChunk), results));
         if (isCanceled()) {
           return;
         }
 
-        Scan scan = data.nextScan();
-        assert scan != null;
-
-        double[][] mzPeaks;
-        if (scanTypes.applyTo(scan)) {
-          // run mass detection on data object
-          // [mzs, intensities]
-          mzPeaks = detector.getMassValues(data);
-
-          // denormalize scan intensities if injection time of trapped instrument was used.
-          // this is only done for MS2 because absolute intensities do not matter there
-          // MS1 needs to be normalized by injection time, which is already done during data acquisition
-          if (denormalizeMSnScans && scan.getMSLevel() > 1) {
-            ScanUtils.denormalizeIntensitiesMultiplyByInjectTime(mzPeaks[1],
-                scan.getInjectionTime());
-          }
-
-          // add mass list to scans and frames
-          scan.addMassList(new SimpleMassList(getMemoryMapStorage(), mzPeaks[0], mzPeaks[1]));
-        }
-
-        if (scan instanceof SimpleFrame frame && (scanTypes == SelectedScanTypes.MOBLITY_SCANS
-            || scanTypes == SelectedScanTypes.SCANS)) {
-          // for ion mobility, detect subscans, too
-          frame.getMobilityScanStorage()
-              .generateAndAddMobilityScanMassLists(getMemoryMapStorage(), detector,
-                  denormalizeMSnScans);
+        // commit to the storage in scan order
+        for (int i = 0; i < results.length; i++) {
+          addMassLists(batch.get(i), results[i]);
+          processedScans++;
         }
+      }
 
-        processedScans++;
+      // the data file reset an old index when the mass lists changed
+      if (Boolean.TRUE.equals(ConfigService.getPreference(MZminePreferences.massListIndex))) {
+        dataFile.setMassListIndex(MassListIndex.build(dataFile, getMemoryMapStorage()));
       }
 
       dataFile.getAppliedMethods().add(
@@ -150,4 +151,87 @@ public class MassDetectionTask extends AbstractTask {
 
     logger.info("Finished mass detector on " + dataFile);
   }
+
+  /**
+   * Detects the masses of a chunk of scans without storing them. Runs concurrently for different
+   * chunks.
+   *
+   * @param scans   the scans of the current batch
+   * @param from    first scan of this chunk (inclusive)
+   * @param to      last scan of this chunk (exclusive)
+   * @param results the results array for all scans of the current batch
+   */
+  private void detectMasses(List<Scan> scans, int from, int to, DetectedMasses[] results) {
+    // uses only a single array for each (mz and intensity) to loop over all scans of this chunk
+    final ScanDataAccess data = EfficientDataAccess.of(dataFile,
+        EfficientDataAccess.ScanDataType.RAW, scans.subList(from, to));
+
+    for (int i = from; data.hasNextScan(); i++) {
+      if (isCanceled()) {
+        return;
+      }
+
+      Scan scan = data.nextScan();
+      assert scan != null;
+
+      double[][] mzPeaks = null;
+      if (scanTypes.applyTo(scan)) {
+        // run mass detection on data object
+        // [mzs, intensities]
+        mzPeaks = detector.getMassValues(data);
+
+        // denormalize scan intensities if injection time of trapped instrument was used.
+        // this is only done for MS2 because absolute intensities do not matter there
+        // MS1 needs to be normalized by injection time, which is already done during data acquisition
+        if (denormalizeMSnScans && scan.getMSLevel() > 1) {
+          ScanUtils.denormalizeIntensitiesMultiplyByInjectTime(mzPeaks[1],
+              scan.getInjectionTime());
+        }
+      }
+
+      List<double[][]> mobilityScanMassLists = null;
+      if (scan instanceof SimpleFrame frame && detector.filtersActive() && detectMobilityScans()) {
+        // for ion mobility, detect subscans, too
+        mobilityScanMassLists = frame.getMobilityScanStorage()
+            .detectMobilityScanMassLists(detector, denormalizeMSnScans);
+      }
+
+      results[i] = new DetectedMasses(mzPeaks, mobilityScanMassLists);
+    }
+  }
+
+  private void addMassLists(Scan scan, DetectedMasses masses) {
+    if (masses.mzPeaks() != null) {
+      // add mass list to scans and frames
+      final double[][] mzPeaks = masses.mzPeaks();
+      scan.addMassList(new SimpleMassList(getMemoryMapStorage(), mzPeaks[0], mzPeaks[1]));
+    }
+
+    if (scan instanceof SimpleFrame frame && detectMobilityScans()) {
+      if (masses.mobilityScanMassLists() != null) {
+        frame.getMobilityScanStorage()
+            .setMassLists(getMemoryMapStorage(), masses.mobilityScanMassLists());
+      } else {
+        // no filters active - uses the raw data
+        frame.getMobilityScanStorage()
+            .generateAndAddMobilityScanMassLists(getMemoryMapStorage(), detector,
+                denormalizeMSnScans);
+      }
+    }
+  }
+
+  private boolean detectMobilityScans() {
+    return scanTypes == SelectedScanTypes.MOBLITY_SCANS || scanTypes == SelectedScanTypes.SCANS;
+  }
+
+  /**
+   * Masses of a scan before they are added to the storage
+   *
+   * @param mzPeaks               [mzs, intensities] or null if the scan type was not selected
+   * @param mobilityScanMassLists [mzs, intensities] of each mobility scan or null
+   */
+  private record DetectedMasses(@Nullable double[][] mzPeaks,
+                                @Nullable List<double[][]> mobilityScanMassLists) {
+
+  }
 }
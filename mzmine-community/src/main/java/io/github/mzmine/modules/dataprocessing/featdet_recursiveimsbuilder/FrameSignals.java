@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.featdet_recursiveimsbuilder;
+
+import io.github.mzmine.datamodel.Frame;
+import io.github.mzmine.datamodel.MobilityScan;
+import io.github.mzmine.datamodel.impl.MobilityScanStorage;
+import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
+import io.github.mzmine.util.exceptions.MissingMassListException;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * All mass list signals of the selected mobility scans of a frame in primitive arrays. Signals are
+ * referenced by their index in these arrays.
+ *
+ * @param frame       the frame
+ * @param scans       the mobility scans of the frame, the same instances are used for all
+ *                    mobilograms of this frame
+ * @param mzs         m/z of each signal
+ * @param intensities intensity of each signal
+ * @param scanIndices index of the mobility scan in scans for each signal
+ */
+public record FrameSignals(@NotNull Frame frame, @NotNull List<MobilityScan> scans,
+                           double[] mzs, double[] intensities, int[] scanIndices) {
+
+  /**
+   * Reads the mass lists of the mobility scans that match the selection. Like the
+   * {@link io.github.mzmine.datamodel.data_access.MobilityScanDataAccess}, this reads the first
+   * consecutive block of matching mobility scans.
+   *
+   * @throws MissingMassListException if the mobility scans have no mass lists
+   */
+  public static FrameSignals of(@NotNull Frame frame, @NotNull ScanSelection selection)
+      throws MissingMassListException {
+    final List<MobilityScan> scans = frame.getMobilityScans();
+    final MobilityScanStorage storage = frame.getMobilityScanStorage();
+
+    int first = 0;
+    while (first < scans.size() && !selection.matches(scans.get(first))) {
+      first++;
+    }
+    int end = first;
+    int numSignals = 0;
+    while (end < scans.size() && selection.matches(scans.get(end))) {
+      numSignals += storage.getNumberOfMassListDatapoints(end);
+      end++;
+    }
+
+    final double[] mzs = new double[numSignals];
+    final double[] intensities = new double[numSignals];
+    final int[] scanIndices = new int[numSignals];
+    int offset = 0;
+    for (int i = first; i < end; i++) {
+      final int numDp = storage.getNumberOfMassListDatapoints(i);
+      storage.getMassListMzValues(i, mzs, offset);
+      storage.getMassListIntensityValues(i, intensities, offset);
+      for (int j = offset; j < offset + numDp; j++) {
+        scanIndices[j] = i;
+      }
+      offset += numDp;
+    }
+    return new FrameSignals(frame, scans, mzs, intensities, scanIndices);
+  }
+
+  public int size() {
+    return mzs.length;
+  }
+
+  public int getMobilityScanNumber(int signal) {
+    return scans.get(scanIndices[signal]).getMobilityScanNumber();
+  }
+
+  /**
+   * @return all signal indices sorted by descending intensity, signals of equal intensity stay in
+   * the order of mobility scans and m/z
+   */
+  public int[] sortedByIntensity() {
+    final int[] signals = new int[size()];
+    for (int i = 0; i < signals.length; i++) {
+      signals[i] = i;
+    }
+    sortByIntensity(signals);
+    return signals;
+  }
+
+  /**
+   * Stable sort of signal indices by descending intensity
+   */
+  public void sortByIntensity(int[] signals) {
+    IntArrays.mergeSort(signals, (a, b) -> Double.compare(intensities[b], intensities[a]));
+  }
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.featdet_recursiveimsbuilder;
+
+import com.google.common.collect.RangeMap;
+import io.github.mzmine.util.scans.SpectraMerging;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Map of non-overlapping m/z ranges to values. Replaces a
+ * {@link com.google.common.collect.TreeRangeMap} that is filled with ranges from
+ * {@link SpectraMerging#createNewNonOverlappingRange(RangeMap, com.google.common.collect.Range)}
+ * and keeps the same semantics, but stores the bounds in sorted blocks of primitive arrays. Lookups
+ * are binary searches and inserts only shift the values of a single block. Not thread safe.
+ *
+ * @param <T> the value type
+ */
+public class MzRangeMap<T> {
+
+  private static final int MAX_BLOCK_SIZE = 1024;
+  private static final long NONE = -1;
+
+  // blocks sorted by lower bounds, all blocks contain at least one range
+  private final List<Block> blocks = new ArrayList<>();
+  private int size;
+
+  private static long pack(int block, int index) {
+    return ((long) block << 32) | index;
+  }
+
+  private static int block(long position) {
+    return (int) (position >>> 32);
+  }
+
+  private static int index(long position) {
+    return (int) position;
+  }
+
+  /**
+   * @return the value of the range that contains the m/z or null
+   */
+  @Nullable
+  public T get(double mz) {
+    final long position = find(mz);
+    return position == NONE ? null : blocks.get(block(position)).value(index(position));
+  }
+
+  /**
+   * Puts the closed range [lower, upper] if no other range contains one of its bounds. This is
+   * equal to putting a range if {@link SpectraMerging#createNewNonOverlappingRange(RangeMap,
+   * com.google.common.collect.Range)} returns the proposed range.
+   *
+   * @return true if the range was put
+   */
+  public boolean putIfFree(double lower, double upper, @NotNull T value) {
+    if (find(lower) != NONE || find(upper) != NONE) {
+      return false;
+    }
+    put(lower, false, upper, false, value);
+    return true;
+  }
+
+  /**
+   * Puts the closed range [lower, upper] or a range with open bounds that is reduced to the bounds
+   * of overlapping ranges, same as
+   * {@link SpectraMerging#createNewNonOverlappingRange(RangeMap, com.google.common.collect.Range)}.
+   */
+  public void putNonOverlapping(double lower, double upper, @NotNull T value) {
+    boolean lowerOpen = false;
+    boolean upperOpen = false;
+    while (true) {
+      final long lowerEntry = find(lowerOpen ? lower + SpectraMerging.EPSILON : lower);
+      final long upperEntry = find(upperOpen ? upper - SpectraMerging.EPSILON : upper);
+      final boolean lowerOverlaps =
+          lowerEntry != NONE && intersects(lowerEntry, lower, lowerOpen, upper, upperOpen);
+      final boolean upperOverlaps =
+          upperEntry != NONE && intersects(upperEntry, lower, lowerOpen, upper, upperOpen);
+      if (!lowerOverlaps && !upperOverlaps) {
+        break;
+      }
+      if (lowerOverlaps) {
+        final Block b = blocks.get(block(lowerEntry));
+        lower = b.upper[index(lowerEntry)];
+        lowerOpen = true;
+      }
+      if (upperOverlaps) {
+        final Block b = blocks.get(block(upperEntry));
+        upper = b.lower[index(upperEntry)];
+        upperOpen = true;
+      }
+    }
+    put(lower, lowerOpen, upper, upperOpen, value);
+  }
+
+  /**
+   * @return all values sorted by their m/z ranges
+   */
+  @NotNull
+  public List<T> values() {
+    final List<T> values = new ArrayList<>(size);
+    for (Block b : blocks) {
+      for (int i = 0; i < b.size; i++) {
+        values.add(b.value(i));
+      }
+    }
+    return values;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Puts a range that does not overlap ranges containing its bounds. Ranges that are enclosed by
+   * the new range are removed, like in {@link RangeMap#put(com.google.common.collect.Range,
+   * Object)}.
+   */
+  private void put(double lower, boolean lowerOpen, double upper, boolean upperOpen, T value) {
+    long position = firstPosition(lower, true);
+    while (position != NONE && intersects(position, lower, lowerOpen, upper, upperOpen)) {
+      remove(position);
+      position = firstPosition(lower, true);
+    }
+
+    position = firstPosition(lower, false);
+    final int bi;
+    int i;
+    if (blocks.isEmpty()) {
+      blocks.add(new Block());
+      bi = 0;
+      i = 0;
+    } else if (position == NONE) {
+      bi = blocks.size() - 1;
+      i = blocks.get(bi).size;
+    } else {
+      bi = block(position);
+      i = index(position);
+    }
+
+    Block b = blocks.get(bi);
+    if (b.size == MAX_BLOCK_SIZE) {
+      final Block split = b.split();
+      blocks.add(bi + 1, split);
+      if (i > b.size) {
+        i -= b.size;
+        b = split;
+      }
+    }
+    b.insert(i, lower, lowerOpen, upper, upperOpen, value);
+    size++;
+  }
+
+  private void remove(long position) {
+    final int bi = block(position);
+    final Block b = blocks.get(bi);
+    b.remove(index(position));
+    if (b.size == 0) {
+      blocks.remove(bi);
+    }
+    size--;
+  }
+
+  /**
+   * @return index of the last block with a first lower bound <= mz or -1
+   */
+  private int lastBlock(double mz) {
+    int low = 0;
+    int high = blocks.size() - 1;
+    int result = -1;
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      if (blocks.get(mid).lower[0] <= mz) {
+        result = mid;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @param inclusive true: first range with lower bound >= mz, false: first range with lower bound
+   *                  > mz
+   * @return the position or {@link #NONE} if there is no such range
+   */
+  private long firstPosition(double mz, boolean inclusive) {
+    int bi = Math.max(0, lastBlock(mz));
+    for (; bi < blocks.size(); bi++) {
+      final Block b = blocks.get(bi);
+      final int i = b.firstIndex(mz, inclusive);
+      if (i < b.size) {
+        return pack(bi, i);
+      }
+    }
+    return NONE;
+  }
+
+  /**
+   * @return position of the range that contains the m/z or {@link #NONE}
+   */
+  private long find(double mz) {
+    final int bi = lastBlock(mz);
+    if (bi == -1) {
+      return NONE;
+    }
+    final Block b = blocks.get(bi);
+    // last range with a lower bound <= mz
+    final int i = b.firstIndex(mz, false) - 1;
+    if (b.contains(i, mz)) {
+      return pack(bi, i);
+    }
+    // the previous range may end with a closed bound at the open lower bound of this range
+    if (i > 0) {
+      return b.contains(i - 1, mz) ? pack(bi, i - 1) : NONE;
+    }
+    if (bi > 0) {
+      final Block previous = blocks.get(bi - 1);
+      final int last = previous.size - 1;
+      return previous.contains(last, mz) ? pack(bi - 1, last) : NONE;
+    }
+    return NONE;
+  }
+
+  /**
+   * Same as a non-empty {@link com.google.common.collect.Range#intersection} of connected ranges
+   */
+  private boolean intersects(long position, double lower, boolean lowerOpen, double upper,
+      boolean upperOpen) {
+    final Block b = blocks.get(block(position));
+    final int i = index(position);
+
+    final double maxLower = Math.max(lower, b.lower[i]);
+    final boolean maxLowerOpen = (lower == maxLower && lowerOpen) || (b.lower[i] == maxLower
+                                                                      && b.lowerOpen[i]);
+    final double minUpper = Math.min(upper, b.upper[i]);
+    final boolean minUpperOpen = (upper == minUpper && upperOpen) || (b.upper[i] == minUpper
+                                                                      && b.upperOpen[i]);
+    return maxLower < minUpper || (maxLower == minUpper && !maxLowerOpen && !minUpperOpen);
+  }
+
+  private static class Block {
+
+    private final double[] lower = new double[MAX_BLOCK_SIZE];
+    private final double[] upper = new double[MAX_BLOCK_SIZE];
+    private final boolean[] lowerOpen = new boolean[MAX_BLOCK_SIZE];
+    private final boolean[] upperOpen = new boolean[MAX_BLOCK_SIZE];
+    private final Object[] values = new Object[MAX_BLOCK_SIZE];
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    private <T> T value(int i) {
+      return (T) values[i];
+    }
+
+    private boolean contains(int i, double mz) {
+      return (lowerOpen[i] ? mz > lower[i] : mz >= lower[i]) && (upperOpen[i] ? mz < upper[i]
+          : mz <= upper[i]);
+    }
+
+    /**
+     * @return the first index with a lower bound >= mz (inclusive) or > mz or size if there is no
+     * such range
+     */
+    private int firstIndex(double mz, boolean inclusive) {
+      int low = 0;
+      int high = size;
+      while (low < high) {
+        final int mid = (low + high) >>> 1;
+        if (inclusive ? lower[mid] < mz : lower[mid] <= mz) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    private void insert(int i, double lo, boolean loOpen, double up, boolean upOpen,
+        Object value) {
+      final int moved = size - i;
+      System.arraycopy(lower, i, lower, i + 1, moved);
+      System.arraycopy(upper, i, upper, i + 1, moved);
+      System.arraycopy(lowerOpen, i, lowerOpen, i + 1, moved);
+      System.arraycopy(upperOpen, i, upperOpen, i + 1, moved);
+      System.arraycopy(values, i, values, i + 1, moved);
+      lower[i] = lo;
+      upper[i] = up;
+      lowerOpen[i] = loOpen;
+      upperOpen[i] = upOpen;
+      values[i] = value;
+      size++;
+    }
+
+    private void remove(int i) {
+      final int moved = size - i - 1;
+      System.arraycopy(lower, i + 1, lower, i, moved);
+      System.arraycopy(upper, i + 1, upper, i, moved);
+      System.arraycopy(lowerOpen, i + 1, lowerOpen, i, moved);
+      System.arraycopy(upperOpen, i + 1, upperOpen, i, moved);
+      System.arraycopy(values, i + 1, values, i, moved);
+      size--;
+      values[size] = null;
+    }
+
+    /**
+     * Moves the upper half of this block to a new block
+     */
+    private Block split() {
+      final Block split = new Block();
+      final int half = size / 2;
+      final int moved = size - half;
+      System.arraycopy(lower, half, split.lower, 0, moved);
+      System.arraycopy(upper, half, split.upper, 0, moved);
+      System.arraycopy(lowerOpen, half, split.lowerOpen, 0, moved);
+      System.arraycopy(upperOpen, half, split.upperOpen, 0, moved);
+      System.arraycopy(values, half, split.values, 0, moved);
+      Arrays.fill(values, half, size, null);
+      split.size = moved;
+      size = half;
+      return split;
+    }
+  }
+}
@@ -25,24 +25,18 @@
 
 package io.github.mzmine.modules.dataprocessing.featdet_recursiveimsbuilder;
 
-import com.google.common.collect.Range;
-import com.google.common.collect.RangeMap;
-import com.google.common.collect.TreeRangeMap;
 import io.github.mzmine.datamodel.Frame;
 import io.github.mzmine.datamodel.IMSRawDataFile;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.MobilityScan;
 import io.github.mzmine.datamodel.data_access.BinningMobilogramDataAccess;
 import io.github.mzmine.datamodel.data_access.EfficientDataAccess;
-import io.github.mzmine.datamodel.data_access.EfficientDataAccess.MobilityScanDataType;
-import io.github.mzmine.datamodel.data_access.MobilityScanDataAccess;
 import io.github.mzmine.datamodel.featuredata.IonMobilitySeries;
 import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.ModularFeatureListRow;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.datamodel.features.types.FeatureShapeMobilogramType;
-import io.github.mzmine.modules.dataprocessing.featdet_ionmobilitytracebuilder.RetentionTimeMobilityDataPoint;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
@@ -53,7 +47,7 @@ import io.github.mzmine.util.FeatureConvertors;
 import io.github.mzmine.util.FeatureListUtils;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.exceptions.MissingMassListException;
-import io.github.mzmine.util.scans.SpectraMerging;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
@@ -62,13 +56,11 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
-import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -81,6 +73,7 @@ public class RecursiveIMSBuilderTask extends AbstractTask {
 
   private static final Logger logger = Logger.getLogger(RecursiveIMSBuilderTask.class.getName());
   private static final int RECURSIVE_THRESHOLD = 50;
+  private static final boolean ENABLE_RECURSIVE = true;
   private static final int STEPS = 5;
 
   private final IMSRawDataFile file;
@@ -89,7 +82,6 @@ public class RecursiveIMSBuilderTask extends AbstractTask {
   private final MZmineProject project;
   private final MZTolerance tolerance;
   private final MemoryMapStorage tempStorage = MemoryMapStorage.forFeatureList();
-  private final boolean enableRecursive = true;
   private final int numConsecutiveFrames;
   private final int numDataPoints;
   private final int binWidth;
@@ -162,15 +154,16 @@ public class RecursiveIMSBuilderTask extends AbstractTask {
   public void run() {
     setStatus(TaskStatus.PROCESSING);
 
-    final MobilityScanDataAccess access = EfficientDataAccess
-        .of(file, MobilityScanDataType.MASS_LIST, scanSelection);
+    final List<Frame> eligibleFrames = (List<Frame>) scanSelection.getMatchingScans(
+        file.getFrames());
 
     logger.finest(() -> "Extracting data points from mobility scans and building mobilograms...");
     stepProcessed.set(0);
-    stepTotal = access.getNumberOfScans();
+    stepTotal = eligibleFrames.size();
 
     // build mobilograms for all frames
-    final TreeSet<BuildingIonMobilitySeries> sortedMobilograms = buildFrameMobilograms(access);
+    final List<BuildingIonMobilitySeries> sortedMobilograms = buildFrameMobilograms(
+        eligibleFrames);
     if (isCanceled()) {
       return;
     }
@@ -192,7 +185,7 @@ public class RecursiveIMSBuilderTask extends AbstractTask {
     logger.finest(() -> "Removing noise from traces...");
     final List<TempIMTrace> validTraces = ionMobilityTraces.parallelStream().filter(trace -> {
       stepProcessed.getAndIncrement();
-      return checkConsecutiveRemoveNoise(trace, access.getEligibleFrames(), numConsecutiveFrames,
+      return checkConsecutiveRemoveNoise(trace, eligibleFrames, numConsecutiveFrames,
           numDataPoints);
     }).collect(Collectors.toList());
 
@@ -206,7 +199,7 @@ public class RecursiveIMSBuilderTask extends AbstractTask {
     currentStep++;
     stepTotal = validTraces.size();
     logger.finest(() -> "Adding leading and trailing zeros...");
-    addZerosForFrames(validTraces, access.getEligibleFrames());
+    addZerosForFrames(validTraces, eligibleFrames);
     logger.finest(() -> "Leading and trailing zeros added.");
 
     // build feature list
@@ -214,8 +207,8 @@ public class RecursiveIMSBuilderTask extends AbstractTask {
     stepProcessed.set(0);
     currentStep++;
     final ModularFeatureList flist = new ModularFeatureList(file.getName(), getMemoryMapStorage(),
-        file);
-    flist.setSelectedScans(file, access.getEligibleFrames());
+        FeatureListUtils.isCompactFeatureStorage(), List.of(file));
+    flist.setSelectedScans(file, eligibleFrames);
     logger.finest(() -> "Creation BinningMobilogramDataAccess for raw data file " + file.getName());
     final BinningMobilogramDataAccess binningMobilogramDataAccess = EfficientDataAccess
         .of(file, binWidth);
@@ -387,106 +380,103 @@ public class RecursiveIMSBuilderTask extends AbstractTask {
     );
   }
 
-  private TreeSet<BuildingIonMobilitySeries> buildFrameMobilograms(MobilityScanDataAccess access) {
-    Set<BuildingIonMobilitySeries> buildingTraces = new HashSet<>();
-    try {
-
-      while (access.hasNextFrame()) {
-        if (isCanceled()) {
-          return null;
-        }
-
-        final Frame frame = access.nextFrame();
-
-        final TreeSet<RetentionTimeMobilityDataPoint> dps = new TreeSet<>(
-            (o1, o2) -> {
-              if (o1.getIntensity() > o2.getIntensity()) {
-                return -1;
-              }
-              return 1;
-            });
-        // get all datapoints
-        while (access.hasNextMobilityScan()) {
-          final MobilityScan currentMobilityScan = access.nextMobilityScan();
-          for (int i = 0; i < access.getNumberOfDataPoints(); i++) {
-            dps.add(new RetentionTimeMobilityDataPoint(currentMobilityScan, access.getMzValue(i),
-                access.getIntensityValue(i)));
+  /**
+   * Builds the mobilograms of all frames in parallel. The signals of each frame are kept in
+   * primitive arrays until the mobilograms of the frame are stored. Frames without mass lists are
+   * skipped.
+   *
+   * @return all mobilograms sorted by descending summed intensity or null if canceled
+   */
+  @Nullable
+  private List<BuildingIonMobilitySeries> buildFrameMobilograms(List<Frame> frames) {
+    final AtomicInteger missingMassLists = new AtomicInteger(0);
+    // the ordered stream keeps the mobilograms in frame order, independent of the threads
+    final List<List<BuildingIonMobilitySeries>> frameMobilograms = frames.parallelStream()
+        .map(frame -> {
+          if (isCanceled()) {
+            return List.<BuildingIonMobilitySeries>of();
           }
-        }
-
-        final Set<TempMobilogram> mobilogramMap = calcMobilograms(dps, tolerance);
-        final List<BuildingIonMobilitySeries> storedTraces = storeBuldingMobilograms(mobilogramMap);
-        buildingTraces.addAll(storedTraces);
-
-        stepProcessed.getAndIncrement();
-      }
-    } catch (MissingMassListException e) {
-      e.printStackTrace();
+          stepProcessed.getAndIncrement();
+          final FrameSignals signals;
+          try {
+            signals = FrameSignals.of(frame, scanSelection);
+          } catch (MissingMassListException e) {
+            missingMassLists.incrementAndGet();
+            return List.<BuildingIonMobilitySeries>of();
+          }
+          return storeBuldingMobilograms(calcMobilograms(signals, tolerance));
+        }).toList();
+    if (isCanceled()) {
+      return null;
+    }
+    if (missingMassLists.get() > 0) {
+      logger.warning(() -> "Skipped " + missingMassLists.get()
+          + " frames without mass lists of their mobility scans in file " + file.getName());
     }
 
     // now sort chromatograms like the adap builder
     logger.finest(() -> "Sorting mobilograms");
-    final TreeSet<BuildingIonMobilitySeries> sortedMobilograms = new TreeSet<>(
-        (o1, o2) -> {
-          if (o1.getSummedIntensity() > o2.getSummedIntensity()) {
-            return -1;
-          }
-          return 1;
-        });
-    sortedMobilograms.addAll(buildingTraces);
+    final List<BuildingIonMobilitySeries> sortedMobilograms = new ArrayList<>(
+        frameMobilograms.stream().mapToInt(List::size).sum());
+    frameMobilograms.forEach(sortedMobilograms::addAll);
+    sortedMobilograms.sort(
+        Comparator.comparingDouble(BuildingIonMobilitySeries::getSummedIntensity).reversed());
 
     logger.finest(() -> "Mobilograms sorted");
 
     return sortedMobilograms;
   }
 
+  /**
+   * Groups the signals of a frame into mobilograms, starting with the highest signal
+   *
+   * @param signals the signals of a frame
+   */
+  @NotNull
+  static List<TempMobilogram> calcMobilograms(FrameSignals signals, final MZTolerance tolerance) {
+    return calcMobilograms(signals, signals.sortedByIntensity(), tolerance);
+  }
+
+  /**
+   * @param signals the signals of a frame
+   * @param sorted  signal indices sorted by descending intensity
+   */
   @NotNull
-  private Set<TempMobilogram> calcMobilograms(Collection<RetentionTimeMobilityDataPoint> dps,
+  private static List<TempMobilogram> calcMobilograms(FrameSignals signals, int[] sorted,
       final MZTolerance tolerance) {
-    final RangeMap<Double, TempMobilogram> map = TreeRangeMap.create();
-    Set<RetentionTimeMobilityDataPoint> leftoverDataPoints = new TreeSet<>((o1, o2) -> {
-      if (o1.getIntensity() > o2.getIntensity()) {
-        return -1;
-      }
-      return 1;
-    });
+    final MzRangeMap<TempMobilogram> map = new MzRangeMap<>();
+    final IntArrayList leftoverSignals = new IntArrayList();
+    final double[] mzs = signals.mzs();
 
-    for (final var dp : dps) {
-      TempMobilogram mobilogram = map.get(dp.getMZ());
+    for (final int signal : sorted) {
+      final double mz = mzs[signal];
+      TempMobilogram mobilogram = map.get(mz);
       if (mobilogram == null) {
-        final Range<Double> proposed = tolerance.getToleranceRange(dp.getMZ());
-        final Range<Double> actual = SpectraMerging.createNewNonOverlappingRange(map, proposed);
-        if (proposed.equals(actual)) {
-          mobilogram = new TempMobilogram();
-          map.put(actual, mobilogram);
-        } else {
-          leftoverDataPoints.add(dp);
+        final double mzTolerance = tolerance.getMzToleranceForMass(mz);
+        mobilogram = new TempMobilogram(signals);
+        if (!map.putIfFree(mz - mzTolerance, mz + mzTolerance, mobilogram)) {
+          leftoverSignals.add(signal);
           continue;
         }
       }
-      final RetentionTimeMobilityDataPoint previousDp = mobilogram.keepBetterFittingDataPoint(dp);
-      if (previousDp != null) {
-        leftoverDataPoints.add(previousDp);
+      final int previousSignal = mobilogram.keepBetterFittingDataPoint(signal);
+      if (previousSignal != -1) {
+        leftoverSignals.add(previousSignal);
       }
     }
 
-    Set<TempMobilogram> mobilograms = new HashSet<>(map.asMapOfRanges().values());
+    final List<TempMobilogram> mobilograms = map.values();
 
-    if (!leftoverDataPoints.isEmpty()) {
-      if (enableRecursive && leftoverDataPoints.size() > RECURSIVE_THRESHOLD) {
-        Set<TempMobilogram> recursiveMobilograms = calcMobilograms(leftoverDataPoints, tolerance);
-//        logger.finest(() -> "Created additional " + recursiveMobilograms.size()
-//            + " mobilograms recursively from " + leftoverDataPoints.size() + " datapoints. "
-//            + leftoverDataPoints.stream().findFirst().get().getMobilityScan().getFrame()
-//            .getFrameId());
-        mobilograms.addAll(recursiveMobilograms);
-      }
+    if (ENABLE_RECURSIVE && leftoverSignals.size() > RECURSIVE_THRESHOLD) {
+      final int[] leftover = leftoverSignals.toIntArray();
+      signals.sortByIntensity(leftover);
+      mobilograms.addAll(calcMobilograms(signals, leftover, tolerance));
     }
     return mobilograms;
   }
 
   private List<BuildingIonMobilitySeries> storeBuldingMobilograms(
-      final Set<TempMobilogram> traces) {
+      final List<TempMobilogram> traces) {
     List<BuildingIonMobilitySeries> storedTraces = new ArrayList<>(traces.size());
     for (TempMobilogram trace : traces) {
       final BuildingIonMobilitySeries building = trace.toBuildingSeries(tempStorage);
@@ -495,22 +485,25 @@ public class RecursiveIMSBuilderTask extends AbstractTask {
     return storedTraces;
   }
 
+  /**
+   * @param ionMobilitySeries mobilograms sorted by descending summed intensity
+   */
   @Nullable
   private List<TempIMTrace> createTempIMTraces(
-      Collection<BuildingIonMobilitySeries> ionMobilitySeries, MZTolerance tolerance) {
-    final RangeMap<Double, TempIMTrace> map = TreeRangeMap.create();
-    Set<BuildingIonMobilitySeries> leftoverMobilograms = new HashSet<>();
+      List<BuildingIonMobilitySeries> ionMobilitySeries, MZTolerance tolerance) {
+    final MzRangeMap<TempIMTrace> map = new MzRangeMap<>();
+    final List<BuildingIonMobilitySeries> leftoverMobilograms = new ArrayList<>();
     for (final var mobilogram : ionMobilitySeries) {
       if (isCanceled()) {
         return null;
       }
 
-      TempIMTrace trace = map.get(mobilogram.getAvgMZ());
+      final double mz = mobilogram.getAvgMZ();
+      TempIMTrace trace = map.get(mz);
       if (trace == null) {
-        final Range<Double> mzRange = SpectraMerging
-            .createNewNonOverlappingRange(map, tolerance.getToleranceRange(mobilogram.getAvgMZ()));
+        final double mzTolerance = tolerance.getMzToleranceForMass(mz);
         trace = new TempIMTrace();
-        map.put(mzRange, trace);
+        map.putNonOverlapping(mz - mzTolerance, mz + mzTolerance, trace);
       }
       final BuildingIonMobilitySeries previousDp = trace.keepBetterFittingDataPoint(mobilogram);
       if (previousDp != null) {
@@ -520,12 +513,16 @@ public class RecursiveIMSBuilderTask extends AbstractTask {
       stepProcessed.getAndIncrement();
     }
 
-    List<TempIMTrace> traces = new ArrayList<>(map.asMapOfRanges().values());
+    List<TempIMTrace> traces = map.values();
 
     if (!leftoverMobilograms.isEmpty()) {
       logger.finest(() -> leftoverMobilograms.size() + "/" + ionMobilitySeries.size()
           + " leftover mobilograms");
-      if (enableRecursive && leftoverMobilograms.size() > RECURSIVE_THRESHOLD) {
+      if (ENABLE_RECURSIVE && leftoverMobilograms.size() > RECURSIVE_THRESHOLD) {
+        // the leftovers are handled in the same order as the first pass, so that the traces do
+        // not depend on the order in which mobilograms were replaced
+        leftoverMobilograms.sort(
+            Comparator.comparingDouble(BuildingIonMobilitySeries::getSummedIntensity).reversed());
         List<TempIMTrace> recursiveTraces = createTempIMTraces(leftoverMobilograms, tolerance);
         if (recursiveTraces != null) {
           logger.finest(() -> "Created additional " + recursiveTraces.size()
@@ -34,7 +34,7 @@ import java.util.logging.Logger;
 
 public class TempIMTrace {
 
-  private static Logger logger = Logger.getLogger(TempMobilogram.class.getName());
+  private static Logger logger = Logger.getLogger(TempIMTrace.class.getName());
 
   protected final TreeMap<Integer, BuildingIonMobilitySeries> mobilograms = new TreeMap<>();
   protected double lowestMz = Double.MAX_VALUE;
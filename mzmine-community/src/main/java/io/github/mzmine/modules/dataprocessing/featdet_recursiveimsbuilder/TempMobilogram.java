@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2004-2022 The MZmine Development Team
+ * Copyright (c) 2004-2024 The MZmine Development Team
  *
  * Permission is hereby granted, free of charge, to any person
  * obtaining a copy of this software and associated documentation
@@ -26,131 +26,115 @@
 package io.github.mzmine.modules.dataprocessing.featdet_recursiveimsbuilder;
 
 import io.github.mzmine.datamodel.MobilityScan;
-import io.github.mzmine.modules.dataprocessing.featdet_ionmobilitytracebuilder.RetentionTimeMobilityDataPoint;
 import io.github.mzmine.util.MemoryMapStorage;
+import it.unimi.dsi.fastutil.ints.IntArrays;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.TreeMap;
-import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+/**
+ * Mobilogram of a single frame during building. Holds at most one signal per mobility scan as
+ * indices into the {@link FrameSignals} of the frame, sorted by mobility scan number.
+ */
 public class TempMobilogram {
 
-  private static Logger logger = Logger.getLogger(TempMobilogram.class.getName());
-
-  protected final TreeMap<Integer, RetentionTimeMobilityDataPoint> datapoints = new TreeMap<>();
-  protected double lowestMz = Double.MAX_VALUE;
-  protected double highestMz = Double.MIN_VALUE;
-  protected double centerMz;
+  private static final int NO_SIGNAL = -1;
 
-  public TempMobilogram() {
+  private final FrameSignals frameSignals;
+  // sorted mobility scan numbers and the signal of each mobility scan
+  private int[] scanNumbers = IntArrays.EMPTY_ARRAY;
+  private int[] signals = IntArrays.EMPTY_ARRAY;
+  private int size;
+  private double centerMz;
 
+  public TempMobilogram(@NotNull FrameSignals frameSignals) {
+    this.frameSignals = frameSignals;
   }
 
-
   /**
-   * Adds a data point if no data point of the same scan number is contained in this trace.
+   * Adds a signal if no signal of the same mobility scan is contained in this mobilogram.
    *
-   * @param dp
-   * @return
+   * @param signal   index of the signal
+   * @param position result of the binary search for the mobility scan number
    */
-  public RetentionTimeMobilityDataPoint tryToAddDataPoint(RetentionTimeMobilityDataPoint dp) {
-    var currentValue = datapoints.putIfAbsent(dp.getMobilityScan().getMobilityScanNumber(), dp);
-    if (currentValue == null) {
-      updateValues();
-    }
-    return currentValue;
-  }
-
-  /**
-   * @param dp
-   * @return The replaced data point
-   */
-  public RetentionTimeMobilityDataPoint replaceDataPoint(RetentionTimeMobilityDataPoint dp) {
-
-    final RetentionTimeMobilityDataPoint replaced = datapoints
-        .put(dp.getMobilityScan().getMobilityScanNumber(), dp);
-    if (replaced == null) {
-      logger.fine(() -> "Data point did not replace another data point");
+  private void addSignal(int signal, int scanNumber, int position) {
+    final int insert = -(position + 1);
+    if (size == signals.length) {
+      final int capacity = Math.max(8, size * 2);
+      scanNumbers = Arrays.copyOf(scanNumbers, capacity);
+      signals = Arrays.copyOf(signals, capacity);
     }
+    System.arraycopy(scanNumbers, insert, scanNumbers, insert + 1, size - insert);
+    System.arraycopy(signals, insert, signals, insert + 1, size - insert);
+    scanNumbers[insert] = scanNumber;
+    signals[insert] = signal;
+    size++;
     updateValues();
-    return replaced;
-  }
-
-  public double getLowestMz() {
-    return lowestMz;
-  }
-
-  public void setLowestMz(double lowestMz) {
-    this.lowestMz = lowestMz;
-  }
-
-  public double getHighestMz() {
-    return highestMz;
-  }
-
-  public void setHighestMz(double highestMz) {
-    this.highestMz = highestMz;
   }
 
   private void updateValues() {
+    final double[] mzs = frameSignals.mzs();
+    final double[] intensities = frameSignals.intensities();
     centerMz = 0d;
     double summedIntensities = 0d;
-    for (RetentionTimeMobilityDataPoint value : datapoints.values()) {
-      final double intensity = value.getIntensity();
-      final double mz = value.getMZ();
-
-      if (mz > highestMz) {
-        highestMz = mz;
-      }
-      if (mz < lowestMz) {
-        lowestMz = mz;
-      }
-
-      centerMz += mz * intensity;
+    for (int i = 0; i < size; i++) {
+      final double intensity = intensities[signals[i]];
+      centerMz += mzs[signals[i]] * intensity;
       summedIntensities += intensity;
     }
     centerMz /= summedIntensities;
   }
 
-  public RetentionTimeMobilityDataPoint keepBetterFittingDataPoint(
-      RetentionTimeMobilityDataPoint dp) {
-    final RetentionTimeMobilityDataPoint current = tryToAddDataPoint(dp);
-    if (current == null) {
-      return null;
+  /**
+   * Adds the signal if this mobilogram has no signal of the same mobility scan. Otherwise, the
+   * signal that fits better to the center m/z and the intensities of the neighbouring mobility
+   * scans is kept.
+   *
+   * @param signal index of the signal
+   * @return the index of the signal that was not added or replaced, -1 if the signal was added
+   */
+  public int keepBetterFittingDataPoint(int signal) {
+    final int scanNumber = frameSignals.getMobilityScanNumber(signal);
+    final int position = Arrays.binarySearch(scanNumbers, 0, size, scanNumber);
+    if (position < 0) {
+      addSignal(signal, scanNumber, position);
+      return NO_SIGNAL;
     }
 
-    final double currentDelta = Math.abs(centerMz - current.getMZ());
-    final double proposedDelta = Math.abs(centerMz - dp.getMZ());
+    final double[] mzs = frameSignals.mzs();
+    final double[] intensities = frameSignals.intensities();
+    final int current = signals[position];
+    final double currentDelta = Math.abs(centerMz - mzs[current]);
+    final double proposedDelta = Math.abs(centerMz - mzs[signal]);
     if (currentDelta < proposedDelta) {
-      return dp;
+      return signal;
     }
-    var ceilingEntry = datapoints.ceilingEntry(dp.getMobilityScan().getMobilityScanNumber() + 1);
-    var floorEntry = datapoints.floorEntry(dp.getMobilityScan().getMobilityScanNumber() - 1);
-    if (ceilingEntry != null && floorEntry != null) {
-      final double ceilingIntensity = ceilingEntry.getValue().getIntensity();
-      final double floorIntensity = floorEntry.getValue().getIntensity();
+    // signals of the previous and next mobility scan
+    if (position > 0 && position < size - 1) {
+      final double ceilingIntensity = intensities[signals[position + 1]];
+      final double floorIntensity = intensities[signals[position - 1]];
       final double avg = (ceilingIntensity + floorIntensity) / 2;
-      if (Math.abs(avg - dp.getIntensity()) < Math.abs(avg - current.getIntensity())) {
-        return replaceDataPoint(dp);
+      if (Math.abs(avg - intensities[signal]) < Math.abs(avg - intensities[current])) {
+        signals[position] = signal;
+        updateValues();
+        return current;
       }
     }
 
-    return dp;
+    return signal;
   }
 
   public BuildingIonMobilitySeries toBuildingSeries(@Nullable MemoryMapStorage storage) {
-    final int numValues = datapoints.size();
-    double[] mzs = new double[numValues];
-    double[] intensities = new double[numValues];
-    List<MobilityScan> scans = new ArrayList<>();
-
-    int i = 0;
-    for (RetentionTimeMobilityDataPoint value : datapoints.values()) {
-      mzs[i] = value.getMZ();
-      intensities[i] = value.getIntensity();
-      scans.add(value.getMobilityScan());
-      i++;
+    final double[] mzs = new double[size];
+    final double[] intensities = new double[size];
+    final List<MobilityScan> scans = new ArrayList<>(size);
+
+    for (int i = 0; i < size; i++) {
+      mzs[i] = frameSignals.mzs()[signals[i]];
+      intensities[i] = frameSignals.intensities()[signals[i]];
+      scans.add(frameSignals.scans().get(frameSignals.scanIndices()[signals[i]]));
     }
     return new BuildingIonMobilitySeries(storage, mzs, intensities, scans);
   }
@@ -38,8 +38,7 @@ import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.types.MsMsInfoType;
 import io.github.mzmine.datamodel.features.types.numbers.RtMs2ApexDistanceType;
-import io.github.mzmine.datamodel.impl.MSnInfoImpl;
-import io.github.mzmine.datamodel.msms.DDAMsMsInfo;
+import io.github.mzmine.datamodel.impl.ScanMetadataIndex;
 import io.github.mzmine.datamodel.msms.MsMsInfo;
 import io.github.mzmine.datamodel.msms.PasefMsMsInfo;
 import io.github.mzmine.modules.dataprocessing.filter_groupms2_refine.GroupedMs2RefinementProcessor;
@@ -58,7 +57,6 @@ import io.github.mzmine.util.scans.SpectraMerging;
 import io.github.mzmine.util.scans.SpectraMerging.IntensityMergingType;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import org.jetbrains.annotations.NotNull;
@@ -197,12 +195,13 @@ public class GroupMS2Processor extends AbstractTaskSubProcessor {
    */
   @NotNull
   private List<Scan> findFragmentScans(final ModularFeature feature) {
-    final List<Scan> scans;
-    RawDataFile raw = feature.getRawDataFile();
+    final RawDataFile raw = feature.getRawDataFile();
+    // only candidates within the precursor and RT range - exact checks are still applied
+    final Range<Double> mzRange = mzTol.getToleranceRange(feature.getMZ());
+    final Range<Float> rtRange = rtFilter.getRtRange(feature);
 
-    scans = raw.stream().filter(scan -> scan.getMSLevel() > 1)
+    return raw.getScanMetadataIndex().getFragmentScans(mzRange, rtRange).stream()
         .filter(scan -> filterScan(scan, feature)).sorted(FragmentScanSorter.DEFAULT_TIC).toList();
-    return scans;
   }
 
   /**
@@ -243,14 +242,7 @@ public class GroupMS2Processor extends AbstractTaskSubProcessor {
       }
     }
     //
-    final double precursorMZ;
-    if (scan.getMsMsInfo() instanceof MSnInfoImpl msn) {
-      precursorMZ = msn.getMS2PrecursorMz();
-    } else if (scan.getMsMsInfo() instanceof DDAMsMsInfo info) {
-      precursorMZ = info.getIsolationMz();
-    } else {
-      precursorMZ = Objects.requireNonNullElse(scan.getPrecursorMz(), 0d);
-    }
+    final double precursorMZ = ScanMetadataIndex.extractPrecursorMz(scan);
     return rtFilter.accept(feature, scan.getRetentionTime()) && precursorMZ != 0
            && mzTol.checkWithinTolerance(feature.getMZ(), precursorMZ);
   }
@@ -268,7 +260,8 @@ public class GroupMS2Processor extends AbstractTaskSubProcessor {
     double fmz = feature.getMZ();
     Float mobility = feature.getMobility();
 
-    final List<? extends Scan> scans = feature.getRawDataFile().getScanNumbers(2).stream()
+    final List<? extends Scan> scans = feature.getRawDataFile().getScanMetadataIndex()
+        .getScans(2, rtFilter.getRtRange(feature)).stream()
         .filter(scan -> rtFilter.accept(feature, scan.getRetentionTime()))
         .collect(Collectors.toList());
 
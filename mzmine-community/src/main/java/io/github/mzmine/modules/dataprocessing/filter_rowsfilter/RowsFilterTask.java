@@ -47,6 +47,7 @@ import io.github.mzmine.parameters.parametertypes.absoluterelative.AbsoluteAndRe
 import io.github.mzmine.parameters.parametertypes.massdefect.MassDefectFilter;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.FeatureListUtils;
 import io.github.mzmine.util.FormulaUtils;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.RangeUtils;
@@ -272,7 +273,8 @@ public class RowsFilterTask extends AbstractTask {
     } else {
       newFeatureList = new ModularFeatureList(
           featureList.getName() + ' ' + parameters.getParameter(RowsFilterParameters.SUFFIX)
-              .getValue(), getMemoryMapStorage(), featureList.getRawDataFiles());
+              .getValue(), getMemoryMapStorage(), FeatureListUtils.isCompactStorage(featureList),
+          featureList.getRawDataFiles());
       // Copy previous applied methods.
       for (final FeatureListAppliedMethod method : featureList.getAppliedMethods()) {
         newFeatureList.addDescriptionOfAppliedTask(method);
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.gapfill_peakfinder;
+
+import com.google.common.collect.Range;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Sweep line over the RT ranges of gaps. Gaps only use scans within their RT range, so instead of
+ * offering every scan to every gap, only the gaps that are active at the scan RT are returned.
+ * Scans should be requested in ascending RT order, which is the case for the scans of a raw data
+ * file. A decreasing RT restarts the sweep.
+ */
+public class GapRtIndex<T extends Gap> {
+
+  // sorted by lower RT bound
+  private final List<T> gaps;
+  private final List<T> active = new ArrayList<>();
+  private final List<T> atRt = new ArrayList<>();
+  private int next = 0;
+  private float lastRt = Float.NEGATIVE_INFINITY;
+
+  public GapRtIndex(@NotNull List<T> gaps) {
+    this.gaps = gaps.stream().sorted(Comparator.comparingDouble(gap -> lower(gap.getRtRange())))
+        .toList();
+  }
+
+  private static float lower(Range<Float> range) {
+    return range.hasLowerBound() ? range.lowerEndpoint() : Float.NEGATIVE_INFINITY;
+  }
+
+  private static float upper(Range<Float> range) {
+    return range.hasUpperBound() ? range.upperEndpoint() : Float.POSITIVE_INFINITY;
+  }
+
+  /**
+   * @param rt the retention time of the next scan
+   * @return all gaps with an RT range that contains rt. The list is reused by the next call.
+   */
+  @NotNull
+  public List<T> getGapsAt(float rt) {
+    if (rt < lastRt) {
+      active.clear();
+      next = 0;
+    }
+    lastRt = rt;
+
+    while (next < gaps.size() && lower(gaps.get(next).getRtRange()) <= rt) {
+      active.add(gaps.get(next));
+      next++;
+    }
+    // scans only move forward in RT, gaps that ended are never used again
+    active.removeIf(gap -> upper(gap.getRtRange()) < rt);
+
+    atRt.clear();
+    for (T gap : active) {
+      if (gap.getRtRange().contains(rt)) {
+        atRt.add(gap);
+      }
+    }
+    return atRt;
+  }
+}
@@ -158,10 +158,11 @@ class PeakFinderTask extends AbstractTask {
         }
 
         // Get all scans of this data file
+        final GapRtIndex<Gap> gapIndex = new GapRtIndex<>(gaps);
         dataFile.getScanNumbers(1).forEach(scan -> {
           if(!isCanceled()) {
-            // Feed this scan to all gaps
-            for (Gap gap : gaps) {
+            // Feed this scan to all gaps in its RT range
+            for (Gap gap : gapIndex.getGapsAt(scan.getRetentionTime())) {
               gap.offerNextScan(scan);
             }
 
@@ -270,10 +271,11 @@ class PeakFinderTask extends AbstractTask {
         }
 
         // Get all scans of this data file
+        final GapRtIndex<Gap> gapIndex = new GapRtIndex<>(gaps);
         datafile1.getScanNumbers(1).forEach(scan -> {
           if(!isCanceled()) {
-            // Feed this scan to all gaps
-            for (Gap gap : gaps) {
+            // Feed this scan to all gaps in its RT range
+            for (Gap gap : gapIndex.getGapsAt(scan.getRetentionTime())) {
               gap.offerNextScan(scan);
             }
             processedScans.incrementAndGet();
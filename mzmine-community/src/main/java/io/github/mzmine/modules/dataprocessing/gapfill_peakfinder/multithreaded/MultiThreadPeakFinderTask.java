@@ -41,6 +41,7 @@ import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.types.numbers.MobilityType;
 import io.github.mzmine.modules.dataprocessing.gapfill_peakfinder.Gap;
+import io.github.mzmine.modules.dataprocessing.gapfill_peakfinder.GapRtIndex;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
@@ -212,6 +213,7 @@ class MultiThreadPeakFinderTask extends AbstractTask {
       final MobilityScanDataAccess access = new MobilityScanDataAccess(imsFile,
           MobilityScanDataType.MASS_LIST, (List<Frame>) peakList.getSeletedScans(file));
       List<ImsGap> imsGaps = (List<ImsGap>) (List<? extends Gap>) gaps;
+      final GapRtIndex<ImsGap> gapIndex = new GapRtIndex<>(imsGaps);
 
       while (access.hasNextFrame()) {
         if (isCanceled()) {
@@ -219,7 +221,7 @@ class MultiThreadPeakFinderTask extends AbstractTask {
         }
 
         final Frame frame = access.nextFrame();
-        for (ImsGap gap : imsGaps) {
+        for (ImsGap gap : gapIndex.getGapsAt(frame.getRetentionTime())) {
           access.resetMobilityScan();
           gap.offerNextScan(access);
         }
@@ -231,13 +233,14 @@ class MultiThreadPeakFinderTask extends AbstractTask {
 
       final ScanDataAccess scanAccess = EfficientDataAccess.of(file, ScanDataType.MASS_LIST,
           peakList.getSeletedScans(file));
+      final GapRtIndex<Gap> gapIndex = new GapRtIndex<>(gaps);
       while (scanAccess.hasNextScan()) {
         if (isCanceled()) {
           return;
         }
         scanAccess.nextScan();
-        // Feed this scan to all gaps
-        for (Gap gap : gaps) {
+        // Feed this scan to all gaps in its RT range
+        for (Gap gap : gapIndex.getGapsAt(scanAccess.getRetentionTime())) {
           gap.offerNextScan(scanAccess);
         }
 
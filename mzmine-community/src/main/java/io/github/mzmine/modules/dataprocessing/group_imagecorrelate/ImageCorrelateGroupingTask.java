@@ -34,7 +34,7 @@ import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
-import io.github.mzmine.datamodel.features.correlation.R2RMap;
+import io.github.mzmine.datamodel.features.correlation.R2RGraph;
 import io.github.mzmine.datamodel.features.correlation.R2RSimpleSimilarityList;
 import io.github.mzmine.datamodel.features.correlation.RowsRelationship;
 import io.github.mzmine.datamodel.features.correlation.RowsRelationship.Type;
@@ -133,14 +133,16 @@ public class ImageCorrelateGroupingTask extends AbstractTask {
     if (isCanceled()) {
       setStatus(TaskStatus.CANCELED);
     }
-    final R2RMap<RowsRelationship> mapImageSim = new R2RMap<>();
+    // edges are appended concurrently and frozen into a compact graph
+    final R2RGraph.Builder<RowsRelationship> mapImageSim = new R2RGraph.Builder<>();
     checkAllFeatures(mapImageSim, rows);
+    final R2RGraph<RowsRelationship> imageSimGraph = mapImageSim.build();
     logger.info("Image similarity check on rows done.");
 
     if (featureList != null) {
       //remove old similarities of same type
       featureList.getRowMaps().removeAllRowRelationships(Type.MS1_FEATURE_CORR);
-      featureList.getRowMaps().addAllRowsRelationships(mapImageSim, Type.MS1_FEATURE_CORR);
+      featureList.getRowMaps().addAllRowsRelationships(imageSimGraph, Type.MS1_FEATURE_CORR);
     }
 
     if (featureList != null) {
@@ -158,8 +160,8 @@ public class ImageCorrelateGroupingTask extends AbstractTask {
    * @param mapSimilarity map for all MS2 cosine similarity edges
    * @param rows          match rows
    */
-  public void checkAllFeatures(R2RMap<RowsRelationship> mapSimilarity, List<FeatureListRow> rows)
-      throws MissingMassListException {
+  public void checkAllFeatures(R2RGraph.Builder<RowsRelationship> mapSimilarity,
+      List<FeatureListRow> rows) throws MissingMassListException {
     // prefilter rows: check feature height and sort data
     Map<Feature, FilteredRowData> mapFeatureData = new HashMap<>();
     List<FeatureListRow> filteredRows = new ArrayList<>();
@@ -239,7 +241,8 @@ public class ImageCorrelateGroupingTask extends AbstractTask {
   }
 
   private void checkR2RAllFeaturesImageSimilarity(Map<Feature, FilteredRowData> mapFeatureData,
-      FeatureListRow a, FeatureListRow b, final R2RMap<RowsRelationship> mapSimilarity) {
+      FeatureListRow a, FeatureListRow b,
+      final R2RGraph.Builder<RowsRelationship> mapSimilarity) {
 
     R2RSimpleSimilarityList imageSimilarities = new R2RSimpleSimilarityList(a, b,
         Type.MS1_FEATURE_CORR);
@@ -263,7 +266,9 @@ public class ImageCorrelateGroupingTask extends AbstractTask {
       imageSimilarities.addSimilarity(similarity);
     }
     if (imageSimilarities.getAverageSimilarity() >= minR) {
-      mapSimilarity.add(a, b, imageSimilarities);
+      synchronized (mapSimilarity) {
+        mapSimilarity.add(a, b, imageSimilarities);
+      }
     }
   }
 
@@ -37,7 +37,7 @@ import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.datamodel.features.correlation.CorrelationRowGroup;
 import io.github.mzmine.datamodel.features.correlation.R2RCorrelationData;
 import io.github.mzmine.datamodel.features.correlation.R2RFullCorrelationData;
-import io.github.mzmine.datamodel.features.correlation.R2RMap;
+import io.github.mzmine.datamodel.features.correlation.R2RGraph;
 import io.github.mzmine.datamodel.features.correlation.R2RSimpleCorrelationData;
 import io.github.mzmine.datamodel.features.correlation.RowGroup;
 import io.github.mzmine.datamodel.features.correlation.RowsRelationship.Type;
@@ -221,11 +221,14 @@ public class CorrelateGroupingTask extends AbstractTask {
       // create correlation map
       // do R2R comparison correlation
       // might also do annotation if selected
-      R2RMap<R2RCorrelationData> corrMap = new R2RMap<>();
-      doR2RComparison(groupedPKL, corrMap);
+      final R2RGraph.Builder<R2RCorrelationData> corrEdges = new R2RGraph.Builder<>();
+      doR2RComparison(groupedPKL, corrEdges);
       if (isCanceled()) {
         return;
       }
+      final R2RGraph<R2RCorrelationData> corrMap = corrEdges.build();
+      // number of f2f correlations
+      logger.info(MessageFormat.format("Added {0} correlation edges", corrMap.size()));
       // set correlation map
       var r2rNetworkingMaps = groupedPKL.getRowMaps();
       r2rNetworkingMaps.addAllRowsRelationships(corrMap, Type.MS1_FEATURE_CORR);
@@ -277,7 +280,8 @@ public class CorrelateGroupingTask extends AbstractTask {
   /**
    * Correlation and adduct network creation
    */
-  private void doR2RComparison(ModularFeatureList featureList, R2RMap<R2RCorrelationData> map) {
+  private void doR2RComparison(ModularFeatureList featureList,
+      R2RGraph.Builder<R2RCorrelationData> map) {
     logger.fine("Corr: Creating row2row correlation map");
     final List<RawDataFile> raws = featureList.getRawDataFiles();
     // filter list by minimum number of features in all samples or at least one group
@@ -336,11 +340,11 @@ public class CorrelateGroupingTask extends AbstractTask {
                 // add to map
                 // can be because of any combination of
                 // retention time, shape correlation, non-negative height correlation
-                if (keepExtendedStats) {
-                  map.add(row, row2, corr);
-                } else {
-                  // save simplified object
-                  map.add(row, row2, new R2RSimpleCorrelationData(corr));
+                // save simplified object
+                final R2RCorrelationData edge =
+                    keepExtendedStats ? corr : new R2RSimpleCorrelationData(corr);
+                synchronized (map) {
+                  map.add(row, row2, edge);
                 }
                 addedCorrelations++;
               }
@@ -354,9 +358,6 @@ public class CorrelateGroupingTask extends AbstractTask {
       }
       return addedCorrelations;
     }).sum();
-
-    // number of f2f correlations
-    logger.info(MessageFormat.format("Added {0} correlation edges", map.size()));
   }
 
 }
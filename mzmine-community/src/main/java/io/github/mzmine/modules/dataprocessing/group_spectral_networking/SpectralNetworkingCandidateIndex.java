@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.group_spectral_networking;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.collections.BinarySearch;
+import io.github.mzmine.util.collections.IndexRange;
+import io.github.mzmine.util.scans.similarity.Weights;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.util.Arrays;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Inverted index over the signals of many spectra to find all spectrum pairs that may still reach a
+ * minimum number of matched signals and a minimum cosine similarity. Used as a pruning stage before
+ * the actual (expensive) alignment in {@link SpectralNetworkingTask}. The pruning is exact: each
+ * pair that is dropped cannot pass the similarity thresholds in
+ * {@link SpectralNetworkingTask#createMS2SimModificationAware(MZTolerance, DataPoint[],
+ * DataPoint[], double, java.util.function.Function, double, double)}.
+ * <p>
+ * All signals are indexed by their m/z and, if precursor m/z values are provided, by their neutral
+ * loss to the precursor (precursor m/z - fragment m/z). The latter covers the shifted signal
+ * matches of the modified cosine.
+ * <p>
+ * For each query, signals of the query spectrum and signals of the target spectrum that have at
+ * least one partner within tolerance are counted as candidates. The overlap of the alignment cannot
+ * exceed the smaller candidate count and the cosine is limited by Cauchy-Schwarz to
+ * sqrt(candidateNormQuery / normQuery) * sqrt(candidateNormTarget / normTarget).
+ * <p>
+ * Immutable after construction and safe to query from multiple threads with one {@link Scratch}
+ * per thread.
+ */
+class SpectralNetworkingCandidateIndex {
+
+  /**
+   * Small tolerance to avoid dropping pairs due to floating point differences between the bound and
+   * the final cosine calculation
+   */
+  private static final double COSINE_BOUND_EPSILON = 1E-6;
+
+  private final MZTolerance mzTol;
+  private final int numSpectra;
+  // signals of spectrum i are in range [spectrumOffsets[i], spectrumOffsets[i+1])
+  private final int[] spectrumOffsets;
+  private final int[] signalSpectrum;
+  private final double[] signalMz;
+  private final double[] signalWeightSquared;
+  private final double[] spectrumNorm;
+  // precursor mz for the modified cosine or null
+  private final double @Nullable [] precursorMzs;
+
+  // direct fragment m/z index
+  private final double[] sortedMzs;
+  private final int[] sortedMzSignals;
+  // neutral loss index (precursor - fragment) only if precursor mzs were provided
+  private final double @Nullable [] sortedLosses;
+  private final int @Nullable [] sortedLossSignals;
+
+  /**
+   * @param spectra      the spectra to index, the index in this list is used to reference them
+   * @param precursorMzs precursor m/z for each spectrum to also index neutral losses as done by the
+   *                     modified cosine or null to only match fragment signals directly. Values
+   *                     <=0 deactivate the neutral loss matching for this spectrum
+   * @param mzTol        tolerance used in the alignment of signals
+   * @param weights      weights used in the cosine calculation
+   */
+  SpectralNetworkingCandidateIndex(@NotNull List<DataPoint[]> spectra,
+      final double @Nullable [] precursorMzs, @NotNull MZTolerance mzTol,
+      @NotNull Weights weights) {
+    this.mzTol = mzTol;
+    this.precursorMzs = precursorMzs;
+    numSpectra = spectra.size();
+    spectrumOffsets = new int[numSpectra + 1];
+    for (int i = 0; i < numSpectra; i++) {
+      spectrumOffsets[i + 1] = spectrumOffsets[i] + spectra.get(i).length;
+    }
+    final int numSignals = spectrumOffsets[numSpectra];
+
+    signalSpectrum = new int[numSignals];
+    signalMz = new double[numSignals];
+    signalWeightSquared = new double[numSignals];
+    spectrumNorm = new double[numSpectra];
+    for (int i = 0; i < numSpectra; i++) {
+      final DataPoint[] dps = spectra.get(i);
+      for (int s = 0; s < dps.length; s++) {
+        final int signal = spectrumOffsets[i] + s;
+        final double mz = dps[s].getMZ();
+        final double weight = Math.pow(dps[s].getIntensity(), weights.getIntensity()) * Math.pow(mz,
+            weights.getMz());
+        signalSpectrum[signal] = i;
+        signalMz[signal] = mz;
+        signalWeightSquared[signal] = weight * weight;
+        spectrumNorm[i] += weight * weight;
+      }
+    }
+
+    // direct index of all signals
+    sortedMzSignals = sortSignalsByKey(numSignals, signal -> true, signal -> signalMz[signal]);
+    sortedMzs = new double[sortedMzSignals.length];
+    for (int i = 0; i < sortedMzSignals.length; i++) {
+      sortedMzs[i] = signalMz[sortedMzSignals[i]];
+    }
+
+    // neutral loss index for the modified cosine
+    if (precursorMzs != null) {
+      sortedLossSignals = sortSignalsByKey(numSignals,
+          signal -> precursorMzs[signalSpectrum[signal]] > 0, this::neutralLoss);
+      sortedLosses = new double[sortedLossSignals.length];
+      for (int i = 0; i < sortedLossSignals.length; i++) {
+        sortedLosses[i] = neutralLoss(sortedLossSignals[i]);
+      }
+    } else {
+      sortedLossSignals = null;
+      sortedLosses = null;
+    }
+  }
+
+  private static int[] sortSignalsByKey(int numSignals, SignalFilter filter, SignalKey key) {
+    final IntArrayList signals = new IntArrayList(numSignals);
+    final double[] keys = new double[numSignals];
+    for (int signal = 0; signal < numSignals; signal++) {
+      if (filter.accept(signal)) {
+        signals.add(signal);
+        keys[signal] = key.get(signal);
+      }
+    }
+    final int[] sorted = signals.toIntArray();
+    IntArrays.parallelQuickSort(sorted, (a, b) -> Double.compare(keys[a], keys[b]));
+    return sorted;
+  }
+
+  private double neutralLoss(int signal) {
+    assert precursorMzs != null;
+    return precursorMzs[signalSpectrum[signal]] - signalMz[signal];
+  }
+
+  /**
+   * The half width of the search window around a signal. Signals are matched by
+   * {@link MZTolerance#checkWithinTolerance(double, double)} which uses the tolerance of either of
+   * the two signals. The tolerance of two signals within tolerance differs only slightly, the
+   * factor 2 covers all of these cases.
+   */
+  private double searchWindow(double mz) {
+    return 2d * mzTol.getMzToleranceForMass(mz);
+  }
+
+  public int getNumSpectra() {
+    return numSpectra;
+  }
+
+  /**
+   * Find all target spectra in (query, lastTargetInclusive] that may reach the thresholds with the
+   * query spectrum.
+   *
+   * @param query               the query spectrum index
+   * @param lastTargetInclusive the last spectrum index to check. Only targets with a higher index
+   *                            than the query are checked, so that each pair is only reported once.
+   * @param minMatch            minimum matched signals, needs to be >=1
+   * @param minCosine           minimum cosine similarity
+   * @param scratch             the thread specific buffers
+   * @return sorted list of target indices, the list is reused by the scratch
+   */
+  public IntArrayList findCandidates(final int query, final int lastTargetInclusive,
+      final int minMatch, final double minCosine, @NotNull Scratch scratch) {
+    assert minMatch >= 1 : "Pruning requires at least one matched signal";
+    scratch.reset();
+    final IntArrayList candidates = scratch.candidates;
+    if (lastTargetInclusive <= query || spectrumNorm[query] <= 0) {
+      return candidates;
+    }
+
+    final boolean modAware = precursorMzs != null && precursorMzs[query] > 0;
+    for (int signal = spectrumOffsets[query]; signal < spectrumOffsets[query + 1]; signal++) {
+      scratch.token++;
+      final double mz = signalMz[signal];
+      final double window = searchWindow(mz);
+      collectHits(sortedMzs, sortedMzSignals, mz, window, signal, query, lastTargetInclusive,
+          scratch);
+      if (modAware) {
+        collectHits(sortedLosses, sortedLossSignals, neutralLoss(signal), window, signal, query,
+            lastTargetInclusive, scratch);
+      }
+    }
+
+    // each target signal is counted once, even if it was hit by multiple query signals
+    final IntArrayList hits = scratch.targetHits;
+    if (hits.isEmpty()) {
+      return candidates;
+    }
+    final int[] hitArray = hits.elements();
+    Arrays.sort(hitArray, 0, hits.size());
+    int lastSignal = -1;
+    for (int i = 0; i < hits.size(); i++) {
+      final int targetSignal = hitArray[i];
+      if (targetSignal == lastSignal) {
+        continue;
+      }
+      lastSignal = targetSignal;
+      final int target = signalSpectrum[targetSignal];
+      scratch.targetMatches[target]++;
+      scratch.targetNorm[target] += signalWeightSquared[targetSignal];
+    }
+
+    final double queryNorm = spectrumNorm[query];
+    final IntArrayList touched = scratch.touched;
+    for (int i = 0; i < touched.size(); i++) {
+      final int target = touched.getInt(i);
+      final int maxOverlap = Math.min(scratch.queryMatches[target], scratch.targetMatches[target]);
+      if (maxOverlap < minMatch || spectrumNorm[target] <= 0) {
+        continue;
+      }
+      final double maxCosine = Math.sqrt(
+          scratch.queryNorm[target] / queryNorm * scratch.targetNorm[target]
+              / spectrumNorm[target]);
+      if (maxCosine + COSINE_BOUND_EPSILON >= minCosine) {
+        candidates.add(target);
+      }
+    }
+    candidates.sort(null);
+    return candidates;
+  }
+
+  private void collectHits(final double[] sortedKeys, final int[] sortedSignals, final double key,
+      final double window, final int querySignal, final int query, final int lastTargetInclusive,
+      final Scratch scratch) {
+    final IndexRange range = BinarySearch.indexRange(sortedKeys, key - window, key + window);
+    if (range.isEmpty()) {
+      return;
+    }
+    for (int i = range.min(); i < range.maxExclusive(); i++) {
+      final int targetSignal = sortedSignals[i];
+      final int target = signalSpectrum[targetSignal];
+      if (target <= query || target > lastTargetInclusive) {
+        continue;
+      }
+      scratch.targetHits.add(targetSignal);
+      // count each query signal only once per target
+      if (scratch.lastToken[target] != scratch.token) {
+        scratch.lastToken[target] = scratch.token;
+        if (scratch.queryMatches[target] == 0) {
+          scratch.touched.add(target);
+        }
+        scratch.queryMatches[target]++;
+        scratch.queryNorm[target] += signalWeightSquared[querySignal];
+      }
+    }
+  }
+
+  /**
+   * Creates new thread specific buffers for {@link #findCandidates(int, int, int, double,
+   * Scratch)}
+   */
+  public Scratch createScratch() {
+    return new Scratch(numSpectra);
+  }
+
+  @FunctionalInterface
+  private interface SignalFilter {
+
+    boolean accept(int signal);
+  }
+
+  @FunctionalInterface
+  private interface SignalKey {
+
+    double get(int signal);
+  }
+
+  /**
+   * Reusable buffers for one thread. Only the touched targets are reset after each query.
+   */
+  static final class Scratch {
+
+    private final int[] queryMatches;
+    private final int[] targetMatches;
+    private final double[] queryNorm;
+    private final double[] targetNorm;
+    private final int[] lastToken;
+    private final IntArrayList touched = new IntArrayList();
+    private final IntArrayList targetHits = new IntArrayList();
+    private final IntArrayList candidates = new IntArrayList();
+    private int token = 0;
+
+    private Scratch(int numSpectra) {
+      queryMatches = new int[numSpectra];
+      targetMatches = new int[numSpectra];
+      queryNorm = new double[numSpectra];
+      targetNorm = new double[numSpectra];
+      lastToken = new int[numSpectra];
+    }
+
+    private void reset() {
+      for (int i = 0; i < touched.size(); i++) {
+        final int target = touched.getInt(i);
+        queryMatches[target] = 0;
+        targetMatches[target] = 0;
+        queryNorm[target] = 0;
+        targetNorm[target] = 0;
+      }
+      touched.clear();
+      targetHits.clear();
+      candidates.clear();
+    }
+  }
+}
@@ -36,7 +36,7 @@ import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
-import io.github.mzmine.datamodel.features.correlation.R2RMap;
+import io.github.mzmine.datamodel.features.correlation.R2RGraph;
 import io.github.mzmine.datamodel.features.correlation.R2RNetworkingMaps;
 import io.github.mzmine.datamodel.features.correlation.R2RSpectralSimilarity;
 import io.github.mzmine.datamodel.features.correlation.R2RSpectralSimilarityList;
@@ -62,6 +62,7 @@ import io.github.mzmine.util.scans.ScanAlignment;
 import io.github.mzmine.util.scans.ScanMZDiffConverter;
 import io.github.mzmine.util.scans.similarity.Weights;
 import it.unimi.dsi.fastutil.Pair;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import java.text.MessageFormat;
 import java.time.Instant;
@@ -85,6 +86,11 @@ public class SpectralNetworkingTask extends AbstractTask {
       list, 0, 1);
   public final static Function<List<DataPoint[]>, Integer> SIZE_OVERLAP = SpectralNetworkingTask::calcOverlap;
   private static final Logger logger = Logger.getLogger(SpectralNetworkingTask.class.getName());
+  // create the relationships of edges that are stored only with their cosine
+  private static final R2RGraph.EdgeFactory<RowsRelationship> COSINE_EDGES = //
+      (a, b, cosine) -> new R2RSpectralSimilarity(a, b, Type.MS2_COSINE_SIM, cosine);
+  private static final R2RGraph.EdgeFactory<RowsRelationship> NEUTRAL_LOSS_EDGES = //
+      (a, b, cosine) -> new R2RSpectralSimilarity(a, b, Type.MS2_NEUTRAL_LOSS_SIM, cosine);
   // Logger.
   private final AtomicLong processedPairs = new AtomicLong(0);
   private final int minMatch;
@@ -358,30 +364,35 @@ public class SpectralNetworkingTask extends AbstractTask {
   public void run() {
     setStatus(TaskStatus.PROCESSING);
 
-    final R2RMap<RowsRelationship> mapCosineSim = new R2RMap<>();
-    final R2RMap<RowsRelationship> mapNeutralLoss = new R2RMap<>();
+    // edges are appended concurrently and frozen into compact graphs
+    final R2RGraph.Builder<RowsRelationship> mapCosineSim = new R2RGraph.Builder<>(
+        COSINE_EDGES);
+    final R2RGraph.Builder<RowsRelationship> mapNeutralLoss = new R2RGraph.Builder<>(
+        NEUTRAL_LOSS_EDGES);
     try {
       if (onlyBestMS2Scan) {
         checkRowsBestMs2(mapCosineSim, mapNeutralLoss, rows);
       } else {
         checkAllFeatures(mapCosineSim, mapNeutralLoss, rows);
       }
+      final R2RGraph<RowsRelationship> cosineGraph = mapCosineSim.build();
+      final R2RGraph<RowsRelationship> neutralLossGraph = mapNeutralLoss.build();
       logger.info(MessageFormat.format(
           "MS2 similarity check on rows done. MS2 modified cosine similarity edges={0}, MS2 neutral loss edges={1}",
-          mapCosineSim.size(), mapNeutralLoss.size()));
+          cosineGraph.size(), neutralLossGraph.size()));
 
       if (featureList != null) {
         R2RNetworkingMaps rowMaps = featureList.getRowMaps();
-        rowMaps.addAllRowsRelationships(mapCosineSim, Type.MS2_COSINE_SIM);
-        rowMaps.addAllRowsRelationships(mapNeutralLoss, Type.MS2_NEUTRAL_LOSS_SIM);
+        rowMaps.addAllRowsRelationships(cosineGraph, Type.MS2_COSINE_SIM);
+        rowMaps.addAllRowsRelationships(neutralLossGraph, Type.MS2_NEUTRAL_LOSS_SIM);
 
         addNetworkStatisticsToRows();
       }
 
-      logger.info("Added %d edges for %s".formatted(mapCosineSim.size(), Type.MS2_COSINE_SIM));
+      logger.info("Added %d edges for %s".formatted(cosineGraph.size(), Type.MS2_COSINE_SIM));
       if (checkNeutralLoss) {
         logger.info(
-            "Added %d edges for %s".formatted(mapNeutralLoss.size(), Type.MS2_NEUTRAL_LOSS_SIM));
+            "Added %d edges for %s".formatted(neutralLossGraph.size(), Type.MS2_NEUTRAL_LOSS_SIM));
       }
 
       if (featureList != null) {
@@ -438,21 +449,32 @@ public class SpectralNetworkingTask extends AbstractTask {
    * @param mapNeutralLoss map for all neutral loss MS2 edges
    * @param rows           match rows
    */
-  public void checkRowsBestMs2(R2RMap<RowsRelationship> mapSimilarity,
-      R2RMap<RowsRelationship> mapNeutralLoss, List<FeatureListRow> rows)
+  public void checkRowsBestMs2(R2RGraph.Builder<RowsRelationship> mapSimilarity,
+      R2RGraph.Builder<RowsRelationship> mapNeutralLoss, List<FeatureListRow> rows)
       throws MissingMassListException {
     List<FilteredRowData> filteredRows = prepareRowBestSpectrum(rows);
     final int numRows = filteredRows.size();
     totalMaxPairs = Combinatorics.uniquePairs(filteredRows);
     logger.log(Level.INFO, MessageFormat.format("Checking MS2 similarity on {0} rows", numRows));
 
-    long comparedPairs = StreamUtils.processPairs(filteredRows, this::isCanceled, true, //
-        (first, later) -> maxMzDelta < later.row.getAverageMZ() - first.row.getAverageMZ(), //
-        pair -> {
-          // the actual processing
-          checkSpectralPair(pair.left(), pair.right(), mapSimilarity, mapNeutralLoss);
-          processedPairs.incrementAndGet();
-        });
+    if (minMatch < 1) {
+      // pruning requires at least one matched signal - fall back to all pairs
+      long comparedPairs = StreamUtils.processPairs(filteredRows, this::isCanceled, true, //
+          (first, later) -> maxMzDelta < later.row.getAverageMZ() - first.row.getAverageMZ(), //
+          pair -> {
+            // the actual processing
+            checkSpectralPair(pair.left(), pair.right(), mapSimilarity, mapNeutralLoss);
+            processedPairs.incrementAndGet();
+          });
+      logger.info(
+          "Spectral networking: Performed %d pairwise comparisons.".formatted(comparedPairs));
+      return;
+    }
+
+    long comparedPairs = checkCandidatePairs(filteredRows, mapSimilarity, mapNeutralLoss);
+    logger.info(
+        "Spectral networking: Performed %d pairwise comparisons after candidate pruning of %d possible pairs.".formatted(
+            comparedPairs, totalMaxPairs));
 
     // try map multi for all pairs
 //    long comparedPairs = IntStream.range(0, numRows - 1).boxed()
@@ -478,12 +500,95 @@ public class SpectralNetworkingTask extends AbstractTask {
 //          processedPairs.incrementAndGet();
 //          return 1;
 //        }).sum();
+  }
+
+  /**
+   * Only aligns the spectra of row pairs that may still reach the minimum number of matched signals
+   * and the minimum cosine similarity. Candidates are found by {@link SpectralNetworkingCandidateIndex}
+   * and the resulting edges are the same as comparing all pairs.
+   *
+   * @param filteredRows rows sorted by m/z with filtered data
+   * @return the number of aligned pairs
+   */
+  private long checkCandidatePairs(final List<FilteredRowData> filteredRows,
+      final R2RGraph.Builder<RowsRelationship> mapSimilarity,
+      final R2RGraph.Builder<RowsRelationship> mapNeutralLoss) {
+    final int numRows = filteredRows.size();
+    if (numRows < 2) {
+      return 0;
+    }
+    final List<DataPoint[]> spectra = filteredRows.stream().map(FilteredRowData::data).toList();
+    // same precursor m/z as used for the modified cosine in checkR2RMs2Similarity
+    final double[] precursorMzs = filteredRows.stream().mapToDouble(r -> r.row().getAverageMZ())
+        .toArray();
+    final SpectralNetworkingCandidateIndex cosineIndex = new SpectralNetworkingCandidateIndex(
+        spectra, precursorMzs, mzTolerance, Weights.SQRT);
+
+    // neutral loss similarity is calculated on all m/z differences within each spectrum
+    final List<DataPoint[]> massDiffs;
+    final SpectralNetworkingCandidateIndex neutralLossIndex;
+    if (checkNeutralLoss) {
+      massDiffs = spectra.parallelStream()
+          .map(dps -> ScanMZDiffConverter.getAllMZDiff(dps, mzTolerance, -1, maxDPForDiff))
+          .toList();
+      neutralLossIndex = new SpectralNetworkingCandidateIndex(massDiffs, null, mzTolerance,
+          Weights.SQRT);
+    } else {
+      massDiffs = null;
+      neutralLossIndex = null;
+    }
 
-    logger.info("Spectral networking: Performed %d pairwise comparisons.".formatted(comparedPairs));
+    // last row index within the maximum m/z delta (rows are sorted by m/z)
+    final int[] lastTarget = new int[numRows];
+    for (int i = 0, last = 0; i < numRows; i++) {
+      final double mz = precursorMzs[i];
+      last = Math.max(last, i);
+      while (last + 1 < numRows && precursorMzs[last + 1] - mz <= maxMzDelta) {
+        last++;
+      }
+      lastTarget[i] = last;
+    }
+
+    // interleaved chunks balance the load as the first rows have more targets
+    final int numChunks = Math.min(numRows, Runtime.getRuntime().availableProcessors() * 16);
+    final AtomicLong comparedPairs = new AtomicLong(0);
+    IntStream.range(0, numChunks).parallel().forEach(chunk -> {
+      final var cosineScratch = cosineIndex.createScratch();
+      final var neutralLossScratch =
+          neutralLossIndex != null ? neutralLossIndex.createScratch() : null;
+
+      for (int i = chunk; i < numRows && !isCanceled(); i += numChunks) {
+        final FilteredRowData a = filteredRows.get(i);
+        final IntArrayList cosineCandidates = cosineIndex.findCandidates(i, lastTarget[i],
+            minMatch, minCosineSimilarity, cosineScratch);
+        for (int c = 0; c < cosineCandidates.size(); c++) {
+          final FilteredRowData b = filteredRows.get(cosineCandidates.getInt(c));
+          checkR2RMs2Similarity(mapSimilarity, a.row(), b.row(), a.data(), b.data(),
+              Type.MS2_COSINE_SIM);
+        }
+        long compared = cosineCandidates.size();
+
+        if (neutralLossIndex != null) {
+          final IntArrayList lossCandidates = neutralLossIndex.findCandidates(i, lastTarget[i],
+              minMatch, minCosineSimilarity, neutralLossScratch);
+          for (int c = 0; c < lossCandidates.size(); c++) {
+            final int j = lossCandidates.getInt(c);
+            checkR2RMs2Similarity(mapNeutralLoss, a.row(), filteredRows.get(j).row(),
+                massDiffs.get(i), massDiffs.get(j), Type.MS2_NEUTRAL_LOSS_SIM);
+          }
+          compared += lossCandidates.size();
+        }
+        comparedPairs.addAndGet(compared);
+        // all pairs of this row are done, even if they were pruned
+        processedPairs.addAndGet(numRows - 1 - i);
+      }
+    });
+    return comparedPairs.get();
   }
 
   private boolean checkSpectralPair(final FilteredRowData a, final FilteredRowData b,
-      final R2RMap<RowsRelationship> mapSimilarity, final R2RMap<RowsRelationship> mapNeutralLoss) {
+      final R2RGraph.Builder<RowsRelationship> mapSimilarity,
+      final R2RGraph.Builder<RowsRelationship> mapNeutralLoss) {
     boolean result = checkR2RMs2Similarity(mapSimilarity, a.row(), b.row(), a.data(), b.data(),
         Type.MS2_COSINE_SIM);
 
@@ -525,8 +630,8 @@ public class SpectralNetworkingTask extends AbstractTask {
    * @param mapNeutralLoss map for all neutral loss MS2 edges
    * @param rows           match rows
    */
-  public void checkAllFeatures(R2RMap<RowsRelationship> mapSimilarity,
-      R2RMap<RowsRelationship> mapNeutralLoss, List<FeatureListRow> rows)
+  public void checkAllFeatures(R2RGraph.Builder<RowsRelationship> mapSimilarity,
+      R2RGraph.Builder<RowsRelationship> mapNeutralLoss, List<FeatureListRow> rows)
       throws MissingMassListException {
     // prefilter rows: has MS2 and in case only best MS2 is considered - check minDP
     // and prepare data points
@@ -574,8 +679,9 @@ public class SpectralNetworkingTask extends AbstractTask {
   }
 
   private void checkR2RAllFeaturesMs2Similarity(Map<Feature, FilteredRowData> mapFeatureData,
-      FeatureListRow a, FeatureListRow b, final R2RMap<RowsRelationship> mapSimilarity,
-      final R2RMap<RowsRelationship> mapNeutralLoss) {
+      FeatureListRow a, FeatureListRow b,
+      final R2RGraph.Builder<RowsRelationship> mapSimilarity,
+      final R2RGraph.Builder<RowsRelationship> mapNeutralLoss) {
 
     R2RSpectralSimilarityList cosineSim = new R2RSpectralSimilarityList(a, b, Type.MS2_COSINE_SIM);
     R2RSpectralSimilarityList neutralLossSim =
@@ -619,10 +725,14 @@ public class SpectralNetworkingTask extends AbstractTask {
     }
 
     if (checkNeutralLoss && neutralLossSim.size() > 0) {
-      mapNeutralLoss.add(a, b, neutralLossSim);
+      synchronized (mapNeutralLoss) {
+        mapNeutralLoss.add(a, b, neutralLossSim);
+      }
     }
     if (cosineSim.size() > 0) {
-      mapSimilarity.add(a, b, cosineSim);
+      synchronized (mapSimilarity) {
+        mapSimilarity.add(a, b, cosineSim);
+      }
     }
   }
 
@@ -681,8 +791,8 @@ public class SpectralNetworkingTask extends AbstractTask {
    * @param b             row b
    * @param simType       similarity type
    */
-  public boolean checkR2RMs2Similarity(R2RMap<RowsRelationship> mapSimilarity, FeatureListRow a,
-      FeatureListRow b, DataPoint[] sortedA, DataPoint[] sortedB, Type simType) {
+  public boolean checkR2RMs2Similarity(R2RGraph.Builder<RowsRelationship> mapSimilarity,
+      FeatureListRow a, FeatureListRow b, DataPoint[] sortedA, DataPoint[] sortedB, Type simType) {
     // align and check spectra
     SpectralSimilarity spectralSim =
         simType == Type.MS2_NEUTRAL_LOSS_SIM ? createMS2Sim(mzTolerance, sortedA, sortedB, minMatch,
@@ -691,8 +801,10 @@ public class SpectralNetworkingTask extends AbstractTask {
                 a.getAverageMZ(), b.getAverageMZ());
 
     if (spectralSim != null && spectralSim.cosine() >= minCosineSimilarity) {
-      var r2r = new R2RSpectralSimilarity(a, b, simType, spectralSim);
-      mapSimilarity.add(a, b, r2r);
+      // only the cosine is kept, the relationship is created by the edge factory on access
+      synchronized (mapSimilarity) {
+        mapSimilarity.add(a, b, (float) spectralSim.cosine());
+      }
       return true;
     }
     return false;
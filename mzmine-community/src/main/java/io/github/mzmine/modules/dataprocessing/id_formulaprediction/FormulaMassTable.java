@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.id_formulaprediction;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.elements.ElementalHeuristicChecker;
+import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.rdbe.RDBERestrictionChecker;
+import io.github.mzmine.util.collections.BinarySearch;
+import io.github.mzmine.util.collections.IndexRange;
+import it.unimi.dsi.fastutil.bytes.ByteArrayList;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.openscience.cdk.formula.MolecularFormulaGenerator;
+import org.openscience.cdk.formula.MolecularFormulaRange;
+import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.interfaces.IIsotope;
+import org.openscience.cdk.interfaces.IMolecularFormula;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+
+/**
+ * Candidate formulas of an element range, enumerated once and stored as primitive columns sorted
+ * by exact (neutral) mass. Many rows of a feature list share the same element constraints, so the
+ * formulas are only generated once for the union of all searched mass windows and each row then
+ * uses a binary search on the table. The RDBE and the elemental ratio heuristics of
+ * {@link ElementalHeuristicChecker} are precomputed for every entry.
+ * <p>
+ * The table is immutable after creation and can be queried by multiple threads.
+ */
+public class FormulaMassTable {
+
+  public static final byte PASSES_HC = 1;
+  public static final byte PASSES_NOPS = 1 << 1;
+  public static final byte PASSES_MULTIPLE = 1 << 2;
+
+  private static final Logger logger = Logger.getLogger(FormulaMassTable.class.getName());
+
+  private final IIsotope[] isotopes;
+  private final double[] masses;
+  // NaN if the RDBE is undefined for the elements of the formula
+  private final float[] rdbes;
+  private final byte[] heuristics;
+  // isotopes.length counts per entry
+  private final int[] counts;
+
+  private FormulaMassTable(IIsotope[] isotopes, double[] masses, float[] rdbes,
+      byte[] heuristics, int[] counts) {
+    this.isotopes = isotopes;
+    this.masses = masses;
+    this.rdbes = rdbes;
+    this.heuristics = heuristics;
+    this.counts = counts;
+  }
+
+  /**
+   * Enumerates all formulas within the union of the mass windows. Overlapping windows are merged,
+   * so that each formula is only generated once.
+   *
+   * @param elements    the element constraints
+   * @param massWindows the neutral mass windows, e.g., one per feature list row
+   * @param isCanceled  checked during the enumeration, may be null
+   * @return the table or null if the enumeration was canceled
+   */
+  @Nullable
+  public static FormulaMassTable create(@NotNull MolecularFormulaRange elements,
+      @NotNull List<Range<Double>> massWindows, @Nullable BooleanSupplier isCanceled) {
+    return create(elements, massWindows, isCanceled, null);
+  }
+
+  /**
+   * Enumerates all formulas within the union of the mass windows. Overlapping windows are merged,
+   * so that each formula is only generated once.
+   *
+   * @param elements         the element constraints
+   * @param massWindows      the neutral mass windows, e.g., one per feature list row
+   * @param isCanceled       checked during the enumeration, may be null
+   * @param activeGenerators the generator is added to this collection while it is running, so that
+   *                         it can be canceled while it searches for the next formula. May be
+   *                         null.
+   * @return the table or null if the enumeration was canceled
+   */
+  @Nullable
+  public static FormulaMassTable create(@NotNull MolecularFormulaRange elements,
+      @NotNull List<Range<Double>> massWindows, @Nullable BooleanSupplier isCanceled,
+      @Nullable Collection<MolecularFormulaGenerator> activeGenerators) {
+    final IIsotope[] isotopes = new IIsotope[elements.getIsotopeCount()];
+    int n = 0;
+    for (IIsotope isotope : elements.isotopes()) {
+      isotopes[n++] = isotope;
+    }
+
+    final IChemObjectBuilder builder = SilentChemObjectBuilder.getInstance();
+    final DoubleArrayList masses = new DoubleArrayList();
+    final FloatArrayList rdbes = new FloatArrayList();
+    final ByteArrayList heuristics = new ByteArrayList();
+    final IntArrayList counts = new IntArrayList();
+    final int[] entryCounts = new int[isotopes.length];
+
+    for (Range<Double> window : mergeWindows(massWindows)) {
+      final MolecularFormulaGenerator generator = new MolecularFormulaGenerator(builder,
+          window.lowerEndpoint(), window.upperEndpoint(), elements);
+      if (activeGenerators != null) {
+        activeGenerators.add(generator);
+      }
+      try {
+        IMolecularFormula formula;
+        while ((formula = generator.getNextFormula()) != null) {
+          if (isCanceled != null && isCanceled.getAsBoolean()) {
+            generator.cancel();
+            return null;
+          }
+
+          double mass = 0;
+          for (int i = 0; i < isotopes.length; i++) {
+            entryCounts[i] = formula.getIsotopeCount(isotopes[i]);
+            mass += entryCounts[i] * isotopes[i].getExactMass();
+          }
+          masses.add(mass);
+          counts.addElements(counts.size(), entryCounts);
+
+          final Double rdbe = RDBERestrictionChecker.calculateRDBE(formula);
+          rdbes.add(rdbe == null ? Float.NaN : rdbe.floatValue());
+          heuristics.add(checkHeuristics(formula));
+        }
+      } finally {
+        if (activeGenerators != null) {
+          activeGenerators.remove(generator);
+        }
+      }
+      // a canceled generator stops without formula
+      if (isCanceled != null && isCanceled.getAsBoolean()) {
+        return null;
+      }
+    }
+
+    // sort all columns by mass
+    final int size = masses.size();
+    final int[] order = new int[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = i;
+    }
+    IntArrays.quickSort(order, (a, b) -> Double.compare(masses.getDouble(a), masses.getDouble(b)));
+
+    final double[] sortedMasses = new double[size];
+    final float[] sortedRdbes = new float[size];
+    final byte[] sortedHeuristics = new byte[size];
+    final int[] sortedCounts = new int[size * isotopes.length];
+    for (int i = 0; i < size; i++) {
+      final int source = order[i];
+      sortedMasses[i] = masses.getDouble(source);
+      sortedRdbes[i] = rdbes.getFloat(source);
+      sortedHeuristics[i] = heuristics.getByte(source);
+      counts.getElements(source * isotopes.length, sortedCounts, i * isotopes.length,
+          isotopes.length);
+    }
+
+    logger.finest(
+        "Enumerated " + size + " candidate formulas in " + massWindows.size() + " mass windows");
+    return new FormulaMassTable(isotopes, sortedMasses, sortedRdbes, sortedHeuristics,
+        sortedCounts);
+  }
+
+  /**
+   * @return the union of the windows as a list of non-overlapping ranges sorted by mass
+   */
+  @NotNull
+  public static List<Range<Double>> mergeWindows(@NotNull List<Range<Double>> massWindows) {
+    final List<Range<Double>> sorted = new ArrayList<>(massWindows);
+    sorted.sort(Comparator.comparingDouble(Range::lowerEndpoint));
+
+    final List<Range<Double>> merged = new ArrayList<>();
+    Range<Double> current = null;
+    for (Range<Double> window : sorted) {
+      if (current != null && window.lowerEndpoint() <= current.upperEndpoint()) {
+        current = current.span(window);
+      } else {
+        if (current != null) {
+          merged.add(current);
+        }
+        current = window;
+      }
+    }
+    if (current != null) {
+      merged.add(current);
+    }
+    return merged;
+  }
+
+  private static byte checkHeuristics(IMolecularFormula formula) {
+    byte flags = 0;
+    if (ElementalHeuristicChecker.checkFormula(formula, true, false, false)) {
+      flags |= PASSES_HC;
+    }
+    if (ElementalHeuristicChecker.checkFormula(formula, false, true, false)) {
+      flags |= PASSES_NOPS;
+    }
+    if (ElementalHeuristicChecker.checkFormula(formula, false, false, true)) {
+      flags |= PASSES_MULTIPLE;
+    }
+    return flags;
+  }
+
+  /**
+   * @param massRange neutral mass range, both bounds are included
+   * @return the indices of all formulas within the mass range, may be empty
+   */
+  @NotNull
+  public IndexRange indexRange(@NotNull Range<Double> massRange) {
+    return BinarySearch.indexRange(masses, massRange.lowerEndpoint(), massRange.upperEndpoint());
+  }
+
+  public int size() {
+    return masses.length;
+  }
+
+  public double getMass(int index) {
+    return masses[index];
+  }
+
+  /**
+   * @return the RDBE or NaN if it is not defined for the elements of this formula
+   */
+  public float getRDBE(int index) {
+    return rdbes[index];
+  }
+
+  /**
+   * Same result as {@link ElementalHeuristicChecker#checkFormula(IMolecularFormula, boolean,
+   * boolean, boolean)} without creating the formula.
+   */
+  public boolean checkHeuristics(int index, boolean checkHC, boolean checkNOPS,
+      boolean checkMultiple) {
+    final byte flags = heuristics[index];
+    return (!checkHC || (flags & PASSES_HC) != 0) && (!checkNOPS || (flags & PASSES_NOPS) != 0)
+        && (!checkMultiple || (flags & PASSES_MULTIPLE) != 0);
+  }
+
+  /**
+   * @return a new formula instance for the entry at index
+   */
+  @NotNull
+  public IMolecularFormula getFormula(int index) {
+    final IMolecularFormula formula = SilentChemObjectBuilder.getInstance()
+        .newInstance(IMolecularFormula.class);
+    final int offset = index * isotopes.length;
+    for (int i = 0; i < isotopes.length; i++) {
+      if (counts[offset + i] > 0) {
+        formula.addIsotope(isotopes[i], counts[offset + i]);
+      }
+    }
+    return formula;
+  }
+}
@@ -24,6 +24,7 @@
  */
 package io.github.mzmine.modules.dataprocessing.id_formulapredictionfeaturelist;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.IonizationType;
@@ -34,10 +35,9 @@ import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.datamodel.features.types.DataTypes;
-import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.dataprocessing.id_formula_sort.FormulaSortParameters;
+import io.github.mzmine.modules.dataprocessing.id_formulaprediction.FormulaMassTable;
 import io.github.mzmine.modules.dataprocessing.id_formulaprediction.ResultFormula;
-import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.elements.ElementalHeuristicChecker;
 import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.elements.ElementalHeuristicParameters;
 import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.rdbe.RDBERestrictionChecker;
 import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.rdbe.RDBERestrictionParameters;
@@ -52,20 +52,28 @@ import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.FormulaUtils;
+import io.github.mzmine.util.collections.IndexRange;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.openscience.cdk.formula.MolecularFormulaGenerator;
 import org.openscience.cdk.formula.MolecularFormulaRange;
-import org.openscience.cdk.interfaces.IChemObjectBuilder;
 import org.openscience.cdk.interfaces.IMolecularFormula;
-import org.openscience.cdk.silent.SilentChemObjectBuilder;
 
 public class FormulaPredictionFeatureListTask extends AbstractTask {
 
+  /**
+   * Maximum number of rows with neighbouring masses that share one {@link FormulaMassTable}
+   */
+  private static final int ROWS_PER_FORMULA_TABLE = 32;
+
   private final Logger logger = Logger.getLogger(this.getClass().getName());
   private final MolecularFormulaRange elementCounts;
   private final Double minIsotopeScore;
@@ -85,10 +93,9 @@ public class FormulaPredictionFeatureListTask extends AbstractTask {
   private float sortPPMFactor;
   private float sortMSMSFactor;
   private float sortIsotopeFactor;
-  private MolecularFormulaGenerator generator;
+  private final AtomicInteger finishedRows = new AtomicInteger(0);
   private String message;
-  private int totalRows, finishedRows;
-  private List<ResultFormula> resultingFormulas;
+  private int totalRows;
   private Range<Double> rdbeRange;
   private Boolean rdbeIsInteger;
   private Boolean checkHCRatio;
@@ -97,6 +104,8 @@ public class FormulaPredictionFeatureListTask extends AbstractTask {
   private Double msmsMinScore;
   private int topNmsmsSignals;
   private MZTolerance msmsMzTolerance;
+  // generators that are currently enumerating formulas, canceled with this task
+  private final Set<MolecularFormulaGenerator> activeGenerators = ConcurrentHashMap.newKeySet();
 
   /**
    * @param parameters
@@ -184,7 +193,7 @@ public class FormulaPredictionFeatureListTask extends AbstractTask {
     if (totalRows == 0) {
       return 0.0;
     }
-    return (double) finishedRows / (double) totalRows;
+    return (double) finishedRows.get() / (double) totalRows;
   }
 
   @Override
@@ -197,100 +206,110 @@ public class FormulaPredictionFeatureListTask extends AbstractTask {
 
     setStatus(TaskStatus.PROCESSING);
 
-    totalRows = featureList.getNumberOfRows();
-
     featureList.addRowType(DataTypes.get(
         io.github.mzmine.datamodel.features.types.annotations.formula.FormulaListType.class));
 
-    for (FeatureListRow row : featureList.getRows()) {
-
-      if (row.getPeakIdentities().size() > 0) {
-        continue;
+    final List<FeatureListRow> rows = featureList.getRows().stream()
+        .filter(row -> row.getPeakIdentities().isEmpty()).toList();
+    totalRows = rows.size();
+
+    // all rows share the same element constraints. Neighbouring rows are batched, so that
+    // overlapping mass windows are only enumerated once. The table of a batch is released after
+    // its rows are scored, which bounds the memory to the batches in progress.
+    message = "Formula prediction for " + totalRows + " rows";
+    final List<FeatureListRow> sortedRows = rows.stream()
+        .sorted(Comparator.comparingDouble(this::getSearchedMass)).toList();
+    // smaller batches for small feature lists to use all threads
+    final int batchSize = Math.clamp(
+        Math.ceilDiv(totalRows, Runtime.getRuntime().availableProcessors()), 1,
+        ROWS_PER_FORMULA_TABLE);
+    Lists.partition(sortedRows, batchSize).parallelStream().forEach(batch -> {
+      if (isCanceled() || getStatus() == TaskStatus.ERROR) {
+        return;
       }
-      this.resultingFormulas = new ArrayList<>();
-
-      double searchedMass = (row.getAverageMZ() - ionType.getAddedMass()) * charge;
+      final List<Range<Double>> massWindows = batch.stream()
+          .map(row -> mzTolerance.getToleranceRange(getSearchedMass(row))).toList();
+      final FormulaMassTable formulaTable = FormulaMassTable.create(elementCounts, massWindows,
+          this::isCanceled, activeGenerators);
+      if (formulaTable == null) {
+        return;
+      }
+      for (final FeatureListRow row : batch) {
+        if (isCanceled() || getStatus() == TaskStatus.ERROR) {
+          return;
+        }
+        predictFormulas(formulaTable, row);
+        finishedRows.incrementAndGet();
+      }
+    });
 
-      message = "Formula prediction for " + MZmineCore.getConfiguration().getMZFormat()
-          .format(searchedMass);
+    if (isCanceled() || getStatus() == TaskStatus.ERROR) {
+      return;
+    }
 
-      Range<Double> massRange = mzTolerance.getToleranceRange(searchedMass);
+    featureList.getAppliedMethods().add(
+        new SimpleFeatureListAppliedMethod(FormulaPredictionFeatureListModule.class, parameters,
+            getModuleCallDate()));
 
-      IChemObjectBuilder builder = SilentChemObjectBuilder.getInstance();
-      generator = new MolecularFormulaGenerator(builder, massRange.lowerEndpoint(),
-          massRange.upperEndpoint(), elementCounts);
+    logger.finest("Finished formula search for all the features");
 
-      IMolecularFormula cdkFormula;
+    setStatus(TaskStatus.FINISHED);
 
-      // create a map to store ResultFormula and relative mass deviation
-      // for sorting
-      while ((cdkFormula = generator.getNextFormula()) != null) {
-        // Mass is ok, so test other constraints
-        ResultFormula molf = checkConstraints(cdkFormula, row, searchedMass);
+  }
 
-        if (isCanceled() || getStatus().equals(TaskStatus.ERROR)) {
-          return;
-        }
+  private double getSearchedMass(FeatureListRow row) {
+    return (row.getAverageMZ() - ionType.getAddedMass()) * charge;
+  }
 
-        if (molf != null) {
-          resultingFormulas.add(molf);
-        }
-      }
+  private void predictFormulas(FormulaMassTable formulaTable, FeatureListRow row) {
+    final double searchedMass = getSearchedMass(row);
+    final IndexRange candidates = formulaTable.indexRange(
+        mzTolerance.getToleranceRange(searchedMass));
+    if (candidates.isEmpty()) {
+      return;
+    }
 
-      if (isCanceled()) {
+    final List<ResultFormula> resultingFormulas = new ArrayList<>();
+    for (int i = candidates.min(); i < candidates.maxExclusive(); i++) {
+      if (isCanceled() || getStatus() == TaskStatus.ERROR) {
         return;
       }
-
-
-      // Add the new formula entry top results
-      if (!resultingFormulas.isEmpty()) {
-        FormulaUtils.sortFormulaList(resultingFormulas, sortPPMFactor, sortIsotopeFactor,
-            sortMSMSFactor);
-        row.setFormulas(resultingFormulas.subList(0,
-            Math.min(resultingFormulas.size(), maxBestFormulasPerFeature)));
+      // precomputed heuristics are checked before the formula is created
+      if (checkRatios && !formulaTable.checkHeuristics(i, checkHCRatio, checkNOPSRatio,
+          checkMultipleRatios)) {
+        continue;
+      }
+      final float rdbeValue = formulaTable.getRDBE(i);
+      if (checkRDBE && !Float.isNaN(rdbeValue) && !RDBERestrictionChecker.checkRDBE(rdbeValue,
+          rdbeRange, rdbeIsInteger)) {
+        continue;
       }
 
-      if (isCanceled()) {
-        return;
+      ResultFormula molf = checkConstraints(formulaTable.getFormula(i), row, searchedMass);
+      if (molf != null) {
+        resultingFormulas.add(molf);
       }
-      finishedRows++;
     }
 
-    if (isCanceled()) {
-      return;
+    // Add the new formula entry top results
+    if (!resultingFormulas.isEmpty()) {
+      FormulaUtils.sortFormulaList(resultingFormulas, sortPPMFactor, sortIsotopeFactor,
+          sortMSMSFactor);
+      row.setFormulas(resultingFormulas.subList(0,
+          Math.min(resultingFormulas.size(), maxBestFormulasPerFeature)));
     }
-
-    featureList.getAppliedMethods().add(
-        new SimpleFeatureListAppliedMethod(FormulaPredictionFeatureListModule.class, parameters,
-            getModuleCallDate()));
-
-    logger.finest("Finished formula search for all the features");
-
-    setStatus(TaskStatus.FINISHED);
-
   }
 
   /**
+   * Checks the isotope pattern and MS/MS constraints. The elemental ratios and RDBE are checked on
+   * the precomputed {@link FormulaMassTable} before.
+   *
    * @param cdkFormula
    * @return null if molecular formula does not match requirements
    */
   private ResultFormula checkConstraints(IMolecularFormula cdkFormula, FeatureListRow peakListRow,
       double searchedMass) {
 
-    // Check elemental ratios
-    if (checkRatios && !ElementalHeuristicChecker.checkFormula(cdkFormula, checkHCRatio,
-        checkNOPSRatio, checkMultipleRatios)) {
-      return null;
-    }
-
-    Double rdbeValue = RDBERestrictionChecker.calculateRDBE(cdkFormula);
-
-    // Check RDBE condition
-    if (checkRDBE && (rdbeValue != null) && !RDBERestrictionChecker.checkRDBE(rdbeValue, rdbeRange,
-        rdbeIsInteger)) {
-      return null;
-    }
-
     // Calculate isotope similarity score
     IsotopePattern detectedPattern = peakListRow.getBestIsotopePattern();
     IsotopePattern predictedIsotopePattern = null;
@@ -356,11 +375,8 @@ public class FormulaPredictionFeatureListTask extends AbstractTask {
   public void cancel() {
     super.cancel();
 
-    // We need to cancel the formula generator, because searching for next
-    // candidate formula may take a looong time
-    if (generator != null) {
-      generator.cancel();
-    }
-
+    // We need to cancel the formula generators, because searching for next candidate formula may
+    // take a looong time
+    activeGenerators.forEach(MolecularFormulaGenerator::cancel);
   }
 }
@@ -31,7 +31,7 @@ import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.ModularFeatureListRow;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.datamodel.features.correlation.R2RMS2CosineSimilarityGNPS;
-import io.github.mzmine.datamodel.features.correlation.R2RMap;
+import io.github.mzmine.datamodel.features.correlation.R2RGraph;
 import io.github.mzmine.datamodel.features.correlation.RowsRelationship.Type;
 import io.github.mzmine.datamodel.features.types.annotations.GNPSSpectralLibraryMatchesType;
 import io.github.mzmine.modules.dataprocessing.id_gnpsresultsimport.GNPSLibraryMatch.ATT;
@@ -213,7 +213,7 @@ public class GNPSResultsImportTask extends AbstractTask {
    * @param graph the FBMN or IIMN network from GNPS
    */
   private void importNetworkEdges(Graph graph) {
-    final R2RMap<R2RMS2CosineSimilarityGNPS> gnpsEdges = new R2RMap<>();
+    final R2RGraph.Builder<R2RMS2CosineSimilarityGNPS> gnpsEdges = new R2RGraph.Builder<>();
     graph.edges().forEach(edge -> {
       Node nodeA = edge.getNode0();
       Node nodeB = edge.getNode1();
@@ -230,7 +230,8 @@ public class GNPSResultsImportTask extends AbstractTask {
       }
     });
     // add all edges to feature list
-    featureList.getRowMaps().addAllRowsRelationships(gnpsEdges, Type.MS2_GNPS_COSINE_SIM);
+    featureList.getRowMaps()
+        .addAllRowsRelationships(gnpsEdges.build(), Type.MS2_GNPS_COSINE_SIM);
   }
 
   /**
@@ -25,7 +25,6 @@
 
 package io.github.mzmine.modules.dataprocessing.id_lipidid.annotation_modules;
 
-import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.IonizationType;
 import io.github.mzmine.datamodel.PolarityType;
 import io.github.mzmine.datamodel.RawDataFile;
@@ -44,11 +43,9 @@ import io.github.mzmine.parameters.parametertypes.AdvancedParametersParameter;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
-import io.github.mzmine.util.collections.BinarySearch;
-import io.github.mzmine.util.collections.BinarySearch.DefaultTo;
+import io.github.mzmine.util.collections.IndexRange;
 import java.time.Instant;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -183,37 +180,34 @@ public class LipidAnnotationTask extends AbstractTask {
     totalSteps = rows.size();
     Set<PolarityType> polarityTypes = getPolarityTypes();
 
-    // build lipid species database
-    List<LipidIon> lipidDatabase = LipidAnnotationUtils.buildLipidDatabase(selectedLipids,
-        minChainLength, maxChainLength, minDoubleBonds, maxDoubleBonds, onlySearchForEvenChains,
-        ionizationTypesToIgnore, polarityTypes);
-    List<LipidIon> sortedLipidDatabase = lipidDatabase.stream()
-        .sorted(Comparator.comparingDouble(LipidIon::mz)).toList();
+    // build lipid species database or reuse it from previous tasks with the same parameters
+    final LipidDatabase lipidDatabase = LipidDatabase.getOrBuild(selectedLipids,
+        parameters.getParameter(LipidAnnotationParameters.lipidChainParameters)
+            .getEmbeddedParameters(), ionizationTypesToIgnore, polarityTypes);
 
     rows.parallelStream().forEach(row -> {
-      Range<Double> mzTolRange = mzTolerance.getToleranceRange(row.getAverageMZ());
-      double lowerEdge = mzTolRange.lowerEndpoint();
-      double upperEdge = mzTolRange.upperEndpoint();
-      int index = BinarySearch.binarySearch(lowerEdge, DefaultTo.GREATER_EQUALS,
-          sortedLipidDatabase.size(), i -> sortedLipidDatabase.get(i).mz());
-      if (index >= 0) {
-        for (int i = index; i < sortedLipidDatabase.size(); i++) {
-          if (isCanceled()) {
-            return;
-          }
-
-          LipidAnnotationUtils.findPossibleLipid(sortedLipidDatabase.get(i), row, parameters,
-              mzTolerance, mzToleranceMS2, searchForMSMSFragments, minMsMsScore,
-              keepUnconfirmedAnnotations,
-              sortedLipidDatabase.get(i).lipidAnnotation().getLipidClass().getCoreClass());
-
-          if (upperEdge < sortedLipidDatabase.get(i).mz()) {
-            break;
-          }
+      final IndexRange candidates = lipidDatabase.indexRange(
+          mzTolerance.getToleranceRange(row.getAverageMZ()));
+      if (candidates.isEmpty()) {
+        finishedSteps++;
+        return;
+      }
+      for (int i = candidates.min(); i < candidates.maxExclusive(); i++) {
+        if (isCanceled()) {
+          return;
         }
+
+        final int index = i;
+        final LipidIon lipidIon = lipidDatabase.getLipidIon(index);
+        LipidAnnotationUtils.findPossibleLipid(lipidIon,
+            () -> lipidDatabase.getTheoreticalFragments(index), row, mzTolerance, mzToleranceMS2,
+            searchForMSMSFragments, minMsMsScore, keepUnconfirmedAnnotations,
+            lipidIon.lipidAnnotation().getLipidClass().getCoreClass());
       }
       finishedSteps++;
     });
+    // keep the calculated fragments for the next annotation with the same parameters
+    lipidDatabase.saveCache();
 
     // Add task description to featureList
     (featureList).addDescriptionOfAppliedTask(
@@ -33,8 +33,8 @@ import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.types.annotations.LipidMatchListType;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.LipidFragmentationRule;
-import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation.ILipidFragmentFactory;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation.LipidFragmentFactory;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation.TheoreticalLipidFragments;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.matched_levels.MatchedLipid;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.matched_levels.molecular_species.GlyceroAndPhosphoMolecularSpeciesLevelMatchedLipidFactory;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.matched_levels.molecular_species.IMolecularSpeciesLevelMatchedLipidFactory;
@@ -63,6 +63,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.jetbrains.annotations.NotNull;
 import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
@@ -146,6 +147,26 @@ public class LipidAnnotationUtils {
       ParameterSet parameters, MZTolerance mzTolerance, MZTolerance mzToleranceMS2,
       boolean searchForMSMSFragments, double minMsMsScore, boolean keepUnconfirmedAnnotations,
       LipidCategories lipidCategory) {
+    final LipidAnnotationChainParameters chainParameters = parameters.getParameter(
+        LipidAnnotationParameters.lipidChainParameters).getEmbeddedParameters();
+    final LipidFragmentationRule[] rules = Objects.requireNonNullElse(
+        lipidIon.lipidAnnotation().getLipidClass().getFragmentationRules(),
+        new LipidFragmentationRule[0]);
+    findPossibleLipid(lipidIon,
+        () -> new LipidFragmentFactory(lipidIon.lipidAnnotation(), lipidIon.ionizationType(),
+            rules, chainParameters).calculateTheoreticalFragments(), row, mzTolerance,
+        mzToleranceMS2, searchForMSMSFragments, minMsMsScore, keepUnconfirmedAnnotations,
+        lipidCategory);
+  }
+
+  /**
+   * @param theoreticalFragments the precalculated MS2 fragments of the lipid ion, e.g., from the
+   *                             {@link LipidDatabase}. Only requested if there are fragment scans.
+   */
+  public static void findPossibleLipid(LipidIon lipidIon,
+      Supplier<TheoreticalLipidFragments> theoreticalFragments, FeatureListRow row,
+      MZTolerance mzTolerance, MZTolerance mzToleranceMS2, boolean searchForMSMSFragments,
+      double minMsMsScore, boolean keepUnconfirmedAnnotations, LipidCategories lipidCategory) {
     Set<MatchedLipid> possibleRowAnnotations = new HashSet<>();
 
     if (Objects.requireNonNull(row.getBestFeature().getRepresentativeScan()).getPolarity()
@@ -159,7 +180,7 @@ public class LipidAnnotationUtils {
         if (searchForMSMSFragments) {
           possibleRowAnnotations.addAll(
               searchMsmsFragments(row, lipidIon.ionizationType(), lipidIon.lipidAnnotation(),
-                  parameters, mzToleranceMS2, minMsMsScore, keepUnconfirmedAnnotations,
+                  theoreticalFragments, mzToleranceMS2, minMsMsScore, keepUnconfirmedAnnotations,
                   lipidCategory));
         } else {
 
@@ -180,9 +201,9 @@ public class LipidAnnotationUtils {
    * This method searches for MS/MS fragments. A mass list for MS2 scans will be used if present.
    */
   private static Set<MatchedLipid> searchMsmsFragments(FeatureListRow row,
-      IonizationType ionization, ILipidAnnotation lipid, ParameterSet parameters,
-      MZTolerance mzToleranceMS2, double minMsMsScore, boolean keepUnconfirmedAnnotations,
-      LipidCategories lipidCategory) {
+      IonizationType ionization, ILipidAnnotation lipid,
+      Supplier<TheoreticalLipidFragments> theoreticalFragments, MZTolerance mzToleranceMS2,
+      double minMsMsScore, boolean keepUnconfirmedAnnotations, LipidCategories lipidCategory) {
     Set<MatchedLipid> matchedLipids = new HashSet<>();
     LipidFragmentationRule[] rules = lipid.getLipidClass().getFragmentationRules();
     // Check if selected feature has MSMS spectra and LipidIdentity
@@ -197,11 +218,8 @@ public class LipidAnnotationUtils {
         dataPoints = msmsScan.getMassList().getDataPoints();
         Set<LipidFragment> annotatedFragments = new HashSet<>();
         if (rules != null && rules.length > 0) {
-          ILipidFragmentFactory lipidFragmentFactory = new LipidFragmentFactory(mzToleranceMS2,
-              lipid, ionization, rules, msmsScan,
-              parameters.getParameter(LipidAnnotationParameters.lipidChainParameters)
-                  .getEmbeddedParameters());
-          List<LipidFragment> annotatedFragmentsForDataPoint = lipidFragmentFactory.findLipidFragments();
+          List<LipidFragment> annotatedFragmentsForDataPoint = theoreticalFragments.get()
+              .matchFragments(msmsScan, mzToleranceMS2);
           if (annotatedFragmentsForDataPoint != null && !annotatedFragmentsForDataPoint.isEmpty()) {
             annotatedFragments.addAll(annotatedFragmentsForDataPoint);
           }
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.id_lipidid.annotation_modules;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.IonizationType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.LipidFragmentationRule;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation.LipidFragmentFactory;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation.TheoreticalLipidFragments;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.ILipidClass;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidIon;
+import io.github.mzmine.util.collections.BinarySearch;
+import io.github.mzmine.util.collections.IndexRange;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Lipid ions of the selected lipid classes and chain parameters sorted by m/z. The theoretical MS2
+ * fragments of each ion are calculated on first use and kept for all following rows and scans.
+ * <p>
+ * Databases are cached process-wide by their lipid classes and chain parameters so that repeated
+ * annotation tasks, e.g., in a batch on multiple feature lists, reuse the species and fragments.
+ * The calculated fragments are also stored in a {@link LipidDatabaseCache} file with
+ * {@link #saveCache()} and are loaded again for the same parameters after a restart.
+ */
+public class LipidDatabase {
+
+  private static final Logger logger = Logger.getLogger(LipidDatabase.class.getName());
+
+  /**
+   * only a few parameter combinations are used at the same time
+   */
+  private static final Cache<DatabaseKey, LipidDatabase> cache = CacheBuilder.newBuilder()
+      .maximumSize(4).softValues().build();
+
+  private final LipidIon[] ions;
+  private final double[] mzs;
+  private final LipidAnnotationChainParameters chainParameters;
+  private final AtomicReferenceArray<TheoreticalLipidFragments> fragments;
+  private final @Nullable LipidDatabaseCache fileCache;
+  // new fragments were calculated that are not in the file cache
+  private final AtomicBoolean modified = new AtomicBoolean(false);
+
+  private LipidDatabase(List<LipidIon> lipidIons,
+      LipidAnnotationChainParameters chainParameters, @Nullable LipidDatabaseCache fileCache) {
+    ions = lipidIons.stream().sorted(Comparator.comparingDouble(LipidIon::mz))
+        .toArray(LipidIon[]::new);
+    mzs = Arrays.stream(ions).mapToDouble(LipidIon::mz).toArray();
+    this.chainParameters = chainParameters;
+    fragments = new AtomicReferenceArray<>(ions.length);
+    this.fileCache = fileCache;
+    if (fileCache != null) {
+      fileCache.load(ions, mzs, fragments);
+    }
+  }
+
+  /**
+   * @param chainParameters the chain parameters are copied, as the fragments are calculated later
+   * @return the cached database or a new database for these parameters
+   */
+  @NotNull
+  public static LipidDatabase getOrBuild(@NotNull ILipidClass[] selectedLipids,
+      @NotNull LipidAnnotationChainParameters chainParameters,
+      @Nullable IonizationType[] ionizationTypesToIgnore,
+      @NotNull Set<PolarityType> polarityTypes) {
+    final int minChainLength = chainParameters.getValue(
+        LipidAnnotationChainParameters.minChainLength);
+    final int maxChainLength = chainParameters.getValue(
+        LipidAnnotationChainParameters.maxChainLength);
+    final int minDoubleBonds = chainParameters.getValue(LipidAnnotationChainParameters.minDBEs);
+    final int maxDoubleBonds = chainParameters.getValue(LipidAnnotationChainParameters.maxDBEs);
+    final boolean onlySearchForEvenChains = chainParameters.getValue(
+        LipidAnnotationChainParameters.onlySearchForEvenChainLength);
+
+    final DatabaseKey key = new DatabaseKey(List.of(selectedLipids), minChainLength,
+        maxChainLength, minDoubleBonds, maxDoubleBonds, onlySearchForEvenChains,
+        ionizationTypesToIgnore == null ? Set.of()
+            : Set.copyOf(Arrays.asList(ionizationTypesToIgnore)),
+        Set.copyOf(polarityTypes));
+
+    LipidDatabase database = cache.getIfPresent(key);
+    if (database == null) {
+      final List<LipidIon> lipidIons = LipidAnnotationUtils.buildLipidDatabase(selectedLipids,
+          minChainLength, maxChainLength, minDoubleBonds, maxDoubleBonds, onlySearchForEvenChains,
+          ionizationTypesToIgnore, polarityTypes);
+      database = new LipidDatabase(lipidIons,
+          (LipidAnnotationChainParameters) chainParameters.cloneParameterSet(),
+          LipidDatabaseCache.forDatabase(key.describe()));
+      cache.put(key, database);
+      logger.finest("Built lipid database with " + database.size() + " lipid ions");
+    }
+    return database;
+  }
+
+  /**
+   * @param mzRange both bounds are included
+   * @return indices of all lipid ions within the m/z range, may be empty
+   */
+  @NotNull
+  public IndexRange indexRange(@NotNull Range<Double> mzRange) {
+    return BinarySearch.indexRange(mzs, mzRange.lowerEndpoint(), mzRange.upperEndpoint());
+  }
+
+  public int size() {
+    return ions.length;
+  }
+
+  @NotNull
+  public LipidIon getLipidIon(int index) {
+    return ions[index];
+  }
+
+  /**
+   * The theoretical fragments are calculated on first use. Concurrent first calls may calculate
+   * the same fragments, only one result is kept.
+   *
+   * @return the theoretical MS2 fragments of the lipid ion at index
+   */
+  @NotNull
+  public TheoreticalLipidFragments getTheoreticalFragments(int index) {
+    final TheoreticalLipidFragments cached = fragments.get(index);
+    if (cached != null) {
+      return cached;
+    }
+    final LipidIon ion = ions[index];
+    final LipidFragmentationRule[] rules = ion.lipidAnnotation().getLipidClass()
+        .getFragmentationRules();
+    final TheoreticalLipidFragments calculated = new LipidFragmentFactory(ion.lipidAnnotation(),
+        ion.ionizationType(), rules == null ? new LipidFragmentationRule[0] : rules,
+        chainParameters).calculateTheoreticalFragments();
+    if (fragments.compareAndSet(index, null, calculated)) {
+      modified.set(true);
+      return calculated;
+    }
+    return fragments.get(index);
+  }
+
+  /**
+   * Writes all fragments to the file cache if new fragments were calculated since the last save.
+   * Errors are only logged as the cache is optional.
+   */
+  public void saveCache() {
+    if (fileCache != null && modified.getAndSet(false)) {
+      fileCache.write(ions, mzs, fragments);
+    }
+  }
+
+  /**
+   * Equal for equal lipid classes and chain parameters
+   */
+  private record DatabaseKey(List<ILipidClass> lipidClasses, int minChainLength,
+                             int maxChainLength, int minDoubleBonds, int maxDoubleBonds,
+                             boolean onlySearchForEvenChains,
+                             Set<IonizationType> ionizationTypesToIgnore,
+                             Set<PolarityType> polarityTypes) {
+
+    /**
+     * @return a stable description for the file cache, custom lipid classes are described by all
+     * their values
+     */
+    private String describe() {
+      return lipidClasses.stream().map(LipidDatabaseCache::describe)
+          .collect(Collectors.joining(",", "[", "]")) + "_%d-%d_%d-%d_%b_%s_%s".formatted(
+          minChainLength, maxChainLength, minDoubleBonds, maxDoubleBonds, onlySearchForEvenChains,
+          ionizationTypesToIgnore.stream().map(Enum::name).sorted().toList(),
+          polarityTypes.stream().map(Enum::name).sorted().toList());
+    }
+  }
+}
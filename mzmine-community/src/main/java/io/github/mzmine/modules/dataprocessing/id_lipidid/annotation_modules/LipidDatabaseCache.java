@@ -0,0 +1,395 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.id_lipidid.annotation_modules;
+
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.LipidFragmentationRule;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation.TheoreticalLipidFragments;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.ILipidClass;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidIon;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.lipidchain.LipidChainType;
+import io.github.mzmine.util.files.FileAndPathUtil;
+import io.github.mzmine.util.io.SemverVersionReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * File cache of a {@link LipidDatabase} so that later annotations with the same lipid classes and
+ * chain parameters reuse the theoretical MS2 fragments, also after a restart. The cache is stored
+ * in the mzmine user directory and is keyed by a description of all lipid classes, their
+ * fragmentation rules and the chain parameters. The cache is invalidated by a new cache format or
+ * mzmine version, as the fragment calculation may change between versions.
+ * <p>
+ * Layout: a fixed header, the m/z values of all lipid ions and the m/z values of all fragments as
+ * contiguous little endian double blocks, followed by the metadata. The metadata stores the number
+ * of fragments of each ion (-1 if not calculated) and for each fragment the index of its rule in
+ * the fragmentation rules of the lipid class, the ion formula and the chain information.
+ */
+class LipidDatabaseCache {
+
+  private static final Logger logger = Logger.getLogger(LipidDatabaseCache.class.getName());
+
+  private static final int MAGIC = 0x4D5A4C44; // MZLD
+  private static final int FORMAT_VERSION = 1;
+  private static final int HEADER_BYTES = 64;
+  private static final String CACHE_DIR = "lipid_cache";
+  private static final String EXTENSION = ".mzlipidcache";
+  private static final int NOT_CALCULATED = -1;
+  private static final byte NO_CHAIN = -1;
+
+  private final @NotNull File cacheFile;
+  private final @NotNull String key;
+
+  private LipidDatabaseCache(@NotNull File cacheFile, @NotNull String key) {
+    this.cacheFile = cacheFile;
+    this.key = key;
+  }
+
+  /**
+   * @param description describes the lipid classes, rules and chain parameters of the database
+   * @return the cache for this database or null if the cache directory is not available
+   */
+  @Nullable
+  static LipidDatabaseCache forDatabase(@NotNull String description) {
+    final File mzmineDir = FileAndPathUtil.getMzmineDir();
+    if (mzmineDir == null) {
+      return null;
+    }
+    return forDatabase(description, new File(mzmineDir, CACHE_DIR));
+  }
+
+  /**
+   * @param cacheDir the directory of all lipid database caches
+   */
+  @NotNull
+  static LipidDatabaseCache forDatabase(@NotNull String description, @NotNull File cacheDir) {
+    final String key = "%s_v%d_%s".formatted(description, FORMAT_VERSION,
+        SemverVersionReader.getMZmineVersion());
+    final CRC32C crc = new CRC32C();
+    crc.update(key.getBytes(StandardCharsets.UTF_8));
+    return new LipidDatabaseCache(
+        new File(cacheDir, "lipids_" + Long.toHexString(crc.getValue()) + EXTENSION), key);
+  }
+
+  /**
+   * A description of the lipid class that changes with any change of the fragmentation rules,
+   * which may be edited for custom lipid classes
+   */
+  @NotNull
+  static String describe(@NotNull ILipidClass lipidClass) {
+    final StringBuilder b = new StringBuilder();
+    b.append(lipidClass.getClass().getSimpleName()).append('(').append(lipidClass.getName())
+        .append(';').append(lipidClass.getAbbr()).append(';').append(lipidClass.getCoreClass())
+        .append(';').append(lipidClass.getMainClass()).append(';')
+        .append(lipidClass.getBackBoneFormula()).append(';');
+    final LipidChainType[] chainTypes = lipidClass.getChainTypes();
+    if (chainTypes != null) {
+      for (LipidChainType chainType : chainTypes) {
+        b.append(chainType.name()).append(',');
+      }
+    }
+    final LipidFragmentationRule[] rules = lipidClass.getFragmentationRules();
+    if (rules != null) {
+      for (LipidFragmentationRule rule : rules) {
+        b.append(';').append(rule.getPolarityType()).append(',')
+            .append(rule.getIonizationType().name()).append(',')
+            .append(rule.getLipidFragmentationRuleType()).append(',')
+            .append(rule.getLipidFragmentInformationLevelType()).append(',')
+            .append(rule.getMolecularFormula()).append(',')
+            .append(rule.getLipidFragmentationRuleRating());
+      }
+    }
+    return b.append(')').toString();
+  }
+
+  /**
+   * Loads all cached fragments of the lipid ions. The cache is only used if it holds the same lipid
+   * ions.
+   *
+   * @param ions      the lipid ions sorted by m/z
+   * @param mzs       the m/z values of the ions
+   * @param fragments the loaded fragments are set for each ion
+   * @return true if the cache was loaded
+   */
+  boolean load(@NotNull LipidIon[] ions, double @NotNull [] mzs,
+      @NotNull AtomicReferenceArray<TheoreticalLipidFragments> fragments) {
+    if (!cacheFile.isFile()) {
+      return false;
+    }
+    try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+      channel.read(header, 0);
+      header.flip();
+      if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+        return false;
+      }
+      final int numIons = header.getInt();
+      header.getInt(); // padding
+      final long totalFragments = header.getLong();
+      final long ionMzOffset = header.getLong();
+      final long fragmentMzOffset = header.getLong();
+      final long metadataOffset = header.getLong();
+      if (numIons != ions.length) {
+        return false;
+      }
+      final DoubleBuffer ionMzs = mapValues(channel, ionMzOffset, numIons);
+      for (int i = 0; i < numIons; i++) {
+        if (Double.compare(ionMzs.get(i), mzs[i]) != 0) {
+          return false;
+        }
+      }
+
+      channel.position(metadataOffset);
+      final DataInputStream in = new DataInputStream(
+          new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+      final byte[] keyBytes = new byte[in.readInt()];
+      in.readFully(keyBytes);
+      if (!key.equals(new String(keyBytes, StandardCharsets.UTF_8)) || in.readInt() != numIons) {
+        return false;
+      }
+      final int[] counts = new int[numIons];
+      long sum = 0;
+      for (int i = 0; i < numIons; i++) {
+        counts[i] = in.readInt();
+        sum += Math.max(counts[i], 0);
+      }
+      if (sum != totalFragments) {
+        return false;
+      }
+
+      final DoubleBuffer fragmentMzs = mapValues(channel, fragmentMzOffset, totalFragments);
+      final LipidChainType[] allChainTypes = LipidChainType.values();
+      int loaded = 0;
+      for (int i = 0; i < numIons; i++) {
+        final int size = counts[i];
+        if (size == NOT_CALCULATED) {
+          continue;
+        }
+        final ILipidClass lipidClass = ions[i].lipidAnnotation().getLipidClass();
+        final LipidFragmentationRule[] classRules = lipidClass.getFragmentationRules();
+        final double[] fragmentMz = new double[size];
+        fragmentMzs.get(fragmentMz);
+        final LipidFragmentationRule[] rules = new LipidFragmentationRule[size];
+        final String[] ionFormulas = new String[size];
+        final LipidChainType[] chainTypes = new LipidChainType[size];
+        final int[] chainLengths = new int[size];
+        final int[] numberOfDBEs = new int[size];
+        final int[] numberOfOxygens = new int[size];
+        for (int f = 0; f < size; f++) {
+          rules[f] = classRules[in.readInt()];
+          ionFormulas[f] = in.readBoolean() ? in.readUTF() : null;
+          final byte chainType = in.readByte();
+          chainTypes[f] = chainType == NO_CHAIN ? null : allChainTypes[chainType];
+          chainLengths[f] = in.readInt();
+          numberOfDBEs[f] = in.readInt();
+          numberOfOxygens[f] = in.readInt();
+        }
+        fragments.set(i, new TheoreticalLipidFragments(lipidClass, fragmentMz, rules, ionFormulas,
+            chainTypes, chainLengths, numberOfDBEs, numberOfOxygens));
+        loaded++;
+      }
+      final int numLoaded = loaded;
+      logger.fine(() -> "Loaded fragments of %d lipid ions from cache %s".formatted(numLoaded,
+          cacheFile.getAbsolutePath()));
+      return true;
+    } catch (Exception e) {
+      logger.log(Level.WARNING,
+          "Cannot read lipid cache " + cacheFile + ". Will calculate fragments.", e);
+      return false;
+    }
+  }
+
+  private static DoubleBuffer mapValues(FileChannel channel, long offset, long length)
+      throws IOException {
+    return channel.map(MapMode.READ_ONLY, offset, length * Double.BYTES)
+        .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+  }
+
+  /**
+   * Writes the ions and all calculated fragments to the cache. Errors are only logged as the cache
+   * is optional.
+   *
+   * @param ions      the lipid ions sorted by m/z
+   * @param mzs       the m/z values of the ions
+   * @param fragments the fragments of each ion, null if not calculated
+   * @return true if the cache was written
+   */
+  boolean write(@NotNull LipidIon[] ions, double @NotNull [] mzs,
+      @NotNull AtomicReferenceArray<TheoreticalLipidFragments> fragments) {
+    // take a snapshot as other tasks may still calculate fragments
+    final TheoreticalLipidFragments[] snapshot = new TheoreticalLipidFragments[ions.length];
+    for (int i = 0; i < snapshot.length; i++) {
+      snapshot[i] = fragments.get(i);
+    }
+
+    final File dir = cacheFile.getParentFile();
+    Path tmpFile = null;
+    try {
+      Files.createDirectories(dir.toPath());
+      // unique temp file so that concurrent tasks do not write into the same file before the
+      // rename
+      tmpFile = Files.createTempFile(dir.toPath(), cacheFile.getName(), ".tmp");
+      writeCacheFile(tmpFile.toFile(), ions, mzs, snapshot);
+      try {
+        Files.move(tmpFile, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmpFile, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+      logger.fine(() -> "Cached %d lipid ions in %s".formatted(ions.length,
+          cacheFile.getAbsolutePath()));
+      return true;
+    } catch (Exception e) {
+      logger.log(Level.WARNING, "Cannot write lipid cache " + cacheFile, e);
+      if (tmpFile != null) {
+        tmpFile.toFile().delete();
+      }
+      return false;
+    }
+  }
+
+  private void writeCacheFile(File file, LipidIon[] ions, double[] mzs,
+      TheoreticalLipidFragments[] fragments) throws IOException {
+    final int numIons = ions.length;
+    long totalFragments = 0;
+    for (TheoreticalLipidFragments ionFragments : fragments) {
+      totalFragments += ionFragments == null ? 0 : ionFragments.size();
+    }
+    final long ionMzOffset = HEADER_BYTES;
+    final long fragmentMzOffset = ionMzOffset + (long) numIons * Double.BYTES;
+    final long metadataOffset = fragmentMzOffset + totalFragments * Double.BYTES;
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+      header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(numIons).putInt(0);
+      header.putLong(totalFragments).putLong(ionMzOffset).putLong(fragmentMzOffset)
+          .putLong(metadataOffset);
+      header.position(0);
+      channel.write(header, 0);
+
+      channel.position(ionMzOffset);
+      final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+      for (double mz : mzs) {
+        putDouble(channel, buffer, mz);
+      }
+      for (TheoreticalLipidFragments ionFragments : fragments) {
+        if (ionFragments == null) {
+          continue;
+        }
+        for (int f = 0; f < ionFragments.size(); f++) {
+          putDouble(channel, buffer, ionFragments.getMz(f));
+        }
+      }
+      flush(channel, buffer);
+
+      final DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+      // the key describes all lipid classes and may exceed the length limit of writeUTF
+      final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(keyBytes.length);
+      out.write(keyBytes);
+      out.writeInt(numIons);
+      for (TheoreticalLipidFragments ionFragments : fragments) {
+        out.writeInt(ionFragments == null ? NOT_CALCULATED : ionFragments.size());
+      }
+      for (int i = 0; i < numIons; i++) {
+        if (fragments[i] != null) {
+          writeFragments(out, fragments[i],
+              ions[i].lipidAnnotation().getLipidClass().getFragmentationRules());
+        }
+      }
+      out.flush();
+    }
+  }
+
+  private static void writeFragments(DataOutputStream out, TheoreticalLipidFragments fragments,
+      LipidFragmentationRule[] classRules) throws IOException {
+    for (int f = 0; f < fragments.size(); f++) {
+      out.writeInt(indexOfRule(classRules, fragments.getRule(f)));
+      final String ionFormula = fragments.getIonFormula(f);
+      out.writeBoolean(ionFormula != null);
+      if (ionFormula != null) {
+        out.writeUTF(ionFormula);
+      }
+      final LipidChainType chainType = fragments.getChainType(f);
+      out.writeByte(chainType == null ? NO_CHAIN : chainType.ordinal());
+      out.writeInt(fragments.getChainLength(f));
+      out.writeInt(fragments.getNumberOfDBEs(f));
+      out.writeInt(fragments.getNumberOfOxygens(f));
+    }
+  }
+
+  /**
+   * Rules are compared by identity as equal rules may be defined twice in a class
+   */
+  private static int indexOfRule(LipidFragmentationRule[] classRules,
+      LipidFragmentationRule rule) throws IOException {
+    for (int i = 0; i < classRules.length; i++) {
+      if (classRules[i] == rule) {
+        return i;
+      }
+    }
+    throw new IOException("Fragmentation rule is not part of the lipid class: " + rule);
+  }
+
+  private static void putDouble(FileChannel channel, ByteBuffer buffer, double value)
+      throws IOException {
+    if (buffer.remaining() < Double.BYTES) {
+      flush(channel, buffer);
+    }
+    buffer.putDouble(value);
+  }
+
+  private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+}
@@ -31,6 +31,7 @@ import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidAnn
 import io.github.mzmine.modules.dataprocessing.id_lipidid.utils.LipidParsingUtils;
 import io.github.mzmine.modules.io.projectload.version_3_0.CONST;
 import io.github.mzmine.util.ParsingUtils;
+import java.util.Objects;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
@@ -129,6 +130,28 @@ public class LipidFragmentationRule {
     }
   }
 
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    LipidFragmentationRule that = (LipidFragmentationRule) o;
+    return polarityType == that.polarityType && ionizationType == that.ionizationType
+        && lipidFragmentationRuleType == that.lipidFragmentationRuleType
+        && lipidFragmentInformationLevelType == that.lipidFragmentInformationLevelType
+        && Objects.equals(molecularFormula, that.molecularFormula)
+        && lipidFragmentationRuleRating == that.lipidFragmentationRuleRating;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(polarityType, ionizationType, lipidFragmentationRuleType,
+        lipidFragmentInformationLevelType, molecularFormula, lipidFragmentationRuleRating);
+  }
+
   public void saveToXML(XMLStreamWriter writer) throws XMLStreamException {
     writer.writeStartElement(XML_ELEMENT);
 
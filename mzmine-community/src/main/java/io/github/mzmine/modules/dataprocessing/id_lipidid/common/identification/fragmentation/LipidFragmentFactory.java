@@ -25,12 +25,9 @@
 
 package io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation;
 
-import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.IonizationType;
-import io.github.mzmine.datamodel.MassList;
 import io.github.mzmine.datamodel.PolarityType;
 import io.github.mzmine.datamodel.Scan;
-import io.github.mzmine.datamodel.impl.SimpleDataPoint;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.LipidFragmentationRule;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.LipidFragmentationRuleType;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.ILipidAnnotation;
@@ -41,8 +38,6 @@ import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.lipidcha
 import io.github.mzmine.modules.dataprocessing.id_lipidid.annotation_modules.LipidAnnotationChainParameters;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.util.FormulaUtils;
-import io.github.mzmine.util.collections.BinarySearch.DefaultTo;
-import java.util.ArrayList;
 import java.util.List;
 import org.jetbrains.annotations.NotNull;
 import org.openscience.cdk.interfaces.IMolecularFormula;
@@ -82,91 +77,100 @@ public class LipidFragmentFactory implements ILipidFragmentFactory {
         LipidAnnotationChainParameters.onlySearchForEvenChainLength).getValue();
   }
 
+  /**
+   * Factory that is only used to {@link #calculateTheoreticalFragments()} without a scan
+   */
+  public LipidFragmentFactory(ILipidAnnotation lipidAnnotation, IonizationType ionizationType,
+      LipidFragmentationRule[] rules, LipidAnnotationChainParameters chainParameters) {
+    this(null, lipidAnnotation, ionizationType, rules, null, chainParameters);
+  }
+
 
   @Override
   public List<LipidFragment> findLipidFragments() {
-    List<LipidFragment> lipidFragments = new ArrayList<>();
+    return calculateTheoreticalFragments().matchFragments(msMsScan, mzToleranceMS2);
+  }
+
+  /**
+   * @return all theoretical fragments of the rules for the ionization type. Independent of the
+   * scan, so the result can be matched against multiple scans.
+   */
+  @NotNull
+  public TheoreticalLipidFragments calculateTheoreticalFragments() {
+    final TheoreticalLipidFragments.Builder fragments = new TheoreticalLipidFragments.Builder();
     for (LipidFragmentationRule rule : rules) {
       if (!ionizationType.equals(rule.getIonizationType())
           || rule.getLipidFragmentationRuleType() == null) {
         continue;
       }
-      List<LipidFragment> detectedFragments = checkForRuleTypes(rule);
-      if (detectedFragments != null) {
-        lipidFragments.addAll(detectedFragments);
-      }
+      addFragmentsForRuleType(rule, fragments);
     }
-    return lipidFragments;
+    return fragments.build(lipidAnnotation.getLipidClass());
   }
 
-  private List<LipidFragment> checkForRuleTypes(LipidFragmentationRule rule) {
+  private void addFragmentsForRuleType(LipidFragmentationRule rule,
+      TheoreticalLipidFragments.Builder fragments) {
     LipidFragmentationRuleType ruleType = rule.getLipidFragmentationRuleType();
-    return switch (ruleType) {
-      case HEADGROUP_FRAGMENT -> checkForHeadgroupFragment(rule, lipidAnnotation, msMsScan);
-      case HEADGROUP_FRAGMENT_NL -> checkForHeadgroupFragmentNL(rule, lipidAnnotation, msMsScan);
-      case PRECURSOR -> checkForOnlyPrecursor(rule, lipidAnnotation, msMsScan);
-      case ACYLCHAIN_FRAGMENT -> checkForAcylChainFragment(rule, lipidAnnotation, msMsScan);
+    switch (ruleType) {
+      case HEADGROUP_FRAGMENT -> addHeadgroupFragment(rule, fragments);
+      case HEADGROUP_FRAGMENT_NL -> addHeadgroupFragmentNL(rule, lipidAnnotation, fragments);
+      case PRECURSOR -> addOnlyPrecursor(rule, lipidAnnotation, fragments);
+      case ACYLCHAIN_FRAGMENT -> addAcylChainFragment(rule, fragments);
       case ACYLCHAIN_FRAGMENT_NL ->
-          findChainFragmentNL(rule, lipidAnnotation, msMsScan, LipidChainType.ACYL_CHAIN);
+          addChainFragmentNL(rule, lipidAnnotation, fragments, LipidChainType.ACYL_CHAIN);
       case ACYLCHAIN_MINUS_FORMULA_FRAGMENT ->
-          findChainMinusFormulaFragment(rule, lipidAnnotation, msMsScan, LipidChainType.ACYL_CHAIN);
+          addChainMinusFormulaFragment(rule, fragments, LipidChainType.ACYL_CHAIN);
       case ACYLCHAIN_MINUS_FORMULA_FRAGMENT_NL ->
-          findChainMinusFormulaFragmentNL(rule, lipidAnnotation, msMsScan,
+          addChainMinusFormulaFragmentNL(rule, lipidAnnotation, fragments,
               LipidChainType.ACYL_CHAIN);
       case ACYLCHAIN_PLUS_FORMULA_FRAGMENT ->
-          findChainPlusFormulaFragment(rule, lipidAnnotation, msMsScan, LipidChainType.ACYL_CHAIN);
+          addChainPlusFormulaFragment(rule, fragments, LipidChainType.ACYL_CHAIN);
       case ACYLCHAIN_PLUS_FORMULA_FRAGMENT_NL ->
-          findChainPlusFormulaFragmentNL(rule, lipidAnnotation, msMsScan,
+          addChainPlusFormulaFragmentNL(rule, lipidAnnotation, fragments,
               LipidChainType.ACYL_CHAIN);
       case TWO_ACYLCHAINS_PLUS_FORMULA_FRAGMENT ->
-          checkForTwoAcylChainsPlusFormulaFragment(rule, lipidAnnotation, msMsScan);
+          addTwoAcylChainsPlusFormulaFragment(rule, fragments);
       case ALKYLCHAIN_PLUS_FORMULA_FRAGMENT ->
-          findChainPlusFormulaFragment(rule, lipidAnnotation, msMsScan, LipidChainType.ALKYL_CHAIN);
-      case AMID_CHAIN_FRAGMENT ->
-          findChainFragment(rule, lipidAnnotation, msMsScan, LipidChainType.AMID_CHAIN);
+          addChainPlusFormulaFragment(rule, fragments, LipidChainType.ALKYL_CHAIN);
+      case AMID_CHAIN_FRAGMENT -> addChainFragment(rule, fragments, LipidChainType.AMID_CHAIN);
       case AMID_CHAIN_PLUS_FORMULA_FRAGMENT ->
-          findChainPlusFormulaFragment(rule, lipidAnnotation, msMsScan, LipidChainType.AMID_CHAIN);
+          addChainPlusFormulaFragment(rule, fragments, LipidChainType.AMID_CHAIN);
       case AMID_CHAIN_MINUS_FORMULA_FRAGMENT ->
-          findChainMinusFormulaFragment(rule, lipidAnnotation, msMsScan, LipidChainType.AMID_CHAIN);
-      case AMID_MONO_HYDROXY_CHAIN_FRAGMENT -> findChainFragment(rule, lipidAnnotation, msMsScan,
-          LipidChainType.AMID_MONO_HYDROXY_CHAIN);
+          addChainMinusFormulaFragment(rule, fragments, LipidChainType.AMID_CHAIN);
+      case AMID_MONO_HYDROXY_CHAIN_FRAGMENT ->
+          addChainFragment(rule, fragments, LipidChainType.AMID_MONO_HYDROXY_CHAIN);
       case AMID_MONO_HYDROXY_CHAIN_PLUS_FORMULA_FRAGMENT ->
-          findChainPlusFormulaFragment(rule, lipidAnnotation, msMsScan,
-              LipidChainType.AMID_MONO_HYDROXY_CHAIN);
+          addChainPlusFormulaFragment(rule, fragments, LipidChainType.AMID_MONO_HYDROXY_CHAIN);
       case AMID_MONO_HYDROXY_CHAIN_MINUS_FORMULA_FRAGMENT ->
-          findChainMinusFormulaFragment(rule, lipidAnnotation, msMsScan,
-              LipidChainType.AMID_MONO_HYDROXY_CHAIN);
+          addChainMinusFormulaFragment(rule, fragments, LipidChainType.AMID_MONO_HYDROXY_CHAIN);
       case AMID_CHAIN_FRAGMENT_NL ->
-          findChainFragmentNL(rule, lipidAnnotation, msMsScan, LipidChainType.AMID_CHAIN);
+          addChainFragmentNL(rule, lipidAnnotation, fragments, LipidChainType.AMID_CHAIN);
       case AMID_CHAIN_PLUS_FORMULA_FRAGMENT_NL ->
-          findChainPlusFormulaFragmentNL(rule, lipidAnnotation, msMsScan,
+          addChainPlusFormulaFragmentNL(rule, lipidAnnotation, fragments,
               LipidChainType.AMID_CHAIN);
       case AMID_CHAIN_MINUS_FORMULA_FRAGMENT_NL ->
-          findChainMinusFormulaFragmentNL(rule, lipidAnnotation, msMsScan,
+          addChainMinusFormulaFragmentNL(rule, lipidAnnotation, fragments,
               LipidChainType.AMID_CHAIN);
-      case SPHINGOLIPID_MONO_HYDROXY_BACKBONE_CHAIN_FRAGMENT ->
-          findChainFragment(rule, lipidAnnotation, msMsScan,
-              LipidChainType.SPHINGOLIPID_MONO_HYDROXY_BACKBONE_CHAIN);
-      case SPHINGOLIPID_DI_HYDROXY_BACKBONE_CHAIN_FRAGMENT ->
-          findChainFragment(rule, lipidAnnotation, msMsScan,
-              LipidChainType.SPHINGOLIPID_DI_HYDROXY_BACKBONE_CHAIN);
-      case SPHINGOLIPID_TRI_HYDROXY_BACKBONE_CHAIN_FRAGMENT ->
-          findChainFragment(rule, lipidAnnotation, msMsScan,
-              LipidChainType.SPHINGOLIPID_TRI_HYDROXY_BACKBONE_CHAIN);
+      case SPHINGOLIPID_MONO_HYDROXY_BACKBONE_CHAIN_FRAGMENT -> addChainFragment(rule, fragments,
+          LipidChainType.SPHINGOLIPID_MONO_HYDROXY_BACKBONE_CHAIN);
+      case SPHINGOLIPID_DI_HYDROXY_BACKBONE_CHAIN_FRAGMENT -> addChainFragment(rule, fragments,
+          LipidChainType.SPHINGOLIPID_DI_HYDROXY_BACKBONE_CHAIN);
+      case SPHINGOLIPID_TRI_HYDROXY_BACKBONE_CHAIN_FRAGMENT -> addChainFragment(rule, fragments,
+          LipidChainType.SPHINGOLIPID_TRI_HYDROXY_BACKBONE_CHAIN);
       case SPHINGOLIPID_MONO_HYDROXY_BACKBONE_CHAIN_MINUS_FORMULA_FRAGMENT ->
-          findChainMinusFormulaFragment(rule, lipidAnnotation, msMsScan,
+          addChainMinusFormulaFragment(rule, fragments,
               LipidChainType.SPHINGOLIPID_MONO_HYDROXY_BACKBONE_CHAIN);
       case SPHINGOLIPID_DI_HYDROXY_BACKBONE_CHAIN_MINUS_FORMULA_FRAGMENT ->
-          findChainMinusFormulaFragment(rule, lipidAnnotation, msMsScan,
+          addChainMinusFormulaFragment(rule, fragments,
               LipidChainType.SPHINGOLIPID_DI_HYDROXY_BACKBONE_CHAIN);
       case SPHINGOLIPID_TRI_HYDROXY_BACKBONE_CHAIN_MINUS_FORMULA_FRAGMENT ->
-          findChainMinusFormulaFragment(rule, lipidAnnotation, msMsScan,
+          addChainMinusFormulaFragment(rule, fragments,
               LipidChainType.SPHINGOLIPID_TRI_HYDROXY_BACKBONE_CHAIN);
-    };
+    }
   }
 
-  private List<LipidFragment> checkForOnlyPrecursor(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan) {
+  private void addOnlyPrecursor(LipidFragmentationRule rule, ILipidAnnotation lipidAnnotation,
+      TheoreticalLipidFragments.Builder fragments) {
     IMolecularFormula lipidFormula;
     try {
       lipidFormula = (IMolecularFormula) lipidAnnotation.getMolecularFormula().clone();
@@ -174,18 +178,19 @@ public class LipidFragmentFactory implements ILipidFragmentFactory {
       throw new RuntimeException(e);
     }
     rule.getIonizationType().ionizeFormula(lipidFormula);
-    return findLipidFragmentFromIonFormula(rule, lipidAnnotation, msMsScan, lipidFormula);
+    String ionFormulaString = MolecularFormulaManipulator.getString(lipidFormula);
+    fragments.add(rule, FormulaUtils.calculateMzRatio(ionFormulaString), ionFormulaString);
   }
 
 
-  private List<LipidFragment> checkForHeadgroupFragment(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan) {
+  private void addHeadgroupFragment(LipidFragmentationRule rule,
+      TheoreticalLipidFragments.Builder fragments) {
     String fragmentFormula = rule.getMolecularFormula();
-    return findLipidFragmentFromIonFormula(rule, lipidAnnotation, msMsScan, fragmentFormula);
+    fragments.add(rule, FormulaUtils.calculateMzRatio(fragmentFormula), fragmentFormula);
   }
 
-  private List<LipidFragment> checkForHeadgroupFragmentNL(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan) {
+  private void addHeadgroupFragmentNL(LipidFragmentationRule rule,
+      ILipidAnnotation lipidAnnotation, TheoreticalLipidFragments.Builder fragments) {
     IMolecularFormula formulaNL = FormulaUtils.createMajorIsotopeMolFormula(
         rule.getMolecularFormula());
     IMolecularFormula lipidFormula;
@@ -196,105 +201,56 @@ public class LipidFragmentFactory implements ILipidFragmentFactory {
     }
     rule.getIonizationType().ionizeFormula(lipidFormula);
     IMolecularFormula fragmentFormula = FormulaUtils.subtractFormula(lipidFormula, formulaNL);
-    return findLipidFragmentFromIonFormula(rule, lipidAnnotation, msMsScan, fragmentFormula);
+    String ionFormulaString = MolecularFormulaManipulator.getString(fragmentFormula);
+    fragments.add(rule, FormulaUtils.calculateMzRatio(ionFormulaString), ionFormulaString);
   }
 
-  private List<LipidFragment> checkForAcylChainFragment(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan) {
+  private void addAcylChainFragment(LipidFragmentationRule rule,
+      TheoreticalLipidFragments.Builder fragments) {
     if (rule.getPolarityType().equals(PolarityType.NEGATIVE)) {
       List<ILipidChain> fattyAcylChains = LIPID_CHAIN_FACTORY.buildLipidChainsInRange(
           LipidChainType.ACYL_CHAIN, minChainLength, maxChainLength, minDoubleBonds, maxDoubleBonds,
           onlySearchForEvenChains);
-      List<LipidFragment> matchedFragments = new ArrayList<>();
       for (ILipidChain lipidChain : fattyAcylChains) {
         IMolecularFormula lipidChainFormula = lipidChain.getChainMolecularFormula();
         IonizationType.NEGATIVE_HYDROGEN.ionizeFormula(lipidChainFormula);
-        addMatchedChainFragment(rule, lipidAnnotation, msMsScan, matchedFragments, lipidChain,
-            lipidChainFormula);
+        addChainFragment(rule, fragments, lipidChain, lipidChainFormula);
       }
-      return matchedFragments;
-    }
-    return null;
-  }
-
-  @NotNull
-  private List<LipidFragment> findLipidFragmentFromIonFormula(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan, IMolecularFormula ionFormula) {
-    String ionFormulaString = MolecularFormulaManipulator.getString(ionFormula);
-    Double mzExact = FormulaUtils.calculateMzRatio(ionFormulaString);
-    BestDataPoint bestDataPoint = getBestDataPoint(mzExact);
-    if (bestDataPoint.fragmentMatched()) {
-      return List.of(new LipidFragment(rule.getLipidFragmentationRuleType(),
-          rule.getLipidFragmentInformationLevelType(), rule.getLipidFragmentationRuleRating(),
-          mzExact, ionFormulaString,
-          new SimpleDataPoint(bestDataPoint.mzValue(), bestDataPoint.intensity()),
-          lipidAnnotation.getLipidClass(), null, null, null, null, msMsScan));
-    } else {
-      return List.of();
-    }
-  }
-
-  @NotNull
-  private List<LipidFragment> findLipidFragmentFromIonFormula(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan, String ionFormula) {
-    Double mzExact = FormulaUtils.calculateMzRatio(ionFormula);
-    BestDataPoint bestDataPoint = getBestDataPoint(mzExact);
-    if (bestDataPoint.fragmentMatched()) {
-      return List.of(new LipidFragment(rule.getLipidFragmentationRuleType(),
-          rule.getLipidFragmentInformationLevelType(), rule.getLipidFragmentationRuleRating(),
-          mzExact, ionFormula,
-          new SimpleDataPoint(bestDataPoint.mzValue(), bestDataPoint.intensity()),
-          lipidAnnotation.getLipidClass(), null, null, null, null, msMsScan));
-    } else {
-      return List.of();
     }
   }
 
-  @NotNull
-  protected List<LipidFragment> findChainMinusFormulaFragment(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan, LipidChainType chainType) {
+  protected void addChainMinusFormulaFragment(LipidFragmentationRule rule,
+      TheoreticalLipidFragments.Builder fragments, LipidChainType chainType) {
     IMolecularFormula modificationFormula = FormulaUtils.createMajorIsotopeMolFormula(
         rule.getMolecularFormula());
     List<ILipidChain> chains = LIPID_CHAIN_FACTORY.buildLipidChainsInRange(chainType,
         minChainLength, maxChainLength, minDoubleBonds, maxDoubleBonds, onlySearchForEvenChains);
-    List<LipidFragment> matchedFragments = new ArrayList<>();
     for (ILipidChain lipidChain : chains) {
       IMolecularFormula lipidChainFormula = lipidChain.getChainMolecularFormula();
       IMolecularFormula fragmentFormula = FormulaUtils.subtractFormula(lipidChainFormula,
           modificationFormula);
       IMolecularFormula ionizedFragmentFormula = ionizeFragmentBasedOnPolarity(fragmentFormula,
           rule.getPolarityType());
-      addMatchedChainFragment(rule, lipidAnnotation, msMsScan, matchedFragments, lipidChain,
-          ionizedFragmentFormula);
+      addChainFragment(rule, fragments, lipidChain, ionizedFragmentFormula);
     }
-    return matchedFragments;
   }
 
-  private void addMatchedChainFragment(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan, List<LipidFragment> matchedFragments,
-      ILipidChain lipidChain, IMolecularFormula ionizedFragmentFormula) {
-    Double mzExact = FormulaUtils.calculateMzRatio(ionizedFragmentFormula);
-    BestDataPoint bestDataPoint = getBestDataPoint(mzExact);
-    if (bestDataPoint.fragmentMatched()) {
-      int chainLength = lipidChain.getNumberOfCarbons();
-      int numberOfDoubleBonds = lipidChain.getNumberOfDBEs();
-      matchedFragments.add(new LipidFragment(rule.getLipidFragmentationRuleType(),
-          rule.getLipidFragmentInformationLevelType(), rule.getLipidFragmentationRuleRating(),
-          mzExact, MolecularFormulaManipulator.getString(ionizedFragmentFormula),
-          new SimpleDataPoint(bestDataPoint.mzValue(), bestDataPoint.intensity()),
-          lipidAnnotation.getLipidClass(), chainLength, numberOfDoubleBonds,
-          lipidChain.getNumberOfOxygens(), lipidChain.getLipidChainType(), msMsScan));
-    }
+  private void addChainFragment(LipidFragmentationRule rule,
+      TheoreticalLipidFragments.Builder fragments, ILipidChain lipidChain,
+      IMolecularFormula ionizedFragmentFormula) {
+    fragments.add(rule, FormulaUtils.calculateMzRatio(ionizedFragmentFormula),
+        MolecularFormulaManipulator.getString(ionizedFragmentFormula),
+        lipidChain.getLipidChainType(), lipidChain.getNumberOfCarbons(),
+        lipidChain.getNumberOfDBEs(), lipidChain.getNumberOfOxygens());
   }
 
-  @NotNull
-  protected List<LipidFragment> findChainMinusFormulaFragmentNL(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan, LipidChainType chainType) {
+  protected void addChainMinusFormulaFragmentNL(LipidFragmentationRule rule,
+      ILipidAnnotation lipidAnnotation, TheoreticalLipidFragments.Builder fragments,
+      LipidChainType chainType) {
     IMolecularFormula modificationFormula = FormulaUtils.createMajorIsotopeMolFormula(
         rule.getMolecularFormula());
     List<ILipidChain> chains = LIPID_CHAIN_FACTORY.buildLipidChainsInRange(chainType,
         minChainLength, maxChainLength, minDoubleBonds, maxDoubleBonds, onlySearchForEvenChains);
-    List<LipidFragment> matchedFragments = new ArrayList<>();
     for (ILipidChain lipidChain : chains) {
       IMolecularFormula lipidFormula;
       try {
@@ -308,83 +264,63 @@ public class LipidFragmentFactory implements ILipidFragmentFactory {
           modificationFormula);
       IMolecularFormula lipidMinusFragmentFormula = FormulaUtils.subtractFormula(lipidFormula,
           fragmentFormula);
-      addMatchedChainFragment(rule, lipidAnnotation, msMsScan, matchedFragments, lipidChain,
-          lipidMinusFragmentFormula);
+      addChainFragment(rule, fragments, lipidChain, lipidMinusFragmentFormula);
     }
-    return matchedFragments;
   }
 
-  @NotNull
-  protected List<LipidFragment> findChainPlusFormulaFragment(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan, LipidChainType lipidChainType) {
+  protected void addChainPlusFormulaFragment(LipidFragmentationRule rule,
+      TheoreticalLipidFragments.Builder fragments, LipidChainType lipidChainType) {
     IMolecularFormula modificationFormula = FormulaUtils.createMajorIsotopeMolFormula(
         rule.getMolecularFormula());
     List<ILipidChain> chains = LIPID_CHAIN_FACTORY.buildLipidChainsInRange(lipidChainType,
         minChainLength, maxChainLength, minDoubleBonds, maxDoubleBonds, onlySearchForEvenChains);
-    List<LipidFragment> matchedFragments = new ArrayList<>();
     for (ILipidChain lipidChain : chains) {
       IMolecularFormula lipidChainFormula = lipidChain.getChainMolecularFormula();
       IMolecularFormula fragmentFormula = FormulaUtils.addFormula(lipidChainFormula,
           modificationFormula);
       IMolecularFormula ionizedFragmentFormula = ionizeFragmentBasedOnPolarity(fragmentFormula,
           rule.getPolarityType());
-      addMatchedChainFragment(rule, lipidAnnotation, msMsScan, matchedFragments, lipidChain,
-          ionizedFragmentFormula);
+      addChainFragment(rule, fragments, lipidChain, ionizedFragmentFormula);
     }
-    return matchedFragments;
   }
 
-  private List<LipidFragment> checkForTwoAcylChainsPlusFormulaFragment(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan) {
+  private void addTwoAcylChainsPlusFormulaFragment(LipidFragmentationRule rule,
+      TheoreticalLipidFragments.Builder fragments) {
     IMolecularFormula modificationFormula = FormulaUtils.createMajorIsotopeMolFormula(
         rule.getMolecularFormula());
     List<ILipidChain> combinedFattyAcylChains = LIPID_CHAIN_FACTORY.buildLipidChainsInRange(
         LipidChainType.ACYL_CHAIN, minChainLength * 2, maxChainLength * 2, minDoubleBonds * 2,
         maxDoubleBonds * 2, onlySearchForEvenChains);
-    List<LipidFragment> matchedFragments = new ArrayList<>();
     for (ILipidChain combinedFattyAcylChain : combinedFattyAcylChains) {
       IMolecularFormula combinedChainsFormula = combinedFattyAcylChain.getChainMolecularFormula();
       IMolecularFormula fragmentFormula = FormulaUtils.addFormula(combinedChainsFormula,
           modificationFormula);
       IMolecularFormula ionizedFragmentFormula = ionizeFragmentBasedOnPolarity(fragmentFormula,
           rule.getPolarityType());
-      Double mzExact = FormulaUtils.calculateMzRatio(ionizedFragmentFormula);
-      BestDataPoint bestDataPoint = getBestDataPoint(mzExact);
-      if (bestDataPoint.fragmentMatched()) {
-        matchedFragments.add(new LipidFragment(rule.getLipidFragmentationRuleType(),
-            rule.getLipidFragmentInformationLevelType(), rule.getLipidFragmentationRuleRating(),
-            mzExact, MolecularFormulaManipulator.getString(ionizedFragmentFormula),
-            new SimpleDataPoint(bestDataPoint.mzValue(), bestDataPoint.intensity()),
-            lipidAnnotation.getLipidClass(), combinedFattyAcylChain.getNumberOfCarbons(),
-            combinedFattyAcylChain.getNumberOfDBEs(), combinedFattyAcylChain.getNumberOfOxygens(),
-            LipidChainType.TWO_ACYL_CHAINS_COMBINED, msMsScan));
-      }
+      fragments.add(rule, FormulaUtils.calculateMzRatio(ionizedFragmentFormula),
+          MolecularFormulaManipulator.getString(ionizedFragmentFormula),
+          LipidChainType.TWO_ACYL_CHAINS_COMBINED, combinedFattyAcylChain.getNumberOfCarbons(),
+          combinedFattyAcylChain.getNumberOfDBEs(), combinedFattyAcylChain.getNumberOfOxygens());
     }
-    return matchedFragments;
   }
 
-  @NotNull
-  protected List<LipidFragment> findChainFragment(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan, LipidChainType lipidChainType) {
+  protected void addChainFragment(LipidFragmentationRule rule,
+      TheoreticalLipidFragments.Builder fragments, LipidChainType lipidChainType) {
     List<ILipidChain> chains = LIPID_CHAIN_FACTORY.buildLipidChainsInRange(lipidChainType,
         minChainLength, maxChainLength, minDoubleBonds, maxDoubleBonds, onlySearchForEvenChains);
-    List<LipidFragment> matchedFragments = new ArrayList<>();
     for (ILipidChain lipidChain : chains) {
       IMolecularFormula lipidChainFormula = lipidChain.getChainMolecularFormula();
       IMolecularFormula ionizedFragmentFormula = ionizeFragmentBasedOnPolarity(lipidChainFormula,
           rule.getPolarityType());
-      addMatchedChainFragment(rule, lipidAnnotation, msMsScan, matchedFragments, lipidChain,
-          ionizedFragmentFormula);
+      addChainFragment(rule, fragments, lipidChain, ionizedFragmentFormula);
     }
-    return matchedFragments;
   }
 
-  @NotNull
-  protected List<LipidFragment> findChainFragmentNL(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan, LipidChainType lipidChainType) {
+  protected void addChainFragmentNL(LipidFragmentationRule rule,
+      ILipidAnnotation lipidAnnotation, TheoreticalLipidFragments.Builder fragments,
+      LipidChainType lipidChainType) {
     List<ILipidChain> chains = LIPID_CHAIN_FACTORY.buildLipidChainsInRange(lipidChainType,
         minChainLength, maxChainLength, minDoubleBonds, maxDoubleBonds, onlySearchForEvenChains);
-    List<LipidFragment> matchedFragments = new ArrayList<>();
     for (ILipidChain lipidChain : chains) {
       IMolecularFormula lipidFormula;
       try {
@@ -396,20 +332,17 @@ public class LipidFragmentFactory implements ILipidFragmentFactory {
       IMolecularFormula lipidChainFormula = lipidChain.getChainMolecularFormula();
       IMolecularFormula fragmentFormula = FormulaUtils.subtractFormula(lipidFormula,
           lipidChainFormula);
-      addMatchedChainFragment(rule, lipidAnnotation, msMsScan, matchedFragments, lipidChain,
-          fragmentFormula);
+      addChainFragment(rule, fragments, lipidChain, fragmentFormula);
     }
-    return matchedFragments;
   }
 
-  @NotNull
-  protected List<LipidFragment> findChainPlusFormulaFragmentNL(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan, LipidChainType lipidChainType) {
+  protected void addChainPlusFormulaFragmentNL(LipidFragmentationRule rule,
+      ILipidAnnotation lipidAnnotation, TheoreticalLipidFragments.Builder fragments,
+      LipidChainType lipidChainType) {
     IMolecularFormula modificationFormula = FormulaUtils.createMajorIsotopeMolFormula(
         rule.getMolecularFormula());
     List<ILipidChain> chains = LIPID_CHAIN_FACTORY.buildLipidChainsInRange(lipidChainType,
         minChainLength, maxChainLength, minDoubleBonds, maxDoubleBonds, onlySearchForEvenChains);
-    List<LipidFragment> matchedFragments = new ArrayList<>();
     for (ILipidChain lipidChain : chains) {
       IMolecularFormula lipidFormula = null;
       try {
@@ -423,10 +356,8 @@ public class LipidFragmentFactory implements ILipidFragmentFactory {
           modificationFormula);
       IMolecularFormula lipidMinusFragmentFormula = FormulaUtils.subtractFormula(lipidFormula,
           fragmentFormula);
-      addMatchedChainFragment(rule, lipidAnnotation, msMsScan, matchedFragments, lipidChain,
-          lipidMinusFragmentFormula);
+      addChainFragment(rule, fragments, lipidChain, lipidMinusFragmentFormula);
     }
-    return matchedFragments;
   }
 
   protected IMolecularFormula ionizeFragmentBasedOnPolarity(IMolecularFormula formula,
@@ -441,39 +372,4 @@ public class LipidFragmentFactory implements ILipidFragmentFactory {
     return formula;
   }
 
-  @NotNull
-  protected BestDataPoint getBestDataPoint(Double mzExact) {
-    boolean fragmentMatched = false;
-    MassList massList = msMsScan.getMassList();
-    if (massList != null) {
-      Range<Double> toleranceRange = mzToleranceMS2.getToleranceRange(mzExact);
-      int index = massList.binarySearch(toleranceRange.lowerEndpoint(), DefaultTo.GREATER_EQUALS);
-      if (index < 0) {
-        return new BestDataPoint(fragmentMatched, 0.0, 0.0);
-      }
-      int numberOfDataPoints = massList.getNumberOfDataPoints();
-      double maxIntensity = 0.0;
-      double bestMzValue = 0.0;
-      for (int i = index; i < numberOfDataPoints; i++) {
-        double intensity = massList.getIntensityValue(i);
-        double mzValue = massList.getMzValue(i);
-        Range<Double> mzTolRangeMSMS = mzToleranceMS2.getToleranceRange(mzValue);
-        if (mzTolRangeMSMS.contains(mzExact) && intensity > maxIntensity) {
-          maxIntensity = intensity;
-          bestMzValue = mzValue;
-          fragmentMatched = true;
-        }
-        if (mzTolRangeMSMS.upperEndpoint() < mzValue) {
-          break;
-        }
-      }
-      return new BestDataPoint(fragmentMatched, bestMzValue, maxIntensity);
-    }
-    return new BestDataPoint(fragmentMatched, 0.0, 0.0);
-  }
-
-  protected record BestDataPoint(boolean fragmentMatched, double mzValue, double intensity) {
-
-  }
-
 }
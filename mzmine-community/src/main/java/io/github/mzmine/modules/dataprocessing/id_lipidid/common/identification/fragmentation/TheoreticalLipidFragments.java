@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.MassList;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.LipidFragmentationRule;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.ILipidClass;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidFragment;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.lipidchain.LipidChainType;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.collections.BinarySearch.DefaultTo;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.util.ArrayList;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The theoretical MS2 fragments of a lipid ion, sorted by m/z. The fragments only depend on the
+ * lipid, the ionization, the fragmentation rules and the chain parameters, so they are calculated
+ * once and then matched against each MS2 scan.
+ */
+public class TheoreticalLipidFragments {
+
+  private final ILipidClass lipidClass;
+  private final double[] mzs;
+  private final LipidFragmentationRule[] rules;
+  private final String[] ionFormulas;
+  // chain information is only set if chainTypes[i] is not null
+  private final LipidChainType[] chainTypes;
+  private final int[] chainLengths;
+  private final int[] numberOfDBEs;
+  private final int[] numberOfOxygens;
+
+  /**
+   * Fragments that were calculated before, e.g., restored from a cache. All arrays have the same
+   * length and are sorted by m/z.
+   *
+   * @param chainTypes the chain information of index i is only used if chainTypes[i] is not null
+   */
+  public TheoreticalLipidFragments(@NotNull ILipidClass lipidClass, double @NotNull [] mzs,
+      LipidFragmentationRule @NotNull [] rules, String @NotNull [] ionFormulas,
+      LipidChainType @NotNull [] chainTypes, int @NotNull [] chainLengths,
+      int @NotNull [] numberOfDBEs, int @NotNull [] numberOfOxygens) {
+    this.lipidClass = lipidClass;
+    this.mzs = mzs;
+    this.rules = rules;
+    this.ionFormulas = ionFormulas;
+    this.chainTypes = chainTypes;
+    this.chainLengths = chainLengths;
+    this.numberOfDBEs = numberOfDBEs;
+    this.numberOfOxygens = numberOfOxygens;
+  }
+
+  private TheoreticalLipidFragments(ILipidClass lipidClass, Builder builder) {
+    this.lipidClass = lipidClass;
+    final List<Entry> entries = builder.entries;
+    final int size = entries.size();
+    final int[] order = new int[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = i;
+    }
+    IntArrays.mergeSort(order,
+        (a, b) -> Double.compare(entries.get(a).mz(), entries.get(b).mz()));
+
+    mzs = new double[size];
+    rules = new LipidFragmentationRule[size];
+    ionFormulas = new String[size];
+    chainTypes = new LipidChainType[size];
+    chainLengths = new int[size];
+    numberOfDBEs = new int[size];
+    numberOfOxygens = new int[size];
+    for (int i = 0; i < size; i++) {
+      final Entry entry = entries.get(order[i]);
+      mzs[i] = entry.mz();
+      rules[i] = entry.rule();
+      ionFormulas[i] = entry.ionFormula();
+      chainTypes[i] = entry.chainType();
+      chainLengths[i] = entry.chainLength();
+      numberOfDBEs[i] = entry.numberOfDBEs();
+      numberOfOxygens[i] = entry.numberOfOxygens();
+    }
+  }
+
+  /**
+   * Matches all theoretical fragments against the mass list of the scan. Each fragment is matched
+   * to the most intense signal within tolerance.
+   *
+   * @return the matched fragments sorted by m/z, empty if the scan has no mass list
+   */
+  @NotNull
+  public List<LipidFragment> matchFragments(@NotNull Scan msMsScan,
+      @NotNull MZTolerance mzToleranceMS2) {
+    final MassList massList = msMsScan.getMassList();
+    if (massList == null) {
+      return List.of();
+    }
+
+    final List<LipidFragment> matchedFragments = new ArrayList<>();
+    for (int i = 0; i < mzs.length; i++) {
+      final int index = findBestDataPoint(massList, mzs[i], mzToleranceMS2);
+      if (index < 0) {
+        continue;
+      }
+      final LipidFragmentationRule rule = rules[i];
+      final boolean hasChain = chainTypes[i] != null;
+      matchedFragments.add(new LipidFragment(rule.getLipidFragmentationRuleType(),
+          rule.getLipidFragmentInformationLevelType(), rule.getLipidFragmentationRuleRating(),
+          mzs[i], ionFormulas[i],
+          new SimpleDataPoint(massList.getMzValue(index), massList.getIntensityValue(index)),
+          lipidClass, hasChain ? chainLengths[i] : null, hasChain ? numberOfDBEs[i] : null,
+          hasChain ? numberOfOxygens[i] : null, chainTypes[i], msMsScan));
+    }
+    return matchedFragments;
+  }
+
+  /**
+   * @return index of the most intense signal that matches the exact m/z within the tolerance of
+   * the signal m/z or -1
+   */
+  private static int findBestDataPoint(MassList massList, double mzExact,
+      MZTolerance mzToleranceMS2) {
+    final Range<Double> toleranceRange = mzToleranceMS2.getToleranceRange(mzExact);
+    final int index = massList.binarySearch(toleranceRange.lowerEndpoint(),
+        DefaultTo.GREATER_EQUALS);
+    if (index < 0) {
+      return -1;
+    }
+    final int numberOfDataPoints = massList.getNumberOfDataPoints();
+    double maxIntensity = 0.0;
+    int best = -1;
+    for (int i = index; i < numberOfDataPoints; i++) {
+      final double intensity = massList.getIntensityValue(i);
+      final double mzValue = massList.getMzValue(i);
+      final Range<Double> mzTolRangeMSMS = mzToleranceMS2.getToleranceRange(mzValue);
+      if (mzTolRangeMSMS.contains(mzExact) && intensity > maxIntensity) {
+        maxIntensity = intensity;
+        best = i;
+      }
+      if (mzTolRangeMSMS.upperEndpoint() < mzValue) {
+        break;
+      }
+    }
+    return best;
+  }
+
+  public int size() {
+    return mzs.length;
+  }
+
+  /**
+   * @return the exact m/z of the fragment at index (sorted by m/z)
+   */
+  public double getMz(int index) {
+    return mzs[index];
+  }
+
+  @NotNull
+  public LipidFragmentationRule getRule(int index) {
+    return rules[index];
+  }
+
+  public String getIonFormula(int index) {
+    return ionFormulas[index];
+  }
+
+  /**
+   * @return the chain type or null if the fragment has no chain information
+   */
+  @Nullable
+  public LipidChainType getChainType(int index) {
+    return chainTypes[index];
+  }
+
+  public int getChainLength(int index) {
+    return chainLengths[index];
+  }
+
+  public int getNumberOfDBEs(int index) {
+    return numberOfDBEs[index];
+  }
+
+  public int getNumberOfOxygens(int index) {
+    return numberOfOxygens[index];
+  }
+
+  private record Entry(double mz, LipidFragmentationRule rule, String ionFormula,
+                       @Nullable LipidChainType chainType, int chainLength, int numberOfDBEs,
+                       int numberOfOxygens) {
+
+  }
+
+  /**
+   * Collects the theoretical fragments in the order of the rules
+   */
+  static class Builder {
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    void add(LipidFragmentationRule rule, double mz, String ionFormula) {
+      entries.add(new Entry(mz, rule, ionFormula, null, 0, 0, 0));
+    }
+
+    void add(LipidFragmentationRule rule, double mz, String ionFormula,
+        @NotNull LipidChainType chainType, int chainLength, int numberOfDBEs,
+        int numberOfOxygens) {
+      entries.add(new Entry(mz, rule, ionFormula, chainType, chainLength, numberOfDBEs,
+          numberOfOxygens));
+    }
+
+    TheoreticalLipidFragments build(ILipidClass lipidClass) {
+      return new TheoreticalLipidFragments(lipidClass, this);
+    }
+  }
+}
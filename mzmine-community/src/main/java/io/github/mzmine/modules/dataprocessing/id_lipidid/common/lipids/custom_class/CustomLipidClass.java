@@ -33,7 +33,9 @@ import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.lipidcha
 import io.github.mzmine.modules.dataprocessing.id_lipidid.utils.LipidParsingUtils;
 import io.github.mzmine.modules.io.projectload.version_3_0.CONST;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
@@ -106,6 +108,29 @@ public class CustomLipidClass implements ILipidClass {
     return this.abbr + " " + this.name;
   }
 
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    CustomLipidClass that = (CustomLipidClass) o;
+    return Objects.equals(name, that.name) && Objects.equals(abbr, that.abbr)
+        && coreClass == that.coreClass && mainClass == that.mainClass && Objects.equals(
+        backBoneFormula, that.backBoneFormula) && Arrays.equals(chainTypes, that.chainTypes)
+        && Arrays.equals(fragmentationRules, that.fragmentationRules);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = Objects.hash(name, abbr, coreClass, mainClass, backBoneFormula);
+    result = 31 * result + Arrays.hashCode(chainTypes);
+    result = 31 * result + Arrays.hashCode(fragmentationRules);
+    return result;
+  }
+
   public void saveToXML(XMLStreamWriter writer) throws XMLStreamException {
     writer.writeStartElement(XML_ELEMENT);
     writer.writeAttribute(XML_ELEMENT, CustomLipidClass.class.getSimpleName());
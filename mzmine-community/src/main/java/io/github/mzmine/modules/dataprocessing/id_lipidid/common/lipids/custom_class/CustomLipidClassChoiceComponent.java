@@ -133,7 +133,8 @@ public class CustomLipidClassChoiceComponent extends BorderPane {
               new TypeToken<List<CustomLipidClass>>() {
               }.getType());
           for (CustomLipidClass customLipidClass : customLipidClasses) {
-            if (customLipidClass != null) {
+            // equal classes would share the check state, so they are only added once
+            if (customLipidClass != null && !checkList.getItems().contains(customLipidClass)) {
               checkList.getItems().add(customLipidClass);
             }
           }
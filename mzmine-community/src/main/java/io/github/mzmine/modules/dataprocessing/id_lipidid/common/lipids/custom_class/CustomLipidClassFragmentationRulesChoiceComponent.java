@@ -134,7 +134,8 @@ public class CustomLipidClassFragmentationRulesChoiceComponent extends BorderPan
             new TypeToken<List<LipidFragmentationRule>>() {
             }.getType());
         for (LipidFragmentationRule rule : lipidFragmentationRules) {
-          if (rule != null) {
+          // equal rules would share the check state, so they are only added once
+          if (rule != null && !checkList.getItems().contains(rule)) {
             checkList.getItems().add(rule);
           }
         }
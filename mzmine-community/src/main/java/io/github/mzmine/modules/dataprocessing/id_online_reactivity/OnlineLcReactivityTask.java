@@ -31,7 +31,7 @@ import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.FeatureListRow;
-import io.github.mzmine.datamodel.features.correlation.R2RMap;
+import io.github.mzmine.datamodel.features.correlation.R2RGraph;
 import io.github.mzmine.datamodel.features.correlation.RowsRelationship;
 import io.github.mzmine.datamodel.features.types.DataTypes;
 import io.github.mzmine.datamodel.features.types.annotations.online_reaction.OnlineLcReactionMatchType;
@@ -153,7 +153,7 @@ public class OnlineLcReactivityTask extends AbstractFeatureListTask {
       return;
     }
 
-    R2RMap<RowsRelationship> correlationMap = flist.getMs1CorrelationMap().orElse(null);
+    R2RGraph<RowsRelationship> correlationMap = flist.getMs1CorrelationMap().orElse(null);
     if (onlyGroupedRows && (correlationMap == null || correlationMap.isEmpty())) {
       MZmineCore.getDesktop()
           .displayMessage("Run correlation grouping before running this module " + flist.getName());
@@ -213,7 +213,7 @@ public class OnlineLcReactivityTask extends AbstractFeatureListTask {
     groupedByRow.forEach((row, matches) -> row.set(OnlineLcReactionMatchType.class, matches));
 
     // convert to edges and add them to the feature list
-    R2RMap<OnlineReactionMatch> r2rMap = new R2RMap<>();
+    final R2RGraph.Builder<OnlineReactionMatch> r2rMap = new R2RGraph.Builder<>();
     for (final FeatureListRow row : rows) {
       int id = row.getID();
       List<OnlineReactionMatch> matches = row.getOnlineReactionMatches();
@@ -229,7 +229,8 @@ public class OnlineLcReactivityTask extends AbstractFeatureListTask {
         r2rMap.add(match.getRowA(), match.getRowB(), match);
       }
     }
-    flist.getRowMaps().addAllRowsRelationships(r2rMap, RowsRelationship.Type.ONLINE_REACTION);
+    flist.getRowMaps()
+        .addAllRowsRelationships(r2rMap.build(), RowsRelationship.Type.ONLINE_REACTION);
   }
 
   /**
@@ -246,7 +247,7 @@ public class OnlineLcReactivityTask extends AbstractFeatureListTask {
 
   private int processRowAddMatches(final int indexA, final List<FeatureListRow> rows,
       final List<RawDataFile> raws, final List<ReactionMatchingRawFiles> reactions,
-      final R2RMap<RowsRelationship> correlationMap,
+      final R2RGraph<RowsRelationship> correlationMap,
       final ConcurrentLinkedQueue<OnlineReactionMatch> productMatchesToAdd) {
     int numRows = rows.size();
 
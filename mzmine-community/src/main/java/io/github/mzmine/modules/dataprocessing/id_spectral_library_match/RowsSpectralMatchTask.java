@@ -60,6 +60,7 @@ import io.github.mzmine.util.spectraldb.entry.DBEntryField;
 import io.github.mzmine.util.spectraldb.entry.SpectralDBAnnotation;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibrary;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibraryIndex;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -295,13 +296,17 @@ public class RowsSpectralMatchTask extends AbstractTask {
     for (var lib : libraries) {
       entries.addAll(lib.getEntries());
     }
+    // precursor m/z index only returns entries within the precursor tolerance
+    final List<SpectralLibraryIndex> indices = isPrecursorMzCheck() ? libraries.stream()
+        .map(SpectralLibrary::getOrCreateIndex).toList() : null;
 
     // run on spectra
     if (scan != null) {
       logger.info(
           () -> String.format("Comparing %d library spectra to scan: %s", entries.size(), scan));
 
-      matchScan(entries, scan);
+      matchScan(indices == null ? entries
+          : getCandidateEntries(indices, scanPrecursorMZ, PolarityType.UNKNOWN), scan);
 
       logger.info(
           () -> String.format("library matches=%d (Errors:%d); library entries=%d; for scan: %s",
@@ -317,7 +322,7 @@ public class RowsSpectralMatchTask extends AbstractTask {
       var totalMatches = rows.stream().filter(FeatureListRow::hasMs2Fragmentation).parallel()
           .mapToInt(row -> {
             if (!isCanceled()) {
-              int matches = matchRowToLibraries(entries, row);
+              int matches = matchRowToLibraries(entries, indices, row);
               finishedRows.incrementAndGet();
               return matches;
             }
@@ -402,6 +407,19 @@ public class RowsSpectralMatchTask extends AbstractTask {
    * @param row     target row
    */
   public int matchRowToLibraries(List<SpectralLibraryEntry> entries, FeatureListRow row) {
+    return matchRowToLibraries(entries, null, row);
+  }
+
+  /**
+   * Match row against all entries, add matches, sort them by score
+   *
+   * @param allEntries combined library entries
+   * @param indices    precursor m/z indices of all libraries to only match candidate entries or
+   *                   null to match all entries
+   * @param row        target row
+   */
+  private int matchRowToLibraries(List<SpectralLibraryEntry> allEntries,
+      @Nullable List<SpectralLibraryIndex> indices, FeatureListRow row) {
     try {
       // All MS2 or only best MS2 scan
       // best MS1 scan
@@ -410,6 +428,8 @@ public class RowsSpectralMatchTask extends AbstractTask {
       if (scans.isEmpty()) {
         return 0;
       }
+      final List<SpectralLibraryEntry> entries = indices == null ? allEntries
+          : getCandidateEntries(indices, row.getAverageMZ(), getCommonPolarity(scans));
 
       List<DataPoint[]> rowMassLists = new ArrayList<>();
       for (Scan scan : scans) {
@@ -556,6 +576,46 @@ public class RowsSpectralMatchTask extends AbstractTask {
         .getSimilarity(simFunction.getParameterSet(), mzToleranceSpectra, minMatch, library, query);
   }
 
+  /**
+   * The precursor m/z index can be used if all entries need to pass the precursor m/z check
+   */
+  private boolean isPrecursorMzCheck() {
+    return !msLevelFilter.isMs1Only() && mzTolerancePrecursor != null;
+  }
+
+  /**
+   * @param polarity filter entries by polarity, {@link PolarityType#UNKNOWN} to skip the filter
+   * @return all entries that may pass the precursor m/z check
+   */
+  private List<SpectralLibraryEntry> getCandidateEntries(List<SpectralLibraryIndex> indices,
+      double precursorMz, PolarityType polarity) {
+    if (indices.size() == 1) {
+      return indices.getFirst().getCandidates(precursorMz, mzTolerancePrecursor, polarity);
+    }
+    List<SpectralLibraryEntry> candidates = new ArrayList<>();
+    for (final SpectralLibraryIndex index : indices) {
+      candidates.addAll(index.getCandidates(precursorMz, mzTolerancePrecursor, polarity));
+    }
+    return candidates;
+  }
+
+  /**
+   * Entries are only matched against scans that pass the {@link #weakPolarityCheck(String,
+   * PolarityType)}. If all scans share the same polarity, entries of the other polarity can be
+   * skipped beforehand.
+   *
+   * @return the polarity of all scans or {@link PolarityType#UNKNOWN} if they differ
+   */
+  private static PolarityType getCommonPolarity(List<Scan> scans) {
+    PolarityType polarity = scans.getFirst().getPolarity();
+    for (final Scan scan : scans) {
+      if (scan.getPolarity() != polarity) {
+        return PolarityType.UNKNOWN;
+      }
+    }
+    return polarity == null ? PolarityType.UNKNOWN : polarity;
+  }
+
   private boolean checkPrecursorMZ(double rowMZ, SpectralLibraryEntry ident) {
     if (ident.getPrecursorMZ() == null) {
       return false;
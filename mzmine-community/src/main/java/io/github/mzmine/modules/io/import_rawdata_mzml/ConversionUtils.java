@@ -30,6 +30,7 @@ import io.github.mzmine.datamodel.MassSpectrumType;
 import io.github.mzmine.datamodel.PolarityType;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.featuredata.impl.StoredDoubleValues;
 import io.github.mzmine.datamodel.impl.BuildingMobilityScan;
 import io.github.mzmine.datamodel.impl.DDAMsMsInfoImpl;
 import io.github.mzmine.datamodel.impl.MSnInfoImpl;
@@ -45,7 +46,6 @@ import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLPrecursorAc
 import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLPrecursorElement;
 import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLPrecursorList;
 import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLPrecursorSelectedIonList;
-import java.nio.DoubleBuffer;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -121,8 +121,8 @@ public class ConversionUtils {
 
   public static Scan mzmlScanToSimpleScan(final RawDataFile dataFile, final BuildingMzMLMsScan scan,
       final MassSpectrumType spectrumType) {
-    return mzmlScanToSimpleScan(dataFile, scan, scan.getDoubleBufferMzValues(),
-        scan.getDoubleBufferIntensityValues(), spectrumType);
+    return mzmlScanToSimpleScan(dataFile, scan, scan.getStoredMzValues(),
+        scan.getStoredIntensityValues(), spectrumType);
   }
 
   /**
@@ -135,7 +135,7 @@ public class ConversionUtils {
    * @return a {@link SimpleScan}
    */
   public static Scan mzmlScanToSimpleScan(RawDataFile rawDataFile, BuildingMzMLMsScan scan,
-      DoubleBuffer mzs, DoubleBuffer intensities, MassSpectrumType spectrumType) {
+      StoredDoubleValues mzs, StoredDoubleValues intensities, MassSpectrumType spectrumType) {
     DDAMsMsInfo info = null;
     if (scan.getPrecursorList() != null) {
       final var precursorElements = scan.getPrecursorList().getPrecursorElements();
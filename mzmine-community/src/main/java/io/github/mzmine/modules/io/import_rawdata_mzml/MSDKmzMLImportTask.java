@@ -42,6 +42,7 @@ import io.github.mzmine.datamodel.impl.SimpleFrame;
 import io.github.mzmine.datamodel.impl.masslist.ScanPointerMassList;
 import io.github.mzmine.datamodel.msms.PasefMsMsInfo;
 import io.github.mzmine.javafx.dialogs.DialogLoggerUtil;
+import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.MZmineModule;
 import io.github.mzmine.modules.io.import_rawdata_all.MsDataImportAndMassDetectWrapperTask;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.ScanImportProcessorConfig;
@@ -76,7 +77,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -100,6 +106,7 @@ public class MSDKmzMLImportTask extends AbstractTask {
   public static final Pattern watersPattern = Pattern.compile(
       "function=([1-9]+) process=[\\d]+ scan=[\\d]+");
   private static final Logger logger = Logger.getLogger(MSDKmzMLImportTask.class.getName());
+  private static final ThreadPoolExecutor decodeExecutor = createDecodeExecutor();
 
   // File is always set even if the input stream may be already opened, e.g., from a converter
   private final @NotNull File file;
@@ -545,49 +552,94 @@ public class MSDKmzMLImportTask extends AbstractTask {
   }
 
   private MzMLRawDataFile parseMzMlInternal(XMLStreamReader xmlStreamReader) throws MSDKException {
+    // the parsing thread only reads the xml, spectra are decoded and processed in parallel
+    final int threads = Math.max(1, MZmineCore.getConfiguration().getNumOfThreads());
+    return parseMzMlInternal(xmlStreamReader, getDecodeExecutor(threads), threads);
+  }
+
+  /**
+   * @param decodeExecutor decodes the spectra while parsing continues or null to decode them on
+   *                       the parsing thread
+   * @param threads        number of threads of the executor
+   */
+  @Nullable
+  MzMLRawDataFile parseMzMlInternal(XMLStreamReader xmlStreamReader,
+      @Nullable ExecutorService decodeExecutor, int threads) throws MSDKException {
+    this.parser = new MzMLParser(this, storage, scanProcessorConfig, decodeExecutor, threads);
+
+    int eventType;
     try {
-      this.parser = new MzMLParser(this, storage, scanProcessorConfig);
-
-      int eventType;
-      try {
-        do {
-          // check if parsing has been cancelled?
-          if (isCanceled()) {
-            return null;
-          }
+      do {
+        // check if parsing has been cancelled?
+        if (isCanceled()) {
+          return null;
+        }
+
+        eventType = xmlStreamReader.next();
 
-          eventType = xmlStreamReader.next();
-
-          switch (eventType) {
-            case XMLStreamConstants.START_ELEMENT -> {
-              final String openingTagName = xmlStreamReader.getLocalName();
-              parser.processOpeningTag(xmlStreamReader, openingTagName);
-            }
-            case XMLStreamConstants.END_ELEMENT -> {
-              final String closingTagName = xmlStreamReader.getLocalName();
-              parser.processClosingTag(xmlStreamReader, closingTagName);
-            }
-
-//            processCharacters method is not used in the moment
-//            might be returned if new random access xml parser is introduced
-//            case XMLStreamConstants.CHARACTERS:
-//              parser.processCharacters(xmlStreamReader);
-//              break;
+        switch (eventType) {
+          case XMLStreamConstants.START_ELEMENT -> {
+            final String openingTagName = xmlStreamReader.getLocalName();
+            parser.processOpeningTag(xmlStreamReader, openingTagName);
+          }
+          case XMLStreamConstants.END_ELEMENT -> {
+            final String closingTagName = xmlStreamReader.getLocalName();
+            parser.processClosingTag(xmlStreamReader, closingTagName);
           }
 
-        } while (eventType != XMLStreamConstants.END_DOCUMENT);
+//          processCharacters method is not used in the moment
+//          might be returned if new random access xml parser is introduced
+//          case XMLStreamConstants.CHARACTERS:
+//            parser.processCharacters(xmlStreamReader);
+//            break;
+        }
 
-      } catch (DataFormatException | XMLStreamException e) {
-        throw new RuntimeException(e);
-      }
-      logger.finest("Parsing Complete");
+      } while (eventType != XMLStreamConstants.END_DOCUMENT);
+
+    } catch (DataFormatException | XMLStreamException e) {
+      throw new RuntimeException(e);
     } catch (IOException e) {
       logger.log(Level.WARNING, "Error while loading mzML/RAW file " + e.getMessage(), e);
       throw (new MSDKException(e));
+    } finally {
+      // only stops the spectra of this file, the executor is shared by all imports
+      parser.cancelPendingSpectra();
     }
+    logger.finest("Parsing Complete");
     return parser.getMzMLRawFile();
   }
 
+  /**
+   * The executor that decodes spectra of all mzML imports. Parallel imports share the threads so
+   * that the number of decoding threads is bounded by the preferences.
+   *
+   * @param threads number of threads from the preferences
+   */
+  private static synchronized ExecutorService getDecodeExecutor(int threads) {
+    // set the larger bound first, core pool size must not exceed the maximum pool size
+    if (threads > decodeExecutor.getMaximumPoolSize()) {
+      decodeExecutor.setMaximumPoolSize(threads);
+      decodeExecutor.setCorePoolSize(threads);
+    } else if (threads < decodeExecutor.getMaximumPoolSize()) {
+      decodeExecutor.setCorePoolSize(threads);
+      decodeExecutor.setMaximumPoolSize(threads);
+    }
+    return decodeExecutor;
+  }
+
+  private static ThreadPoolExecutor createDecodeExecutor() {
+    final AtomicInteger threadCounter = new AtomicInteger();
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), r -> {
+      final Thread thread = new Thread(r, "mzML-decode-" + threadCounter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    // release the threads when no file is imported
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
   public File getMzMLFile() {
     return file;
   }
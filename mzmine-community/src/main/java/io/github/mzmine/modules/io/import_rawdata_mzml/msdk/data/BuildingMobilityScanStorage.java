@@ -32,6 +32,7 @@ import io.github.mzmine.datamodel.MobilityScan;
 import io.github.mzmine.datamodel.MobilityType;
 import io.github.mzmine.datamodel.PolarityType;
 import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
+import io.github.mzmine.datamodel.featuredata.impl.StoredDoubleValues;
 import io.github.mzmine.datamodel.impl.MobilityScanStorage;
 import io.github.mzmine.datamodel.impl.SimpleFrame;
 import io.github.mzmine.datamodel.impl.StoredMobilityScan;
@@ -39,7 +40,6 @@ import io.github.mzmine.datamodel.impl.masslist.StoredMobilityScanMassList;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SimpleSpectralArrays;
 import io.github.mzmine.project.impl.IMSRawDataFileImpl;
 import io.github.mzmine.util.MemoryMapStorage;
-import java.nio.DoubleBuffer;
 import java.util.List;
 import java.util.function.Function;
 import org.jetbrains.annotations.NotNull;
@@ -55,8 +55,8 @@ import org.jetbrains.annotations.Nullable;
  */
 public class BuildingMobilityScanStorage {
 
-  private final DoubleBuffer mzValues;
-  private final DoubleBuffer intensityValues;
+  private final StoredDoubleValues mzValues;
+  private final StoredDoubleValues intensityValues;
   /**
    * Per scan
    */
@@ -88,8 +88,10 @@ public class BuildingMobilityScanStorage {
     storageOffsets = new int[mobilityScans.size()];
     int numDp = fillDataOffsetsGetTotalDataPoints(mobilityScans);
 
-    mzValues = memoryMap(storage, numDp, mobilityScans, SimpleSpectralArrays::mzs);
-    intensityValues = memoryMap(storage, numDp, mobilityScans, SimpleSpectralArrays::intensities);
+    mzValues = StorageUtils.storeMzValues(storage,
+        concatenate(numDp, mobilityScans, SimpleSpectralArrays::mzs));
+    intensityValues = StorageUtils.storeIntensityValues(storage,
+        concatenate(numDp, mobilityScans, SimpleSpectralArrays::intensities));
 
     this.basePeakIndices = findBasePeakIndices(mobilityScans, storageOffsets);
 
@@ -136,8 +138,10 @@ public class BuildingMobilityScanStorage {
     return basePeakIndices;
   }
 
-  private DoubleBuffer memoryMap(final @Nullable MemoryMapStorage storage, final int numDp,
-      final List<BuildingMzMLMsScan> mobilityScans,
+  /**
+   * @return the data of all mobility scans in one array
+   */
+  private double[] concatenate(final int numDp, final List<BuildingMzMLMsScan> mobilityScans,
       final Function<SimpleSpectralArrays, double[]> dataSupplier) {
     final double[] result = new double[numDp];
     int offset = 0;
@@ -146,7 +150,7 @@ public class BuildingMobilityScanStorage {
       System.arraycopy(data, 0, result, offset, data.length);
       offset += data.length;
     }
-    return StorageUtils.storeValuesToDoubleBuffer(storage, result);
+    return result;
   }
 
   private int fillDataOffsetsGetTotalDataPoints(
@@ -178,15 +182,15 @@ public class BuildingMobilityScanStorage {
    * @return The total number of points in this {@link  MobilityScanStorage}.
    */
   public int getRawTotalNumPoints() {
-    return mzValues.capacity();
+    return mzValues.size();
   }
 
 
-  public DoubleBuffer getMzValues() {
+  public StoredDoubleValues getMzValues() {
     return mzValues;
   }
 
-  public DoubleBuffer getIntensityValues() {
+  public StoredDoubleValues getIntensityValues() {
     return intensityValues;
   }
 
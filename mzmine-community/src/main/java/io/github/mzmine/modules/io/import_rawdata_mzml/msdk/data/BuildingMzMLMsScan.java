@@ -41,15 +41,14 @@ import io.github.mzmine.datamodel.MobilityType;
 import io.github.mzmine.datamodel.PolarityType;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
+import io.github.mzmine.datamodel.featuredata.impl.StoredDoubleValues;
 import io.github.mzmine.datamodel.impl.DDAMsMsInfoImpl;
 import io.github.mzmine.datamodel.msms.ActivationMethod;
 import io.github.mzmine.datamodel.msms.MsMsInfo;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.ScanImportProcessorConfig;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SimpleSpectralArrays;
-import io.github.mzmine.util.DataPointUtils;
 import io.github.mzmine.util.MemoryMapStorage;
 import java.io.IOException;
-import java.nio.DoubleBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -90,8 +89,8 @@ public class BuildingMzMLMsScan extends MetadataOnlyScan {
 
   //Final memory-mapped processed data
   //No intermediate results
-  private @Nullable DoubleBuffer mzValues;
-  private @Nullable DoubleBuffer intensityValues;
+  private @Nullable StoredDoubleValues mzValues;
+  private @Nullable StoredDoubleValues intensityValues;
 
   // mobility scans are memory mapped later
   private @Nullable SimpleSpectralArrays mobilityScanSimpleSpectralData;
@@ -176,7 +175,7 @@ public class BuildingMzMLMsScan extends MetadataOnlyScan {
     return id;
   }
 
-  public DoubleBuffer getDoubleBufferMzValues() {
+  public StoredDoubleValues getStoredMzValues() {
     if (mzValues == null) {
       throw new UnsupportedOperationException(
           "No data yet. Call load method to load data and memory map the scan.");
@@ -185,7 +184,7 @@ public class BuildingMzMLMsScan extends MetadataOnlyScan {
   }
 
 
-  public DoubleBuffer getDoubleBufferIntensityValues() {
+  public StoredDoubleValues getStoredIntensityValues() {
     if (intensityValues == null) {
       throw new UnsupportedOperationException(
           "No data yet. Call load method to load data and memory map the scan.");
@@ -199,7 +198,7 @@ public class BuildingMzMLMsScan extends MetadataOnlyScan {
       throw new UnsupportedOperationException(
           "No data yet. Call load method to load data and memory map the scan.");
     }
-    return intensityValues.limit();
+    return intensityValues.size();
   }
 
   @Override
@@ -217,12 +216,12 @@ public class BuildingMzMLMsScan extends MetadataOnlyScan {
 
   @Override
   public double[] getMzValues(@NotNull final double[] dst) {
-    throw new UnsupportedOperationException("Use double buffers directly instead");
+    return getStoredMzValues().get(dst);
   }
 
   @Override
   public double[] getIntensityValues(@NotNull final double[] dst) {
-    throw new UnsupportedOperationException("Use double buffers directly instead");
+    return getStoredIntensityValues().get(dst);
   }
 
   @Override
@@ -277,7 +276,7 @@ public class BuildingMzMLMsScan extends MetadataOnlyScan {
       if (cvv.isEmpty() || cvv1.isEmpty()) {
         // mz values is null if data was not loaded yet
         if (mzValues != null) {
-          mzRange = MsSpectrumUtil.getMzRange(DataPointUtils.getDoubleBufferAsArray(mzValues),
+          mzRange = MsSpectrumUtil.getMzRange(mzValues.get(new double[0]),
               getMzBinaryDataInfo().getArrayLength());
         }
       } else {
@@ -585,11 +584,27 @@ public class BuildingMzMLMsScan extends MetadataOnlyScan {
    */
   public boolean loadProcessMemMapData(final MemoryMapStorage storage,
       final @NotNull ScanImportProcessorConfig config) {
+    final SimpleSpectralArrays specData = loadProcessData(config);
+    if (specData == null) {
+      return false;
+    }
+    memMapData(storage, specData);
+    return true;
+  }
+
+  /**
+   * Decodes and processes the binary data without accessing any storage. Can be called in
+   * parallel for different scans.
+   *
+   * @return the processed data or null if no data is available or the data could not be decoded
+   */
+  @Nullable
+  public SimpleSpectralArrays loadProcessData(final @NotNull ScanImportProcessorConfig config) {
     try {
       SimpleSpectralArrays specData = loadData();
       if (specData == null) {
         // may be null for UV spectra
-        return false;
+        return null;
       }
 
       // process and filter - needs metadata so wrap
@@ -599,22 +614,29 @@ public class BuildingMzMLMsScan extends MetadataOnlyScan {
         // after mass detection we have a centroid scan
         spectrumType = MassSpectrumType.CENTROIDED;
       }
-
-      if (getMobility() != null) {
-        // cannot memory map mobility scan data as we need to do this later all mobility scans at once
-        mobilityScanSimpleSpectralData = specData;
-      } else {
-        // memory map regular scan data but not mobility scans
-        this.mzValues = StorageUtils.storeValuesToDoubleBuffer(storage, specData.mzs());
-        this.intensityValues = StorageUtils.storeValuesToDoubleBuffer(storage,
-            specData.intensities());
-      }
-
+      return specData;
     } catch (MSDKException | IOException e) {
       logger.warning("Could not load data of scan #%d".formatted(getScanNumber()));
-      return false;
+      return null;
+    }
+  }
+
+  /**
+   * Memory maps the processed data of regular scans. Mobility scans keep their data, as all
+   * mobility scans of a frame are memory mapped together.
+   *
+   * @param specData the result of {@link #loadProcessData(ScanImportProcessorConfig)}
+   */
+  public void memMapData(final MemoryMapStorage storage,
+      final @NotNull SimpleSpectralArrays specData) {
+    if (getMobility() != null) {
+      // cannot memory map mobility scan data as we need to do this later all mobility scans at once
+      mobilityScanSimpleSpectralData = specData;
+    } else {
+      // memory map regular scan data but not mobility scans
+      this.mzValues = StorageUtils.storeMzValues(storage, specData.mzs());
+      this.intensityValues = StorageUtils.storeIntensityValues(storage, specData.intensities());
     }
-    return true;
   }
 
   /**
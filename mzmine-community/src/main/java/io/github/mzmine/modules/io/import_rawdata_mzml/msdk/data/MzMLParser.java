@@ -27,16 +27,21 @@ package io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data;
 
 import io.github.msdk.datamodel.Chromatogram;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.ScanImportProcessorConfig;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SimpleSpectralArrays;
 import io.github.mzmine.modules.io.import_rawdata_mzml.MSDKmzMLImportTask;
 import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.util.TagTracker;
 import io.github.mzmine.util.MemoryMapStorage;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -46,6 +51,7 @@ import java.util.zip.DataFormatException;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * <p>
@@ -63,6 +69,11 @@ public class MzMLParser {
 
   private int totalScans = 0, parsedScans = 0;
   private final MzMLRawDataFile newRawFile;
+  // decodes and processes spectra in parallel, null to decode on the parsing thread
+  private final @Nullable ExecutorService decodeExecutor;
+  // decoded in order of the file, committed in this order to keep the scan order and storage order
+  private final ArrayDeque<PendingSpectrum> pendingSpectra = new ArrayDeque<>();
+  private final int maxPendingSpectra;
   private final Pattern scanNumberPattern = Pattern.compile("scan=([0-9]+)");
   private final Pattern agilentScanNumberPattern = Pattern.compile("scan[iI]d=([0-9]+)");
 
@@ -77,6 +88,20 @@ public class MzMLParser {
 
   public MzMLParser(MSDKmzMLImportTask importer, MemoryMapStorage storage,
       @NotNull ScanImportProcessorConfig scanProcessorConfig) {
+    this(importer, storage, scanProcessorConfig, null, 0);
+  }
+
+  /**
+   * @param decodeExecutor decodes and processes the binary data of spectra while parsing continues.
+   *                       Null to decode on the parsing thread.
+   * @param threads        number of threads of the executor, limits the decoded spectra that wait
+   *                       to be committed
+   */
+  public MzMLParser(MSDKmzMLImportTask importer, MemoryMapStorage storage,
+      @NotNull ScanImportProcessorConfig scanProcessorConfig,
+      @Nullable ExecutorService decodeExecutor, int threads) {
+    this.decodeExecutor = decodeExecutor;
+    this.maxPendingSpectra = Math.max(1, threads * 4);
     this.vars = new Vars();
     this.tracker = new TagTracker();
     this.newRawFile = new MzMLRawDataFile(importer.getMzMLFile(), vars.msFunctionsList,
@@ -510,6 +535,7 @@ public class MzMLParser {
     }
     if (closingTagName.contentEquals(MzMLTags.TAG_SPECTRUM_LIST)) {
       // finished the last scan
+      commitPendingSpectra(0);
       vars.memoryMapAndClearFrameMobilityScanData(storage);
     }
 
@@ -533,13 +559,49 @@ public class MzMLParser {
     var spectrum = vars.spectrum;
 //    logger.info(STR."Finalizing scan \{spectrum.getScanNumber()}");
     if (scanProcessorConfig.scanFilter().matches(spectrum)) {
-      if (spectrum.loadProcessMemMapData(storage, scanProcessorConfig)) {
-        vars.addSpectrumToList(storage, spectrum);
+      if (decodeExecutor == null) {
+        if (spectrum.loadProcessMemMapData(storage, scanProcessorConfig)) {
+          vars.addSpectrumToList(storage, spectrum);
+        }
+      } else {
+        pendingSpectra.add(new PendingSpectrum(spectrum,
+            decodeExecutor.submit(() -> spectrum.loadProcessData(scanProcessorConfig))));
+        commitPendingSpectra(maxPendingSpectra);
       }
     }
     vars.spectrum = null;
   }
 
+  /**
+   * Memory maps and adds decoded spectra in the order of the file. Finished spectra are committed
+   * right away, the parsing thread only waits if more than maxPending spectra are pending.
+   *
+   * @param maxPending the maximum number of spectra that may remain pending, 0 to commit all
+   */
+  private void commitPendingSpectra(int maxPending) {
+    while (!pendingSpectra.isEmpty()) {
+      final PendingSpectrum pending = pendingSpectra.peek();
+      if (pendingSpectra.size() <= maxPending && !pending.data().isDone()) {
+        return;
+      }
+      pendingSpectra.poll();
+      final SimpleSpectralArrays data;
+      try {
+        data = pending.data().get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while decoding spectra", e);
+      } catch (ExecutionException e) {
+        throw new RuntimeException(
+            "Error while decoding scan #" + pending.spectrum().getScanNumber(), e.getCause());
+      }
+      if (data != null) {
+        pending.spectrum().memMapData(storage, data);
+        vars.addSpectrumToList(storage, pending.spectrum());
+      }
+    }
+  }
+
   /**
    * <p>
    * Carry out the required parsing of the mzML data when the
@@ -812,4 +874,19 @@ public class MzMLParser {
     return ((float) parsedScans) / totalScans;
   }
 
+  /**
+   * Cancels the decoding of all pending spectra of this parser. The executor may be shared with
+   * other imports and is not shut down.
+   */
+  public void cancelPendingSpectra() {
+    for (final PendingSpectrum pending : pendingSpectra) {
+      pending.data().cancel(true);
+    }
+    pendingSpectra.clear();
+  }
+
+  private record PendingSpectrum(@NotNull BuildingMzMLMsScan spectrum,
+                                 @NotNull Future<SimpleSpectralArrays> data) {
+
+  }
 }
@@ -31,7 +31,9 @@ import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibrary;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibraryIndex;
 import io.github.mzmine.util.spectraldb.parser.AutoLibraryParser;
+import io.github.mzmine.util.spectraldb.parser.SpectralLibraryBinaryCache;
 import io.github.mzmine.util.spectraldb.parser.UnsupportedFormatException;
 import java.io.File;
 import java.io.IOException;
@@ -79,6 +81,10 @@ public class SpectralLibraryImportTask extends AbstractTask {
       SpectralLibrary library = parseFile(dataBaseFile);
       final List<SpectralLibraryEntry> entries = library.getEntries();
       if (entries.size() > 0) {
+        // sort by precursor m/z
+        final SpectralLibraryIndex index = library.getOrCreateIndex();
+        logger.fine(() -> "Indexed %d of %d library entries with precursor m/z (%d data points)"
+            .formatted(index.size(), entries.size(), index.getTotalDataPoints()));
         project.addSpectralLibrary(library);
 
         logger.log(Level.INFO,
@@ -97,7 +103,8 @@ public class SpectralLibraryImportTask extends AbstractTask {
   }
 
   /**
-   * Load all library entries from data base file
+   * Load all library entries from the binary cache or parse the data base file and cache the
+   * entries for the next import
    *
    * @param dataBaseFile the target database file
    */
@@ -105,9 +112,21 @@ public class SpectralLibraryImportTask extends AbstractTask {
       throws UnsupportedFormatException, IOException {
     //
     SpectralLibrary library = new SpectralLibrary(MemoryMapStorage.forMassList(), dataBaseFile);
+    final SpectralLibraryBinaryCache cache = SpectralLibraryBinaryCache.forLibrary(dataBaseFile);
+    if (cache != null) {
+      final List<SpectralLibraryEntry> cached = cache.load();
+      if (cached != null) {
+        library.addEntries(cached);
+        return library;
+      }
+    }
+
     parser = new AutoLibraryParser(1000, (list, alreadyProcessed) -> library.addEntries(list));
     // return tasks
-    parser.parse(this, dataBaseFile, library);
+    final boolean success = parser.parse(this, dataBaseFile, library);
+    if (cache != null && success && !isCanceled() && library.size() > 0) {
+      cache.write(library.getEntries());
+    }
     return library;
   }
 
@@ -54,7 +54,8 @@ import java.util.Set;
 public class CachedIMSFrame implements Frame {
 
   private final Frame originalFrame;
-  private List<MobilityScan> cachedScans = null;
+  // frames are shared by feature lists that are loaded in parallel
+  private volatile List<MobilityScan> cachedScans = null;
 
   public CachedIMSFrame(Frame frame) {
     originalFrame = frame;
@@ -26,10 +26,12 @@
 package io.github.mzmine.modules.io.projectload;
 
 import com.google.common.io.CountingInputStream;
+import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.io.projectload.version_3_0.FeatureListLoadTask;
 import io.github.mzmine.modules.io.projectsave.ProjectSavingTask;
 import io.github.mzmine.modules.io.projectsave.RawDataFileSaveHandler;
+import io.github.mzmine.modules.io.projectsave.RawDataFileSnapshot;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.project.ProjectManager;
 import io.github.mzmine.project.ProjectService;
@@ -49,6 +51,8 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.Instant;
 import java.util.Enumeration;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -187,6 +191,8 @@ public class ProjectOpeningTask extends AbstractTask {
           loadUserParameters(cis);
         } else if (entryName.equals(RawDataFileSaveHandler.RAW_DATA_IMPORT_BATCH_FILENAME)) {
           loadRawDataFiles(cis, zipFile);
+        } else if (entryName.startsWith(RawDataFileSnapshot.SNAPSHOT_FOLDER)) {
+          loadRawDataSnapshot(cis);
         } else if (entryName.equals(ProjectSavingTask.STANDALONE_FILENAME)) {
           newProject.setStandalone(true);
         }
@@ -386,6 +392,19 @@ public class ProjectOpeningTask extends AbstractTask {
 
   }
 
+  /**
+   * The snapshot is extracted to a temporary file, so that its scan data can be memory mapped
+   */
+  private void loadRawDataSnapshot(InputStream is) throws IOException {
+    final File snapshotFile = FileAndPathUtil.createTempFile("mzmine_snapshot_",
+        RawDataFileSnapshot.SNAPSHOT_SUFFIX);
+    snapshotFile.deleteOnExit();
+    Files.copy(is, snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    final RawDataFile file = RawDataFileSnapshot.read(snapshotFile, newProject);
+    currentLoadedObjectName = file.getName();
+    newProject.addFile(file);
+  }
+
   private boolean loadRawDataFiles(InputStream is, ZipFile zipFile) {
     currentLoadedObjectName = ("MS data files");
     rawDataFileOpenHandler.setBatchFileStream(is);
@@ -38,27 +38,29 @@ import io.github.mzmine.datamodel.features.types.DataTypes;
 import io.github.mzmine.datamodel.features.types.numbers.IDType;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.io.projectload.CachedIMSRawDataFile;
+import io.github.mzmine.modules.io.projectsave.FeatureListColumnStorage;
 import io.github.mzmine.modules.io.projectsave.FeatureListSaveTask;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.ParsingUtils;
-import io.github.mzmine.util.ZipUtils;
-import io.github.mzmine.util.files.FileAndPathUtil;
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Path;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -79,8 +81,16 @@ import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
+/**
+ * Loads all feature lists of a project. The feature list entries are streamed from the project
+ * {@link ZipFile} and independent feature lists are loaded in parallel.
+ */
 public class FeatureListLoadTask extends AbstractTask {
 
+  /**
+   * Temporary folder of older versions that extracted the feature lists before loading. Only used
+   * to clean up old temporary files.
+   */
   public static final String TEMP_FLIST_DATA_FOLDER = "mzmine_featurelists_temp";
   public static final Pattern fileNamePattern = Pattern
       .compile("([^\\n]+)(" + FeatureListSaveTask.DATA_FILE_SUFFIX + ")");
@@ -89,12 +99,7 @@ public class FeatureListLoadTask extends AbstractTask {
   final String idTypeUniqueID = new IDType().getUniqueID();
   private final ZipFile zip;
   private final MZmineProject project;
-  private final AtomicInteger rowCounter = new AtomicInteger(0);
-  private int totalRows = 1;
-  private int processedRows = 0;
-  private String currentFlist = "";
-  private int numFlists = 1;
-  private int processedFlists;
+  private List<FeatureListLoad> loads = List.of();
 
   public FeatureListLoadTask(@Nullable MemoryMapStorage storage, @NotNull MZmineProject project,
       ZipFile zip) {
@@ -132,65 +137,67 @@ public class FeatureListLoadTask extends AbstractTask {
 
   @Override
   public String getTaskDescription() {
-    return "Importing feature list " + currentFlist + (processedFlists + 1) + "/" + numFlists
-           + ". Parsing row " + processedRows + "/" + totalRows;
+    final List<FeatureListLoad> loads = this.loads;
+    final long finished = loads.stream().filter(load -> load.finished).count();
+    return "Importing feature lists " + finished + "/" + loads.size();
   }
 
   @Override
   public double getFinishedPercentage() {
-    return (double) processedFlists / numFlists // overall progress finished flists
-           + (double) processedRows / totalRows / numFlists; // current flist progress
+    // weight the progress of each feature list by the size of its data file
+    final List<FeatureListLoad> loads = this.loads;
+    double total = 0;
+    double done = 0;
+    for (FeatureListLoad load : loads) {
+      total += load.weight;
+      done += load.weight * load.getProgress();
+    }
+    return total > 0 ? done / total : 0;
   }
 
   @Override
   public void run() {
     setStatus(TaskStatus.PROCESSING);
     try {
-      Path tempDirectory = FileAndPathUtil.createTempDirectory(TEMP_FLIST_DATA_FOLDER);
-
-      logger.info(() -> "Unzipping feature lists of project to " + tempDirectory.toString());
-      ZipUtils.unzipDirectory(FeatureListSaveTask.FLIST_FOLDER, zip, tempDirectory.toFile());
-      logger.info(() -> "Unzipping feature lists done.");
-
-      File[] files = new File(tempDirectory.toFile(), FeatureListSaveTask.FLIST_FOLDER)
-          .listFiles((dir, name) -> fileNamePattern.matcher(name).matches());
-      if (files == null) {
+      final List<? extends ZipEntry> dataEntries = zip.stream().filter(
+          entry -> entry.getName().startsWith(FeatureListSaveTask.FLIST_FOLDER)
+                   && fileNamePattern.matcher(entry.getName()).matches()).toList();
+      if (dataEntries.isEmpty()) {
         logger.info("Did not find feature lists to load.");
         setStatus(TaskStatus.FINISHED);
         return;
       }
 
-      numFlists = files.length;
+      loads = dataEntries.stream().map(FeatureListLoad::new).toList();
 
       final MemoryMapStorage storage = MemoryMapStorage.forFeatureList();
 
       // enable caching of mobility scans during project import.
       project.setProjectLoadImsImportCaching(true);
 
-      for (File flistFile : files) {
-        if (isCanceled()) {
-          return;
-        }
-        rowCounter.set(0);
-
-        final File metadataFile = new File(flistFile.toString()
-            .replace(FeatureListSaveTask.DATA_FILE_SUFFIX,
-                FeatureListSaveTask.METADATA_FILE_SUFFIX));
-        ModularFeatureList flist = createRows(storage, flistFile, metadataFile);
+      final int threads = Math.max(1,
+          Math.min(loads.size(), MZmineCore.getConfiguration().getNumOfThreads()));
+      logger.info(() -> "Loading " + loads.size() + " feature lists on " + threads + " threads.");
 
-        if (flist == null) {
-          logger.severe(
-              () -> "Cannot load feature list from files " + flistFile.getAbsolutePath() + " and "
-                    + metadataFile.getAbsolutePath());
-          continue;
+      final List<ModularFeatureList> flists = new ArrayList<>(loads.size());
+      try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+        final List<Future<ModularFeatureList>> futures = loads.stream()
+            .map(load -> executor.submit(() -> load.load(storage))).toList();
+        for (Future<ModularFeatureList> future : futures) {
+          flists.add(future.get());
         }
-        parseFeatureList(storage, project, flist, flistFile);
-
-        // disable buffering after the import (replace references to CachedIMSRawDataFiles with IMSRawDataFiles
-        flist.replaceCachedFilesAndScans();
+      } catch (ExecutionException e) {
+        throw e.getCause() instanceof Exception cause ? cause : e;
+      }
 
-        project.addFeatureList(flist);
-        processedFlists++;
+      if (isCanceled()) {
+        return;
+      }
+      // add in the saved order
+      for (ModularFeatureList flist : flists) {
+        if (flist != null) {
+          project.addFeatureList(flist);
+        }
       }
     } catch (Exception e) {
       e.printStackTrace();
@@ -206,212 +213,325 @@ public class FeatureListLoadTask extends AbstractTask {
     setStatus(TaskStatus.FINISHED);
   }
 
-  private void parseFeatureList(MemoryMapStorage storage, MZmineProject project,
-      ModularFeatureList flist, File flistFile) {
-    currentFlist = flist.getName();
-    processedRows = 0;
-    totalRows = flist.getNumberOfRows();
+  /**
+   * Loads a single feature list from its zip entries. Rows are parsed in the saved order, because
+   * rows reference each other by their id while being loaded.
+   */
+  private class FeatureListLoad {
+
+    private final ZipEntry dataEntry;
+    private final String entryPrefix;
+    private final double weight;
+    private volatile int totalRows = 1;
+    private volatile int processedRows = 0;
+    private volatile boolean finished = false;
+    private int rowCounter = 0;
+    // features created from the columns entry in the order of the xml file, null for xml only lists
+    private ModularFeature @Nullable [] columnFeatures;
+    private int featureCounter = 0;
+
+    private FeatureListLoad(@NotNull ZipEntry dataEntry) {
+      this.dataEntry = dataEntry;
+      final String name = dataEntry.getName();
+      entryPrefix = name.substring(0,
+          name.length() - FeatureListSaveTask.DATA_FILE_SUFFIX.length());
+      // uncompressed size is -1 if unknown
+      weight = Math.max(1, Math.max(dataEntry.getSize(), dataEntry.getCompressedSize()));
+    }
 
-    try (InputStream fis = new FileInputStream(flistFile)) {
-      final XMLInputFactory xif = XMLInputFactory.newInstance();
-      final XMLStreamReader reader = xif.createXMLStreamReader(fis);
+    private double getProgress() {
+      return finished ? 1d : (double) processedRows / totalRows;
+    }
 
-      while (reader.hasNext()) {
+    /**
+     * @return the loaded feature list or null if it could not be loaded or loading was canceled
+     */
+    @Nullable
+    private ModularFeatureList load(@NotNull MemoryMapStorage storage) throws IOException {
+      try {
         if (isCanceled()) {
-          return;
+          return null;
+        }
+        final ZipEntry metadataEntry = zip.getEntry(
+            entryPrefix + FeatureListSaveTask.METADATA_FILE_SUFFIX);
+        final ModularFeatureList flist =
+            metadataEntry != null ? createRows(storage, metadataEntry) : null;
+        if (flist == null) {
+          logger.severe(() -> "Cannot load feature list from entries " + dataEntry.getName()
+                              + " and " + entryPrefix + FeatureListSaveTask.METADATA_FILE_SUFFIX);
+          return null;
         }
 
-        int type = reader.next();
-        if (type == XMLEvent.START_ELEMENT) {
-          final String localName = reader.getLocalName();
-          if (CONST.XML_FEATURE_LIST_ELEMENT.equals(localName)) {
-            if (!flist.getName().equals(reader.getAttributeValue(null, CONST.XML_FLIST_NAME_ATTR))
-                || !flist.getDateCreated()
-                .equals(reader.getAttributeValue(null, CONST.XML_DATE_CREATED_ATTR))) {
-              throw new IllegalArgumentException(
-                  "Feature list names do not match. " + flist.getName() + " != " + reader
-                      .getAttributeValue(null, CONST.XML_FLIST_NAME_ATTR));
-            }
-          } else if (CONST.XML_ROW_ELEMENT.equals(localName)) {
-            parseRow(reader, storage, project, flist);
-            processedRows++;
+        final ZipEntry columnsEntry = zip.getEntry(
+            entryPrefix + FeatureListColumnStorage.COLUMNS_FILE_SUFFIX);
+        if (columnsEntry != null) {
+          try (ReadableByteChannel channel = Channels.newChannel(
+              zip.getInputStream(columnsEntry))) {
+            columnFeatures = FeatureListColumnStorage.read(channel, project, flist);
           }
         }
-      }
+        parseFeatureList(storage, flist);
+        if (isCanceled()) {
+          return null;
+        }
 
-    } catch (IOException | XMLStreamException e) {
-      logger.log(Level.WARNING, "Error opening file " + flistFile.getAbsolutePath(), e);
+        // disable buffering after the import
+        // (replace references to CachedIMSRawDataFiles with IMSRawDataFiles)
+        flist.replaceCachedFilesAndScans();
+        return flist;
+      } finally {
+        finished = true;
+      }
     }
-  }
 
-  /**
-   * Creates the modular feature list from the metadata file using {@link
-   * this#readMetadataCreateFeatureList(File, MemoryMapStorage)}.
-   * <p></p>
-   * Then passes the feature list data file once and creates the rows with the associated ids. No
-   * other data will be put into the rows. This is done so rows can reference each other by their id
-   * while being loaded to the feature list.
-   *
-   * @param storage      The storage for the feature list.
-   * @param dataFile     The file containing the feature list data.
-   * @param metadataFile The file containign the metadata associated with the feature list.
-   * @return The created feature list with empty rows (row ids are set)
-   */
-  private ModularFeatureList createRows(MemoryMapStorage storage, File dataFile,
-      File metadataFile) {
-
-    ModularFeatureList flist = readMetadataCreateFeatureList(metadataFile, storage);
-    if (flist == null) {
-      throw new IllegalStateException("Cannot create feature list.");
-    }
+    private void parseFeatureList(MemoryMapStorage storage, ModularFeatureList flist) {
+      try (InputStream fis = zip.getInputStream(dataEntry)) {
+        final XMLInputFactory xif = XMLInputFactory.newInstance();
+        final XMLStreamReader reader = xif.createXMLStreamReader(fis);
 
-    try (InputStream fis = new FileInputStream(dataFile)) {
-      final XMLInputFactory xif = XMLInputFactory.newInstance();
-      final XMLStreamReader reader = xif.createXMLStreamReader(fis);
+        while (reader.hasNext()) {
+          if (isCanceled()) {
+            return;
+          }
 
-      logger.finest(
-          () -> "Creating " + ModularFeatureListRow.class.getSimpleName() + "s for feature list "
-                + flist.getName() + ".");
-      while (reader.hasNext()) {
-        final int type = reader.next();
-        if (type == XMLEvent.START_ELEMENT && reader.getLocalName().equals(CONST.XML_ROW_ELEMENT)) {
-          int id = Integer.parseInt(reader.getAttributeValue(null, idTypeUniqueID));
-          flist.addRow(new ModularFeatureListRow(flist, id));
+          int type = reader.next();
+          if (type == XMLEvent.START_ELEMENT) {
+            final String localName = reader.getLocalName();
+            if (CONST.XML_FEATURE_LIST_ELEMENT.equals(localName)) {
+              if (!flist.getName().equals(reader.getAttributeValue(null, CONST.XML_FLIST_NAME_ATTR))
+                  || !flist.getDateCreated()
+                  .equals(reader.getAttributeValue(null, CONST.XML_DATE_CREATED_ATTR))) {
+                throw new IllegalArgumentException(
+                    "Feature list names do not match. " + flist.getName() + " != " + reader
+                        .getAttributeValue(null, CONST.XML_FLIST_NAME_ATTR));
+              }
+            } else if (CONST.XML_ROW_ELEMENT.equals(localName)) {
+              parseRow(reader, storage, project, flist);
+              processedRows++;
+            }
+          }
         }
+
+      } catch (IOException | XMLStreamException e) {
+        logger.log(Level.WARNING, "Error opening entry " + dataEntry.getName(), e);
       }
-    } catch (IOException | XMLStreamException e) {
-      logger.log(Level.WARNING, e.getMessage(), e);
-      return null;
     }
 
-    logger.finest(
-        () -> "Created " + flist.getNumberOfRows() + " rows in feature list " + flist.getName());
-    return flist;
-  }
+    /**
+     * Creates the modular feature list from the metadata entry using {@link
+     * #readMetadataCreateFeatureList(ZipEntry, MemoryMapStorage)}.
+     * <p></p>
+     * Then passes the feature list data entry once and creates the rows with the associated ids.
+     * No other data will be put into the rows. This is done so rows can reference each other by
+     * their id while being loaded to the feature list.
+     *
+     * @param storage       The storage for the feature list.
+     * @param metadataEntry The entry containing the metadata associated with the feature list.
+     * @return The created feature list with empty rows (row ids are set)
+     */
+    private ModularFeatureList createRows(MemoryMapStorage storage, ZipEntry metadataEntry) {
+
+      ModularFeatureList flist = readMetadataCreateFeatureList(metadataEntry, storage);
+      if (flist == null) {
+        throw new IllegalStateException("Cannot create feature list.");
+      }
 
-  /**
-   * Creates a feature list from the metadata xml file. Adds the selected raw data files (must be in
-   * the loaded project) and sets the selected scans.
-   *
-   * @param file    The Metadata file.
-   * @param storage The storage to use for the feature list.
-   * @return The created feature list.
-   */
-  private ModularFeatureList readMetadataCreateFeatureList(File file, MemoryMapStorage storage) {
-    try {
-      DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
+      try (InputStream fis = zip.getInputStream(dataEntry)) {
+        final XMLInputFactory xif = XMLInputFactory.newInstance();
+        final XMLStreamReader reader = xif.createXMLStreamReader(fis);
+
+        logger.finest(
+            () -> "Creating " + ModularFeatureListRow.class.getSimpleName() + "s for feature list "
+                  + flist.getName() + ".");
+        while (reader.hasNext()) {
+          final int type = reader.next();
+          if (type == XMLEvent.START_ELEMENT && reader.getLocalName()
+              .equals(CONST.XML_ROW_ELEMENT)) {
+            int id = Integer.parseInt(reader.getAttributeValue(null, idTypeUniqueID));
+            flist.addRow(new ModularFeatureListRow(flist, id));
+          }
+        }
+      } catch (IOException | XMLStreamException e) {
+        logger.log(Level.WARNING, e.getMessage(), e);
+        return null;
+      }
 
-      DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-      Document configuration = dBuilder.parse(file);
+      totalRows = Math.max(1, flist.getNumberOfRows());
+      logger.finest(
+          () -> "Created " + flist.getNumberOfRows() + " rows in feature list " + flist.getName());
+      return flist;
+    }
 
-      XPathFactory factory = XPathFactory.newInstance();
-      XPath xpath = factory.newXPath();
+    /**
+     * Creates a feature list from the metadata xml entry. Adds the selected raw data files (must be
+     * in the loaded project) and sets the selected scans.
+     *
+     * @param entry   The Metadata entry.
+     * @param storage The storage to use for the feature list.
+     * @return The created feature list.
+     */
+    private ModularFeatureList readMetadataCreateFeatureList(ZipEntry entry,
+        MemoryMapStorage storage) {
+      try (InputStream is = zip.getInputStream(entry)) {
+        DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
+
+        DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
+        Document configuration = dBuilder.parse(is);
+
+        XPathFactory factory = XPathFactory.newInstance();
+        XPath xpath = factory.newXPath();
+
+        XPathExpression metadataExpr = xpath
+            .compile("//" + CONST.XML_ROOT_ELEMENT + "/" + CONST.XML_FLIST_METADATA_ELEMENT);
+        final Element metadataElement = (Element) (((NodeList) metadataExpr
+            .evaluate(configuration, XPathConstants.NODESET)).item(0));
+
+        final ModularFeatureList flist = new ModularFeatureList(
+            metadataElement.getElementsByTagName(CONST.XML_FLIST_NAME_ELEMENT).item(0)
+                .getTextContent(), storage, new ArrayList<>());
+
+        flist.setDateCreated(
+            metadataElement.getElementsByTagName(CONST.XML_FLIST_DATE_CREATED_ELEMENT).item(0)
+                .getTextContent());
+
+        XPathExpression expr = xpath.compile(
+            "//" + CONST.XML_ROOT_ELEMENT + "/" + CONST.XML_FLIST_APPLIED_METHODS_LIST_ELEMENT);
+        NodeList nodelist = (NodeList) expr.evaluate(configuration, XPathConstants.NODESET);
+        if (nodelist.getLength() != 1) {
+          throw new IllegalArgumentException(
+              "XML entry " + entry.getName() + " does not have an applied methods element.");
+        }
+        // set applied methods
+        Element appliedMethodsList = (Element) nodelist.item(0);
+        NodeList methodElements = appliedMethodsList
+            .getElementsByTagName(CONST.XML_FLIST_APPLIED_METHOD_ELEMENT);
+        for (int i = 0; i < methodElements.getLength(); i++) {
+          FeatureListAppliedMethod method = SimpleFeatureListAppliedMethod
+              .loadValueFromXML((Element) methodElements.item(i));
+          flist.getAppliedMethods().add(method);
+        }
 
-      XPathExpression metadataExpr = xpath
-          .compile("//" + CONST.XML_ROOT_ELEMENT + "/" + CONST.XML_FLIST_METADATA_ELEMENT);
-      final Element metadataElement = (Element) (((NodeList) metadataExpr
-          .evaluate(configuration, XPathConstants.NODESET)).item(0));
+        XPathExpression rawFilesListExpr = xpath
+            .compile("//" + CONST.XML_ROOT_ELEMENT + "/" + CONST.XML_RAW_FILES_LIST_ELEMENT);
+        nodelist = (NodeList) rawFilesListExpr.evaluate(configuration, XPathConstants.NODESET);
+        NodeList filesList = ((Element) nodelist.item(0))
+            .getElementsByTagName(CONST.XML_RAW_FILE_ELEMENT);
+
+        // set selected scans
+        for (int i = 0; i < filesList.getLength(); i++) {
+          NodeList nameList = ((Element) filesList.item(i))
+              .getElementsByTagName(CONST.XML_RAW_FILE_NAME_ELEMENT);
+          NodeList pathList = ((Element) filesList.item(i))
+              .getElementsByTagName(CONST.XML_RAW_FILE_PATH_ELEMENT);
+          String name = nameList.item(0).getTextContent();
+          String path = pathList.item(0).getTextContent();
+
+          Optional<RawDataFile> f = Arrays.stream(project.getDataFiles())
+              .filter(r -> r.getName().equals(name) /*&& (
+                  path.isEmpty() && path.equals("null") && r.getAbsolutePath() != null ? true
+                      : r.getAbsolutePath().equals(path))*/).findFirst();
+          if (f.isEmpty()) {
+            throw new IllegalStateException("Raw data file with name " + name + " and path " + path
+                                            + " not imported to project.");
+          }
+          flist.getRawDataFiles().add(f.get());
 
-      final ModularFeatureList flist = new ModularFeatureList(
-          metadataElement.getElementsByTagName(CONST.XML_FLIST_NAME_ELEMENT).item(0)
-              .getTextContent(), storage, new ArrayList<>());
+          final Element selectedScansElement = (Element) ((Element) filesList.item(i))
+              .getElementsByTagName(CONST.XML_FLIST_SELECTED_SCANS_ELEMENT).item(0);
+          final int[] selectedScanIndices = ParsingUtils
+              .stringToIntArray(selectedScansElement.getTextContent());
+          final List<Scan> selectedScans = ParsingUtils
+              .getSublistFromIndices(f.get().getScans(), selectedScanIndices);
+          flist.setSelectedScans(f.get(), selectedScans);
 
-      flist.setDateCreated(
-          metadataElement.getElementsByTagName(CONST.XML_FLIST_DATE_CREATED_ELEMENT).item(0)
-              .getTextContent());
+        }
+        return flist;
+      } catch (XPathExpressionException | ParserConfigurationException | SAXException |
+               IOException e) {
+        e.printStackTrace();
+        logger.log(Level.SEVERE, e.getMessage(), e);
+        return null;
+      }
+    }
 
-      XPathExpression expr = xpath.compile(
-          "//" + CONST.XML_ROOT_ELEMENT + "/" + CONST.XML_FLIST_APPLIED_METHODS_LIST_ELEMENT);
-      NodeList nodelist = (NodeList) expr.evaluate(configuration, XPathConstants.NODESET);
-      if (nodelist.getLength() != 1) {
-        throw new IllegalArgumentException(
-            "XML file " + file + " does not have an applied methods element.");
+    private void parseRow(XMLStreamReader reader, MemoryMapStorage storage, MZmineProject project,
+        ModularFeatureList flist) throws XMLStreamException {
+      if (!reader.getLocalName().equals(CONST.XML_ROW_ELEMENT)) {
+        throw new IllegalStateException("Cannot parse row if current element is not a row element");
       }
-      // set applied methods
-      Element appliedMethodsList = (Element) nodelist.item(0);
-      NodeList methodElements = appliedMethodsList
-          .getElementsByTagName(CONST.XML_FLIST_APPLIED_METHOD_ELEMENT);
-      for (int i = 0; i < methodElements.getLength(); i++) {
-        FeatureListAppliedMethod method = SimpleFeatureListAppliedMethod
-            .loadValueFromXML((Element) methodElements.item(i));
-        flist.getAppliedMethods().add(method);
+
+      int id = Integer.parseInt(reader.getAttributeValue(null, idTypeUniqueID));
+      final ModularFeatureListRow row = (ModularFeatureListRow) flist.getRow(rowCounter);
+      if (id != row.getID()) {
+        throw new IllegalStateException("Row ids do not match.");
       }
 
-      XPathExpression rawFilesListExpr = xpath
-          .compile("//" + CONST.XML_ROOT_ELEMENT + "/" + CONST.XML_RAW_FILES_LIST_ELEMENT);
-      nodelist = (NodeList) rawFilesListExpr.evaluate(configuration, XPathConstants.NODESET);
-      NodeList filesList = ((Element) nodelist.item(0))
-          .getElementsByTagName(CONST.XML_RAW_FILE_ELEMENT);
-
-      // set selected scans
-      for (int i = 0; i < filesList.getLength(); i++) {
-        NodeList nameList = ((Element) filesList.item(i))
-            .getElementsByTagName(CONST.XML_RAW_FILE_NAME_ELEMENT);
-        NodeList pathList = ((Element) filesList.item(i))
-            .getElementsByTagName(CONST.XML_RAW_FILE_PATH_ELEMENT);
-        String name = nameList.item(0).getTextContent();
-        String path = pathList.item(0).getTextContent();
-
-        Optional<RawDataFile> f = Arrays.stream(project.getDataFiles())
-            .filter(r -> r.getName().equals(name) /*&& (
-                path.isEmpty() && path.equals("null") && r.getAbsolutePath() != null ? true
-                    : r.getAbsolutePath().equals(path))*/).findFirst();
-        if (f.isEmpty()) {
-          throw new IllegalStateException("Raw data file with name " + name + " and path " + path
-                                          + " not imported to project.");
+      while (!(reader.getEventType() == XMLEvent.END_ELEMENT && reader.getLocalName()
+          .equals(CONST.XML_ROW_ELEMENT)) && reader.hasNext()) {
+        if (reader.next() == XMLEvent.START_ELEMENT) {
+          if (reader.getLocalName().equals(CONST.XML_FEATURE_ELEMENT)) {
+            final ModularFeature columnFeature =
+                columnFeatures != null ? columnFeatures[featureCounter++] : null;
+            final String fileName = reader.getAttributeValue(null, CONST.XML_RAW_FILE_ELEMENT);
+            final RawDataFile file = project.getCurrentRawDataFiles().stream()
+                .filter(f -> f.getName().equals(fileName)).findFirst().orElse(null);
+            if (file == null) {
+              logger.warning(() -> "Cannot load feature for row id " + id + " for file " + fileName
+                                   + ". File does not exist in project.");
+              continue;
+            }
+            parseFeature(reader, storage, project, flist, row, file, columnFeature);
+          } else if (reader.getLocalName().equals(CONST.XML_DATA_TYPE_ELEMENT)) {
+            DataType type = DataTypes.getTypeForId(
+                reader.getAttributeValue(null, CONST.XML_DATA_TYPE_ID_ATTR));
+            Object value = parseDataType(reader, type, project, flist, row, null, null);
+            if (type != null && value != null) {
+              try {
+                row.set(type, value);
+              } catch (RuntimeException e) {
+                // TODO - maybe log?
+                logger.log(Level.WARNING, () -> String.format(
+                    "DataType %s and value %s were not set to row. Maybe incompatible during loading?",
+                    type, value));
+                // cannot set bound values. can go silent.
+              }
+            }
+          }
         }
-        flist.getRawDataFiles().add(f.get());
-
-        final Element selectedScansElement = (Element) ((Element) filesList.item(i))
-            .getElementsByTagName(CONST.XML_FLIST_SELECTED_SCANS_ELEMENT).item(0);
-        final int[] selectedScanIndices = ParsingUtils
-            .stringToIntArray(selectedScansElement.getTextContent());
-        final List<Scan> selectedScans = ParsingUtils
-            .getSublistFromIndices(f.get().getScans(), selectedScanIndices);
-        flist.setSelectedScans(f.get(), selectedScans);
-
       }
-      return flist;
-    } catch (XPathExpressionException | ParserConfigurationException | SAXException |
-             IOException e) {
-      e.printStackTrace();
-      logger.log(Level.SEVERE, e.getMessage(), e);
-      return null;
+      rowCounter++;
     }
-  }
 
-  private void parseRow(XMLStreamReader reader, MemoryMapStorage storage, MZmineProject project,
-      ModularFeatureList flist) throws XMLStreamException {
-    if (!reader.getLocalName().equals(CONST.XML_ROW_ELEMENT)) {
-      throw new IllegalStateException("Cannot parse row if current element is not a row element");
-    }
+    private void parseFeature(@NotNull XMLStreamReader reader, @Nullable MemoryMapStorage storage,
+        MZmineProject project, @NotNull ModularFeatureList flist,
+        @NotNull ModularFeatureListRow row, @NotNull RawDataFile file, @Nullable ModularFeature columnFeature)
+        throws XMLStreamException {
+
+      // create feature with original file, but use buffered file for data type loading.
+      final RawDataFile originalFile =
+          file instanceof CachedIMSRawDataFile c ? c.getOriginalFile() : file;
+      final ModularFeature feature;
+      if (columnFeature != null && columnFeature.getRawDataFile() == originalFile) {
+        // complete the feature that was created from the columns
+        feature = columnFeature;
+      } else {
+        feature = new ModularFeature(flist, originalFile, null, null);
+      }
 
-    int id = Integer.parseInt(reader.getAttributeValue(null, idTypeUniqueID));
-    final ModularFeatureListRow row = (ModularFeatureListRow) flist.getRow(rowCounter.get());
-    if (id != row.getID()) {
-      throw new IllegalStateException("Row ids do not match.");
-    }
+      while (!(reader.getEventType() == XMLEvent.END_ELEMENT && reader.getLocalName()
+          .equals(CONST.XML_FEATURE_ELEMENT)) && reader.hasNext()) {
+        if (reader.next() != XMLEvent.START_ELEMENT) {
+          continue;
+        }
 
-    while (!(reader.getEventType() == XMLEvent.END_ELEMENT && reader.getLocalName()
-        .equals(CONST.XML_ROW_ELEMENT)) && reader.hasNext()) {
-      if (reader.next() == XMLEvent.START_ELEMENT) {
-        if (reader.getLocalName().equals(CONST.XML_FEATURE_ELEMENT)) {
-          final String fileName = reader.getAttributeValue(null, CONST.XML_RAW_FILE_ELEMENT);
-          final RawDataFile file = project.getCurrentRawDataFiles().stream()
-              .filter(f -> f.getName().equals(fileName)).findFirst().orElse(null);
-          if (file == null) {
-            logger.warning(() -> "Cannot load feature for row id " + id + " for file " + fileName
-                                 + ". File does not exist in project.");
-            continue;
-          }
-          parseFeature(reader, storage, project, flist, row, file);
-        } else if (reader.getLocalName().equals(CONST.XML_DATA_TYPE_ELEMENT)) {
+        if (reader.getLocalName().equals(CONST.XML_DATA_TYPE_ELEMENT)) {
+          // the data types are responsible for loading their values
           DataType type = DataTypes.getTypeForId(
               reader.getAttributeValue(null, CONST.XML_DATA_TYPE_ID_ATTR));
-          Object value = parseDataType(reader, type, project, flist, row, null, null);
+          Object value = parseDataType(reader, type, project, flist, row, feature, file);
           if (type != null && value != null) {
             try {
-              row.set(type, value);
+              feature.set(type, value);
             } catch (RuntimeException e) {
               // TODO - maybe log?
               logger.log(Level.WARNING, () -> String.format(
@@ -422,44 +542,8 @@ public class FeatureListLoadTask extends AbstractTask {
           }
         }
       }
-    }
-    rowCounter.getAndIncrement();
-  }
-
-  private void parseFeature(@NotNull XMLStreamReader reader, @Nullable MemoryMapStorage storage,
-      MZmineProject project, @NotNull ModularFeatureList flist, @NotNull ModularFeatureListRow row,
-      @NotNull RawDataFile file) throws XMLStreamException {
-
-    // create feature with original file, but use buffered file for data type loading.
-    final RawDataFile originalFile =
-        file instanceof CachedIMSRawDataFile c ? c.getOriginalFile() : file;
-    final ModularFeature feature = new ModularFeature(flist, originalFile, null, null);
-
-    while (!(reader.getEventType() == XMLEvent.END_ELEMENT && reader.getLocalName()
-        .equals(CONST.XML_FEATURE_ELEMENT)) && reader.hasNext()) {
-      if (reader.next() != XMLEvent.START_ELEMENT) {
-        continue;
-      }
 
-      if (reader.getLocalName().equals(CONST.XML_DATA_TYPE_ELEMENT)) {
-        // the data types are responsible for loading their values
-        DataType type = DataTypes.getTypeForId(
-            reader.getAttributeValue(null, CONST.XML_DATA_TYPE_ID_ATTR));
-        Object value = parseDataType(reader, type, project, flist, row, feature, file);
-        if (type != null && value != null) {
-          try {
-            feature.set(type, value);
-          } catch (RuntimeException e) {
-            // TODO - maybe log?
-            logger.log(Level.WARNING, () -> String.format(
-                "DataType %s and value %s were not set to row. Maybe incompatible during loading?",
-                type, value));
-            // cannot set bound values. can go silent.
-          }
-        }
-      }
+      row.addFeature(originalFile, feature);
     }
-
-    row.addFeature(originalFile, feature);
   }
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.projectsave;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Reads the primitive values and arrays written by {@link BlockWriter} sequentially from a channel
+ * with bulk transfers through a byte buffer.
+ */
+final class BlockReader {
+
+  private final ReadableByteChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).flip();
+  // describes the content in error messages
+  private final String content;
+  private long bytesRead = 0;
+
+  /**
+   * @param content description of the content for error messages, e.g., "feature list columns"
+   */
+  BlockReader(@NotNull ReadableByteChannel channel, @NotNull String content) {
+    this.channel = channel;
+    this.content = content;
+  }
+
+  /**
+   * @return the number of bytes consumed from the start of the channel
+   */
+  long position() {
+    return bytesRead - buffer.remaining();
+  }
+
+  private void ensure(int bytes) throws IOException {
+    if (buffer.remaining() >= bytes) {
+      return;
+    }
+    buffer.compact();
+    while (buffer.position() < bytes) {
+      final int n = channel.read(buffer);
+      if (n < 0) {
+        throw new EOFException("Unexpected end of " + content + ".");
+      }
+      bytesRead += n;
+    }
+    buffer.flip();
+  }
+
+  int readByte() throws IOException {
+    ensure(Byte.BYTES);
+    return buffer.get();
+  }
+
+  int readInt() throws IOException {
+    ensure(Integer.BYTES);
+    return buffer.getInt();
+  }
+
+  @Nullable String readString() throws IOException {
+    final int length = readInt();
+    if (length < 0) {
+      return null;
+    }
+    final byte[] bytes = new byte[length];
+    for (int offset = 0; offset < bytes.length; ) {
+      ensure(1);
+      final int n = Math.min(bytes.length - offset, buffer.remaining());
+      buffer.get(bytes, offset, n);
+      offset += n;
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  @NotNull BitSet readBitSet() throws IOException {
+    return BitSet.valueOf(readLongs(readInt()));
+  }
+
+  int @NotNull [] readInts(int length) throws IOException {
+    final int[] values = new int[length];
+    for (int offset = 0; offset < length; ) {
+      ensure(Integer.BYTES);
+      final int n = Math.min(length - offset, buffer.remaining() / Integer.BYTES);
+      buffer.asIntBuffer().get(values, offset, n);
+      buffer.position(buffer.position() + n * Integer.BYTES);
+      offset += n;
+    }
+    return values;
+  }
+
+  long @NotNull [] readLongs(int length) throws IOException {
+    final long[] values = new long[length];
+    for (int offset = 0; offset < length; ) {
+      ensure(Long.BYTES);
+      final int n = Math.min(length - offset, buffer.remaining() / Long.BYTES);
+      buffer.asLongBuffer().get(values, offset, n);
+      buffer.position(buffer.position() + n * Long.BYTES);
+      offset += n;
+    }
+    return values;
+  }
+
+  float @NotNull [] readFloats(int length) throws IOException {
+    final float[] values = new float[length];
+    for (int offset = 0; offset < length; ) {
+      ensure(Float.BYTES);
+      final int n = Math.min(length - offset, buffer.remaining() / Float.BYTES);
+      buffer.asFloatBuffer().get(values, offset, n);
+      buffer.position(buffer.position() + n * Float.BYTES);
+      offset += n;
+    }
+    return values;
+  }
+
+  double @NotNull [] readDoubles(int length) throws IOException {
+    final double[] values = new double[length];
+    for (int offset = 0; offset < length; ) {
+      ensure(Double.BYTES);
+      final int n = Math.min(length - offset, buffer.remaining() / Double.BYTES);
+      buffer.asDoubleBuffer().get(values, offset, n);
+      buffer.position(buffer.position() + n * Double.BYTES);
+      offset += n;
+    }
+    return values;
+  }
+}
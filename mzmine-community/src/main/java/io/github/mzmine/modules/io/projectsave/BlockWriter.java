@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.projectsave;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Writes primitive values and arrays of the binary project formats through a byte buffer. Read by
+ * {@link BlockReader}. The stream is never closed.
+ */
+final class BlockWriter {
+
+  private final OutputStream os;
+  private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+  BlockWriter(@NotNull OutputStream os) {
+    this.os = os;
+  }
+
+  private void ensure(int bytes) throws IOException {
+    if (buffer.remaining() < bytes) {
+      flushBuffer();
+    }
+  }
+
+  private void flushBuffer() throws IOException {
+    os.write(buffer.array(), 0, buffer.position());
+    buffer.clear();
+  }
+
+  void flush() throws IOException {
+    flushBuffer();
+    os.flush();
+  }
+
+  void writeByte(int value) throws IOException {
+    ensure(Byte.BYTES);
+    buffer.put((byte) value);
+  }
+
+  void writeInt(int value) throws IOException {
+    ensure(Integer.BYTES);
+    buffer.putInt(value);
+  }
+
+  /**
+   * @param value a string or null
+   */
+  void writeString(@Nullable String value) throws IOException {
+    if (value == null) {
+      writeInt(-1);
+      return;
+    }
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeInt(bytes.length);
+    flushBuffer();
+    os.write(bytes);
+  }
+
+  void writeBitSet(@NotNull BitSet bits) throws IOException {
+    final long[] words = bits.toLongArray();
+    writeInt(words.length);
+    writeLongs(words);
+  }
+
+  void writeInts(int @NotNull [] values) throws IOException {
+    for (int offset = 0; offset < values.length; ) {
+      ensure(Integer.BYTES);
+      final int n = Math.min(values.length - offset, buffer.remaining() / Integer.BYTES);
+      buffer.asIntBuffer().put(values, offset, n);
+      buffer.position(buffer.position() + n * Integer.BYTES);
+      offset += n;
+    }
+  }
+
+  void writeLongs(long @NotNull [] values) throws IOException {
+    for (int offset = 0; offset < values.length; ) {
+      ensure(Long.BYTES);
+      final int n = Math.min(values.length - offset, buffer.remaining() / Long.BYTES);
+      buffer.asLongBuffer().put(values, offset, n);
+      buffer.position(buffer.position() + n * Long.BYTES);
+      offset += n;
+    }
+  }
+
+  void writeFloats(float @NotNull [] values, int length) throws IOException {
+    for (int offset = 0; offset < length; ) {
+      ensure(Float.BYTES);
+      final int n = Math.min(length - offset, buffer.remaining() / Float.BYTES);
+      buffer.asFloatBuffer().put(values, offset, n);
+      buffer.position(buffer.position() + n * Float.BYTES);
+      offset += n;
+    }
+  }
+
+  void writeDoubles(double @NotNull [] values, int length) throws IOException {
+    for (int offset = 0; offset < length; ) {
+      ensure(Double.BYTES);
+      final int n = Math.min(length - offset, buffer.remaining() / Double.BYTES);
+      buffer.asDoubleBuffer().put(values, offset, n);
+      buffer.position(buffer.position() + n * Double.BYTES);
+      offset += n;
+    }
+  }
+}
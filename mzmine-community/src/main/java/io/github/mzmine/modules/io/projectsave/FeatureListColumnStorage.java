@@ -0,0 +1,535 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.projectsave;
+
+import com.google.common.collect.BoundType;
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.featuredata.impl.SimpleIonTimeSeries;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.ModularDataModel;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.types.DataType;
+import io.github.mzmine.datamodel.features.types.DataTypes;
+import io.github.mzmine.datamodel.features.types.FeatureDataType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.DoubleRangeType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.DoubleType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.FloatRangeType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.FloatType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.IntegerType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.LongType;
+import io.github.mzmine.modules.io.projectload.CachedIMSFrame;
+import io.github.mzmine.modules.io.projectload.CachedIMSRawDataFile;
+import io.github.mzmine.modules.io.projectload.version_3_0.CONST;
+import io.github.mzmine.util.ParsingUtils;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Columnar binary storage of a feature list (see {@link FeatureListSaveFormat#COLUMNAR}). Values
+ * of numeric row and feature types are saved as typed blocks with one entry per row or feature and
+ * a bitmap of the present values. The {@link SimpleIonTimeSeries} of the features are saved as raw
+ * blocks of scan indices, m/z and intensity values with a length table. All other values are saved
+ * to the XML data file by {@link FeatureListSaveTask}.
+ * <p>
+ * Features are stored in the same order as in the XML data file, so that the loader can create the
+ * features from the columns and complete them while parsing the XML file.
+ */
+public class FeatureListColumnStorage {
+
+  public static final String COLUMNS_FILE_SUFFIX = "_columns.bin";
+
+  private static final Logger logger = Logger.getLogger(FeatureListColumnStorage.class.getName());
+  private static final int MAGIC = 0x4D5A4643; // MZFC
+  private static final int FORMAT_VERSION = 1;
+  private static final Map<Class<?>, Optional<ColumnKind>> kinds = new ConcurrentHashMap<>();
+
+  private FeatureListColumnStorage() {
+  }
+
+  public static String getColumnsFileName(String flistname) {
+    return FeatureListSaveTask.FLIST_FOLDER + CONST.XML_FEATURE_LIST_ELEMENT + "_" + flistname
+           + COLUMNS_FILE_SUFFIX;
+  }
+
+  /**
+   * @return true if this row value is saved to a column and not to the XML data file
+   */
+  public static boolean isRowColumnValue(@NotNull DataType<?> type, @Nullable Object value) {
+    if (value == null) {
+      return false;
+    }
+    final ColumnKind kind = kindOf(type);
+    return kind != null && kind.accepts(value);
+  }
+
+  /**
+   * @return true if this feature value is saved to a column and not to the XML data file
+   */
+  public static boolean isFeatureColumnValue(@NotNull DataType<?> type, @Nullable Object value) {
+    if (type instanceof FeatureDataType) {
+      return value != null && value.getClass() == SimpleIonTimeSeries.class
+             && ((SimpleIonTimeSeries) value).getNumberOfValues() > 0;
+    }
+    return isRowColumnValue(type, value);
+  }
+
+  /**
+   * @return true if the feature is saved to the project
+   */
+  public static boolean isSavedFeature(@NotNull ModularFeature feature) {
+    return feature.getRawDataFile() != null
+           && feature.getFeatureStatus() != FeatureStatus.UNKNOWN;
+  }
+
+  @Nullable
+  private static ColumnKind kindOf(@NotNull DataType<?> type) {
+    return kinds.computeIfAbsent(type.getClass(), c -> Optional.ofNullable(findKind(type)))
+        .orElse(null);
+  }
+
+  @Nullable
+  private static ColumnKind findKind(@NotNull DataType<?> type) {
+    final ColumnKind kind = switch (type) {
+      case FloatType _ -> ColumnKind.FLOAT;
+      case DoubleType _ -> ColumnKind.DOUBLE;
+      case IntegerType _ -> ColumnKind.INTEGER;
+      case LongType _ -> ColumnKind.LONG;
+      case FloatRangeType _ -> ColumnKind.FLOAT_RANGE;
+      case DoubleRangeType _ -> ColumnKind.DOUBLE_RANGE;
+      default -> null;
+    };
+    if (kind == null) {
+      return null;
+    }
+    // types that define their own xml format are not converted
+    try {
+      final Class<?> saveClass = type.getClass()
+          .getMethod("saveToXML", XMLStreamWriter.class, Object.class, ModularFeatureList.class,
+              ModularFeatureListRow.class, ModularFeature.class, RawDataFile.class)
+          .getDeclaringClass();
+      final Class<?> loadClass = type.getClass()
+          .getMethod("loadFromXML", XMLStreamReader.class, MZmineProject.class,
+              ModularFeatureList.class, ModularFeatureListRow.class, ModularFeature.class,
+              RawDataFile.class).getDeclaringClass();
+      return saveClass == kind.baseType && loadClass == kind.baseType ? kind : null;
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Writes the column values of the feature list. The stream is flushed but not closed.
+   */
+  public static void write(@NotNull ModularFeatureList flist, @NotNull OutputStream os)
+      throws IOException {
+    final List<FeatureListRow> rows = flist.getRows();
+    final int numRows = rows.size();
+
+    final int[] rowIds = new int[numRows];
+    final Map<DataType<?>, Column> rowColumns = new LinkedHashMap<>();
+    final List<ModularFeature> features = new ArrayList<>();
+    final List<Integer> featureRows = new ArrayList<>();
+    for (int i = 0; i < numRows; i++) {
+      final ModularFeatureListRow row = (ModularFeatureListRow) rows.get(i);
+      rowIds[i] = row.getID();
+      for (Entry<DataType, Object> entry : row.getMap().entrySet()) {
+        final DataType<?> type = entry.getKey();
+        if (isRowColumnValue(type, entry.getValue())) {
+          rowColumns.computeIfAbsent(type, t -> new Column(kindOf(t), numRows))
+              .set(i, entry.getValue());
+        }
+      }
+      for (ModularFeature feature : row.getFeatures()) {
+        if (isSavedFeature(feature)) {
+          features.add(feature);
+          featureRows.add(i);
+        }
+      }
+    }
+
+    final int numFeatures = features.size();
+    final Map<RawDataFile, Integer> fileIndices = new LinkedHashMap<>();
+    final int[] featureRowIndices = new int[numFeatures];
+    final int[] featureFileIndices = new int[numFeatures];
+    final Map<DataType<?>, Column> featureColumns = new LinkedHashMap<>();
+    final SimpleIonTimeSeries[] series = new SimpleIonTimeSeries[numFeatures];
+    final BitSet seriesPresent = new BitSet(numFeatures);
+    final int[] seriesLengths = new int[numFeatures];
+    for (int i = 0; i < numFeatures; i++) {
+      final ModularFeature feature = features.get(i);
+      featureRowIndices[i] = featureRows.get(i);
+      featureFileIndices[i] = fileIndices.computeIfAbsent(feature.getRawDataFile(),
+          file -> fileIndices.size());
+      for (Entry<DataType, Object> entry : feature.getMap().entrySet()) {
+        final DataType<?> type = entry.getKey();
+        final Object value = entry.getValue();
+        if (!isFeatureColumnValue(type, value)) {
+          continue;
+        }
+        if (type instanceof FeatureDataType) {
+          series[i] = (SimpleIonTimeSeries) value;
+          seriesPresent.set(i);
+          seriesLengths[i] = series[i].getNumberOfValues();
+        } else {
+          featureColumns.computeIfAbsent(type, t -> new Column(kindOf(t), numFeatures))
+              .set(i, value);
+        }
+      }
+    }
+
+    final BlockWriter writer = new BlockWriter(os);
+    writer.writeInt(MAGIC);
+    writer.writeInt(FORMAT_VERSION);
+
+    writer.writeInt(numRows);
+    writer.writeInts(rowIds);
+    writeColumns(writer, rowColumns);
+
+    writer.writeInt(fileIndices.size());
+    for (RawDataFile file : fileIndices.keySet()) {
+      writer.writeString(file.getName());
+    }
+    writer.writeInt(numFeatures);
+    writer.writeInts(featureRowIndices);
+    writer.writeInts(featureFileIndices);
+    writeColumns(writer, featureColumns);
+
+    // feature data, scan indices refer to all scans of the raw data file
+    writer.writeBitSet(seriesPresent);
+    writer.writeInts(seriesLengths);
+    double[] buffer = new double[0];
+    for (int i = seriesPresent.nextSetBit(0); i >= 0; i = seriesPresent.nextSetBit(i + 1)) {
+      final SimpleIonTimeSeries s = series[i];
+      writer.writeInts(ParsingUtils.getIndicesOfSubListElements(s.getSpectra(),
+          features.get(i).getRawDataFile().getScans()));
+      buffer = s.getMzValues(buffer);
+      writer.writeDoubles(buffer, seriesLengths[i]);
+      buffer = s.getIntensityValues(buffer);
+      writer.writeDoubles(buffer, seriesLengths[i]);
+    }
+    writer.flush();
+  }
+
+  private static void writeColumns(@NotNull BlockWriter writer,
+      @NotNull Map<DataType<?>, Column> columns) throws IOException {
+    writer.writeInt(columns.size());
+    for (Entry<DataType<?>, Column> entry : columns.entrySet()) {
+      writer.writeString(entry.getKey().getUniqueID());
+      entry.getValue().write(writer);
+    }
+  }
+
+  /**
+   * Reads the column values. The row values are set to the rows of the feature list, which need to
+   * be created in the saved order. The features are created but not added to the rows, as they are
+   * completed from the XML data file.
+   *
+   * @return the features in the order of the XML data file. Null for features of raw data files
+   * that are not part of the project.
+   */
+  public static ModularFeature @NotNull [] read(@NotNull ReadableByteChannel channel,
+      @NotNull MZmineProject project, @NotNull ModularFeatureList flist) throws IOException {
+    final BlockReader reader = new BlockReader(channel, "feature list columns");
+    if (reader.readInt() != MAGIC) {
+      throw new IOException("Not a feature list columns file.");
+    }
+    final int version = reader.readInt();
+    if (version != FORMAT_VERSION) {
+      throw new IOException("Unsupported feature list columns version " + version);
+    }
+
+    final int numRows = reader.readInt();
+    final int[] rowIds = reader.readInts(numRows);
+    if (numRows != flist.getNumberOfRows()) {
+      throw new IOException("Number of rows does not match the feature list " + flist.getName());
+    }
+    final List<ModularFeatureListRow> rows = flist.modularStream().toList();
+    for (int i = 0; i < numRows; i++) {
+      if (rows.get(i).getID() != rowIds[i]) {
+        throw new IOException("Row ids do not match in feature list " + flist.getName());
+      }
+    }
+    readColumns(reader, rows);
+
+    final Map<String, RawDataFile> projectFiles = new HashMap<>();
+    for (RawDataFile file : project.getCurrentRawDataFiles()) {
+      projectFiles.putIfAbsent(file.getName(), file);
+    }
+    final int numFiles = reader.readInt();
+    final RawDataFile[] files = new RawDataFile[numFiles];
+    for (int i = 0; i < numFiles; i++) {
+      final String name = reader.readString();
+      files[i] = projectFiles.get(name);
+      if (files[i] == null) {
+        logger.warning(() -> "Cannot load features for file " + name
+                             + ". File does not exist in project.");
+      }
+    }
+
+    final int numFeatures = reader.readInt();
+    final int[] featureRows = reader.readInts(numFeatures);
+    final int[] featureFiles = reader.readInts(numFeatures);
+    final ModularFeature[] features = new ModularFeature[numFeatures];
+    for (int i = 0; i < numFeatures; i++) {
+      final RawDataFile file = files[featureFiles[i]];
+      if (file != null) {
+        // create feature with original file, the buffered file is only used for loading
+        features[i] = new ModularFeature(flist, originalFile(file), null, null);
+      }
+    }
+    readColumns(reader, Arrays.asList(features));
+
+    final BitSet seriesPresent = reader.readBitSet();
+    final int[] seriesLengths = reader.readInts(numFeatures);
+    for (int i = seriesPresent.nextSetBit(0); i >= 0; i = seriesPresent.nextSetBit(i + 1)) {
+      final int numValues = seriesLengths[i];
+      final int[] scanIndices = reader.readInts(numValues);
+      final double[] mzs = reader.readDoubles(numValues);
+      final double[] intensities = reader.readDoubles(numValues);
+      if (features[i] == null) {
+        continue;
+      }
+
+      // replace cached frames, otherwise we would keep the references to cached mobility scans
+      final List<Scan> allScans = files[featureFiles[i]].getScans();
+      final List<Scan> scans = new ArrayList<>(numValues);
+      for (int scanIndex : scanIndices) {
+        final Scan scan = allScans.get(scanIndex);
+        scans.add(scan instanceof CachedIMSFrame cached ? cached.getOriginalFrame() : scan);
+      }
+      setValue(features[i], DataTypes.get(FeatureDataType.class),
+          new SimpleIonTimeSeries(flist.getMemoryMapStorage(), mzs, intensities, scans));
+    }
+    return features;
+  }
+
+  private static RawDataFile originalFile(@NotNull RawDataFile file) {
+    return file instanceof CachedIMSRawDataFile c
+        ? c.getOriginalFile() : file;
+  }
+
+  /**
+   * @param models the models in saved order, null models are skipped
+   */
+  private static void readColumns(@NotNull BlockReader reader,
+      @NotNull List<? extends ModularDataModel> models) throws IOException {
+    final int numColumns = reader.readInt();
+    for (int c = 0; c < numColumns; c++) {
+      final String typeId = reader.readString();
+      final Column column = Column.read(reader, models.size());
+      final DataType<?> type = DataTypes.getTypeForId(typeId);
+      if (type == null) {
+        logger.info(() -> "No data type for id " + typeId);
+        continue;
+      }
+      for (int i = column.present.nextSetBit(0); i >= 0; i = column.present.nextSetBit(i + 1)) {
+        final ModularDataModel model = models.get(i);
+        if (model != null) {
+          setValue(model, type, column.get(i));
+        }
+      }
+    }
+  }
+
+  private static void setValue(@NotNull ModularDataModel model, @NotNull DataType type,
+      @NotNull Object value) {
+    try {
+      model.set(type, value);
+    } catch (RuntimeException e) {
+      logger.log(Level.WARNING, () -> String.format(
+          "DataType %s and value %s were not set. Maybe incompatible during loading?", type,
+          value));
+    }
+  }
+
+  private enum ColumnKind {
+    FLOAT(FloatType.class), DOUBLE(DoubleType.class), INTEGER(IntegerType.class), LONG(
+        LongType.class), FLOAT_RANGE(FloatRangeType.class), DOUBLE_RANGE(DoubleRangeType.class);
+
+    private final Class<?> baseType;
+
+    ColumnKind(Class<?> baseType) {
+      this.baseType = baseType;
+    }
+
+    /**
+     * @return true if the xml format of the base type reproduces this value
+     */
+    boolean accepts(@NotNull Object value) {
+      return switch (this) {
+        case FLOAT -> value instanceof Float;
+        case DOUBLE -> value instanceof Double;
+        case INTEGER -> value instanceof Integer;
+        case LONG -> value instanceof Long;
+        case FLOAT_RANGE -> value instanceof Range<?> r && r.hasLowerBound() && r.hasUpperBound()
+                            && r.lowerEndpoint() instanceof Float
+                            && r.upperEndpoint() instanceof Float;
+        case DOUBLE_RANGE -> value instanceof Range<?> r && r.hasLowerBound() && r.hasUpperBound()
+                             && r.lowerEndpoint() instanceof Double
+                             && r.upperEndpoint() instanceof Double;
+      };
+    }
+  }
+
+  /**
+   * Values of one data type for all rows or features. Absent values are stored as 0 and marked in
+   * the bitmap. Ranges are stored as pairs of lower and upper endpoint and bitmaps of open bounds.
+   */
+  private static final class Column {
+
+    private final ColumnKind kind;
+    private final BitSet present;
+    private final int size;
+    private float[] floats;
+    private double[] doubles;
+    private int[] ints;
+    private long[] longs;
+    // open bounds of ranges, closed otherwise
+    private BitSet lowerOpen;
+    private BitSet upperOpen;
+
+    private Column(@NotNull ColumnKind kind, int size, @NotNull BitSet present) {
+      this.kind = kind;
+      this.size = size;
+      this.present = present;
+      if (kind == ColumnKind.FLOAT_RANGE || kind == ColumnKind.DOUBLE_RANGE) {
+        lowerOpen = new BitSet(size);
+        upperOpen = new BitSet(size);
+      }
+    }
+
+    Column(@NotNull ColumnKind kind, int size) {
+      this(kind, size, new BitSet(size));
+      switch (kind) {
+        case FLOAT -> floats = new float[size];
+        case DOUBLE -> doubles = new double[size];
+        case INTEGER -> ints = new int[size];
+        case LONG -> longs = new long[size];
+        case FLOAT_RANGE -> floats = new float[size * 2];
+        case DOUBLE_RANGE -> doubles = new double[size * 2];
+      }
+    }
+
+    static Column read(@NotNull BlockReader reader, int size) throws IOException {
+      final ColumnKind kind = ColumnKind.values()[reader.readByte()];
+      final Column column = new Column(kind, size, reader.readBitSet());
+      switch (kind) {
+        case FLOAT -> column.floats = reader.readFloats(size);
+        case DOUBLE -> column.doubles = reader.readDoubles(size);
+        case INTEGER -> column.ints = reader.readInts(size);
+        case LONG -> column.longs = reader.readLongs(size);
+        case FLOAT_RANGE -> column.floats = reader.readFloats(size * 2);
+        case DOUBLE_RANGE -> column.doubles = reader.readDoubles(size * 2);
+      }
+      if (column.lowerOpen != null) {
+        column.lowerOpen = reader.readBitSet();
+        column.upperOpen = reader.readBitSet();
+      }
+      return column;
+    }
+
+    void set(int i, @NotNull Object value) {
+      present.set(i);
+      switch (kind) {
+        case FLOAT -> floats[i] = (Float) value;
+        case DOUBLE -> doubles[i] = (Double) value;
+        case INTEGER -> ints[i] = (Integer) value;
+        case LONG -> longs[i] = (Long) value;
+        case FLOAT_RANGE -> {
+          final Range<Float> range = (Range<Float>) value;
+          floats[i * 2] = range.lowerEndpoint();
+          floats[i * 2 + 1] = range.upperEndpoint();
+          setBoundTypes(i, range);
+        }
+        case DOUBLE_RANGE -> {
+          final Range<Double> range = (Range<Double>) value;
+          doubles[i * 2] = range.lowerEndpoint();
+          doubles[i * 2 + 1] = range.upperEndpoint();
+          setBoundTypes(i, range);
+        }
+      }
+    }
+
+    private void setBoundTypes(int i, @NotNull Range<?> range) {
+      lowerOpen.set(i, range.lowerBoundType() == BoundType.OPEN);
+      upperOpen.set(i, range.upperBoundType() == BoundType.OPEN);
+    }
+
+    private <T extends Comparable<?>> Range<T> range(int i, T lower, T upper) {
+      return Range.range(lower, lowerOpen.get(i) ? BoundType.OPEN : BoundType.CLOSED, upper,
+          upperOpen.get(i) ? BoundType.OPEN : BoundType.CLOSED);
+    }
+
+    @NotNull Object get(int i) {
+      return switch (kind) {
+        case FLOAT -> floats[i];
+        case DOUBLE -> doubles[i];
+        case INTEGER -> ints[i];
+        case LONG -> longs[i];
+        case FLOAT_RANGE -> range(i, floats[i * 2], floats[i * 2 + 1]);
+        case DOUBLE_RANGE -> range(i, doubles[i * 2], doubles[i * 2 + 1]);
+      };
+    }
+
+    void write(@NotNull BlockWriter writer) throws IOException {
+      writer.writeByte(kind.ordinal());
+      writer.writeBitSet(present);
+      switch (kind) {
+        case FLOAT, FLOAT_RANGE -> writer.writeFloats(floats, floats.length);
+        case DOUBLE, DOUBLE_RANGE -> writer.writeDoubles(doubles, doubles.length);
+        case INTEGER -> writer.writeInts(ints);
+        case LONG -> writer.writeLongs(longs);
+      }
+      if (lowerOpen != null) {
+        writer.writeBitSet(lowerOpen);
+        writer.writeBitSet(upperOpen);
+      }
+    }
+  }
+}
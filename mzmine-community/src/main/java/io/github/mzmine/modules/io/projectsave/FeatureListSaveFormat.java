@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.projectsave;
+
+/**
+ * Storage format of feature lists in a project
+ */
+public enum FeatureListSaveFormat {
+  COLUMNAR("Columnar (fast)",
+      "Numeric row and feature values and the feature data are saved as binary columns, all other "
+      + "values as XML. Faster to save and load, but cannot be read by older MZmine versions."), //
+  XML("XML (compatible)", "All values are saved as XML.");
+
+  public final String name;
+  public final String description;
+
+  FeatureListSaveFormat(String name, String description) {
+    this.name = name;
+    this.description = description;
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+}
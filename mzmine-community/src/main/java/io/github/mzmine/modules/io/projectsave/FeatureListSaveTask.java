@@ -26,7 +26,6 @@
 package io.github.mzmine.modules.io.projectsave;
 
 import com.sun.xml.txw2.output.IndentingXMLStreamWriter;
-import io.github.mzmine.datamodel.FeatureStatus;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.features.FeatureList.FeatureListAppliedMethod;
@@ -79,14 +78,17 @@ public class FeatureListSaveTask extends AbstractTask {
 
   private final ModularFeatureList flist;
   private final ZipOutputStream zos;
+  private final boolean columnar;
   private final int rows;
   private final StreamCopy copy;
   private int processedRows = 0;
 
-  public FeatureListSaveTask(ModularFeatureList flist, ZipOutputStream zos) {
+  public FeatureListSaveTask(ModularFeatureList flist, ZipOutputStream zos,
+      FeatureListSaveFormat format) {
     super(null, Instant.now());
     this.flist = flist;
     this.zos = zos;
+    columnar = format == FeatureListSaveFormat.COLUMNAR;
     rows = flist.getNumberOfRows();
     copy = new StreamCopy();
   }
@@ -257,6 +259,13 @@ public class FeatureListSaveTask extends AbstractTask {
     try (FileInputStream is = new FileInputStream(tempFile)) {
       zos.putNextEntry(new ZipEntry(getDataFileName(flist.getName())));
       copy.copy(is, zos);
+
+      if (columnar) {
+        // numeric values and feature data that were not written to the xml file
+        zos.putNextEntry(
+            new ZipEntry(FeatureListColumnStorage.getColumnsFileName(flist.getName())));
+        FeatureListColumnStorage.write(flist, zos);
+      }
     } catch (IOException e) {
       logger.log(Level.SEVERE, e.getMessage(), e);
       setStatus(TaskStatus.ERROR);
@@ -279,6 +288,9 @@ public class FeatureListSaveTask extends AbstractTask {
       if (dataType instanceof FeaturesType) {
         continue;
       }
+      if (columnar && FeatureListColumnStorage.isRowColumnValue(dataType, value)) {
+        continue;
+      }
       writeDataType(writer, dataType, value, flist, row, null, null);
     }
 
@@ -310,7 +322,7 @@ public class FeatureListSaveTask extends AbstractTask {
   private void writeFeature(XMLStreamWriter writer, ModularFeatureListRow row,
       ModularFeature feature) throws XMLStreamException {
     final RawDataFile rawDataFile = feature.getRawDataFile();
-    if (rawDataFile == null || feature.getFeatureStatus() == FeatureStatus.UNKNOWN) {
+    if (!FeatureListColumnStorage.isSavedFeature(feature)) {
       return;
     }
 
@@ -318,6 +330,10 @@ public class FeatureListSaveTask extends AbstractTask {
     writer.writeAttribute(CONST.XML_RAW_FILE_ELEMENT, rawDataFile.getName());
 
     for (Entry<DataType, Object> entry : feature.getMap().entrySet()) {
+      if (columnar && FeatureListColumnStorage.isFeatureColumnValue(entry.getKey(),
+          entry.getValue())) {
+        continue;
+      }
       writeDataType(writer, entry.getKey(), entry.getValue(), flist, row, feature, rawDataFile);
     }
 
@@ -34,6 +34,7 @@ import io.github.mzmine.javafx.components.factories.FxTextFlows;
 import io.github.mzmine.parameters.Parameter;
 import io.github.mzmine.parameters.dialogs.ParameterSetupDialog;
 import io.github.mzmine.parameters.impl.SimpleParameterSet;
+import io.github.mzmine.parameters.parametertypes.BooleanParameter;
 import io.github.mzmine.parameters.parametertypes.ComboParameter;
 import io.github.mzmine.parameters.parametertypes.filenames.FileNameSuffixExportParameter;
 import io.github.mzmine.project.ProjectService;
@@ -63,12 +64,23 @@ public class ProjectSaveAsParameters extends SimpleParameterSet {
       + "files should not be moved or renamed). Standalone copies the raw data files into the project, "
       + "creating a large but flexible project that can be shared.", ProjectSaveOption.values(),
       ProjectSaveOption.REFERENCING);
+  public static final ComboParameter<FeatureListSaveFormat> featureListFormat = new ComboParameter<>(
+      "Feature list format",
+      "Columnar saves numeric values and feature data as binary columns, which is much faster to "
+      + "save and load. XML saves all values as text and can be read by older MZmine versions.",
+      FeatureListSaveFormat.values(), FeatureListSaveFormat.XML);
+  public static final BooleanParameter rawDataSnapshot = new BooleanParameter(
+      "Raw data snapshot",
+      "Stores the scans and mass lists of raw data files in the project, so that opening the project "
+      + "does not repeat the import and processing of raw data. Ion mobility and imaging files are "
+      + "always imported again.", false);
   public static final FileNameSuffixExportParameter projectFile = new FileNameSuffixExportParameter(
       "Project file", "File name of project to be saved", extensions, null);
   private static final Logger logger = Logger.getLogger(ProjectSaveAsParameters.class.getName());
 
   public ProjectSaveAsParameters() {
-    super(new Parameter[]{projectFile, option});
+    super(new Parameter[]{projectFile, option, featureListFormat,
+        rawDataSnapshot});
   }
 
   @Override
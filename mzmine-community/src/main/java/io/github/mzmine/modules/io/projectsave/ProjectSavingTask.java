@@ -65,6 +65,8 @@ public class ProjectSavingTask extends AbstractTask {
   public static final String PARAMETERS_FILENAME = "User parameters.xml";
   private static final Logger logger = Logger.getLogger(ProjectSavingTask.class.getName());
   private final ProjectSaveOption projectType;
+  private final FeatureListSaveFormat featureListFormat;
+  private final boolean rawDataSnapshot;
 
   private final File saveFile;
   private final MZmineProjectImpl savedProject;
@@ -83,6 +85,8 @@ public class ProjectSavingTask extends AbstractTask {
     this.savedProject = (MZmineProjectImpl) project;
     this.saveFile = parameters.getValue(ProjectSaveAsParameters.projectFile);
     this.projectType = parameters.getValue(ProjectSaveAsParameters.option);
+    this.featureListFormat = parameters.getValue(ProjectSaveAsParameters.featureListFormat);
+    this.rawDataSnapshot = parameters.getValue(ProjectSaveAsParameters.rawDataSnapshot);
     dataFilesIDMap = new Hashtable<>();
     this.totalSaveItems = project.getDataFiles().length + project.getCurrentFeatureLists().size();
   }
@@ -320,7 +324,8 @@ public class ProjectSavingTask extends AbstractTask {
 
     AtomicBoolean finished = new AtomicBoolean(false);
     rawDataFileSaveHandler = new RawDataFileSaveHandler(savedProject, zipStream,
-        Objects.requireNonNullElse(savedProject.isStandalone(), true), getModuleCallDate());
+        Objects.requireNonNullElse(savedProject.isStandalone(), true), rawDataSnapshot,
+        getModuleCallDate());
     rawDataFileSaveHandler.addTaskStatusListener((task, newStatus, oldStatus) -> {
       switch (newStatus) {
         case WAITING, PROCESSING -> {
@@ -362,7 +367,7 @@ public class ProjectSavingTask extends AbstractTask {
     final List<FeatureList> currentFeatureLists = savedProject.getCurrentFeatureLists();
     for (FeatureList featureList : currentFeatureLists) {
       FeatureListSaveTask saveTask = new FeatureListSaveTask((ModularFeatureList) featureList,
-          zipStream);
+          zipStream, featureListFormat);
 
       AtomicBoolean finished = new AtomicBoolean(false);
       saveTask.addTaskStatusListener((task, newStatus, oldStatus) -> {
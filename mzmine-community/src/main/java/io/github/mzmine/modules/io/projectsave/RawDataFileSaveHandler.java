@@ -50,9 +50,12 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -84,6 +87,8 @@ public class RawDataFileSaveHandler extends AbstractTask {
   private final Logger logger = Logger.getLogger(this.getClass().getName());
   private final ZipOutputStream zipStream;
   private final List<RawDataFile> files;
+  // files that are stored as snapshot instead of being imported again
+  private final List<RawDataFile> snapshotFiles;
   private final boolean saveFilesInProject;
   private final String prefix = "Saving raw data files: ";
   private final int numSteps;
@@ -93,13 +98,32 @@ public class RawDataFileSaveHandler extends AbstractTask {
 
   public RawDataFileSaveHandler(MZmineProject project, ZipOutputStream zipOutputStream,
       boolean saveFilesInProject, @NotNull Instant moduleCallDate) {
+    this(project, zipOutputStream, saveFilesInProject, false, moduleCallDate);
+  }
+
+  /**
+   * @param saveSnapshots store supported raw data files as {@link RawDataFileSnapshot} instead of
+   *                      the import batch
+   */
+  public RawDataFileSaveHandler(MZmineProject project, ZipOutputStream zipOutputStream,
+      boolean saveFilesInProject, boolean saveSnapshots, @NotNull Instant moduleCallDate) {
     super(null, moduleCallDate);
     this.project = project;
     this.zipStream = zipOutputStream;
     this.saveFilesInProject = saveFilesInProject;
-    files = List.of(project.getDataFiles());
+    final List<RawDataFile> importFiles = new ArrayList<>();
+    final List<RawDataFile> snapshots = new ArrayList<>();
+    for (RawDataFile file : project.getDataFiles()) {
+      if (saveSnapshots && RawDataFileSnapshot.isSupported(file)) {
+        snapshots.add(file);
+      } else {
+        importFiles.add(file);
+      }
+    }
+    files = List.copyOf(importFiles);
+    snapshotFiles = List.copyOf(snapshots);
     numSteps = 1 /*dissect + merge */ + (saveFilesInProject ? files.size() : 0) /*save files*/
-        + 1 /*save batch file*/;
+        + snapshotFiles.size() /*save snapshots*/ + 1 /*save batch file*/;
     stepProgress = 1 / (double) numSteps;
   }
 
@@ -131,7 +155,11 @@ public class RawDataFileSaveHandler extends AbstractTask {
 
   public boolean saveRawDataFilesAsBatch() throws IOException, ParserConfigurationException {
 
-    List<BatchQueue> cleanedBatchQueues = List.of(RawDataSavingUtils.makeBatchQueue(files));
+    saveSnapshots();
+
+    final BatchQueue queue = RawDataSavingUtils.makeBatchQueue(files);
+    removeSnapshotFiles(queue);
+    List<BatchQueue> cleanedBatchQueues = List.of(queue);
     progress += stepProgress;
 
     if (saveFilesInProject) {
@@ -178,6 +206,63 @@ public class RawDataFileSaveHandler extends AbstractTask {
     return true;
   }
 
+  /**
+   * Writes the snapshots of all files that are not imported again.
+   */
+  private void saveSnapshots() throws IOException {
+    for (int i = 0; i < snapshotFiles.size(); i++) {
+      final RawDataFile file = snapshotFiles.get(i);
+      description = prefix + "Saving snapshot of " + file.getName();
+      zipStream.putNextEntry(new ZipEntry(RawDataFileSnapshot.getZipPath(i, file)));
+      RawDataFileSnapshot.write(file, zipStream);
+      zipStream.closeEntry();
+      progress += stepProgress;
+    }
+  }
+
+  /**
+   * Import steps are merged over all files of a module call, which may also contain files that are
+   * saved as snapshot. Those are removed from the steps and steps without files are removed.
+   */
+  private void removeSnapshotFiles(BatchQueue queue) {
+    if (snapshotFiles.isEmpty()) {
+      return;
+    }
+    final Set<String> snapshotPaths = new HashSet<>();
+    final Set<String> snapshotNames = new HashSet<>();
+    for (RawDataFile file : snapshotFiles) {
+      if (file.getAbsolutePath() != null) {
+        snapshotPaths.add(new File(file.getAbsolutePath()).getAbsolutePath());
+      }
+      snapshotNames.add(file.getName());
+    }
+
+    queue.removeIf(step -> {
+      boolean empty = false;
+      for (Parameter<?> parameter : step.getParameterSet().getParameters()) {
+        if (parameter instanceof FileNamesParameter fnp && fnp.getValue() != null) {
+          final File[] remaining = Arrays.stream(fnp.getValue())
+              .filter(f -> !snapshotPaths.contains(f.getAbsolutePath())).toArray(File[]::new);
+          fnp.setValue(remaining);
+          empty |= remaining.length == 0;
+        } else if (parameter instanceof RawDataFilesParameter rfp && rfp.getValue() != null
+            && rfp.getValue().getSelectionType() == RawDataFilesSelectionType.SPECIFIC_FILES) {
+          final RawDataFilePlaceholder[] remaining = Arrays.stream(
+                  rfp.getValue().getSpecificFilesPlaceholders())
+              .filter(ph -> !snapshotNames.contains(ph.getName()))
+              .toArray(RawDataFilePlaceholder[]::new);
+          rfp.getValue().setSpecificFiles(remaining);
+          empty |= remaining.length == 0;
+        }
+      }
+      if (empty) {
+        logger.finest(() -> "Removed step " + step.getModule().getName()
+            + " from raw file batch queue, all files are saved as snapshot.");
+      }
+      return empty;
+    });
+  }
+
   /**
    * Copies the raw data files to the zip folder (MZmine project file).
    *
@@ -0,0 +1,562 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.projectsave;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.IMSRawDataFile;
+import io.github.mzmine.datamodel.ImagingRawDataFile;
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.datamodel.MassList;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.features.FeatureList.FeatureListAppliedMethod;
+import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
+import io.github.mzmine.datamodel.featuredata.impl.StoredDoubleValues;
+import io.github.mzmine.datamodel.featuredata.impl.StoredDoubleValues.Doubles;
+import io.github.mzmine.datamodel.featuredata.impl.StoredDoubleValues.FloatDeltas;
+import io.github.mzmine.datamodel.featuredata.impl.StoredDoubleValues.Floats;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.datamodel.impl.masslist.ScanPointerMassList;
+import io.github.mzmine.datamodel.impl.masslist.SimpleMassList;
+import io.github.mzmine.datamodel.msms.MsMsInfo;
+import io.github.mzmine.modules.io.projectload.version_3_0.CONST;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.scene.paint.Color;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Binary snapshot of an imported {@link RawDataFileImpl}. The snapshot contains the scan metadata as
+ * columns, the scan and mass list data as raw blocks and the applied methods of the file, so that
+ * opening a project does not repeat the import and processing of the raw data file. Only the
+ * {@link MsMsInfo} of fragment scans is stored in its XML format. Scan values are stored in the
+ * precision they were imported with, see {@link StoredDoubleValues}, so that a restored file
+ * matches the original file.
+ * <p>
+ * Snapshots are limited to LC-MS and GC-MS files. Ion mobility and imaging files are not
+ * supported, as their frames and mobility scan storage are not part of the snapshot. These files
+ * are imported again when the project is opened.
+ */
+public class RawDataFileSnapshot {
+
+  public static final String SNAPSHOT_FOLDER = "msdatasnapshots/";
+  public static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+  private static final Logger logger = Logger.getLogger(RawDataFileSnapshot.class.getName());
+  private static final int MAGIC = 0x4D5A5253; // MZRS
+  private static final int FORMAT_VERSION = 1;
+  private static final int NO_MASS_LIST = 0;
+  private static final int SIMPLE_MASS_LIST = 1;
+  private static final int SCAN_POINTER_MASS_LIST = 2;
+  // encodings of stored scan values
+  private static final int DOUBLE_VALUES = 0;
+  private static final int FLOAT_VALUES = 1;
+  private static final int FLOAT_DELTA_VALUES = 2;
+  // limit each memory mapped segment of scan data to 1 GB
+  private static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+  private RawDataFileSnapshot() {
+  }
+
+  /**
+   * @return true if the file only consists of data that can be stored in a snapshot. Other files
+   * are restored by repeating their import and processing steps.
+   */
+  public static boolean isSupported(@NotNull RawDataFile file) {
+    if (file instanceof IMSRawDataFile || file instanceof ImagingRawDataFile) {
+      logger.info(() -> "Raw data snapshots only support LC-MS and GC-MS files. " + file.getName()
+                        + " is imported again when opening the project.");
+      return false;
+    }
+    if (file.getClass() != RawDataFileImpl.class) {
+      return false;
+    }
+    for (Scan scan : file.getScans()) {
+      if (scan.getClass() != SimpleScan.class) {
+        return false;
+      }
+      final MassList massList = scan.getMassList();
+      if (massList != null && massList.getClass() != SimpleMassList.class
+          && massList.getClass() != ScanPointerMassList.class) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param index index of the file in the project to avoid duplicate entries
+   */
+  public static String getZipPath(int index, @NotNull RawDataFile file) {
+    return SNAPSHOT_FOLDER + index + "_" + file.getName() + SNAPSHOT_SUFFIX;
+  }
+
+  /**
+   * Writes the snapshot of a supported file. The stream is flushed but not closed.
+   *
+   * @see #isSupported(RawDataFile)
+   */
+  public static void write(@NotNull RawDataFile file, @NotNull OutputStream os)
+      throws IOException {
+    final List<Scan> scans = file.getScans();
+    final int numScans = scans.size();
+
+    final int[] scanNumbers = new int[numScans];
+    final int[] msLevels = new int[numScans];
+    final float[] retentionTimes = new float[numScans];
+    final int[] polarities = new int[numScans];
+    final int[] spectrumTypes = new int[numScans];
+    final BitSet injectionTimePresent = new BitSet(numScans);
+    final float[] injectionTimes = new float[numScans];
+    final BitSet mzRangePresent = new BitSet(numScans);
+    final double[] mzRanges = new double[numScans * 2];
+    final int[] numDataPoints = new int[numScans];
+    final StoredDoubleValues[] storedMzs = new StoredDoubleValues[numScans];
+    final StoredDoubleValues[] storedIntensities = new StoredDoubleValues[numScans];
+    final int[] mzEncodings = new int[numScans];
+    final double[] mzBases = new double[numScans];
+    final int[] intensityEncodings = new int[numScans];
+    final int[] massListTypes = new int[numScans];
+    final int[] massListSizes = new int[numScans];
+    for (int i = 0; i < numScans; i++) {
+      final Scan scan = scans.get(i);
+      scanNumbers[i] = scan.getScanNumber();
+      msLevels[i] = scan.getMSLevel();
+      retentionTimes[i] = scan.getRetentionTime();
+      polarities[i] = scan.getPolarity().ordinal();
+      spectrumTypes[i] = scan.getSpectrumType().ordinal();
+      if (scan.getInjectionTime() != null) {
+        injectionTimePresent.set(i);
+        injectionTimes[i] = scan.getInjectionTime();
+      }
+      final Range<Double> mzRange = scan.getScanningMZRange();
+      if (mzRange != null) {
+        mzRangePresent.set(i);
+        mzRanges[i * 2] = mzRange.lowerEndpoint();
+        mzRanges[i * 2 + 1] = mzRange.upperEndpoint();
+      }
+      numDataPoints[i] = scan.getNumberOfDataPoints();
+      storedMzs[i] = storedValues(((SimpleScan) scan).getStoredMzValues());
+      storedIntensities[i] = storedValues(((SimpleScan) scan).getStoredIntensityValues());
+      mzEncodings[i] = encodingOf(storedMzs[i]);
+      intensityEncodings[i] = encodingOf(storedIntensities[i]);
+      if (storedMzs[i] instanceof FloatDeltas deltas) {
+        mzBases[i] = deltas.base();
+      }
+      final MassList massList = scan.getMassList();
+      if (massList instanceof ScanPointerMassList) {
+        massListTypes[i] = SCAN_POINTER_MASS_LIST;
+      } else if (massList != null) {
+        massListTypes[i] = SIMPLE_MASS_LIST;
+        massListSizes[i] = massList.getNumberOfDataPoints();
+      }
+    }
+
+    final BlockWriter writer = new BlockWriter(os);
+    writer.writeInt(MAGIC);
+    writer.writeInt(FORMAT_VERSION);
+    writer.writeString(file.getName());
+    writer.writeString(file.getAbsolutePath());
+    writer.writeString(file.getColor() != null ? file.getColor().toString() : null);
+    writer.writeString(
+        file.getStartTimeStamp() != null ? file.getStartTimeStamp().toString() : null);
+    writer.writeString(appliedMethodsToXML(file.getAppliedMethods()));
+
+    // enums are stored by their ordinal, the names map them back
+    writeNames(writer, PolarityType.values());
+    writeNames(writer, MassSpectrumType.values());
+
+    writer.writeInt(numScans);
+    writer.writeInts(scanNumbers);
+    writer.writeInts(msLevels);
+    writer.writeFloats(retentionTimes, numScans);
+    writer.writeInts(polarities);
+    writer.writeInts(spectrumTypes);
+    writer.writeBitSet(injectionTimePresent);
+    writer.writeFloats(injectionTimes, numScans);
+    writer.writeBitSet(mzRangePresent);
+    writer.writeDoubles(mzRanges, mzRanges.length);
+    for (Scan scan : scans) {
+      writer.writeString(scan.getScanDefinition());
+    }
+    writer.writeInts(numDataPoints);
+    writer.writeInts(mzEncodings);
+    writer.writeDoubles(mzBases, numScans);
+    writer.writeInts(intensityEncodings);
+    writer.writeInts(massListTypes);
+    writer.writeInts(massListSizes);
+
+    final List<Integer> msmsScans = new ArrayList<>();
+    for (int i = 0; i < numScans; i++) {
+      if (scans.get(i).getMsMsInfo() != null) {
+        msmsScans.add(i);
+      }
+    }
+    writer.writeInt(msmsScans.size());
+    for (int i : msmsScans) {
+      writer.writeInt(i);
+      writer.writeString(msMsInfoToXML(scans.get(i).getMsMsInfo()));
+    }
+
+    double[] buffer = new double[0];
+    float[] floatBuffer = new float[0];
+    for (int i = 0; i < numScans; i++) {
+      final Scan scan = scans.get(i);
+      // scan values are written as stored to keep their precision
+      for (StoredDoubleValues values : List.of(storedMzs[i], storedIntensities[i])) {
+        final int size = values.size();
+        switch (values) {
+          case Doubles(var doubles) -> {
+            buffer = size > buffer.length ? new double[size] : buffer;
+            doubles.get(0, buffer, 0, size);
+            writer.writeDoubles(buffer, size);
+          }
+          case Floats(var floats) -> {
+            floatBuffer = size > floatBuffer.length ? new float[size] : floatBuffer;
+            floats.get(0, floatBuffer, 0, size);
+            writer.writeFloats(floatBuffer, size);
+          }
+          case FloatDeltas(_, var deltas) -> {
+            floatBuffer = size > floatBuffer.length ? new float[size] : floatBuffer;
+            deltas.get(0, floatBuffer, 0, size);
+            writer.writeFloats(floatBuffer, size);
+          }
+        }
+      }
+      if (massListTypes[i] == SIMPLE_MASS_LIST) {
+        final MassList massList = scan.getMassList();
+        buffer = massList.getMzValues(buffer);
+        writer.writeDoubles(buffer, massListSizes[i]);
+        buffer = massList.getIntensityValues(buffer);
+        writer.writeDoubles(buffer, massListSizes[i]);
+      }
+    }
+    writer.flush();
+  }
+
+  /**
+   * Restores a raw data file from a snapshot file. The scan data and mass lists are memory mapped
+   * from the snapshot file, which needs to exist as long as the raw data file is used.
+   *
+   * @param snapshotFile the snapshot, extracted from the project
+   * @param project      the project, used to resolve references of fragment scan information
+   * @return the restored file, not yet added to the project
+   */
+  @NotNull
+  public static RawDataFile read(@NotNull File snapshotFile, @NotNull MZmineProject project)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ)) {
+      return read(channel, project);
+    }
+  }
+
+  @NotNull
+  private static RawDataFile read(@NotNull FileChannel channel, @NotNull MZmineProject project)
+      throws IOException {
+    final BlockReader reader = new BlockReader(channel, "raw data snapshot");
+    if (reader.readInt() != MAGIC) {
+      throw new IOException("Not a raw data snapshot.");
+    }
+    final int version = reader.readInt();
+    if (version != FORMAT_VERSION) {
+      throw new IOException("Unsupported raw data snapshot version " + version);
+    }
+
+    final String name = reader.readString();
+    final String absolutePath = reader.readString();
+    final String color = reader.readString();
+    final String startTimeStamp = reader.readString();
+    final String appliedMethods = reader.readString();
+    if (name == null) {
+      throw new IOException("Raw data snapshot without file name.");
+    }
+
+    // storage for data that is added to the file later, the snapshot data stays mapped
+    final MemoryMapStorage storage = MemoryMapStorage.forRawDataFile();
+    final RawDataFileImpl file =
+        color != null ? new RawDataFileImpl(name, absolutePath, storage, Color.valueOf(color))
+            : new RawDataFileImpl(name, absolutePath, storage);
+    if (startTimeStamp != null) {
+      file.setStartTimeStamp(LocalDateTime.parse(startTimeStamp));
+    }
+    if (appliedMethods != null) {
+      file.getAppliedMethods().addAll(appliedMethodsFromXML(appliedMethods));
+    }
+
+    final PolarityType[] polarityValues = readNames(reader, PolarityType::valueOf,
+        PolarityType[]::new);
+    final MassSpectrumType[] spectrumTypeValues = readNames(reader,
+        MassSpectrumType::valueOf, MassSpectrumType[]::new);
+
+    final int numScans = reader.readInt();
+    final int[] scanNumbers = reader.readInts(numScans);
+    final int[] msLevels = reader.readInts(numScans);
+    final float[] retentionTimes = reader.readFloats(numScans);
+    final int[] polarities = reader.readInts(numScans);
+    final int[] spectrumTypes = reader.readInts(numScans);
+    final BitSet injectionTimePresent = reader.readBitSet();
+    final float[] injectionTimes = reader.readFloats(numScans);
+    final BitSet mzRangePresent = reader.readBitSet();
+    final double[] mzRanges = reader.readDoubles(numScans * 2);
+    final String[] scanDefinitions = new String[numScans];
+    for (int i = 0; i < numScans; i++) {
+      scanDefinitions[i] = reader.readString();
+    }
+    final int[] numDataPoints = reader.readInts(numScans);
+    final int[] mzEncodings = reader.readInts(numScans);
+    final double[] mzBases = reader.readDoubles(numScans);
+    final int[] intensityEncodings = reader.readInts(numScans);
+    final int[] massListTypes = reader.readInts(numScans);
+    final int[] massListSizes = reader.readInts(numScans);
+
+    final int numMsMsInfos = reader.readInt();
+    final int[] msmsScans = new int[numMsMsInfos];
+    final String[] msmsInfos = new String[numMsMsInfos];
+    for (int i = 0; i < numMsMsInfos; i++) {
+      msmsScans[i] = reader.readInt();
+      msmsInfos[i] = reader.readString();
+    }
+
+    // scan data is mapped in segments, each scan stores m/z, intensity and mass list values
+    final long[] scanBytes = new long[numScans];
+    for (int i = 0; i < numScans; i++) {
+      final int massListSize = massListTypes[i] == SIMPLE_MASS_LIST ? massListSizes[i] : 0;
+      scanBytes[i] = (long) valueBytes(mzEncodings[i]) * numDataPoints[i]
+                     + (long) valueBytes(intensityEncodings[i]) * numDataPoints[i]
+                     + 2L * Double.BYTES * massListSize;
+    }
+    long segmentStart = reader.position();
+    int first = 0;
+    while (first < numScans) {
+      int end = first;
+      long segmentBytes = 0;
+      while (end < numScans && (end == first
+                                || segmentBytes + scanBytes[end] <= MAX_SEGMENT_BYTES)) {
+        segmentBytes += scanBytes[end];
+        end++;
+      }
+      final ByteBuffer segment = channel.map(MapMode.READ_ONLY, segmentStart, segmentBytes);
+      // byte offset in the segment
+      int offset = 0;
+      for (int i = first; i < end; i++) {
+        final int numValues = numDataPoints[i];
+        final StoredDoubleValues mzs = mapValues(segment, offset, numValues, mzEncodings[i],
+            mzBases[i]);
+        offset += valueBytes(mzEncodings[i]) * numValues;
+        final StoredDoubleValues intensities = mapValues(segment, offset, numValues,
+            intensityEncodings[i], 0d);
+        offset += valueBytes(intensityEncodings[i]) * numValues;
+        final SimpleScan scan = new SimpleScan(file, scanNumbers[i], msLevels[i],
+            retentionTimes[i], null, mzs, intensities, spectrumTypeValues[spectrumTypes[i]],
+            polarityValues[polarities[i]], scanDefinitions[i],
+            mzRangePresent.get(i) ? Range.closed(mzRanges[i * 2], mzRanges[i * 2 + 1]) : null,
+            injectionTimePresent.get(i) ? injectionTimes[i] : null);
+
+        switch (massListTypes[i]) {
+          case SIMPLE_MASS_LIST -> {
+            final int massListBytes = massListSizes[i] * Double.BYTES;
+            scan.addMassList(new SimpleMassList(
+                segment.slice(offset, massListBytes).asDoubleBuffer(),
+                segment.slice(offset + massListBytes, massListBytes).asDoubleBuffer()));
+            offset += 2 * massListBytes;
+          }
+          case SCAN_POINTER_MASS_LIST -> scan.addMassList(new ScanPointerMassList(scan));
+          default -> {
+          }
+        }
+        file.addScan(scan);
+      }
+      segmentStart += segmentBytes;
+      first = end;
+    }
+
+    // fragment scan information references other scans of the file
+    final List<RawDataFile> projectFiles = new ArrayList<>(project.getCurrentRawDataFiles());
+    projectFiles.add(file);
+    for (int i = 0; i < numMsMsInfos; i++) {
+      final SimpleScan scan = (SimpleScan) file.getScan(msmsScans[i]);
+      try {
+        scan.setMsMsInfo(msMsInfoFromXML(msmsInfos[i], file, projectFiles));
+      } catch (XMLStreamException | RuntimeException e) {
+        logger.log(Level.WARNING,
+            "Cannot restore fragment scan information of scan " + scan.getScanNumber() + " in "
+            + name, e);
+      }
+    }
+    return file;
+  }
+
+  @NotNull
+  private static StoredDoubleValues storedValues(@Nullable StoredDoubleValues values) {
+    return values != null ? values : StoredDoubleValues.EMPTY;
+  }
+
+  private static int encodingOf(@NotNull StoredDoubleValues values) {
+    return switch (values) {
+      case Doubles _ -> DOUBLE_VALUES;
+      case Floats _ -> FLOAT_VALUES;
+      case FloatDeltas _ -> FLOAT_DELTA_VALUES;
+    };
+  }
+
+  private static int valueBytes(int encoding) {
+    return encoding == DOUBLE_VALUES ? Double.BYTES : Float.BYTES;
+  }
+
+  /**
+   * @param offset byte offset of the values in the segment
+   * @param base   the base value of float deltas
+   */
+  @NotNull
+  private static StoredDoubleValues mapValues(@NotNull ByteBuffer segment, int offset,
+      int numValues, int encoding, double base) throws IOException {
+    final ByteBuffer bytes = segment.slice(offset, valueBytes(encoding) * numValues);
+    return switch (encoding) {
+      case DOUBLE_VALUES -> new Doubles(bytes.asDoubleBuffer());
+      case FLOAT_VALUES -> new Floats(bytes.asFloatBuffer());
+      case FLOAT_DELTA_VALUES -> new FloatDeltas(base, bytes.asFloatBuffer());
+      default -> throw new IOException("Unknown encoding of scan values " + encoding);
+    };
+  }
+
+  private static <T extends Enum<T>> void writeNames(@NotNull BlockWriter writer,
+      @NotNull T[] values) throws IOException {
+    writer.writeInt(values.length);
+    for (T value : values) {
+      writer.writeString(value.name());
+    }
+  }
+
+  private static <T extends Enum<T>> T[] readNames(@NotNull BlockReader reader,
+      @NotNull Function<String, T> valueOf, @NotNull IntFunction<T[]> arrayFactory)
+      throws IOException {
+    final int numValues = reader.readInt();
+    final T[] values = arrayFactory.apply(numValues);
+    for (int i = 0; i < numValues; i++) {
+      values[i] = valueOf.apply(reader.readString());
+    }
+    return values;
+  }
+
+  @NotNull
+  private static String msMsInfoToXML(@NotNull MsMsInfo info) throws IOException {
+    final StringWriter out = new StringWriter();
+    try {
+      final XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out);
+      info.writeToXML(writer);
+      writer.flush();
+      writer.close();
+    } catch (XMLStreamException e) {
+      throw new IOException("Cannot write fragment scan information.", e);
+    }
+    return out.toString();
+  }
+
+  @NotNull
+  private static MsMsInfo msMsInfoFromXML(@NotNull String xml, @NotNull RawDataFile file,
+      @NotNull List<RawDataFile> projectFiles) throws XMLStreamException {
+    final XMLStreamReader reader = XMLInputFactory.newInstance()
+        .createXMLStreamReader(new StringReader(xml));
+    reader.nextTag();
+    return MsMsInfo.loadFromXML(reader, file, projectFiles);
+  }
+
+  @NotNull
+  private static String appliedMethodsToXML(@NotNull List<FeatureListAppliedMethod> methods)
+      throws IOException {
+    try {
+      final Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+          .newDocument();
+      final Element root = document.createElement(CONST.XML_FLIST_APPLIED_METHODS_LIST_ELEMENT);
+      document.appendChild(root);
+      for (FeatureListAppliedMethod method : methods) {
+        final Element element = document.createElement(CONST.XML_FLIST_APPLIED_METHOD_ELEMENT);
+        method.saveValueToXML(element);
+        root.appendChild(element);
+      }
+      final StringWriter out = new StringWriter();
+      TransformerFactory.newInstance().newTransformer()
+          .transform(new DOMSource(document), new StreamResult(out));
+      return out.toString();
+    } catch (ParserConfigurationException | TransformerException e) {
+      throw new IOException("Cannot write applied methods of raw data file.", e);
+    }
+  }
+
+  @NotNull
+  private static List<FeatureListAppliedMethod> appliedMethodsFromXML(@NotNull String xml)
+      throws IOException {
+    try {
+      final Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+          .parse(new InputSource(new StringReader(xml)));
+      final NodeList elements = document.getElementsByTagName(
+          CONST.XML_FLIST_APPLIED_METHOD_ELEMENT);
+      final List<FeatureListAppliedMethod> methods = new ArrayList<>();
+      for (int i = 0; i < elements.getLength(); i++) {
+        methods.add(SimpleFeatureListAppliedMethod.loadValueFromXML((Element) elements.item(i)));
+      }
+      return methods;
+    } catch (ParserConfigurationException | SAXException e) {
+      throw new IOException("Cannot read applied methods of raw data file.", e);
+    }
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.tools.isotopeprediction;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import io.github.mzmine.datamodel.IsotopePattern;
+import io.github.mzmine.datamodel.IsotopePattern.IsotopePatternStatus;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.impl.SimpleIsotopePattern;
+import java.util.function.Supplier;
+import org.jetbrains.annotations.NotNull;
+import org.openscience.cdk.interfaces.IMolecularFormula;
+import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
+
+/**
+ * Process-wide cache of predicted isotope patterns. Many modules (compound database search,
+ * formula prediction, isotope scoring) predict the same pattern for many rows. Patterns are stored
+ * as primitive arrays and the cache is bounded by the total number of data points. The least
+ * recently used patterns are evicted first. The cache is thread-safe.
+ */
+public class IsotopePatternCache {
+
+  /**
+   * Maximum number of data points of all cached patterns (~32 MB of m/z and intensity values)
+   */
+  public static final long MAX_DATA_POINTS = 2_000_000;
+
+  private static final Cache<PatternKey, CachedPattern> cache = CacheBuilder.newBuilder()
+      .maximumWeight(MAX_DATA_POINTS)
+      .weigher((PatternKey key, CachedPattern value) -> value.mzs().length + 1).recordStats()
+      .build();
+
+  private IsotopePatternCache() {
+  }
+
+  /**
+   * Returns the cached pattern or calculates and caches a new pattern. The returned pattern uses
+   * its own copy of the cached values.
+   *
+   * @param calculation the pattern calculation on a cache miss. Empty patterns are not cached.
+   */
+  @NotNull
+  static IsotopePattern get(@NotNull IMolecularFormula formula, double minAbundance,
+      double mergeWidth, int charge, @NotNull PolarityType polarity,
+      @NotNull Supplier<IsotopePattern> calculation) {
+    // mass numbers distinguish labelled formulas, the formula charge is used by the CDK
+    final String formulaString = MolecularFormulaManipulator.getString(formula, false, true);
+    final Integer formulaCharge = formula.getCharge();
+    final PatternKey key = new PatternKey(formulaString,
+        formulaCharge == null ? 0 : formulaCharge, charge, polarity, minAbundance, mergeWidth);
+
+    final CachedPattern cached = cache.getIfPresent(key);
+    if (cached != null) {
+      return cached.toPattern(charge);
+    }
+
+    final IsotopePattern pattern = calculation.get();
+    if (pattern.getNumberOfDataPoints() > 0) {
+      // a concurrent calculation of the same pattern only replaces an equal value
+      cache.put(key, CachedPattern.of(pattern));
+    }
+    return pattern;
+  }
+
+  /**
+   * @return the statistics of all requests since startup or the last {@link #clear()}
+   */
+  @NotNull
+  public static CacheStats getStats() {
+    return cache.stats();
+  }
+
+  /**
+   * @return the ratio of requests that were served from the cache, 1 if there were no requests
+   */
+  public static double getHitRate() {
+    return cache.stats().hitRate();
+  }
+
+  /**
+   * @return number of cached patterns
+   */
+  public static long size() {
+    return cache.size();
+  }
+
+  public static void clear() {
+    cache.invalidateAll();
+  }
+
+  private record PatternKey(@NotNull String formula, int formulaCharge, int charge,
+                            @NotNull PolarityType polarity, double minAbundance,
+                            double mergeWidth) {
+
+  }
+
+  private record CachedPattern(double[] mzs, double[] intensities, String description) {
+
+    static CachedPattern of(IsotopePattern pattern) {
+      return new CachedPattern(pattern.getMzValues(new double[pattern.getNumberOfDataPoints()]),
+          pattern.getIntensityValues(new double[pattern.getNumberOfDataPoints()]),
+          pattern.getDescription());
+    }
+
+    /**
+     * Copies the values, patterns may expose their internal arrays
+     */
+    IsotopePattern toPattern(int charge) {
+      return new SimpleIsotopePattern(mzs.clone(), intensities.clone(), charge,
+          IsotopePatternStatus.PREDICTED, description);
+    }
+  }
+}
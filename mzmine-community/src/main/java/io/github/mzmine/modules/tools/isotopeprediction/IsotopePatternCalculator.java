@@ -93,9 +93,24 @@ public class IsotopePatternCalculator implements MZmineModule {
     return calculateIsotopePattern(cdkFormula, minAbundance, 0.00005f, charge, polarity, false);
   }
 
+  /**
+   * Patterns without isotope compositions are served from the {@link IsotopePatternCache}
+   */
   public static IsotopePattern calculateIsotopePattern(IMolecularFormula cdkFormula,
       double minAbundance, double mergeWidth, int charge, PolarityType polarity,
       boolean storeFormula) {
+    if (storeFormula) {
+      return predictIsotopePattern(cdkFormula, minAbundance, mergeWidth, charge, polarity, true);
+    }
+    final int absCharge = Math.abs(charge);
+    return IsotopePatternCache.get(cdkFormula, minAbundance, mergeWidth, absCharge, polarity,
+        () -> predictIsotopePattern(cdkFormula, minAbundance, mergeWidth, absCharge, polarity,
+            false));
+  }
+
+  private static IsotopePattern predictIsotopePattern(IMolecularFormula cdkFormula,
+      double minAbundance, double mergeWidth, int charge, PolarityType polarity,
+      boolean storeFormula) {
     // TODO: check if the formula is not too big (>100 of a single atom?).
     // if so, just cancel the prediction
 
@@ -44,7 +44,7 @@ import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureListRow;
 import io.github.mzmine.datamodel.features.compoundannotations.FeatureAnnotation;
-import io.github.mzmine.datamodel.features.correlation.R2RMap;
+import io.github.mzmine.datamodel.features.correlation.R2RGraph;
 import io.github.mzmine.datamodel.features.correlation.RowsRelationship;
 import io.github.mzmine.datamodel.features.correlation.RowsRelationship.Type;
 import io.github.mzmine.datamodel.features.types.DataType;
@@ -547,19 +547,18 @@ public class FeatureTableContextMenu extends ContextMenu {
   }
 
   private boolean selectedRowHasCorrelationData() {
-    final Optional<R2RMap<RowsRelationship>> rowMapOptional = selectedRow.getFeatureList()
+    final Optional<R2RGraph<RowsRelationship>> rowMapOptional = selectedRow.getFeatureList()
         .getRowMap(Type.MS1_FEATURE_CORR);
     if (rowMapOptional.isEmpty()) {
       return false;
     }
-    R2RMap<RowsRelationship> rowsRelationshipR2RMap = rowMapOptional.get();
+    final R2RGraph<RowsRelationship> graph = rowMapOptional.get();
 
+    // only rows of the current feature list, the graph maps row IDs
     List<FeatureListRow> allRows = selectedRow.getFeatureList().getRows();
     for (FeatureListRow row : allRows) {
-      if (row != selectedRow && rowsRelationshipR2RMap.get(selectedRow, row) != null) {
-        if (rowsRelationshipR2RMap.get(selectedRow, row).getScore() > 0) {
-          return true;
-        }
+      if (row != selectedRow && graph.getScore(selectedRow, row) > 0) {
+        return true;
       }
     }
 
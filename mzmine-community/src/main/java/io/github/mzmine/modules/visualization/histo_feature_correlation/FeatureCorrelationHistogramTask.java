@@ -30,7 +30,7 @@ import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.correlation.CorrelationData;
 import io.github.mzmine.datamodel.features.correlation.R2RFullCorrelationData;
-import io.github.mzmine.datamodel.features.correlation.R2RMap;
+import io.github.mzmine.datamodel.features.correlation.R2RGraph;
 import io.github.mzmine.datamodel.features.correlation.RowsRelationship;
 import io.github.mzmine.datamodel.identities.iontype.IonIdentity;
 import io.github.mzmine.main.MZmineCore;
@@ -81,7 +81,7 @@ public class FeatureCorrelationHistogramTask extends AbstractTask {
   @Override
   public void run() {
     setStatus(TaskStatus.PROCESSING);
-    Optional<R2RMap<RowsRelationship>> ms1CorrelationMap = flist.getMs1CorrelationMap();
+    Optional<R2RGraph<RowsRelationship>> ms1CorrelationMap = flist.getMs1CorrelationMap();
     if (ms1CorrelationMap.isEmpty()) {
       logger.fine("Run correlation grouping before");
       return;
@@ -34,7 +34,7 @@ import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeature;
-import io.github.mzmine.datamodel.features.correlation.R2RMap;
+import io.github.mzmine.datamodel.features.correlation.R2RGraph;
 import io.github.mzmine.datamodel.features.correlation.RowsRelationship;
 import io.github.mzmine.datamodel.features.correlation.RowsRelationship.Type;
 import io.github.mzmine.datamodel.impl.SimpleDataPoint;
@@ -133,9 +133,10 @@ public class ColocatedImageVisualizerPane extends AbstractFeatureListRowsPane {
 
     final ModularFeature bestFeature = optBestFeature.get();
 
-    final R2RMap<RowsRelationship> rowsRelationshipR2RMap = opt.get();
-    final List<RowsRelationship> sortedRelationships = rowsRelationshipR2RMap.streamAllCorrelatedRows(
-            selectedRow, flist.getRows())
+    final R2RGraph<RowsRelationship> rowsRelationshipGraph = opt.get();
+    // only rows of the current feature list, the graph maps row IDs
+    final List<RowsRelationship> sortedRelationships = rowsRelationshipGraph
+        .streamAllCorrelatedRows(selectedRow, flist.getRows())
         .sorted(Comparator.comparingDouble(RowsRelationship::getScore).reversed()).toList();
 
     if (sortedRelationships.isEmpty()) {
@@ -27,7 +27,7 @@ package io.github.mzmine.modules.visualization.networking.visual;
 
 import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.FeatureListRow;
-import io.github.mzmine.datamodel.features.correlation.R2RMap;
+import io.github.mzmine.datamodel.features.correlation.R2RGraph;
 import io.github.mzmine.datamodel.features.correlation.R2RNetworkingMaps;
 import io.github.mzmine.datamodel.features.correlation.RowsRelationship;
 import io.github.mzmine.datamodel.features.types.annotations.GNPSSpectralLibraryMatchesType;
@@ -303,8 +303,9 @@ public class FeatureNetworkGenerator {
     if (relationsMaps == null || relationsMaps.isEmpty()) {
       return;
     }
-    for (Entry<String, R2RMap<RowsRelationship>> entry : relationsMaps.getRowsMaps().entrySet()) {
-      R2RMap<RowsRelationship> r2rMap = entry.getValue();
+    for (Entry<String, R2RGraph<RowsRelationship>> entry : relationsMaps.getRowsMaps()
+        .entrySet()) {
+      R2RGraph<RowsRelationship> r2rMap = entry.getValue();
       // do not add MS1 correlation
       if (r2rMap == null) {
         continue;
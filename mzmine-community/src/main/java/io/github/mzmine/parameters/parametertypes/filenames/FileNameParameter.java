@@ -129,6 +129,14 @@ public class FileNameParameter implements UserParameter<File, FileNameComponent>
     this.value = value;
   }
 
+  /**
+   * @return {@link FileSelectionType#OPEN} for input files, {@link FileSelectionType#SAVE} for
+   * output files
+   */
+  public FileSelectionType getSelectionType() {
+    return type;
+  }
+
   public List<File> getLastFiles() {
     return lastFiles;
   }
@@ -33,6 +33,7 @@ import io.github.mzmine.datamodel.MobilityScan;
 import io.github.mzmine.datamodel.PolarityType;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.impl.ScanMetadataIndex;
 import io.github.mzmine.parameters.parametertypes.combowithinput.MsLevelFilter;
 import io.github.mzmine.util.RangeUtils;
 import io.github.mzmine.util.TextUtils;
@@ -131,8 +132,16 @@ public record ScanSelection(Range<Integer> scanNumberRange, Integer baseFilterin
     return eligibleScans;
   }
 
+  /**
+   * Uses the {@link RawDataFile#getScanMetadataIndex()} to limit the tested scans to the RT range
+   * of this selection.
+   */
   public Stream<Scan> streamMatchingScans(RawDataFile dataFile) {
-    return dataFile.getScans().stream().filter(this::matches);
+    final int offset = scanNumberRange != null ? scanNumberRange.lowerEndpoint()
+        : getOffset(dataFile);
+    final List<Scan> candidates = scanRTRange != null ? dataFile.getScanMetadataIndex()
+        .getScans(scanRTRange) : dataFile.getScans();
+    return candidates.stream().filter(scan -> matches(scan, offset));
   }
 
   public Scan[] getMatchingScans(RawDataFile dataFile) {
@@ -152,20 +161,32 @@ public record ScanSelection(Range<Integer> scanNumberRange, Integer baseFilterin
       return null;
     }
 
-    Scan[] matchingScans = getMatchingScans(file);
-    double minDiff = 10E6;
-
-    for (int i = 0; i < matchingScans.length; i++) {
-      Scan scan = matchingScans[i];
-      double diff = Math.abs(retentionTime - scan.getRetentionTime());
-
-      if (diff < minDiff) {
-        minDiff = diff;
-      } else if (diff > minDiff) {
-        return matchingScans[i - 1];
+    final ScanMetadataIndex index = file.getScanMetadataIndex();
+    final int closest = index.closestIndex(retentionTime);
+    if (closest == -1) {
+      return null;
+    }
+    final int offset = scanNumberRange != null ? scanNumberRange.lowerEndpoint()
+        : getOffset(file);
+
+    // scans are sorted by RT - find the closest matching scan on both sides
+    Scan after = null;
+    for (int i = closest; i < index.size() && after == null; i++) {
+      if (matches(index.getScan(i), offset)) {
+        after = index.getScan(i);
+      }
+    }
+    Scan before = null;
+    for (int i = closest - 1; i >= 0 && before == null; i--) {
+      if (matches(index.getScan(i), offset)) {
+        before = index.getScan(i);
       }
     }
-    return null;
+    if (before == null || after == null) {
+      return before == null ? after : before;
+    }
+    return Math.abs(retentionTime - before.getRetentionTime()) <= Math.abs(
+        after.getRetentionTime() - retentionTime) ? before : after;
   }
 
   /**
@@ -180,11 +201,18 @@ public record ScanSelection(Range<Integer> scanNumberRange, Integer baseFilterin
   }
 
   private static int getOffset(final Scan scan) {
+    try {
+      // building scans have no data file
+      return getOffset(scan.getDataFile());
+    } catch (Exception e) {
+      return 1;
+    }
+  }
+
+  private static int getOffset(final RawDataFile raw) {
     int offset;
     // first scan number
     try {
-      // building scans have no data file
-      RawDataFile raw = scan.getDataFile();
       if (raw == null) {
         return 1;
       }
@@ -32,7 +32,9 @@ import io.github.mzmine.datamodel.MassSpectrumType;
 import io.github.mzmine.datamodel.PolarityType;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.data_access.MassListIndex;
 import io.github.mzmine.datamodel.features.FeatureList.FeatureListAppliedMethod;
+import io.github.mzmine.datamodel.impl.ScanMetadataIndex;
 import io.github.mzmine.javafx.util.FxColorUtil;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.util.MemoryMapStorage;
@@ -92,6 +94,13 @@ public class RawDataFileImpl implements RawDataFile {
   @Nullable
   private LocalDateTime startTimeStamp = null;
 
+  // lazily created and reset when scans are added
+  @Nullable
+  private volatile ScanMetadataIndex scanMetadataIndex;
+  // built after mass detection and reset when scans or mass lists change
+  @Nullable
+  private volatile MassListIndex massListIndex;
+
   public RawDataFileImpl(@NotNull final String dataFileName, @Nullable final String absolutePath,
       @Nullable final MemoryMapStorage storage) {
     this(dataFileName, absolutePath, storage,
@@ -216,6 +225,8 @@ public class RawDataFileImpl implements RawDataFile {
       }
     }
     // Remove cached values
+    scanMetadataIndex = null;
+    massListIndex = null;
     dataMZRange.clear();
     dataRTRange.clear();
     dataMaxBasePeakIntensity.clear();
@@ -327,6 +338,36 @@ public class RawDataFileImpl implements RawDataFile {
     return rtRange;
   }
 
+  @Override
+  public @Nullable MassListIndex getMassListIndex() {
+    return massListIndex;
+  }
+
+  @Override
+  public void setMassListIndex(@Nullable MassListIndex index) {
+    massListIndex = index;
+  }
+
+  @Override
+  public @NotNull ScanMetadataIndex getScanMetadataIndex() {
+    ScanMetadataIndex index = scanMetadataIndex;
+    if (index == null) {
+      synchronized (this) {
+        index = scanMetadataIndex;
+        if (index == null) {
+          index = new ScanMetadataIndex(scans);
+          scanMetadataIndex = index;
+        }
+      }
+    }
+    return index;
+  }
+
+  @Override
+  public @NotNull Scan[] getScanNumbers(int msLevel, @NotNull Range<Float> rtRange) {
+    return getScanMetadataIndex().getScans(msLevel, rtRange).toArray(Scan[]::new);
+  }
+
   @Override
   public int getNumOfScans(int msLevel) {
     return getScanNumbers(msLevel).size();
@@ -405,6 +446,7 @@ public class RawDataFileImpl implements RawDataFile {
    */
   @Override
   public void applyMassListChanged(Scan scan, MassList old, MassList masses) {
+    massListIndex = null;
   }
 
   @Nullable
@@ -71,7 +71,6 @@ import io.github.mzmine.modules.tools.qualityparameters.QualityParameters;
 import io.github.mzmine.util.scans.ScanUtils;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Comparator;
 import java.util.Hashtable;
 import java.util.List;
@@ -91,16 +90,8 @@ public class FeatureConvertors {
    */
   static public ModularFeature ADAPChromatogramToModularFeature(ModularFeatureList featureList,
       RawDataFile dataFile, @NotNull ADAPChromatogram chromatogram) {
-    // Data points of feature
-    final Collection<DataPoint> dataPoints = chromatogram.getDataPoints();
-    final Collection<Scan> scans = chromatogram.getScanNumbers();
-    if (dataPoints.size() != scans.size()) {
-      throw new IllegalArgumentException(
-          "Number of data points does not match number of scan numbers");
-    }
-
-    SimpleIonTimeSeries timeSeries = createSimpleTimeSeries(featureList.getMemoryMapStorage(),
-        new ArrayList<>(dataPoints), new ArrayList<>(scans));
+    SimpleIonTimeSeries timeSeries = new SimpleIonTimeSeries(featureList.getMemoryMapStorage(),
+        chromatogram.getMzValues(), chromatogram.getIntensityValues(), chromatogram.getScans());
     ModularFeature modularFeature = new ModularFeature(featureList, dataFile, timeSeries,
         FeatureStatus.DETECTED);
 
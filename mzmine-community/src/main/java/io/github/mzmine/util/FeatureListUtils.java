@@ -45,6 +45,8 @@ import io.github.mzmine.datamodel.features.types.alignment.AlignmentMainType;
 import io.github.mzmine.datamodel.features.types.alignment.AlignmentScores;
 import io.github.mzmine.datamodel.features.types.numbers.IDType;
 import io.github.mzmine.gui.framework.fx.features.ParentFeatureListPaneGroup;
+import io.github.mzmine.gui.preferences.MZminePreferences;
+import io.github.mzmine.main.ConfigService;
 import io.github.mzmine.modules.dataprocessing.align_join.RowAlignmentScoreCalculator;
 import io.github.mzmine.modules.visualization.featurelisttable_modular.FeatureTableFX;
 import io.github.mzmine.util.collections.BinarySearch;
@@ -608,10 +610,26 @@ public class FeatureListUtils {
     return map;
   }
 
+  /**
+   * @return true if feature detection and alignment should create feature lists in the compact
+   * storage mode, see {@link MZminePreferences#compactFeatureStorage}
+   */
+  public static boolean isCompactFeatureStorage() {
+    return Boolean.TRUE.equals(
+        ConfigService.getPreference(MZminePreferences.compactFeatureStorage));
+  }
+
+  /**
+   * @return true if the feature list stores values in the compact storage mode
+   */
+  public static boolean isCompactStorage(@Nullable FeatureList featureList) {
+    return featureList instanceof ModularFeatureList flist && flist.isCompactStorage();
+  }
+
   public static ModularFeatureList createCopy(final FeatureList featureList, final String suffix,
       final MemoryMapStorage storage) {
     ModularFeatureList newFlist = new ModularFeatureList(featureList.getName() + " " + suffix,
-        storage, featureList.getRawDataFiles());
+        storage, isCompactStorage(featureList), featureList.getRawDataFiles());
 
     FeatureListUtils.copyPeakListAppliedMethods(featureList, newFlist);
     FeatureListUtils.transferRowTypes(newFlist, List.of(featureList));
@@ -32,6 +32,7 @@ import io.github.mzmine.datamodel.structures.StructureParser;
 import io.github.mzmine.modules.io.projectload.version_3_0.CONST;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.ParsingUtils;
+import java.nio.DoubleBuffer;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
@@ -82,6 +83,19 @@ public class SpectralDBEntry extends SimpleMassList implements SpectralLibraryEn
     this(storage, mzValues, intensityValues, null, null);
   }
 
+  /**
+   * Entry that uses existing buffers, e.g., views of a memory mapped library cache. The m/z values
+   * need to be sorted.
+   */
+  public SpectralDBEntry(@NotNull DoubleBuffer mzValues, @NotNull DoubleBuffer intensityValues,
+      @Nullable Map<DBEntryField, Object> fields) {
+    super(mzValues, intensityValues);
+    this.fields = new HashMap<>();
+    if (fields != null) {
+      this.fields.putAll(fields);
+    }
+  }
+
   public static SpectralLibraryEntry loadFromXML(XMLStreamReader reader, MZmineProject project)
       throws XMLStreamException {
     if (!(reader.isStartElement() && reader.getLocalName().equals(XML_ELEMENT_ENTRY))) {
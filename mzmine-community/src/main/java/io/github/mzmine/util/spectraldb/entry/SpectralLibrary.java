@@ -54,6 +54,9 @@ public class SpectralLibrary {
   @Nullable
   private final MemoryMapStorage storage;
   private final ObservableSet<DataType> types = FXCollections.observableSet(new LinkedHashSet<>());
+  // precursor m/z index is created after loading or on demand and reset when entries change
+  @Nullable
+  private SpectralLibraryIndex index;
 
   public SpectralLibrary(@Nullable MemoryMapStorage storage, @NotNull File path) {
     this(storage, path.getName(), path);
@@ -71,9 +74,10 @@ public class SpectralLibrary {
     return Collections.unmodifiableList(entries);
   }
 
-  public void addEntry(SpectralLibraryEntry entry) {
+  public synchronized void addEntry(SpectralLibraryEntry entry) {
     entry.setLibrary(this);
     entries.add(entry);
+    index = null;
   }
 
   public void addEntries(Collection<SpectralLibraryEntry> entries) {
@@ -103,6 +107,19 @@ public class SpectralLibrary {
     return storage;
   }
 
+  /**
+   * The precursor m/z index is built once and reused until new entries are added.
+   *
+   * @return the precursor m/z index of all entries
+   */
+  @NotNull
+  public synchronized SpectralLibraryIndex getOrCreateIndex() {
+    if (index == null) {
+      index = new SpectralLibraryIndex(entries);
+    }
+    return index;
+  }
+
   public void addType(Collection<DataType> newTypes) {
     types.addAll(newTypes);
   }
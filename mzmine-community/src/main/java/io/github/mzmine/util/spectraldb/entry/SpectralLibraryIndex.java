@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.spectraldb.entry;
+
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.collections.BinarySearch;
+import io.github.mzmine.util.collections.IndexRange;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Precursor m/z index of a {@link SpectralLibrary}. Entries are sorted by precursor m/z so that
+ * range queries only return the entries that may pass a precursor tolerance check. Entries without
+ * precursor m/z are not part of the index, as they never pass the precursor check.
+ * <p>
+ * The entries keep their own peak buffers. {@link io.github.mzmine.util.MemoryMapStorage} is append only, so copying the
+ * peaks into new blocks would double the mapped footprint of a library without releasing the
+ * original buffers.
+ */
+public class SpectralLibraryIndex {
+
+  private final SpectralLibraryEntry[] entries;
+  private final double[] precursorMzs;
+  private final PolarityType[] polarities;
+  private final long totalDataPoints;
+
+  /**
+   * @param entries all entries of a library, only entries with a precursor m/z are indexed
+   */
+  public SpectralLibraryIndex(@NotNull List<SpectralLibraryEntry> entries) {
+    this.entries = entries.stream().filter(e -> e.getPrecursorMZ() != null)
+        .sorted(Comparator.comparingDouble(SpectralLibraryEntry::getPrecursorMZ))
+        .toArray(SpectralLibraryEntry[]::new);
+
+    final int size = this.entries.length;
+    precursorMzs = new double[size];
+    polarities = new PolarityType[size];
+    long total = 0;
+    for (int i = 0; i < size; i++) {
+      final SpectralLibraryEntry entry = this.entries[i];
+      precursorMzs[i] = entry.getPrecursorMZ();
+      polarities[i] = entry.getPolarity();
+      total += entry.getNumberOfDataPoints();
+    }
+    totalDataPoints = total;
+  }
+
+  /**
+   * The range of precursor m/z values that may pass
+   * {@link MZTolerance#checkWithinTolerance(double, double)} with the library precursor m/z as
+   * first argument. The tolerance is calculated from the library precursor m/z, which is covered by
+   * doubling the tolerance of the query m/z. Final checks still need to be applied.
+   */
+  private static double[] candidateRange(double mz, @NotNull MZTolerance tolerance) {
+    final double delta = 2d * tolerance.getMzToleranceForMass(mz);
+    return new double[]{mz - delta, mz + delta};
+  }
+
+  /**
+   * All entries that may match the precursor m/z within tolerance. The precursor tolerance still
+   * needs to be checked on the result.
+   *
+   * @param precursorMz query precursor m/z
+   * @param tolerance   the precursor tolerance
+   * @param polarity    only entries with this polarity or with unknown polarity are returned. Use
+   *                    {@link PolarityType#UNKNOWN} or null to return all polarities.
+   * @return list of candidate entries sorted by precursor m/z
+   */
+  @NotNull
+  public List<SpectralLibraryEntry> getCandidates(double precursorMz,
+      @NotNull MZTolerance tolerance, @Nullable PolarityType polarity) {
+    final double[] range = candidateRange(precursorMz, tolerance);
+    final IndexRange indices = BinarySearch.indexRange(precursorMzs, range[0], range[1]);
+    if (indices.isEmpty()) {
+      return List.of();
+    }
+    final boolean filterPolarity = polarity != null && polarity != PolarityType.UNKNOWN;
+    final List<SpectralLibraryEntry> candidates = new ArrayList<>(indices.size());
+    for (int i = indices.min(); i < indices.maxExclusive(); i++) {
+      if (!filterPolarity || polarities[i] == PolarityType.UNKNOWN || polarities[i] == polarity) {
+        candidates.add(entries[i]);
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * @return number of indexed entries with precursor m/z
+   */
+  public int size() {
+    return entries.length;
+  }
+
+  /**
+   * @return number of all data points of the indexed entries
+   */
+  public long getTotalDataPoints() {
+    return totalDataPoints;
+  }
+
+  /**
+   * @param index index in the precursor m/z sorted order
+   * @return the indexed entry
+   */
+  @NotNull
+  public SpectralLibraryEntry get(int index) {
+    return entries[index];
+  }
+}
@@ -0,0 +1,437 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.spectraldb.parser;
+
+import io.github.mzmine.util.files.FileAndPathUtil;
+import io.github.mzmine.util.io.SemverVersionReader;
+import io.github.mzmine.util.spectraldb.entry.DBEntryField;
+import io.github.mzmine.util.spectraldb.entry.SpectralDBEntry;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Binary cache of a parsed spectral library so that later imports of the same file skip text
+ * parsing. The cache is stored in the mzmine user directory and is keyed by the content hash and
+ * size of the library file. The cache is invalidated by a new cache format or mzmine version, as
+ * parsers may change between versions.
+ * <p>
+ * Layout: a fixed header, all m/z values and all intensity values of all entries as contiguous
+ * little endian double blocks (memory mapped on load), followed by the metadata. The metadata
+ * stores the {@link DBEntryField} values column by column with a type tag for each entry.
+ */
+public class SpectralLibraryBinaryCache {
+
+  private static final Logger logger = Logger.getLogger(
+      SpectralLibraryBinaryCache.class.getName());
+
+  private static final int MAGIC = 0x4D5A4C42; // MZLB
+  private static final int FORMAT_VERSION = 1;
+  private static final int HEADER_BYTES = 64;
+  private static final String CACHE_DIR = "library_cache";
+  private static final String EXTENSION = ".mzlibcache";
+  // limit each memory mapped segment to 1 GB
+  private static final long MAX_SEGMENT_VALUES = 1L << 27;
+
+  // value tags of metadata columns
+  private static final byte ABSENT = 0;
+  private static final byte DOUBLE = 1;
+  private static final byte FLOAT = 2;
+  private static final byte INTEGER = 3;
+  private static final byte LONG = 4;
+  private static final byte STRING = 5;
+  private static final byte BOOLEAN = 6;
+
+  private final @NotNull File cacheFile;
+  private final @NotNull String key;
+  // matches all caches of the same library file name: <libraryName>_<hash>.<EXTENSION>
+  private final @NotNull Pattern cacheFilePattern;
+
+  private SpectralLibraryBinaryCache(@NotNull File cacheFile, @NotNull String key,
+      @NotNull String libraryName) {
+    this.cacheFile = cacheFile;
+    this.key = key;
+    cacheFilePattern = Pattern.compile(
+        Pattern.quote(libraryName) + "_[0-9a-f]{1,16}" + Pattern.quote(EXTENSION));
+  }
+
+  /**
+   * Hashes the library file to find its cache
+   *
+   * @param libraryFile the library file
+   * @return the cache for this file content or null if the cache directory is not available
+   */
+  @Nullable
+  public static SpectralLibraryBinaryCache forLibrary(@NotNull File libraryFile) {
+    final File mzmineDir = FileAndPathUtil.getMzmineDir();
+    if (mzmineDir == null) {
+      return null;
+    }
+    return forLibrary(libraryFile, new File(mzmineDir, CACHE_DIR));
+  }
+
+  /**
+   * @param cacheDir the directory of all library caches
+   */
+  @Nullable
+  static SpectralLibraryBinaryCache forLibrary(@NotNull File libraryFile, @NotNull File cacheDir) {
+    if (!libraryFile.isFile()) {
+      return null;
+    }
+    try {
+      final String hash = hashFile(libraryFile);
+      final String key = "%s_%d_v%d_%s".formatted(hash, libraryFile.length(), FORMAT_VERSION,
+          SemverVersionReader.getMZmineVersion());
+      final String libraryName = FileAndPathUtil.safePathEncode(libraryFile.getName());
+      final File cacheFile = new File(cacheDir, libraryName + "_" + hash + EXTENSION);
+      return new SpectralLibraryBinaryCache(cacheFile, key, libraryName);
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Cannot hash library file " + libraryFile, e);
+      return null;
+    }
+  }
+
+  private static String hashFile(@NotNull File file) throws IOException {
+    final CRC32C crc = new CRC32C();
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      while (channel.read(buffer) >= 0) {
+        buffer.flip();
+        crc.update(buffer);
+        buffer.clear();
+      }
+    }
+    return Long.toHexString(crc.getValue());
+  }
+
+  /**
+   * Loads all entries from the cache. Peaks are memory mapped from the cache file.
+   *
+   * @return the entries in the original order or null if there is no valid cache
+   */
+  @Nullable
+  public List<SpectralLibraryEntry> load() {
+    if (!cacheFile.isFile()) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+      channel.read(header, 0);
+      header.flip();
+      if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+        return null;
+      }
+      final int numEntries = header.getInt();
+      header.getInt(); // padding
+      final long totalValues = header.getLong();
+      final long mzOffset = header.getLong();
+      final long intensityOffset = header.getLong();
+      final long metadataOffset = header.getLong();
+
+      channel.position(metadataOffset);
+      final DataInputStream in = new DataInputStream(
+          new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+      if (!key.equals(in.readUTF()) || in.readInt() != numEntries) {
+        return null;
+      }
+      final long[] offsets = new long[numEntries + 1];
+      for (int i = 0; i <= numEntries; i++) {
+        offsets[i] = in.readLong();
+      }
+      if (offsets[numEntries] != totalValues) {
+        return null;
+      }
+      final List<Map<DBEntryField, Object>> fields = readFields(in, numEntries);
+
+      final List<SpectralLibraryEntry> entries = new ArrayList<>(numEntries);
+      int start = 0;
+      while (start < numEntries) {
+        // map a segment of entries at once
+        int end = start + 1;
+        while (end < numEntries && offsets[end + 1] - offsets[start] <= MAX_SEGMENT_VALUES) {
+          end++;
+        }
+        final DoubleBuffer mzs = mapValues(channel, mzOffset, offsets[start], offsets[end]);
+        final DoubleBuffer intensities = mapValues(channel, intensityOffset, offsets[start],
+            offsets[end]);
+        for (int i = start; i < end; i++) {
+          final int from = (int) (offsets[i] - offsets[start]);
+          final int numDp = (int) (offsets[i + 1] - offsets[i]);
+          entries.add(new SpectralDBEntry(mzs.slice(from, numDp), intensities.slice(from, numDp),
+              fields.get(i)));
+        }
+        start = end;
+      }
+      logger.info(() -> "Loaded %d library entries from cache %s".formatted(numEntries,
+          cacheFile.getAbsolutePath()));
+      return entries;
+    } catch (Exception e) {
+      logger.log(Level.WARNING, "Cannot read library cache " + cacheFile + ". Will parse library.",
+          e);
+      return null;
+    }
+  }
+
+  private static DoubleBuffer mapValues(FileChannel channel, long blockOffset, long from, long to)
+      throws IOException {
+    return channel.map(MapMode.READ_ONLY, blockOffset + from * Double.BYTES,
+        (to - from) * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+  }
+
+  private static List<Map<DBEntryField, Object>> readFields(DataInputStream in, int numEntries)
+      throws IOException {
+    final List<Map<DBEntryField, Object>> fields = new ArrayList<>(numEntries);
+    for (int i = 0; i < numEntries; i++) {
+      fields.add(new HashMap<>());
+    }
+    final int numColumns = in.readInt();
+    for (int c = 0; c < numColumns; c++) {
+      final DBEntryField field = DBEntryField.valueOf(in.readUTF());
+      for (int i = 0; i < numEntries; i++) {
+        final byte tag = in.readByte();
+        final Object value = switch (tag) {
+          case ABSENT -> null;
+          case DOUBLE -> in.readDouble();
+          case FLOAT -> in.readFloat();
+          case INTEGER -> in.readInt();
+          case LONG -> in.readLong();
+          case STRING -> {
+            final byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            yield new String(bytes, StandardCharsets.UTF_8);
+          }
+          case BOOLEAN -> in.readBoolean();
+          default -> throw new IOException("Unknown value tag " + tag);
+        };
+        if (value != null) {
+          fields.get(i).put(field, value);
+        }
+      }
+    }
+    return fields;
+  }
+
+  /**
+   * Writes the entries to the cache and removes outdated caches of the same library file. Errors
+   * are only logged as the cache is optional.
+   *
+   * @param entries the parsed entries
+   * @return true if the cache was written
+   */
+  public boolean write(@NotNull List<SpectralLibraryEntry> entries) {
+    // cache only holds values that can be restored exactly
+    final List<DBEntryField> columns = new ArrayList<>();
+    for (SpectralLibraryEntry entry : entries) {
+      for (Entry<DBEntryField, Object> field : entry.getFields().entrySet()) {
+        if (field.getValue() != null && tagOf(field.getValue()) == ABSENT) {
+          logger.fine(() -> "Library field %s has an unsupported value type %s. Not cached."
+              .formatted(field.getKey(), field.getValue().getClass().getName()));
+          return false;
+        }
+        if (!columns.contains(field.getKey())) {
+          columns.add(field.getKey());
+        }
+      }
+    }
+
+    final File dir = cacheFile.getParentFile();
+    Path tmpFile = null;
+    try {
+      Files.createDirectories(dir.toPath());
+      // unique temp file so that concurrent imports of the same library do not write into the
+      // same file before the rename
+      tmpFile = Files.createTempFile(dir.toPath(), cacheFile.getName(), ".tmp");
+      writeCacheFile(tmpFile.toFile(), entries, columns);
+      try {
+        Files.move(tmpFile, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmpFile, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+      deleteOutdatedCaches();
+      logger.info(() -> "Cached %d library entries in %s".formatted(entries.size(),
+          cacheFile.getAbsolutePath()));
+      return true;
+    } catch (Exception e) {
+      logger.log(Level.WARNING, "Cannot write library cache " + cacheFile, e);
+      if (tmpFile != null) {
+        tmpFile.toFile().delete();
+      }
+      return false;
+    }
+  }
+
+  private void writeCacheFile(File file, List<SpectralLibraryEntry> entries,
+      List<DBEntryField> columns) throws IOException {
+    final int numEntries = entries.size();
+    final long[] offsets = new long[numEntries + 1];
+    int maxDp = 0;
+    for (int i = 0; i < numEntries; i++) {
+      final int numDp = entries.get(i).getNumberOfDataPoints();
+      offsets[i + 1] = offsets[i] + numDp;
+      maxDp = Math.max(maxDp, numDp);
+    }
+    final long totalValues = offsets[numEntries];
+    final long mzOffset = HEADER_BYTES;
+    final long intensityOffset = mzOffset + totalValues * Double.BYTES;
+    final long metadataOffset = intensityOffset + totalValues * Double.BYTES;
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+      header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(numEntries).putInt(0);
+      header.putLong(totalValues).putLong(mzOffset).putLong(intensityOffset)
+          .putLong(metadataOffset);
+      header.position(0);
+      channel.write(header, 0);
+
+      channel.position(mzOffset);
+      final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+      final double[] values = new double[maxDp];
+      for (SpectralLibraryEntry entry : entries) {
+        writeValues(channel, buffer, entry.getMzValues(values), entry.getNumberOfDataPoints());
+      }
+      for (SpectralLibraryEntry entry : entries) {
+        writeValues(channel, buffer, entry.getIntensityValues(values),
+            entry.getNumberOfDataPoints());
+      }
+      flush(channel, buffer);
+
+      final DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+      out.writeUTF(key);
+      out.writeInt(numEntries);
+      for (long offset : offsets) {
+        out.writeLong(offset);
+      }
+      out.writeInt(columns.size());
+      for (DBEntryField field : columns) {
+        out.writeUTF(field.name());
+        for (SpectralLibraryEntry entry : entries) {
+          writeValue(out, entry.getFields().get(field));
+        }
+      }
+      out.flush();
+    }
+  }
+
+  private static void writeValues(FileChannel channel, ByteBuffer buffer, double[] values,
+      int length) throws IOException {
+    for (int i = 0; i < length; i++) {
+      if (buffer.remaining() < Double.BYTES) {
+        flush(channel, buffer);
+      }
+      buffer.putDouble(values[i]);
+    }
+  }
+
+  private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  private static byte tagOf(@NotNull Object value) {
+    return switch (value) {
+      case Double _ -> DOUBLE;
+      case Float _ -> FLOAT;
+      case Integer _ -> INTEGER;
+      case Long _ -> LONG;
+      case String _ -> STRING;
+      case Boolean _ -> BOOLEAN;
+      default -> ABSENT;
+    };
+  }
+
+  private static void writeValue(DataOutputStream out, @Nullable Object value)
+      throws IOException {
+    if (value == null) {
+      out.writeByte(ABSENT);
+      return;
+    }
+    out.writeByte(tagOf(value));
+    switch (value) {
+      case Double d -> out.writeDouble(d);
+      case Float f -> out.writeFloat(f);
+      case Integer i -> out.writeInt(i);
+      case Long l -> out.writeLong(l);
+      case String s -> {
+        final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+      case Boolean b -> out.writeBoolean(b);
+      default -> throw new IllegalArgumentException("Unsupported value " + value);
+    }
+  }
+
+  private void deleteOutdatedCaches() {
+    final File[] outdated = cacheFile.getParentFile().listFiles(
+        f -> cacheFilePattern.matcher(f.getName()).matches() && !f.equals(cacheFile));
+    if (outdated == null) {
+      return;
+    }
+    for (File file : outdated) {
+      if (!file.delete()) {
+        logger.fine("Cannot delete outdated library cache " + file);
+      }
+    }
+  }
+
+  @NotNull
+  public File getCacheFile() {
+    return cacheFile;
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package datamodel;
+
+import com.google.common.collect.BoundType;
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.featuredata.impl.SimpleIonTimeSeries;
+import io.github.mzmine.datamodel.features.ModularDataModel;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.types.DataType;
+import io.github.mzmine.datamodel.features.types.numbers.MZRangeType;
+import io.github.mzmine.datamodel.features.types.numbers.RTRangeType;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.modules.io.projectsave.FeatureListColumnStorage;
+import io.github.mzmine.project.impl.MZmineProjectImpl;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import javafx.scene.paint.Color;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Saves a feature list in the columnar format and compares the loaded values to the original
+ * values and to the values loaded from the XML format.
+ */
+public class FeatureListColumnStorageTest {
+
+  @Test
+  void testColumnarAndXmlRoundTrip() throws IOException {
+    final RawDataFile file = new RawDataFileImpl("testfile", null, null, Color.BLACK);
+    final List<Scan> scans = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      final Scan scan = new SimpleScan(file, i, 1, 0.1f * i, null, new double[0], new double[0],
+          MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "", Range.closed(0d, 1d));
+      scans.add(scan);
+      file.addScan(scan);
+    }
+
+    final ModularFeatureList flist = new ModularFeatureList("flist", null, file);
+    for (int id = 1; id <= 3; id++) {
+      final ModularFeatureListRow row = new ModularFeatureListRow(flist, id);
+      final SimpleIonTimeSeries series = new SimpleIonTimeSeries(null,
+          new double[]{150d + id, 150.001 + id, 150d + id, 149.999 + id, 150d + id},
+          new double[]{1d, 5d * id, 20d * id, 5d, 1d}, scans.subList(id, id + 5));
+      final ModularFeature feature = new ModularFeature(flist, file, series,
+          FeatureStatus.DETECTED);
+      row.addFeature(file, feature);
+      flist.addRow(row);
+    }
+    final MZmineProject project = new MZmineProjectImpl();
+    project.addFile(file);
+    project.addFeatureList(flist);
+
+    // bound types are kept by the columnar format
+    final ModularFeatureListRow first = (ModularFeatureListRow) flist.getRow(0);
+    first.set(MZRangeType.class, Range.openClosed(150d, 151d));
+    first.getFeature(file).set(RTRangeType.class, Range.closedOpen(0.1f, 0.5f));
+
+    final ByteArrayOutputStream os = new ByteArrayOutputStream();
+    FeatureListColumnStorage.write(flist, os);
+
+    final ModularFeatureList loadedList = new ModularFeatureList("loaded", null, file);
+    flist.modularStream()
+        .forEach(row -> loadedList.addRow(new ModularFeatureListRow(loadedList, row.getID())));
+    final ModularFeature[] loadedFeatures = FeatureListColumnStorage.read(
+        Channels.newChannel(new ByteArrayInputStream(os.toByteArray())), project, loadedList);
+
+    final List<ModularFeatureListRow> rows = flist.modularStream().toList();
+    final List<ModularFeatureListRow> loadedRows = loadedList.modularStream().toList();
+    final List<ModularFeature> features = flist.modularStream()
+        .flatMap(row -> row.getFeatures().stream()).toList();
+    Assertions.assertEquals(features.size(), loadedFeatures.length);
+    for (int i = 0; i < rows.size(); i++) {
+      assertValues(project, flist, rows.get(i), rows.get(i), loadedRows.get(i), null);
+    }
+    for (int i = 0; i < features.size(); i++) {
+      final ModularFeature feature = features.get(i);
+      assertValues(project, flist, (ModularFeatureListRow) feature.getRow(), feature,
+          loadedFeatures[i], file);
+    }
+    Assertions.assertEquals(Range.openClosed(150d, 151d),
+        loadedRows.getFirst().get(MZRangeType.class));
+    Assertions.assertEquals(Range.closedOpen(0.1f, 0.5f), loadedFeatures[0].get(RTRangeType.class));
+  }
+
+  /**
+   * Compares all column values of the model to the loaded model and to the value loaded from XML
+   *
+   * @param file null for rows
+   */
+  private static void assertValues(MZmineProject project, ModularFeatureList flist,
+      ModularFeatureListRow row, ModularDataModel expected, ModularDataModel loaded,
+      @Nullable RawDataFile file) {
+    final ModularFeature feature = file == null ? null : (ModularFeature) expected;
+    int numColumns = 0;
+    for (Entry<DataType, Object> entry : expected.getMap().entrySet()) {
+      final DataType<?> type = entry.getKey();
+      final Object value = entry.getValue();
+      final boolean isColumn = file == null ? FeatureListColumnStorage.isRowColumnValue(type, value)
+          : FeatureListColumnStorage.isFeatureColumnValue(type, value);
+      if (!isColumn) {
+        continue;
+      }
+      numColumns++;
+      Assertions.assertEquals(value, loaded.get(type), () -> "Columnar value of " + type);
+
+      // xml only saves closed ranges
+      if (value instanceof Range<?> r && (r.lowerBoundType() == BoundType.OPEN
+                                          || r.upperBoundType() == BoundType.OPEN)) {
+        continue;
+      }
+      Assertions.assertEquals(loaded.get(type),
+          DataTypeTestUtils.saveAndLoad(type, value, project, flist, row, feature, file),
+          () -> "XML value of " + type);
+    }
+    Assertions.assertTrue(numColumns > 0);
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package datamodel;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.data_access.EfficientDataAccess;
+import io.github.mzmine.datamodel.data_access.EfficientDataAccess.ScanDataType;
+import io.github.mzmine.datamodel.data_access.MassListIndex;
+import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
+import io.github.mzmine.datamodel.featuredata.IonTimeSeriesUtils;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.datamodel.impl.masslist.SimpleMassList;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class MassListIndexTest {
+
+  private static RawDataFile createFile() throws IOException {
+    final RawDataFile file = new RawDataFileImpl("testfile", null, null, Color.BLACK);
+    final Random random = new Random(42);
+    for (int i = 0; i < 200; i++) {
+      // random centroids, every fifth scan is an MS2 scan that is not indexed
+      final int numDp = 20 + random.nextInt(80);
+      final double[] mzs = new double[numDp];
+      final double[] intensities = new double[numDp];
+      for (int j = 0; j < numDp; j++) {
+        mzs[j] = 100 + random.nextDouble() * 400;
+        intensities[j] = random.nextDouble() * 1E5;
+      }
+      Arrays.sort(mzs);
+      final Scan scan = new SimpleScan(file, i, i % 5 == 4 ? 2 : 1, 0.05f * i, null, mzs,
+          intensities, MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "",
+          Range.closed(100d, 500d));
+      scan.addMassList(new SimpleMassList(null, mzs, intensities));
+      file.addScan(scan);
+    }
+    return file;
+  }
+
+  private static List<Scan> ms1Scans(RawDataFile file) {
+    return file.getScans().stream().filter(s -> s.getMSLevel() == 1).toList();
+  }
+
+  @Test
+  void testSameChromatogramsAsMassLists() throws IOException {
+    final RawDataFile file = createFile();
+    final List<Scan> scans = ms1Scans(file);
+    final MassListIndex index = MassListIndex.build(file, null);
+
+    final List<Range<Double>> mzRanges = new ArrayList<>();
+    for (double mz = 100; mz < 500; mz += 7.3) {
+      mzRanges.add(Range.closed(mz - 0.5, mz + 0.5));
+      mzRanges.add(Range.closed(mz - 0.005, mz + 0.005));
+    }
+    final List<Range<Float>> rtRanges = Arrays.asList(null, Range.closed(2f, 5f),
+        Range.closed(9.5f, 20f));
+
+    for (Range<Double> mzRange : mzRanges) {
+      for (Range<Float> rtRange : rtRanges) {
+        final IonTimeSeries<Scan> expected = IonTimeSeriesUtils.extractIonTimeSeries(
+            EfficientDataAccess.of(file, ScanDataType.MASS_LIST, scans), mzRange, rtRange, null);
+        final IonTimeSeries<Scan> actual = index.extractIonTimeSeries(scans, mzRange, rtRange,
+            null);
+        Assertions.assertNotNull(actual);
+        Assertions.assertEquals(expected.getSpectra(), actual.getSpectra());
+        Assertions.assertArrayEquals(expected.getMzValues(new double[0]),
+            actual.getMzValues(new double[0]), mzRange + " " + rtRange);
+        Assertions.assertArrayEquals(expected.getIntensityValues(new double[0]),
+            actual.getIntensityValues(new double[0]), mzRange + " " + rtRange);
+      }
+    }
+  }
+
+  @Test
+  void testSignalsInBlocks() throws IOException {
+    final RawDataFile file = createFile();
+    final List<Scan> scans = ms1Scans(file);
+    final MassListIndex index = MassListIndex.build(file, null);
+    // blocks that do not divide the number of signals
+    final MassListIndex blocks = MassListIndex.build(file, null, 7);
+    Assertions.assertEquals(index.getNumberOfSignals(), blocks.getNumberOfSignals());
+
+    for (double mz = 100; mz < 500; mz += 3.1) {
+      final Range<Double> mzRange = Range.closed(mz - 0.5, mz + 0.5);
+      final IonTimeSeries<Scan> expected = index.extractIonTimeSeries(scans, mzRange, null, null);
+      final IonTimeSeries<Scan> actual = blocks.extractIonTimeSeries(scans, mzRange, null, null);
+      Assertions.assertArrayEquals(expected.getMzValues(new double[0]),
+          actual.getMzValues(new double[0]), mzRange.toString());
+      Assertions.assertArrayEquals(expected.getIntensityValues(new double[0]),
+          actual.getIntensityValues(new double[0]), mzRange.toString());
+    }
+  }
+
+  @Test
+  void testOwnedAndResetByDataFile() throws IOException {
+    final RawDataFile file = createFile();
+    final List<Scan> scans = ms1Scans(file);
+    file.setMassListIndex(MassListIndex.build(file, null));
+    Assertions.assertNotNull(file.getMassListIndex());
+
+    // utils use the index of the file and return the same result as the mass lists
+    final Range<Double> mzRange = Range.closed(200d, 201d);
+    final IonTimeSeries<Scan> indexed = IonTimeSeriesUtils.extractIonTimeSeries(file, scans,
+        mzRange, null, null);
+    final IonTimeSeries<Scan> expected = IonTimeSeriesUtils.extractIonTimeSeries(
+        EfficientDataAccess.of(file, ScanDataType.MASS_LIST, scans), mzRange, null, null);
+    Assertions.assertArrayEquals(expected.getIntensityValues(new double[0]),
+        indexed.getIntensityValues(new double[0]));
+
+    // a changed mass list invalidates the index
+    scans.getFirst().addMassList(new SimpleMassList(null, new double[]{200.5}, new double[]{1}));
+    Assertions.assertNull(file.getMassListIndex());
+
+    // and so does a new scan
+    file.setMassListIndex(MassListIndex.build(file, null));
+    file.addScan(new SimpleScan(file, 1000, 1, 100f, null, new double[0], new double[0],
+        MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "", Range.closed(100d, 500d)));
+    Assertions.assertNull(file.getMassListIndex());
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package datamodel;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.impl.DDAMsMsInfoImpl;
+import io.github.mzmine.datamodel.impl.ScanMetadataIndex;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.datamodel.msms.ActivationMethod;
+import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.io.IOException;
+import java.util.List;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+@TestInstance(Lifecycle.PER_CLASS)
+class ScanMetadataIndexTest {
+
+  private RawDataFile file;
+
+  @BeforeAll
+  void init() throws IOException {
+    file = new RawDataFileImpl("testfile", null, null, Color.BLACK);
+    // one MS1 and one MS2 scan per 0.1 min, precursor m/z cycles 300, 400, 500
+    for (int i = 0; i < 100; i++) {
+      file.addScan(new SimpleScan(file, 2 * i, 1, 0.1f * i, null, new double[]{200, 300},
+          new double[]{100, 1000}, MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "",
+          Range.closed(0d, 1000d)));
+      final double precursor = 300 + 100 * (i % 3);
+      file.addScan(new SimpleScan(file, 2 * i + 1, 2, 0.1f * i + 0.05f,
+          new DDAMsMsInfoImpl(precursor, 1, 20f, null, null, 2, ActivationMethod.HCD,
+              Range.closed(precursor - 1, precursor + 1)), new double[]{100, 150},
+          new double[]{10, 20}, MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "",
+          Range.closed(0d, 1000d)));
+    }
+  }
+
+  @Test
+  void testColumns() {
+    final ScanMetadataIndex index = file.getScanMetadataIndex();
+    Assertions.assertSame(index, file.getScanMetadataIndex());
+    Assertions.assertEquals(200, index.size());
+    Assertions.assertEquals(2, index.getMsLevel(3));
+    Assertions.assertEquals(400d, index.getPrecursorMz(3));
+    Assertions.assertEquals(Range.closed(399d, 401d), index.getIsolationWindow(3));
+    Assertions.assertNull(index.getIsolationWindow(2));
+    Assertions.assertEquals(0d, index.getPrecursorMz(2));
+    Assertions.assertEquals(PolarityType.POSITIVE, index.getPolarity(2));
+    Assertions.assertEquals(1100d, index.getTIC(2), 1E-8);
+  }
+
+  @Test
+  void testFragmentScans() {
+    final ScanMetadataIndex index = file.getScanMetadataIndex();
+    final Range<Double> precursorRange = Range.closed(399.99, 400.01);
+    // fewer scans in RT range than in precursor range
+    Assertions.assertEquals(findFragmentScans(2f, 5f, precursorRange),
+        index.getFragmentScans(precursorRange, Range.closed(2f, 5f)));
+    // fewer scans in precursor range
+    Assertions.assertEquals(findFragmentScans(0f, 10f, precursorRange),
+        index.getFragmentScans(precursorRange, Range.closed(0d, 10d)));
+    Assertions.assertEquals(100, index.getFragmentScans(Range.closed(0d, 1000d), null).size());
+    Assertions.assertTrue(index.getFragmentScans(Range.closed(350d, 360d), null).isEmpty());
+  }
+
+  private List<Scan> findFragmentScans(float minRt, float maxRt, Range<Double> precursorRange) {
+    final List<Scan> scans = file.getScans().stream()
+        .filter(s -> s.getMSLevel() == 2 && s.getRetentionTime() >= minRt
+                     && s.getRetentionTime() <= maxRt && precursorRange.contains(
+            s.getPrecursorMz())).toList();
+    Assertions.assertFalse(scans.isEmpty());
+    return scans;
+  }
+
+  @Test
+  void testScanSelection() {
+    final ScanSelection ms1 = new ScanSelection(Range.closed(1d, 2d), 1);
+    final Scan[] scans = ms1.getMatchingScans(file);
+    Assertions.assertEquals(11, scans.length);
+    Assertions.assertEquals(1f, scans[0].getRetentionTime(), 1E-4);
+
+    final Scan closest = ScanSelection.MS1.getScanAtRt(file, 3.04f);
+    Assertions.assertNotNull(closest);
+    Assertions.assertEquals(1, closest.getMSLevel());
+    Assertions.assertEquals(3f, closest.getRetentionTime(), 1E-4);
+    // the last scan is also found
+    Assertions.assertEquals(file.getScan(198), ScanSelection.MS1.getScanAtRt(file, 9.9f));
+  }
+}
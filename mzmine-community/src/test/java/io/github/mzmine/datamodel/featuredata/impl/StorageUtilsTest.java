@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.featuredata.impl;
+
+import java.util.Arrays;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class StorageUtilsTest {
+
+  @Test
+  void testReducedPrecision() {
+    final double[] mzs = {100.0123456789, 250.987654321, 250.987654322, 1499.99999, 1999.5};
+    final double[] intensities = {1E3, 2.5E7, 3.14159E5, 0d, 1.23456789E9};
+
+    final StoredDoubleValues storedMzs = StorageUtils.storeMzValues(null,
+        SpectralDataPrecision.REDUCED, mzs);
+    final StoredDoubleValues storedIntensities = StorageUtils.storeIntensityValues(null,
+        SpectralDataPrecision.REDUCED, intensities);
+    Assertions.assertInstanceOf(StoredDoubleValues.FloatDeltas.class, storedMzs);
+    Assertions.assertInstanceOf(StoredDoubleValues.Floats.class, storedIntensities);
+
+    final double[] decoded = new double[mzs.length];
+    storedMzs.get(0, decoded, 0, mzs.length);
+    for (int i = 0; i < mzs.length; i++) {
+      // below 0.1 ppm
+      Assertions.assertEquals(mzs[i], decoded[i], mzs[i] * 1E-7);
+      Assertions.assertEquals(decoded[i], storedMzs.get(i));
+      Assertions.assertEquals(intensities[i], storedIntensities.get(i), intensities[i] * 1E-7);
+      if (i > 0) {
+        // order is retained
+        Assertions.assertTrue(decoded[i - 1] <= decoded[i]);
+      }
+    }
+    Assertions.assertEquals(mzs[0], storedMzs.get(0));
+  }
+
+  @Test
+  void testFullPrecision() {
+    final double[] mzs = {100.0123456789, 250.987654321};
+    final StoredDoubleValues stored = StorageUtils.storeMzValues(null, SpectralDataPrecision.FULL,
+        mzs);
+    Assertions.assertInstanceOf(StoredDoubleValues.Doubles.class, stored);
+    Assertions.assertEquals(mzs[1], stored.get(1));
+    Assertions.assertEquals(0,
+        StorageUtils.storeIntensityValues(null, SpectralDataPrecision.FULL, new double[0]).size());
+  }
+
+  @Test
+  void testDecodeIntoArray() {
+    final double[] mzs = {100.5, 200.25, 300.125};
+    final StoredDoubleValues stored = StorageUtils.storeMzValues(null,
+        SpectralDataPrecision.REDUCED, mzs);
+
+    // large enough arrays are reused
+    final double[] dst = new double[5];
+    Assertions.assertSame(dst, stored.get(dst));
+    Assertions.assertArrayEquals(mzs, Arrays.copyOf(dst, mzs.length), 1E-5);
+
+    // smaller arrays are replaced
+    final double[] small = new double[1];
+    final double[] decoded = stored.get(small);
+    Assertions.assertNotSame(small, decoded);
+    Assertions.assertArrayEquals(mzs, decoded, 1E-5);
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.features;
+
+import io.github.mzmine.datamodel.features.types.DataType;
+import io.github.mzmine.datamodel.features.types.DataTypes;
+import io.github.mzmine.datamodel.features.types.annotations.CommentType;
+import io.github.mzmine.datamodel.features.types.numbers.ChargeType;
+import io.github.mzmine.datamodel.features.types.numbers.HeightType;
+import io.github.mzmine.datamodel.features.types.numbers.MZType;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javafx.collections.MapChangeListener;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class CompactDataModelMapTest {
+
+  @Test
+  void testColumnAndOtherValues() {
+    final Set<DataType> registered = new HashSet<>();
+    final DataTypeColumns columns = new DataTypeColumns(registered::add);
+    final DataType mz = DataTypes.get(MZType.class);
+    final DataType height = DataTypes.get(HeightType.class);
+    final DataType charge = DataTypes.get(ChargeType.class);
+    final DataType comment = DataTypes.get(CommentType.class);
+
+    CompactDataModelMap last = null;
+    for (int i = 0; i < 1000; i++) {
+      last = columns.createMap();
+      last.put(mz, 100d + i);
+      if (i % 2 == 0) {
+        last.put(height, (float) i);
+      }
+    }
+    last.put(charge, 2);
+    last.put(comment, "comment");
+
+    Assertions.assertEquals(1099d, last.get(mz));
+    Assertions.assertNull(last.get(height));
+    Assertions.assertFalse(last.containsKey(height));
+    Assertions.assertEquals(2, last.get(charge));
+    Assertions.assertEquals("comment", last.get(comment));
+    Assertions.assertEquals(3, last.size());
+    Assertions.assertEquals(Set.of(mz, charge, comment), last.keySet());
+    Assertions.assertEquals(Set.of(mz, height, charge, comment), registered);
+
+    Assertions.assertEquals(2, last.remove(charge));
+    Assertions.assertNull(last.get(charge));
+    Assertions.assertEquals(2, last.size());
+  }
+
+  @Test
+  void testCopyToOtherColumns() {
+    final DataTypeColumns columns = new DataTypeColumns(type -> {
+    });
+    final DataType mz = DataTypes.get(MZType.class);
+    final DataType comment = DataTypes.get(CommentType.class);
+    final CompactDataModelMap map = columns.createMap();
+    map.put(mz, 200d);
+    map.put(comment, "comment");
+
+    final CompactDataModelMap copy = map.copyTo(new DataTypeColumns(type -> {
+    }));
+    Assertions.assertEquals(200d, copy.get(mz));
+    Assertions.assertEquals("comment", copy.get(comment));
+    Assertions.assertNull(map.get(mz));
+  }
+
+  @Test
+  void testCopyKeepsListeners() {
+    final DataTypeColumns columns = new DataTypeColumns(type -> {
+    });
+    final DataType mz = DataTypes.get(MZType.class);
+    final CompactDataModelMap map = columns.createMap();
+    map.put(mz, 200d);
+    final List<Object> added = new ArrayList<>();
+    map.addListener((MapChangeListener<DataType, Object>) change -> added.add(
+        change.getValueAdded()));
+
+    final CompactDataModelMap copy = map.copyTo(new DataTypeColumns(type -> {
+    }));
+    // moving the values does not fire changes
+    Assertions.assertTrue(added.isEmpty());
+    copy.put(mz, 300d);
+    Assertions.assertEquals(List.of(300d), added);
+  }
+
+  @Test
+  void testReleasedSlotsAreReused() {
+    final DataTypeColumns columns = new DataTypeColumns(type -> {
+    });
+    final DataType mz = DataTypes.get(MZType.class);
+    final CompactDataModelMap first = columns.createMap();
+    first.put(mz, 200d);
+    final CompactDataModelMap second = columns.createMap();
+    second.put(mz, 300d);
+
+    // called once the row of the map was removed
+    first.release();
+    final CompactDataModelMap reused = columns.createMap();
+    Assertions.assertEquals(first.getSlot(), reused.getSlot());
+    Assertions.assertTrue(reused.isEmpty());
+    Assertions.assertEquals(2, columns.getNumberOfSlots());
+    Assertions.assertEquals(300d, second.get(mz));
+  }
+
+  @Test
+  void testRemovedRowReleasesSlot() {
+    final ModularFeatureList flist = new ModularFeatureList("compact", null, true, List.of());
+    final DataType mz = DataTypes.get(MZType.class);
+    final ModularFeatureListRow removed = new ModularFeatureListRow(flist, 1);
+    removed.set(MZType.class, 200d);
+    final ModularFeatureListRow kept = new ModularFeatureListRow(flist, 2);
+    kept.set(MZType.class, 300d);
+    flist.addRow(removed);
+    flist.addRow(kept);
+
+    flist.removeRow(removed);
+    final ModularFeatureListRow added = new ModularFeatureListRow(flist, 3);
+    Assertions.assertEquals(((CompactDataModelMap) removed.getMap()).getSlot(),
+        ((CompactDataModelMap) added.getMap()).getSlot());
+    Assertions.assertNull(added.getMap().get(mz));
+    Assertions.assertEquals(300d, kept.getMap().get(mz));
+  }
+
+  @Test
+  void testExplicitStorageMode() {
+    final ModularFeatureList compact = new ModularFeatureList("compact", null, true, List.of());
+    final ModularFeatureList regular = new ModularFeatureList("regular", null, false, List.of());
+    Assertions.assertTrue(compact.isCompactStorage());
+    Assertions.assertFalse(regular.isCompactStorage());
+    Assertions.assertInstanceOf(CompactDataModelMap.class,
+        new ModularFeatureListRow(compact, 1).getMap());
+    Assertions.assertFalse(
+        new ModularFeatureListRow(regular, 1).getMap() instanceof CompactDataModelMap);
+  }
+}
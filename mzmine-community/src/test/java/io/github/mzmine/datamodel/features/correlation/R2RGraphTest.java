@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.features.correlation;
+
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class R2RGraphTest {
+
+  private static FeatureListRow row(int id) {
+    FeatureListRow row = Mockito.mock(FeatureListRow.class);
+    Mockito.when(row.getID()).thenReturn(id);
+    return row;
+  }
+
+  private static RowsRelationship edge(FeatureListRow a, FeatureListRow b, double score) {
+    RowsRelationship r2r = Mockito.mock(RowsRelationship.class);
+    Mockito.when(r2r.getRowA()).thenReturn(a);
+    Mockito.when(r2r.getRowB()).thenReturn(b);
+    Mockito.when(r2r.getScore()).thenReturn(score);
+    return r2r;
+  }
+
+  @Test
+  void testNeighbours() {
+    final FeatureListRow a = row(5);
+    final FeatureListRow b = row(1);
+    final FeatureListRow c = row(100_000);
+    final FeatureListRow d = row(7);
+
+    final R2RGraph.Builder<RowsRelationship> builder = new R2RGraph.Builder<>();
+    final RowsRelationship ab = edge(a, b, 0.5);
+    final RowsRelationship ac = edge(a, c, 0.9);
+    builder.add(ab);
+    builder.add(ac);
+    builder.add(edge(c, b, 0.1));
+    final R2RGraph<RowsRelationship> graph = builder.build();
+
+    Assertions.assertEquals(3, graph.size());
+    Assertions.assertSame(ab, graph.get(a, b));
+    Assertions.assertSame(ab, graph.get(b, a));
+    Assertions.assertSame(ac, graph.get(c, a));
+    Assertions.assertNull(graph.get(a, d));
+    Assertions.assertEquals(0.9f, graph.getScore(a, c));
+    Assertions.assertTrue(Float.isNaN(graph.getScore(b, d)));
+
+    Assertions.assertEquals(2, graph.getDegree(a));
+    Assertions.assertEquals(0, graph.getDegree(d));
+    Assertions.assertArrayEquals(new int[]{1, 100_000}, graph.getNeighbourIds(a));
+    Assertions.assertEquals(2, graph.getRelationships(c).size());
+  }
+
+  @Test
+  void testLastDuplicateIsKept() {
+    final FeatureListRow a = row(2);
+    final FeatureListRow b = row(3);
+    final RowsRelationship last = edge(b, a, 0.7);
+
+    final R2RGraph.Builder<RowsRelationship> builder = new R2RGraph.Builder<>();
+    builder.add(edge(a, b, 0.2));
+    builder.add(last);
+    final R2RGraph<RowsRelationship> graph = builder.build();
+
+    Assertions.assertEquals(1, graph.size());
+    Assertions.assertSame(last, graph.get(a, b));
+    Assertions.assertEquals(1, graph.getDegree(b));
+  }
+
+  @Test
+  void testEdgesWithoutRelationship() {
+    final FeatureListRow a = row(1);
+    final FeatureListRow b = row(2);
+    final FeatureListRow c = row(3);
+    final R2RGraph.EdgeFactory<RowsRelationship> factory = (r1, r2, score) -> //
+        new SimpleRowsRelationship(r1, r2, score, "test", "");
+
+    final R2RGraph.Builder<RowsRelationship> builder = new R2RGraph.Builder<>(factory);
+    builder.add(a, b, 0.5f);
+    final R2RGraph.Builder<RowsRelationship> other = new R2RGraph.Builder<>(factory);
+    other.add(c, b, 0.25f);
+    builder.addAll(other);
+    final R2RGraph<RowsRelationship> graph = builder.build();
+
+    Assertions.assertEquals(2, graph.size());
+    final RowsRelationship ab = graph.get(b, a);
+    Assertions.assertNotNull(ab);
+    Assertions.assertSame(a, ab.getRowA());
+    Assertions.assertSame(b, ab.getRowB());
+    Assertions.assertEquals(0.5, ab.getScore());
+    Assertions.assertEquals(0.25f, graph.getScore(b, c));
+
+    // copied graphs keep the edges without relationship
+    final R2RGraph.Builder<RowsRelationship> copy = new R2RGraph.Builder<>();
+    copy.addAll(graph);
+    final R2RGraph<RowsRelationship> copied = copy.build();
+    Assertions.assertEquals(2, copied.values().size());
+    // edges without relationship are created in ascending row ID order
+    Assertions.assertSame(b, copied.get(b, c).getRowA());
+  }
+
+  @Test
+  void testStreamOnlyGivenRows() {
+    final FeatureListRow a = row(1);
+    final FeatureListRow b = row(2);
+    final FeatureListRow c = row(3);
+    final R2RGraph.Builder<RowsRelationship> builder = new R2RGraph.Builder<>();
+    builder.add(edge(a, b, 0.5));
+    builder.add(edge(a, c, 0.7));
+    final R2RGraph<RowsRelationship> graph = builder.build();
+
+    // c was removed from the feature list
+    Assertions.assertEquals(1, graph.streamAllCorrelatedRows(a, List.of(a, b)).count());
+    Assertions.assertEquals(2, graph.streamAllCorrelatedRows(a, List.of(c, b)).count());
+    Assertions.assertEquals(0, graph.streamAllCorrelatedRows(row(4), List.of(a, b)).count());
+  }
+
+  @Test
+  void testNetworkingMapsMergeOnRead() {
+    final FeatureListRow a = row(1);
+    final FeatureListRow b = row(2);
+    final FeatureListRow c = row(3);
+    final RowsRelationship replaced = new SimpleRowsRelationship(a, b, 0.1, "test", "");
+    final RowsRelationship last = new SimpleRowsRelationship(b, a, 0.9, "test", "");
+
+    final R2RNetworkingMaps maps = new R2RNetworkingMaps();
+    maps.addAllRowsRelationships(List.of(replaced), "test");
+    maps.addRowsRelationship(a, c, new SimpleRowsRelationship(a, c, 0.3, "test", ""));
+    Assertions.assertFalse(maps.isEmpty());
+
+    final R2RGraph<RowsRelationship> graph = maps.getRowsMap("test").orElseThrow();
+    Assertions.assertEquals(2, graph.size());
+    // no pending changes, the same graph is returned
+    Assertions.assertSame(graph, maps.getRowsMap("test").orElseThrow());
+
+    maps.addAllRowsRelationships(List.of(last), "test");
+    final R2RGraph<RowsRelationship> merged = maps.getRowsMap("test").orElseThrow();
+    Assertions.assertEquals(2, merged.size());
+    Assertions.assertSame(last, merged.get(a, b));
+  }
+}
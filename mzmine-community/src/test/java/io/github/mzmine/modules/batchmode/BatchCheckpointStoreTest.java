@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.batchmode;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.featuredata.impl.SpectralDataPrecision;
+import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.modules.MZmineProcessingModule;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetectionModule;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetectionParameters;
+import io.github.mzmine.modules.dataprocessing.featdet_smoothing.SmoothingModule;
+import io.github.mzmine.modules.dataprocessing.featdet_smoothing.SmoothingParameters;
+import io.github.mzmine.modules.impl.MZmineProcessingStepImpl;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.impl.SimpleParameterSet;
+import io.github.mzmine.parameters.parametertypes.OptionalParameter;
+import io.github.mzmine.parameters.parametertypes.filenames.FileNameParameter;
+import io.github.mzmine.parameters.parametertypes.filenames.FileNamesParameter;
+import io.github.mzmine.parameters.parametertypes.filenames.FileSelectionType;
+import io.github.mzmine.parameters.parametertypes.selectors.FeatureListsSelection;
+import io.github.mzmine.parameters.parametertypes.selectors.FeatureListsSelectionType;
+import io.github.mzmine.parameters.parametertypes.selectors.RawDataFilesSelection;
+import io.github.mzmine.parameters.parametertypes.selectors.RawDataFilesSelectionType;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BatchCheckpointStoreTest {
+
+  private static BatchQueue createQueue(boolean denormalize, String smoothingSuffix) {
+    final ParameterSet massDetectionParam = new MassDetectionParameters().cloneParameterSet();
+    massDetectionParam.setParameter(MassDetectionParameters.dataFiles,
+        new RawDataFilesSelection(RawDataFilesSelectionType.BATCH_LAST_FILES));
+    massDetectionParam.setParameter(MassDetectionParameters.denormalizeMSnScans, denormalize);
+
+    final ParameterSet smoothingParam = new SmoothingParameters().cloneParameterSet();
+    smoothingParam.setParameter(SmoothingParameters.featureLists,
+        new FeatureListsSelection(FeatureListsSelectionType.BATCH_LAST_FEATURELISTS));
+    smoothingParam.setParameter(SmoothingParameters.suffix, smoothingSuffix);
+
+    final BatchQueue queue = new BatchQueue();
+    queue.add(step(MassDetectionModule.class, massDetectionParam));
+    queue.add(step(SmoothingModule.class, smoothingParam));
+    return queue;
+  }
+
+  private static MZmineProcessingStepImpl<MZmineProcessingModule> step(
+      Class<? extends MZmineProcessingModule> module, ParameterSet parameters) {
+    return new MZmineProcessingStepImpl<>(MZmineCore.getModuleInstance(module), parameters);
+  }
+
+  @Test
+  void testStepKeysAreChained() {
+    final String[] keys = BatchCheckpointStore.computeStepKeys(createQueue(false, "sm"));
+    assertEquals(2, keys.length);
+    assertArrayEquals(keys, BatchCheckpointStore.computeStepKeys(createQueue(false, "sm")));
+
+    // a changed later step keeps the checkpoints of the previous steps
+    final String[] changedLast = BatchCheckpointStore.computeStepKeys(createQueue(false, "other"));
+    assertEquals(keys[0], changedLast[0]);
+    assertNotEquals(keys[1], changedLast[1]);
+
+    // a changed earlier step invalidates the checkpoints of all later steps
+    final String[] changedFirst = BatchCheckpointStore.computeStepKeys(createQueue(true, "sm"));
+    assertNotEquals(keys[0], changedFirst[0]);
+    assertNotEquals(keys[1], changedFirst[1]);
+  }
+
+  @Test
+  void testPreferencesChangeAllKeys() {
+    final BatchQueue queue = createQueue(false, "sm");
+    final String[] keys = BatchCheckpointStore.computeStepKeys(queue, SpectralDataPrecision.FULL,
+        false);
+    final String[] reduced = BatchCheckpointStore.computeStepKeys(queue,
+        SpectralDataPrecision.REDUCED, false);
+    final String[] compact = BatchCheckpointStore.computeStepKeys(queue,
+        SpectralDataPrecision.FULL, true);
+    for (int i = 0; i < keys.length; i++) {
+      assertNotEquals(keys[i], reduced[i]);
+      assertNotEquals(keys[i], compact[i]);
+    }
+  }
+
+  @Test
+  void testInputFilesOfLaterSteps(@TempDir Path dir) throws IOException {
+    final File library = dir.resolve("library.json").toFile();
+    Files.writeString(library.toPath(), "[]");
+    final File output = dir.resolve("export.csv").toFile();
+
+    final FileNameParameter input = new FileNameParameter("input", "", FileSelectionType.OPEN);
+    final OptionalParameter<FileNameParameter> optional = new OptionalParameter<>(
+        new FileNameParameter("optional", "", FileSelectionType.OPEN));
+    final FileNamesParameter inputs = new FileNamesParameter("inputs");
+    final FileNameParameter export = new FileNameParameter("export", "", FileSelectionType.SAVE);
+    final ParameterSet parameters = new SimpleParameterSet(input, optional, inputs, export);
+    parameters.setParameter(input, library);
+    parameters.getParameter(optional).getEmbeddedParameter().setValue(library);
+    parameters.setParameter(inputs, new File[]{library});
+    parameters.setParameter(export, output);
+
+    // output files are not part of the key
+    final List<String> stamps = BatchCheckpointStore.inputFileStamps(parameters);
+    assertEquals(3, stamps.size());
+    assertTrue(stamps.stream().noneMatch(stamp -> stamp.startsWith(output.getAbsolutePath())));
+
+    // a changed input file changes the stamps
+    Files.writeString(library.toPath(), "[{}]");
+    assertNotEquals(stamps, BatchCheckpointStore.inputFileStamps(parameters));
+  }
+
+  @Test
+  void testKeepOnlyLatestCheckpoint(@TempDir Path dir) throws IOException {
+    final BatchQueue queue = createQueue(false, "sm");
+    final String[] keys = BatchCheckpointStore.computeStepKeys(queue);
+    final String[] oldKeys = BatchCheckpointStore.computeStepKeys(createQueue(false, "old"));
+    final String chain = "chain\t" + keys[0];
+
+    // checkpoints of the current queue, of an old run of the same chain and of another chain
+    writeCheckpoint(dir, keys[0], chain);
+    writeCheckpoint(dir, keys[1], chain);
+    writeCheckpoint(dir, oldKeys[1], chain);
+    writeCheckpoint(dir, "other", "chain\tother");
+
+    final BatchCheckpointStore store = new BatchCheckpointStore(dir.toFile(), queue);
+    assertEquals(2, store.evictSupersededCheckpoints(1));
+    for (String key : List.of(keys[0], oldKeys[1])) {
+      assertFalse(Files.exists(dir.resolve(key + ".batchlast")));
+      assertFalse(Files.exists(dir.resolve(key + ".mzmine")));
+    }
+    for (String key : List.of(keys[1], "other")) {
+      assertTrue(Files.exists(dir.resolve(key + ".batchlast")));
+      assertTrue(Files.exists(dir.resolve(key + ".mzmine")));
+    }
+    assertEquals(1, store.findLastCheckpointedStep());
+    assertEquals(0, store.evictSupersededCheckpoints(1));
+  }
+
+  private static void writeCheckpoint(Path dir, String key, String chain) throws IOException {
+    Files.writeString(dir.resolve(key + ".mzmine"), "");
+    Files.write(dir.resolve(key + ".batchlast"), List.of(chain));
+  }
+}
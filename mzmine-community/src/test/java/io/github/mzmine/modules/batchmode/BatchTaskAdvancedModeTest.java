@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.batchmode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.modules.MZmineProcessingModule;
+import io.github.mzmine.modules.impl.MZmineProcessingStepImpl;
+import io.github.mzmine.modules.io.export_scans.ExportScansFromRawFilesModule;
+import io.github.mzmine.modules.io.export_scans.ExportScansFromRawFilesParameters;
+import io.github.mzmine.modules.io.import_rawdata_all.AllSpectralDataImportModule;
+import io.github.mzmine.modules.io.import_rawdata_all.AllSpectralDataImportParameters;
+import io.github.mzmine.modules.io.import_spectral_library.SpectralLibraryImportParameters;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.selectors.RawDataFilesSelection;
+import io.github.mzmine.parameters.parametertypes.selectors.RawDataFilesSelectionType;
+import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
+import io.github.mzmine.project.ProjectService;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import testutils.MZmineTestUtil;
+
+class BatchTaskAdvancedModeTest {
+
+  @BeforeAll
+  static void init() {
+    MZmineTestUtil.startMzmineCore();
+  }
+
+  @AfterAll
+  static void tearDown() {
+    MZmineTestUtil.cleanProject();
+  }
+
+  private static BatchQueue createQueue() {
+    final ParameterSet importParam = new AllSpectralDataImportParameters().cloneParameterSet();
+    importParam.setParameter(AllSpectralDataImportParameters.fileNames, new File[0]);
+    importParam.setParameter(AllSpectralDataImportParameters.metadataFile, false);
+    importParam.setParameter(AllSpectralDataImportParameters.advancedImport, false);
+    importParam.setParameter(SpectralLibraryImportParameters.dataBaseFiles, new File[0]);
+
+    // the advanced mode requires an output step
+    final ParameterSet exportParam = new ExportScansFromRawFilesParameters().cloneParameterSet();
+    exportParam.setParameter(ExportScansFromRawFilesParameters.dataFiles,
+        new RawDataFilesSelection(RawDataFilesSelectionType.BATCH_LAST_FILES));
+    exportParam.setParameter(ExportScansFromRawFilesParameters.scanSelect, new ScanSelection());
+    exportParam.setParameter(ExportScansFromRawFilesParameters.export_masslist, false);
+
+    final BatchQueue queue = new BatchQueue();
+    queue.add(step(AllSpectralDataImportModule.class, importParam));
+    queue.add(step(ExportScansFromRawFilesModule.class, exportParam));
+    return queue;
+  }
+
+  private static MZmineProcessingStepImpl<MZmineProcessingModule> step(
+      Class<? extends MZmineProcessingModule> module, ParameterSet parameters) {
+    return new MZmineProcessingStepImpl<>(MZmineCore.getModuleInstance(module), parameters);
+  }
+
+  private static File createDataset(Path parent, String name, String fileName)
+      throws IOException {
+    final File source = new File(Objects.requireNonNull(
+        BatchTaskAdvancedModeTest.class.getClassLoader().getResource("rawdatafiles/DOM_b.mzXML"))
+        .getFile());
+    final Path dir = Files.createDirectories(parent.resolve(name));
+    Files.copy(source.toPath(), dir.resolve(fileName));
+    return dir.toFile();
+  }
+
+  @Test
+  void testDatasetsRunInTheirOwnProject(@TempDir Path parent) throws IOException {
+    final List<File> datasets = List.of(createDataset(parent, "first", "first.mzXML"),
+        createDataset(parent, "second", "second.mzXML"));
+
+    final ParameterSet parameters = new BatchModeParameters().cloneParameterSet();
+    parameters.setParameter(BatchModeParameters.batchQueue, createQueue());
+    parameters.setParameter(BatchModeParameters.advanced, true);
+    final ParameterSet advanced = parameters.getParameter(BatchModeParameters.advanced)
+        .getEmbeddedParameters();
+    advanced.setParameter(AdvancedBatchModeParameters.processingParentDir, parent.toFile());
+    advanced.setParameter(AdvancedBatchModeParameters.skipOnError, false);
+    advanced.setParameter(AdvancedBatchModeParameters.includeSubdirectories, false);
+    advanced.setParameter(AdvancedBatchModeParameters.createResultsDirectory, true);
+    advanced.setParameter(AdvancedBatchModeParameters.parallelDatasets, 1);
+
+    MZmineTestUtil.cleanProject();
+    final BatchTask task = new BatchTask(ProjectService.getProject(), parameters, Instant.now(),
+        datasets);
+    task.run();
+    assertEquals(TaskStatus.FINISHED, task.getStatus(), task.getErrorMessage());
+
+    // the second dataset was imported to the cleared project without the files of the first
+    final List<String> files = ProjectService.getProject().getCurrentRawDataFiles().stream()
+        .map(RawDataFile::getName).toList();
+    assertEquals(List.of("second.mzXML"), files);
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.batchmode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.modules.MZmineProcessingModule;
+import io.github.mzmine.modules.dataanalysis.significance.anova.AnovaModule;
+import io.github.mzmine.modules.dataanalysis.significance.anova.AnovaParameters;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetectionModule;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetectionParameters;
+import io.github.mzmine.modules.dataprocessing.featdet_smoothing.SmoothingModule;
+import io.github.mzmine.modules.dataprocessing.featdet_smoothing.SmoothingParameters;
+import io.github.mzmine.modules.impl.MZmineProcessingStepImpl;
+import io.github.mzmine.modules.io.import_rawdata_all.AllSpectralDataImportModule;
+import io.github.mzmine.modules.io.import_rawdata_all.AllSpectralDataImportParameters;
+import io.github.mzmine.modules.io.import_spectral_library.SpectralLibraryImportParameters;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.selectors.FeatureListsSelection;
+import io.github.mzmine.parameters.parametertypes.selectors.FeatureListsSelectionType;
+import io.github.mzmine.parameters.parametertypes.selectors.RawDataFilesSelection;
+import io.github.mzmine.parameters.parametertypes.selectors.RawDataFilesSelectionType;
+import java.io.File;
+import org.junit.jupiter.api.Test;
+
+class PerFileBatchStepsTest {
+
+  private static BatchQueue createQueue(RawDataFilesSelectionType massDetectionFiles,
+      FeatureListsSelectionType smoothingFlists) {
+    final ParameterSet importParam = new AllSpectralDataImportParameters().cloneParameterSet();
+    importParam.setParameter(AllSpectralDataImportParameters.fileNames,
+        new File[]{new File("a.mzML"), new File("b.mzML")});
+    importParam.setParameter(AllSpectralDataImportParameters.metadataFile, false);
+    importParam.setParameter(SpectralLibraryImportParameters.dataBaseFiles, new File[0]);
+
+    final ParameterSet massDetectionParam = new MassDetectionParameters().cloneParameterSet();
+    massDetectionParam.setParameter(MassDetectionParameters.dataFiles,
+        new RawDataFilesSelection(massDetectionFiles));
+
+    final ParameterSet smoothingParam = new SmoothingParameters().cloneParameterSet();
+    smoothingParam.setParameter(SmoothingParameters.featureLists,
+        new FeatureListsSelection(smoothingFlists));
+
+    final BatchQueue queue = new BatchQueue();
+    queue.add(step(AllSpectralDataImportModule.class, importParam));
+    queue.add(step(MassDetectionModule.class, massDetectionParam));
+    queue.add(step(SmoothingModule.class, smoothingParam));
+    return queue;
+  }
+
+  private static MZmineProcessingStepImpl<MZmineProcessingModule> step(
+      Class<? extends MZmineProcessingModule> module, ParameterSet parameters) {
+    return new MZmineProcessingStepImpl<>(MZmineCore.getModuleInstance(module), parameters);
+  }
+
+  @Test
+  void testAllBatchLastSelections() {
+    final BatchQueue queue = createQueue(RawDataFilesSelectionType.BATCH_LAST_FILES,
+        FeatureListsSelectionType.BATCH_LAST_FEATURELISTS);
+    assertEquals(3, PerFileBatchSteps.countLeadingPerFileSteps(queue));
+  }
+
+  @Test
+  void testOtherSelectionsEndTheStream() {
+    // all files of the project would include the files of other chains
+    assertEquals(1, PerFileBatchSteps.countLeadingPerFileSteps(
+        createQueue(RawDataFilesSelectionType.ALL_FILES,
+            FeatureListsSelectionType.BATCH_LAST_FEATURELISTS)));
+
+    assertEquals(2, PerFileBatchSteps.countLeadingPerFileSteps(
+        createQueue(RawDataFilesSelectionType.BATCH_LAST_FILES,
+            FeatureListsSelectionType.ALL_FEATURELISTS)));
+    assertEquals(2, PerFileBatchSteps.countLeadingPerFileSteps(
+        createQueue(RawDataFilesSelectionType.BATCH_LAST_FILES,
+            FeatureListsSelectionType.NAME_PATTERN)));
+  }
+
+  @Test
+  void testMetadataImportIsNotSplit() {
+    final BatchQueue queue = createQueue(RawDataFilesSelectionType.BATCH_LAST_FILES,
+        FeatureListsSelectionType.BATCH_LAST_FEATURELISTS);
+    queue.getFirst().getParameterSet()
+        .setParameter(AllSpectralDataImportParameters.metadataFile, true);
+    assertEquals(0, PerFileBatchSteps.countLeadingPerFileSteps(queue));
+  }
+
+  @Test
+  void testProjectIndependentQueue() {
+    assertTrue(PerFileBatchSteps.isProjectIndependent(
+        createQueue(RawDataFilesSelectionType.BATCH_LAST_FILES,
+            FeatureListsSelectionType.BATCH_LAST_FEATURELISTS)));
+
+    // selections of the current project would use the data of other datasets
+    assertFalse(PerFileBatchSteps.isProjectIndependent(
+        createQueue(RawDataFilesSelectionType.ALL_FILES,
+            FeatureListsSelectionType.BATCH_LAST_FEATURELISTS)));
+    assertFalse(PerFileBatchSteps.isProjectIndependent(
+        createQueue(RawDataFilesSelectionType.BATCH_LAST_FILES,
+            FeatureListsSelectionType.NAME_PATTERN)));
+
+    final BatchQueue metadataImport = createQueue(RawDataFilesSelectionType.BATCH_LAST_FILES,
+        FeatureListsSelectionType.BATCH_LAST_FEATURELISTS);
+    metadataImport.getFirst().getParameterSet()
+        .setParameter(AllSpectralDataImportParameters.metadataFile, true);
+    assertFalse(PerFileBatchSteps.isProjectIndependent(metadataImport));
+  }
+
+  @Test
+  void testProjectMetadataSteps() {
+    final ParameterSet anovaParam = new AnovaParameters().cloneParameterSet();
+    anovaParam.setParameter(AnovaParameters.featureLists,
+        new FeatureListsSelection(FeatureListsSelectionType.BATCH_LAST_FEATURELISTS));
+    anovaParam.setParameter(AnovaParameters.groupingParameter, "group");
+    assertTrue(PerFileBatchSteps.usesBatchLastSelections(anovaParam));
+    assertTrue(PerFileBatchSteps.usesProjectMetadata(anovaParam));
+    assertFalse(PerFileBatchSteps.usesProjectMetadata(new SmoothingParameters()));
+
+    final BatchQueue queue = createQueue(RawDataFilesSelectionType.BATCH_LAST_FILES,
+        FeatureListsSelectionType.BATCH_LAST_FEATURELISTS);
+    queue.add(step(AnovaModule.class, anovaParam));
+    assertFalse(PerFileBatchSteps.isProjectIndependent(queue));
+  }
+}
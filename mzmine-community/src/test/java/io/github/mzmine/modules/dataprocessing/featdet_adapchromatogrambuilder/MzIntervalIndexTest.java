@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.featdet_adapchromatogrambuilder;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeMap;
+import com.google.common.collect.TreeRangeMap;
+import java.util.Map.Entry;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class MzIntervalIndexTest {
+
+  /**
+   * Inserts non-overlapping intervals the same way as the chromatogram builder and compares all
+   * lookups to a range map
+   */
+  @Test
+  void testLookupMatchesRangeMap() {
+    final Random rand = new Random(42);
+    final MzIntervalIndex index = new MzIntervalIndex();
+    final RangeMap<Double, Integer> rangeMap = TreeRangeMap.create();
+
+    for (int i = 0; i < 5000; i++) {
+      final double mz = 100 + rand.nextDouble() * 50;
+      if (index.find(mz) >= 0) {
+        continue;
+      }
+      final double tol = Math.max(0.002, mz * 10 / 1E6);
+      final Entry<Range<Double>, Integer> minus = rangeMap.getEntry(mz - tol);
+      final Entry<Range<Double>, Integer> plus = rangeMap.getEntry(mz + tol);
+      final double lower = minus == null ? mz - tol : minus.getKey().upperEndpoint();
+      final double upper = plus == null ? mz + tol : plus.getKey().lowerEndpoint();
+      if (lower < upper) {
+        final int id = index.add(lower, upper);
+        rangeMap.put(Range.closedOpen(lower, upper), id);
+      }
+    }
+
+    for (int i = 0; i < 20000; i++) {
+      final double mz = 99 + rand.nextDouble() * 52;
+      final Integer expected = rangeMap.get(mz);
+      assertEquals(expected == null ? -1 : expected, index.find(mz));
+    }
+    // boundaries
+    for (Entry<Range<Double>, Integer> entry : rangeMap.asMapOfRanges().entrySet()) {
+      assertEquals((int) entry.getValue(), index.find(entry.getKey().lowerEndpoint()));
+      final Integer next = rangeMap.get(entry.getKey().upperEndpoint());
+      assertEquals(next == null ? -1 : next, index.find(entry.getKey().upperEndpoint()));
+    }
+
+    final int[] expectedOrder = rangeMap.asMapOfRanges().values().stream()
+        .mapToInt(Integer::intValue).toArray();
+    assertArrayEquals(expectedOrder, index.getIdsSortedByMz());
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.data_access.EfficientDataAccess;
+import io.github.mzmine.datamodel.data_access.EfficientDataAccess.FeatureDataType;
+import io.github.mzmine.datamodel.data_access.FeatureDataAccess;
+import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
+import io.github.mzmine.datamodel.featuredata.impl.SimpleIonTimeSeries;
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.minimumsearch.MinimumSearchFeatureResolverParameters;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Resolves the same chromatograms with different numbers of threads and compares the result to a
+ * single resolver that loops over all rows, like the sequential implementation.
+ */
+@TestInstance(Lifecycle.PER_CLASS)
+class FeatureResolverPartitionTest {
+
+  private final List<Scan> scans = new ArrayList<>();
+  private ModularFeatureList flist;
+  private MinimumSearchFeatureResolverParameters parameters;
+
+  @BeforeAll
+  void init() throws IOException {
+    final RawDataFile file = new RawDataFileImpl("testfile", null, null, Color.BLACK);
+    for (int i = 0; i < 300; i++) {
+      final Scan scan = new SimpleScan(file, i, 1, 0.01f * i, null, new double[0], new double[0],
+          MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "", Range.closed(0d, 1000d));
+      scans.add(scan);
+      file.addScan(scan);
+    }
+
+    flist = new ModularFeatureList("flist", null, file);
+    flist.setSelectedScans(file, scans);
+    // chromatograms of different lengths with one to three peaks each
+    final Random random = new Random(42);
+    for (int id = 1; id <= 150; id++) {
+      final int start = random.nextInt(100);
+      final int end = start + 50 + random.nextInt(150);
+      final int peaks = 1 + random.nextInt(3);
+      final double[] mzs = new double[end - start];
+      final double[] intensities = new double[end - start];
+      for (int i = 0; i < mzs.length; i++) {
+        mzs[i] = 100d + id;
+        for (int p = 0; p < peaks; p++) {
+          final double center = (p + 0.5) * mzs.length / peaks;
+          intensities[i] += 1E6 * (p + 1) * Math.exp(-Math.pow(i - center, 2) / 20d);
+        }
+        intensities[i] += random.nextDouble() * 1000;
+      }
+      final SimpleIonTimeSeries series = new SimpleIonTimeSeries(null, mzs, intensities,
+          scans.subList(start, end));
+      final ModularFeatureListRow row = new ModularFeatureListRow(flist, id);
+      row.addFeature(file, new ModularFeature(flist, file, series, FeatureStatus.DETECTED));
+      flist.addRow(row);
+    }
+
+    parameters = new MinimumSearchFeatureResolverParameters();
+    parameters.setParameter(GeneralResolverParameters.SUFFIX, "resolved");
+    parameters.setParameter(GeneralResolverParameters.dimension,
+        ResolvingDimension.RETENTION_TIME);
+    parameters.setParameter(MinimumSearchFeatureResolverParameters.MIN_NUMBER_OF_DATAPOINTS, 4);
+    parameters.setParameter(MinimumSearchFeatureResolverParameters.CHROMATOGRAPHIC_THRESHOLD_LEVEL,
+        0.5);
+    parameters.setParameter(MinimumSearchFeatureResolverParameters.SEARCH_RT_RANGE, 0.05);
+    parameters.setParameter(MinimumSearchFeatureResolverParameters.MIN_RELATIVE_HEIGHT, 0d);
+    parameters.setParameter(MinimumSearchFeatureResolverParameters.MIN_ABSOLUTE_HEIGHT, 1E4);
+    parameters.setParameter(MinimumSearchFeatureResolverParameters.MIN_RATIO, 1.5);
+    parameters.setParameter(MinimumSearchFeatureResolverParameters.PEAK_DURATION,
+        Range.closed(0d, 10d));
+  }
+
+  /**
+   * One resolver and one data access over all rows
+   */
+  private List<IonTimeSeries<? extends Scan>> resolveSequentially() {
+    final Resolver resolver = parameters.getResolver(parameters, flist);
+    final FeatureDataAccess access = EfficientDataAccess.of(flist, FeatureDataType.INCLUDE_ZEROS,
+        flist.getRawDataFile(0));
+    final List<IonTimeSeries<? extends Scan>> resolved = new ArrayList<>();
+    while (access.hasNextFeature()) {
+      access.nextFeature();
+      resolved.addAll(resolver.resolve(access, null));
+    }
+    return resolved;
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {1, 3, 8})
+  void testSameRowsAsSequential(int threads) {
+    final List<IonTimeSeries<? extends Scan>> expected = resolveSequentially();
+    // make sure that chromatograms are split into multiple features
+    Assertions.assertTrue(expected.size() > flist.getNumberOfRows());
+
+    final FeatureResolverTask task = new FeatureResolverTask(null, null, flist, parameters, null,
+        Instant.now());
+    task.dimensionIndependentResolve(flist, threads);
+    final FeatureList resolved = task.getResolvedFeatureList();
+    Assertions.assertNotNull(resolved);
+    Assertions.assertEquals(expected.size(), resolved.getNumberOfRows());
+
+    final List<FeatureListRow> rows = resolved.getRows();
+    for (int i = 0; i < expected.size(); i++) {
+      final FeatureListRow row = rows.get(i);
+      Assertions.assertEquals(i + 1, row.getID());
+      final IonTimeSeries<? extends Scan> actual = row.getBestFeature().getFeatureData();
+      Assertions.assertEquals(expected.get(i).getSpectra(), actual.getSpectra(), "row " + (i + 1));
+      Assertions.assertArrayEquals(expected.get(i).getIntensityValues(new double[0]),
+          actual.getIntensityValues(new double[0]), "row " + (i + 1));
+      Assertions.assertArrayEquals(expected.get(i).getMzValues(new double[0]),
+          actual.getMzValues(new double[0]), "row " + (i + 1));
+    }
+  }
+}
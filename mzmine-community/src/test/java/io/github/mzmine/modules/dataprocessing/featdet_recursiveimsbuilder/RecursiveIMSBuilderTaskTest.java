@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.featdet_recursiveimsbuilder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeMap;
+import com.google.common.collect.TreeRangeMap;
+import io.github.mzmine.datamodel.Frame;
+import io.github.mzmine.datamodel.IMSRawDataFile;
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.datamodel.MassList;
+import io.github.mzmine.datamodel.MobilityScan;
+import io.github.mzmine.datamodel.features.Feature;
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.modules.io.import_rawdata_all.AdvancedSpectraImportParameters;
+import io.github.mzmine.modules.tools.batchwizard.subparameters.MassDetectorWizardOptions;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.project.impl.MZmineProjectImpl;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.scans.SpectraMerging;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import testutils.MZmineTestUtil;
+
+/**
+ * Checks the mobilograms of the parallel, primitive frame processing against the grouping on data
+ * point objects in {@link TreeRangeMap}s it replaced.
+ */
+class RecursiveIMSBuilderTaskTest {
+
+  private static final String FILE = "rawdatafiles/additional/lc-tims-ms-pasef-a.d";
+  private static final ScanSelection SELECTION = new ScanSelection(1);
+  private static final MZTolerance TOLERANCE = new MZTolerance(0.005, 15);
+  private static IMSRawDataFile file;
+
+  @BeforeAll
+  static void init() throws InterruptedException {
+    MZmineTestUtil.startMzmineCore();
+    final var advanced = AdvancedSpectraImportParameters.create(
+        MassDetectorWizardOptions.FACTOR_OF_LOWEST_SIGNAL, 3d, 3d, null, ScanSelection.ALL_SCANS,
+        false);
+    MZmineTestUtil.importFiles(List.of(FILE), 120, advanced);
+    file = (IMSRawDataFile) MZmineTestUtil.getRawFromProject("lc-tims-ms-pasef-a.d");
+    assertNotNull(file);
+  }
+
+  @AfterAll
+  static void tearDown() {
+    MZmineTestUtil.cleanProject();
+  }
+
+  @Test
+  void testFrameMobilogramsMatchDataPointGrouping() {
+    final List<Frame> frames = (List<Frame>) SELECTION.getMatchingScans(file.getFrames());
+    assertFalse(frames.isEmpty());
+
+    for (final Frame frame : frames) {
+      final List<String> actual = new ArrayList<>();
+      for (final TempMobilogram mobilogram : RecursiveIMSBuilderTask.calcMobilograms(
+          FrameSignals.of(frame, SELECTION), TOLERANCE)) {
+        final BuildingIonMobilitySeries series = mobilogram.toBuildingSeries(null);
+        final double[] mzs = new double[series.getNumberOfValues()];
+        final double[] intensities = new double[series.getNumberOfValues()];
+        final int[] scanNumbers = new int[series.getNumberOfValues()];
+        for (int i = 0; i < series.getNumberOfValues(); i++) {
+          mzs[i] = series.getMZ(i);
+          intensities[i] = series.getIntensity(i);
+          scanNumbers[i] = series.getSpectrum(i).getMobilityScanNumber();
+        }
+        actual.add(toString(scanNumbers, mzs, intensities));
+      }
+      actual.sort(Comparator.naturalOrder());
+
+      final List<String> expected = dataPointGrouping(frame).stream()
+          .map(DataPointMobilogram::toString).sorted().toList();
+      assertEquals(expected, actual, "Mobilograms of frame " + frame.getFrameId());
+    }
+  }
+
+  /**
+   * Frames are processed in parallel, the feature list may not depend on the threads
+   */
+  @Test
+  void testFeatureListIsReproducible() {
+    assertEquals(buildFeatures(), buildFeatures());
+  }
+
+  private static List<String> buildFeatures() {
+    final ParameterSet parameters = new RecursiveIMSBuilderParameters().cloneParameterSet();
+    parameters.setParameter(RecursiveIMSBuilderParameters.scanSelection, SELECTION);
+    parameters.setParameter(RecursiveIMSBuilderParameters.mzTolerance, TOLERANCE);
+    parameters.setParameter(RecursiveIMSBuilderParameters.minNumConsecutive, 5);
+    parameters.setParameter(RecursiveIMSBuilderParameters.minNumDatapoints, 50);
+
+    final MZmineProject project = new MZmineProjectImpl();
+    final RecursiveIMSBuilderTask task = new RecursiveIMSBuilderTask(null, file, parameters,
+        project, Instant.now());
+    task.run();
+    assertEquals(TaskStatus.FINISHED, task.getStatus(), task.getErrorMessage());
+
+    final FeatureList flist = project.getCurrentFeatureLists().getFirst();
+    assertFalse(flist.isEmpty());
+    return flist.getRows().stream().map(row -> {
+      final Feature f = row.getFeature(file);
+      return "%.6f %.4f %.4f %.1f %.1f %d".formatted(f.getMZ(), f.getRT(), f.getMobility(),
+          f.getHeight(), f.getArea(), f.getNumberOfDataPoints());
+    }).sorted().toList();
+  }
+
+  private static String toString(int[] scanNumbers, double[] mzs, double[] intensities) {
+    return Arrays.toString(scanNumbers) + Arrays.toString(mzs) + Arrays.toString(intensities);
+  }
+
+  /**
+   * Groups the mass list signals of the mobility scans of a frame by descending intensity into
+   * non-overlapping m/z ranges, with a recursion on the leftover signals.
+   */
+  private static List<DataPointMobilogram> dataPointGrouping(Frame frame) {
+    final List<DataPoint> dps = new ArrayList<>();
+    boolean started = false;
+    for (final MobilityScan scan : frame.getMobilityScans()) {
+      if (!SELECTION.matches(scan)) {
+        // the first consecutive block of matching mobility scans
+        if (started) {
+          break;
+        }
+        continue;
+      }
+      started = true;
+      final MassList massList = scan.getMassList();
+      for (int i = 0; i < massList.getNumberOfDataPoints(); i++) {
+        dps.add(new DataPoint(scan.getMobilityScanNumber(), massList.getMzValue(i),
+            massList.getIntensityValue(i)));
+      }
+    }
+    // stable sort, signals of equal intensity stay in the order of mobility scans
+    dps.sort(Comparator.comparingDouble(DataPoint::intensity).reversed());
+    return groupDataPoints(dps);
+  }
+
+  private static List<DataPointMobilogram> groupDataPoints(List<DataPoint> dps) {
+    final RangeMap<Double, DataPointMobilogram> map = TreeRangeMap.create();
+    final List<DataPoint> leftovers = new ArrayList<>();
+    for (final DataPoint dp : dps) {
+      DataPointMobilogram mobilogram = map.get(dp.mz());
+      if (mobilogram == null) {
+        final Range<Double> proposed = TOLERANCE.getToleranceRange(dp.mz());
+        final Range<Double> actual = SpectraMerging.createNewNonOverlappingRange(map, proposed);
+        if (!proposed.equals(actual)) {
+          leftovers.add(dp);
+          continue;
+        }
+        mobilogram = new DataPointMobilogram();
+        map.put(actual, mobilogram);
+      }
+      final DataPoint previous = mobilogram.keepBetterFittingDataPoint(dp);
+      if (previous != null) {
+        leftovers.add(previous);
+      }
+    }
+
+    final List<DataPointMobilogram> mobilograms = new ArrayList<>(
+        map.asMapOfRanges().values());
+    if (leftovers.size() > 50) {
+      leftovers.sort(Comparator.comparingDouble(DataPoint::intensity).reversed());
+      mobilograms.addAll(groupDataPoints(leftovers));
+    }
+    return mobilograms;
+  }
+
+  private record DataPoint(int scanNumber, double mz, double intensity) {
+
+  }
+
+  private static class DataPointMobilogram {
+
+    private final TreeMap<Integer, DataPoint> dps = new TreeMap<>();
+    private double centerMz;
+
+    private void updateCenter() {
+      double weighted = 0d;
+      double summed = 0d;
+      for (final DataPoint dp : dps.values()) {
+        weighted += dp.mz() * dp.intensity();
+        summed += dp.intensity();
+      }
+      centerMz = weighted / summed;
+    }
+
+    /**
+     * @return the data point that was not added or replaced
+     */
+    DataPoint keepBetterFittingDataPoint(DataPoint dp) {
+      final DataPoint current = dps.putIfAbsent(dp.scanNumber(), dp);
+      if (current == null) {
+        updateCenter();
+        return null;
+      }
+      if (Math.abs(centerMz - current.mz()) < Math.abs(centerMz - dp.mz())) {
+        return dp;
+      }
+      final Entry<Integer, DataPoint> ceiling = dps.ceilingEntry(dp.scanNumber() + 1);
+      final Entry<Integer, DataPoint> floor = dps.floorEntry(dp.scanNumber() - 1);
+      if (ceiling != null && floor != null) {
+        final double avg = (ceiling.getValue().intensity() + floor.getValue().intensity()) / 2;
+        if (Math.abs(avg - dp.intensity()) < Math.abs(avg - current.intensity())) {
+          dps.put(dp.scanNumber(), dp);
+          updateCenter();
+          return current;
+        }
+      }
+      return dp;
+    }
+
+    @Override
+    public String toString() {
+      return RecursiveIMSBuilderTaskTest.toString(
+          dps.values().stream().mapToInt(DataPoint::scanNumber).toArray(),
+          dps.values().stream().mapToDouble(DataPoint::mz).toArray(),
+          dps.values().stream().mapToDouble(DataPoint::intensity).toArray());
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.gapfill_peakfinder;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+@TestInstance(Lifecycle.PER_CLASS)
+class GapRtIndexTest {
+
+  private static final double[] MZS = {150, 250, 350, 450};
+  private RawDataFile file;
+  private final List<Scan> scans = new ArrayList<>();
+
+  @BeforeAll
+  void init() throws IOException {
+    file = new RawDataFileImpl("testfile", null, null, Color.BLACK);
+    final Random random = new Random(42);
+    // gaussian peaks of each m/z at different RTs on top of noise, one scan per 0.02 min
+    for (int i = 0; i < 500; i++) {
+      final float rt = 0.02f * i;
+      final double[] intensities = new double[MZS.length];
+      for (int j = 0; j < MZS.length; j++) {
+        final double center = 1.5 + 2 * j;
+        intensities[j] =
+            1E5 * Math.exp(-Math.pow(rt - center, 2) / 0.02) + random.nextDouble() * 100;
+      }
+      final Scan scan = new SimpleScan(file, i, 1, rt, null, MZS.clone(), intensities,
+          MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "", Range.closed(0d, 1000d));
+      file.addScan(scan);
+      scans.add(scan);
+    }
+  }
+
+  private List<RecordingGap> createGaps() {
+    final List<RecordingGap> gaps = new ArrayList<>();
+    // overlapping, nested, empty and open RT ranges in random order
+    final Random random = new Random(7);
+    for (int i = 0; i < 60; i++) {
+      final double mz = MZS[i % MZS.length];
+      final float start = random.nextFloat() * 11f - 0.5f;
+      final float length = random.nextFloat() * 3f;
+      gaps.add(new RecordingGap(Range.closed(mz - 0.01, mz + 0.01),
+          Range.closed(start, start + length)));
+    }
+    gaps.add(new RecordingGap(Range.closed(149.99, 150.01), Range.atLeast(8f)));
+    gaps.add(new RecordingGap(Range.closed(249.99, 250.01), Range.closed(-1f, 3f)));
+    gaps.add(new RecordingGap(Range.closed(349.99, 350.01), Range.closed(20f, 21f)));
+    return gaps;
+  }
+
+  @Test
+  void testSameFeaturesAsFullScanLoop() {
+    final List<RecordingGap> fullLoopGaps = createGaps();
+    for (Scan scan : scans) {
+      for (RecordingGap gap : fullLoopGaps) {
+        gap.offerNextScan(scan);
+      }
+    }
+
+    final List<RecordingGap> indexedGaps = createGaps();
+    final GapRtIndex<RecordingGap> index = new GapRtIndex<>(indexedGaps);
+    for (Scan scan : scans) {
+      for (RecordingGap gap : index.getGapsAt(scan.getRetentionTime())) {
+        gap.offerNextScan(scan);
+      }
+    }
+
+    int filled = 0;
+    for (int i = 0; i < fullLoopGaps.size(); i++) {
+      final RecordingGap expected = fullLoopGaps.get(i);
+      final RecordingGap actual = indexedGaps.get(i);
+      Assertions.assertEquals(expected.noMoreOffers(), actual.noMoreOffers());
+      Assertions.assertEquals(expected.feature, actual.feature, "gap " + i);
+      if (expected.feature != null) {
+        filled++;
+      }
+    }
+    // make sure that the test covers filled gaps
+    Assertions.assertTrue(filled > 10);
+  }
+
+  @Test
+  void testDecreasingRtRestartsSweep() {
+    final RecordingGap gap = createGaps().getFirst();
+    final GapRtIndex<RecordingGap> index = new GapRtIndex<>(List.of(gap));
+    final float rt = gap.getRtRange().lowerEndpoint();
+    Assertions.assertEquals(List.of(gap), index.getGapsAt(rt));
+    Assertions.assertEquals(List.of(), index.getGapsAt(gap.getRtRange().upperEndpoint() + 1f));
+    Assertions.assertEquals(List.of(gap), index.getGapsAt(rt));
+  }
+
+  /**
+   * Records the filled feature as scan numbers and intensities instead of adding it to a row
+   */
+  private class RecordingGap extends Gap {
+
+    private List<String> feature;
+
+    RecordingGap(Range<Double> mzRange, Range<Float> rtRange) {
+      super(null, file, mzRange, rtRange, 0.5d);
+    }
+
+    @Override
+    protected boolean addFeatureToRow() {
+      feature = bestPeakDataPoints.stream()
+          .map(dp -> dp.getScan().getScanNumber() + ":" + dp.getMZ() + ":" + dp.getIntensity())
+          .toList();
+      return true;
+    }
+  }
+}
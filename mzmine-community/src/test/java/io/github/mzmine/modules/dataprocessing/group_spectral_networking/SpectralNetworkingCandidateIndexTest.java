@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.group_spectral_networking;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.features.correlation.SpectralSimilarity;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.DataPointSorter;
+import io.github.mzmine.util.scans.similarity.Weights;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class SpectralNetworkingCandidateIndexTest {
+
+  private static final MZTolerance mzTol = new MZTolerance(0.005, 10);
+
+  /**
+   * Spectra share fragments and neutral losses with each other so that some pairs pass the
+   * thresholds by direct and some by shifted (modified cosine) matches
+   */
+  private static List<DataPoint[]> createSpectra(Random rand, double[] precursors) {
+    final double[] fragmentPool = rand.doubles(40, 50, 500).toArray();
+    final double[] lossPool = rand.doubles(40, 10, 200).toArray();
+    List<DataPoint[]> spectra = new ArrayList<>();
+    for (int i = 0; i < precursors.length; i++) {
+      precursors[i] = 300 + i * 0.7 + rand.nextDouble();
+      final int n = 4 + rand.nextInt(20);
+      DataPoint[] dps = new DataPoint[n];
+      for (int s = 0; s < n; s++) {
+        final double mz = switch (rand.nextInt(3)) {
+          case 0 -> fragmentPool[rand.nextInt(fragmentPool.length)];
+          case 1 -> precursors[i] - lossPool[rand.nextInt(lossPool.length)];
+          default -> 50 + rand.nextDouble() * 400;
+        };
+        // small jitter within tolerance
+        dps[s] = new SimpleDataPoint(mz + (rand.nextDouble() - 0.5) * 0.004,
+            1 + rand.nextDouble() * 1000);
+      }
+      Arrays.sort(dps, DataPointSorter.DEFAULT_INTENSITY);
+      spectra.add(dps);
+    }
+    return spectra;
+  }
+
+  @Test
+  void candidatesContainAllMatchingPairs() {
+    final Random rand = new Random(42);
+    final int minMatch = 3;
+    final double minCosine = 0.3;
+    final double[] precursors = new double[150];
+    final List<DataPoint[]> spectra = createSpectra(rand, precursors);
+
+    var index = new SpectralNetworkingCandidateIndex(spectra, precursors, mzTol, Weights.SQRT);
+    var scratch = index.createScratch();
+
+    int matches = 0;
+    int candidates = 0;
+    for (int i = 0; i < spectra.size(); i++) {
+      IntArrayList found = new IntArrayList(
+          index.findCandidates(i, spectra.size() - 1, minMatch, minCosine, scratch));
+      candidates += found.size();
+      for (int j = i + 1; j < spectra.size(); j++) {
+        SpectralSimilarity sim = SpectralNetworkingTask.createMS2SimModificationAware(mzTol,
+            spectra.get(i), spectra.get(j), minMatch, SpectralNetworkingTask.SIZE_OVERLAP,
+            precursors[i], precursors[j]);
+        if (sim != null && sim.cosine() >= minCosine) {
+          matches++;
+          assertTrue(found.contains(j), "Pruned matching pair %d, %d".formatted(i, j));
+        }
+      }
+    }
+    assertTrue(matches > 0, "Test data should contain matching pairs");
+    assertTrue(candidates < spectra.size() * (spectra.size() - 1) / 2,
+        "Index should prune some pairs");
+  }
+
+  @Test
+  void candidatesRespectTargetRange() {
+    final Random rand = new Random(7);
+    final double[] precursors = new double[50];
+    final List<DataPoint[]> spectra = createSpectra(rand, precursors);
+    var index = new SpectralNetworkingCandidateIndex(spectra, null, mzTol, Weights.SQRT);
+    var scratch = index.createScratch();
+
+    for (int i = 0; i < spectra.size(); i++) {
+      final int last = Math.min(spectra.size() - 1, i + 5);
+      IntArrayList found = index.findCandidates(i, last, 1, 0, scratch);
+      for (int j : found) {
+        assertTrue(j > i && j <= last);
+      }
+    }
+  }
+}
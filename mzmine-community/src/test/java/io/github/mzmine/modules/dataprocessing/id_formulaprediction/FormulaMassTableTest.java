@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.id_formulaprediction;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.elements.ElementalHeuristicChecker;
+import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.rdbe.RDBERestrictionChecker;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.collections.IndexRange;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.openscience.cdk.config.Isotopes;
+import org.openscience.cdk.formula.MolecularFormulaGenerator;
+import org.openscience.cdk.formula.MolecularFormulaRange;
+import org.openscience.cdk.interfaces.IMolecularFormula;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
+
+class FormulaMassTableTest {
+
+  private static final MZTolerance tolerance = new MZTolerance(0.002, 5);
+  private static final Range<Double> rdbeRange = Range.closed(0d, 8d);
+  private static MolecularFormulaRange elements;
+
+  @BeforeAll
+  static void init() throws IOException {
+    final Isotopes ifac = Isotopes.getInstance();
+    elements = new MolecularFormulaRange();
+    elements.addIsotope(ifac.getMajorIsotope("C"), 0, 30);
+    elements.addIsotope(ifac.getMajorIsotope("H"), 0, 60);
+    elements.addIsotope(ifac.getMajorIsotope("N"), 0, 5);
+    elements.addIsotope(ifac.getMajorIsotope("O"), 0, 10);
+    elements.addIsotope(ifac.getMajorIsotope("S"), 0, 2);
+  }
+
+  /**
+   * The formulas of a row as found by a generator for the row's mass window
+   */
+  private static Set<String> generateFormulas(Range<Double> window, boolean checkRatios,
+      boolean checkRDBE, boolean rdbeIsInteger) {
+    final MolecularFormulaGenerator generator = new MolecularFormulaGenerator(
+        SilentChemObjectBuilder.getInstance(), window.lowerEndpoint(), window.upperEndpoint(),
+        elements);
+    final Set<String> formulas = new HashSet<>();
+    IMolecularFormula formula;
+    while ((formula = generator.getNextFormula()) != null) {
+      if (checkRatios && !ElementalHeuristicChecker.checkFormula(formula, true, true, true)) {
+        continue;
+      }
+      final Double rdbe = RDBERestrictionChecker.calculateRDBE(formula);
+      if (checkRDBE && rdbe != null && !RDBERestrictionChecker.checkRDBE(rdbe, rdbeRange,
+          rdbeIsInteger)) {
+        continue;
+      }
+      formulas.add(MolecularFormulaManipulator.getString(formula));
+    }
+    return formulas;
+  }
+
+  /**
+   * The formulas of a row as found in the table, filtered like the feature list formula prediction
+   */
+  private static Set<String> tableFormulas(FormulaMassTable table, Range<Double> window,
+      boolean checkRatios, boolean checkRDBE, boolean rdbeIsInteger) {
+    final IndexRange indices = table.indexRange(window);
+    final Set<String> formulas = new HashSet<>();
+    for (int i = indices.min(); i < indices.maxExclusive(); i++) {
+      if (checkRatios && !table.checkHeuristics(i, true, true, true)) {
+        continue;
+      }
+      final float rdbe = table.getRDBE(i);
+      if (checkRDBE && !Float.isNaN(rdbe) && !RDBERestrictionChecker.checkRDBE(rdbe, rdbeRange,
+          rdbeIsInteger)) {
+        continue;
+      }
+      final String formula = MolecularFormulaManipulator.getString(table.getFormula(i));
+      Assertions.assertTrue(formulas.add(formula), "Formula is listed twice " + formula);
+    }
+    return formulas;
+  }
+
+  @Test
+  void testSameFormulasAsGenerator() {
+    // the first two windows overlap and are merged
+    final List<Range<Double>> windows = new ArrayList<>();
+    for (double mass : new double[]{180.0634, 180.0650, 255.1132, 302.1423, 410.2189}) {
+      windows.add(tolerance.getToleranceRange(mass));
+    }
+    final FormulaMassTable table = FormulaMassTable.create(elements, windows, null);
+    Assertions.assertNotNull(table);
+    Assertions.assertEquals(4, FormulaMassTable.mergeWindows(windows).size());
+
+    for (Range<Double> window : windows) {
+      final Set<String> all = generateFormulas(window, false, false, false);
+      Assertions.assertFalse(all.isEmpty());
+      Assertions.assertEquals(all, tableFormulas(table, window, false, false, false));
+      Assertions.assertEquals(generateFormulas(window, true, false, false),
+          tableFormulas(table, window, true, false, false));
+      Assertions.assertEquals(generateFormulas(window, false, true, false),
+          tableFormulas(table, window, false, true, false));
+      Assertions.assertEquals(generateFormulas(window, true, true, true),
+          tableFormulas(table, window, true, true, true));
+    }
+  }
+
+  @Test
+  void testCancel() {
+    final Set<MolecularFormulaGenerator> active = new HashSet<>();
+    final List<Range<Double>> windows = List.of(tolerance.getToleranceRange(410.2189));
+    Assertions.assertNull(FormulaMassTable.create(elements, windows, () -> true, active));
+    Assertions.assertTrue(active.isEmpty());
+
+    Assertions.assertNotNull(FormulaMassTable.create(elements, windows, () -> false, active));
+    Assertions.assertTrue(active.isEmpty());
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.id_lipidid.annotation_modules;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation.LipidFragmentFactory;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation.TheoreticalLipidFragments;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.ILipidClass;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidClasses;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidIon;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LipidDatabaseCacheTest {
+
+  private static final ILipidClass[] LIPID_CLASSES = {
+      LipidClasses.DIACYLGLYCEROPHOSPHOCHOLINES, LipidClasses.MONOACYLGLYCEROPHOSPHOCHOLINES};
+
+  @TempDir
+  Path tempDir;
+
+  private LipidIon[] ions;
+  private double[] mzs;
+  private AtomicReferenceArray<TheoreticalLipidFragments> fragments;
+
+  @BeforeEach
+  void buildDatabase() {
+    ions = LipidAnnotationUtils.buildLipidDatabase(LIPID_CLASSES, 16, 18, 0, 1, false, null,
+            Set.of(PolarityType.POSITIVE, PolarityType.NEGATIVE)).stream()
+        .sorted(Comparator.comparingDouble(LipidIon::mz)).toArray(LipidIon[]::new);
+    mzs = Arrays.stream(ions).mapToDouble(LipidIon::mz).toArray();
+
+    // only some fragments are calculated
+    final LipidAnnotationChainParameters chainParameters = new LipidAnnotationChainParameters();
+    fragments = new AtomicReferenceArray<>(ions.length);
+    for (int i = 0; i < ions.length; i += 2) {
+      final LipidIon ion = ions[i];
+      fragments.set(i, new LipidFragmentFactory(ion.lipidAnnotation(), ion.ionizationType(),
+          ion.lipidAnnotation().getLipidClass().getFragmentationRules(),
+          chainParameters).calculateTheoreticalFragments());
+    }
+  }
+
+  private String describe() {
+    return Arrays.stream(LIPID_CLASSES).map(LipidDatabaseCache::describe).toList().toString();
+  }
+
+  @Test
+  void testRoundTrip() {
+    final File cacheDir = tempDir.resolve("cache").toFile();
+    final LipidDatabaseCache cache = LipidDatabaseCache.forDatabase(describe(), cacheDir);
+    final AtomicReferenceArray<TheoreticalLipidFragments> loaded = new AtomicReferenceArray<>(
+        ions.length);
+    assertFalse(cache.load(ions, mzs, loaded));
+    assertTrue(cache.write(ions, mzs, fragments));
+
+    assertTrue(LipidDatabaseCache.forDatabase(describe(), cacheDir).load(ions, mzs, loaded));
+    for (int i = 0; i < ions.length; i++) {
+      final TheoreticalLipidFragments expected = fragments.get(i);
+      final TheoreticalLipidFragments actual = loaded.get(i);
+      if (expected == null) {
+        assertNull(actual);
+        continue;
+      }
+      assertNotNull(actual);
+      assertTrue(expected.size() > 0);
+      assertEquals(expected.size(), actual.size());
+      for (int f = 0; f < expected.size(); f++) {
+        assertEquals(expected.getMz(f), actual.getMz(f));
+        assertSame(expected.getRule(f), actual.getRule(f));
+        assertEquals(expected.getIonFormula(f), actual.getIonFormula(f));
+        assertEquals(expected.getChainType(f), actual.getChainType(f));
+        assertEquals(expected.getChainLength(f), actual.getChainLength(f));
+        assertEquals(expected.getNumberOfDBEs(f), actual.getNumberOfDBEs(f));
+        assertEquals(expected.getNumberOfOxygens(f), actual.getNumberOfOxygens(f));
+      }
+    }
+  }
+
+  @Test
+  void testInvalidation() {
+    final File cacheDir = tempDir.resolve("cache").toFile();
+    assertTrue(LipidDatabaseCache.forDatabase(describe(), cacheDir).write(ions, mzs, fragments));
+
+    // other lipid classes or chain parameters use another cache
+    final LipidDatabaseCache otherCache = LipidDatabaseCache.forDatabase(describe() + "_other",
+        cacheDir);
+    assertFalse(otherCache.load(ions, mzs, new AtomicReferenceArray<>(ions.length)));
+
+    // the cache is only used for the same lipid ions
+    final LipidIon[] otherIons = Arrays.copyOf(ions, ions.length - 1);
+    final double[] otherMzs = Arrays.copyOf(mzs, mzs.length - 1);
+    assertFalse(LipidDatabaseCache.forDatabase(describe(), cacheDir)
+        .load(otherIons, otherMzs, new AtomicReferenceArray<>(otherIons.length)));
+
+    final double[] shiftedMzs = mzs.clone();
+    shiftedMzs[0] += 0.001;
+    assertFalse(LipidDatabaseCache.forDatabase(describe(), cacheDir)
+        .load(ions, shiftedMzs, new AtomicReferenceArray<>(ions.length)));
+  }
+}
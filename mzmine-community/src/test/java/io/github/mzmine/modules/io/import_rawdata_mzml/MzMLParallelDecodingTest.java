@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.import_rawdata_mzml;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import com.fasterxml.aalto.stax.InputFactoryImpl;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.ScanImportProcessorConfig;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.BuildingMzMLMsScan;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLRawDataFile;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.xml.stream.XMLStreamReader;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class MzMLParallelDecodingTest {
+
+  private static MzMLRawDataFile parse(File file, @Nullable ExecutorService executor, int threads)
+      throws Exception {
+    final MSDKmzMLImportTask task = new MSDKmzMLImportTask(null, file,
+        ScanImportProcessorConfig.createDefault(), MSDKmzMLImportModule.class,
+        new MSDKmzMLImportParameters(), Instant.now(), null);
+    final InputFactoryImpl factory = new InputFactoryImpl();
+    factory.configureForSpeed();
+    try (var fis = Files.newInputStream(file.toPath()); Reader reader = new InputStreamReader(fis,
+        StandardCharsets.UTF_8)) {
+      final XMLStreamReader xmlReader = factory.createXMLStreamReader(reader);
+      return task.parseMzMlInternal(xmlReader, executor, threads);
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"rawdatafiles/DOM_a.mzML",
+      "rawdatafiles/additional/gc_orbi_profile_21scans.mzML"})
+  void testParallelEqualsSequential(String resource) throws Exception {
+    final File file = new File(
+        MzMLParallelDecodingTest.class.getClassLoader().getResource(resource).getFile());
+
+    final MzMLRawDataFile sequential = parse(file, null, 0);
+    final MzMLRawDataFile parallel;
+    // few threads and more spectra than pending slots to cover out of order completion
+    try (ExecutorService executor = Executors.newFixedThreadPool(3)) {
+      parallel = parse(file, executor, 3);
+    }
+    assertNotNull(sequential);
+    assertNotNull(parallel);
+
+    final List<BuildingMzMLMsScan> expected = sequential.getScans();
+    final List<BuildingMzMLMsScan> actual = parallel.getScans();
+    assertFalse(expected.isEmpty());
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      final BuildingMzMLMsScan e = expected.get(i);
+      final BuildingMzMLMsScan a = actual.get(i);
+      assertEquals(e.getScanNumber(), a.getScanNumber());
+      assertEquals(e.getMSLevel(), a.getMSLevel());
+      assertEquals(e.getRetentionTime(), a.getRetentionTime());
+      assertEquals(e.getNumberOfDataPoints(), a.getNumberOfDataPoints());
+      assertArrayEquals(e.getMzValues(new double[0]), a.getMzValues(new double[0]),
+          "m/z values of scan #" + e.getScanNumber());
+      assertArrayEquals(e.getIntensityValues(new double[0]), a.getIntensityValues(new double[0]),
+          "intensities of scan #" + e.getScanNumber());
+    }
+  }
+}
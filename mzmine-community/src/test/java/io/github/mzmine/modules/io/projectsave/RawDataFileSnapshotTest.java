@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.projectsave;
+
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.featuredata.impl.SpectralDataPrecision;
+import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
+import io.github.mzmine.datamodel.featuredata.impl.StoredDoubleValues;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.project.impl.MZmineProjectImpl;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RawDataFileSnapshotTest {
+
+  @Test
+  void testValuesKeepStoredPrecision(@TempDir Path dir) throws IOException {
+    final RawDataFileImpl file = new RawDataFileImpl("a.mzML", null, null, Color.BLACK);
+    final double[] mzs = {100.0123456789, 250.987654321, 1499.99999};
+    final double[] intensities = {1E3, 2.5E7, 1.23456789E9};
+    file.addScan(scan(file, 1, SpectralDataPrecision.REDUCED, mzs, intensities));
+    file.addScan(scan(file, 2, SpectralDataPrecision.FULL, mzs, intensities));
+    file.addScan(scan(file, 3, SpectralDataPrecision.FULL, new double[0], new double[0]));
+    Assertions.assertTrue(RawDataFileSnapshot.isSupported(file));
+
+    final File snapshot = dir.resolve("a" + RawDataFileSnapshot.SNAPSHOT_SUFFIX).toFile();
+    try (OutputStream os = new FileOutputStream(snapshot)) {
+      RawDataFileSnapshot.write(file, os);
+    }
+    final RawDataFile restored = RawDataFileSnapshot.read(snapshot, new MZmineProjectImpl());
+
+    Assertions.assertEquals(file.getNumOfScans(), restored.getNumOfScans());
+    for (int i = 0; i < file.getNumOfScans(); i++) {
+      final SimpleScan original = (SimpleScan) file.getScan(i);
+      final SimpleScan copy = (SimpleScan) restored.getScan(i);
+      Assertions.assertEquals(original.getScanNumber(), copy.getScanNumber());
+      assertSameValues(original.getStoredMzValues(), copy.getStoredMzValues());
+      assertSameValues(original.getStoredIntensityValues(), copy.getStoredIntensityValues());
+    }
+  }
+
+  private static Scan scan(RawDataFile file, int scanNumber, SpectralDataPrecision precision,
+      double[] mzs, double[] intensities) {
+    return new SimpleScan(file, scanNumber, 1, scanNumber * 0.1f, null,
+        StorageUtils.storeMzValues(null, precision, mzs),
+        StorageUtils.storeIntensityValues(null, precision, intensities),
+        MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "", null, null);
+  }
+
+  private static void assertSameValues(StoredDoubleValues expected, StoredDoubleValues actual) {
+    Assertions.assertEquals(expected.getClass(), actual.getClass());
+    Assertions.assertArrayEquals(expected.get(new double[0]), actual.get(new double[0]));
+  }
+}
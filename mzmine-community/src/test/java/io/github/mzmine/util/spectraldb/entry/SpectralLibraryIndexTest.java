@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.spectraldb.entry;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class SpectralLibraryIndexTest {
+
+  private static SpectralDBEntry createEntry(Double precursorMz, PolarityType polarity,
+      int numDp) {
+    final double[] mzs = new double[numDp];
+    final double[] intensities = new double[numDp];
+    final double base = precursorMz == null ? 0 : precursorMz;
+    for (int i = 0; i < numDp; i++) {
+      mzs[i] = base / 10d + i;
+      intensities[i] = base * 100 + i;
+    }
+    final Map<DBEntryField, Object> fields = new HashMap<>();
+    if (precursorMz != null) {
+      fields.put(DBEntryField.PRECURSOR_MZ, precursorMz);
+    }
+    fields.put(DBEntryField.POLARITY, polarity);
+    return new SpectralDBEntry(null, mzs, intensities, fields);
+  }
+
+  private static List<SpectralLibraryEntry> createEntries() {
+    final List<SpectralLibraryEntry> entries = new ArrayList<>();
+    // unsorted, different lengths and one entry without precursor m/z
+    entries.add(createEntry(500d, PolarityType.POSITIVE, 7));
+    entries.add(createEntry(200d, PolarityType.NEGATIVE, 3));
+    entries.add(createEntry(null, PolarityType.POSITIVE, 5));
+    entries.add(createEntry(200.001, PolarityType.UNKNOWN, 12));
+    entries.add(createEntry(800d, PolarityType.POSITIVE, 1));
+    entries.add(createEntry(350d, PolarityType.POSITIVE, 4));
+    return entries;
+  }
+
+  @Test
+  void testCandidates() {
+    final SpectralLibraryIndex index = new SpectralLibraryIndex(createEntries());
+    assertEquals(5, index.size());
+    assertEquals(27, index.getTotalDataPoints());
+
+    final MZTolerance tol = new MZTolerance(0.005, 0);
+    assertEquals(2, index.getCandidates(200d, tol, null).size());
+    assertEquals(2, index.getCandidates(200d, tol, PolarityType.NEGATIVE).size());
+    // unknown polarity of the library entry always passes
+    assertEquals(1, index.getCandidates(200d, tol, PolarityType.POSITIVE).size());
+    assertEquals(1, index.getCandidates(800d, tol, PolarityType.POSITIVE).size());
+    assertTrue(index.getCandidates(800d, tol, PolarityType.NEGATIVE).isEmpty());
+    assertTrue(index.getCandidates(1000d, tol, null).isEmpty());
+    assertTrue(index.getCandidates(10d, tol, null).isEmpty());
+  }
+
+  @Test
+  void testEntriesKeepTheirPeaks() {
+    final List<SpectralLibraryEntry> entries = createEntries();
+    final Map<SpectralLibraryEntry, double[]> original = new HashMap<>();
+    for (SpectralLibraryEntry entry : entries) {
+      original.put(entry, entry.getMzValues(new double[0]));
+    }
+
+    final SpectralLibraryIndex index = new SpectralLibraryIndex(entries);
+    double lastPrecursorMz = 0;
+    for (int i = 0; i < index.size(); i++) {
+      final SpectralLibraryEntry entry = index.get(i);
+      assertTrue(entry.getPrecursorMZ() >= lastPrecursorMz);
+      lastPrecursorMz = entry.getPrecursorMZ();
+      assertArrayEquals(original.get(entry), entry.getMzValues(new double[0]));
+    }
+  }
+}
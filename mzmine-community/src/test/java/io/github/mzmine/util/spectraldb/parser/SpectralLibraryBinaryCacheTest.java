@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.spectraldb.parser;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.util.spectraldb.entry.DBEntryField;
+import io.github.mzmine.util.spectraldb.entry.SpectralDBEntry;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SpectralLibraryBinaryCacheTest {
+
+  @TempDir
+  Path tempDir;
+
+  private static List<SpectralLibraryEntry> createEntries() {
+    final List<SpectralLibraryEntry> entries = new ArrayList<>();
+    for (int e = 0; e < 5; e++) {
+      final double[] mzs = new double[e + 1];
+      final double[] intensities = new double[e + 1];
+      for (int i = 0; i < mzs.length; i++) {
+        mzs[i] = 50.123 * (i + 1) + e;
+        intensities[i] = 1000d * (e + 1) + i;
+      }
+      final Map<DBEntryField, Object> fields = new HashMap<>();
+      fields.put(DBEntryField.NAME, "compound " + e);
+      fields.put(DBEntryField.PRECURSOR_MZ, 300.5 + e);
+      if (e % 2 == 0) {
+        fields.put(DBEntryField.RT, 1.5f * e);
+      }
+      entries.add(new SpectralDBEntry(null, mzs, intensities, fields));
+    }
+    return entries;
+  }
+
+  private File writeLibraryFile(String name, String content) throws IOException {
+    final File file = tempDir.resolve(name).toFile();
+    Files.writeString(file.toPath(), content);
+    return file;
+  }
+
+  @Test
+  void testRoundTrip() throws IOException {
+    final File cacheDir = tempDir.resolve("cache").toFile();
+    final File library = writeLibraryFile("lib.mgf", "library content");
+    final SpectralLibraryBinaryCache cache = SpectralLibraryBinaryCache.forLibrary(library,
+        cacheDir);
+    assertNotNull(cache);
+    assertNull(cache.load());
+
+    final List<SpectralLibraryEntry> entries = createEntries();
+    assertTrue(cache.write(entries));
+
+    final List<SpectralLibraryEntry> loaded = SpectralLibraryBinaryCache.forLibrary(library,
+        cacheDir).load();
+    assertNotNull(loaded);
+    assertEquals(entries.size(), loaded.size());
+    for (int i = 0; i < entries.size(); i++) {
+      final SpectralLibraryEntry expected = entries.get(i);
+      final SpectralLibraryEntry actual = loaded.get(i);
+      assertArrayEquals(expected.getMzValues(new double[0]), actual.getMzValues(new double[0]));
+      assertArrayEquals(expected.getIntensityValues(new double[0]),
+          actual.getIntensityValues(new double[0]));
+      assertEquals(expected.getFields(), actual.getFields());
+    }
+  }
+
+  @Test
+  void testInvalidation() throws IOException {
+    final File cacheDir = tempDir.resolve("cache").toFile();
+    final File library = writeLibraryFile("lib.mgf", "library content");
+    // a different library whose name starts with the name of the first library
+    final File otherLibrary = writeLibraryFile("lib.mgf_2.mgf", "other content");
+
+    final SpectralLibraryBinaryCache otherCache = SpectralLibraryBinaryCache.forLibrary(
+        otherLibrary, cacheDir);
+    assertTrue(otherCache.write(createEntries()));
+    final SpectralLibraryBinaryCache oldCache = SpectralLibraryBinaryCache.forLibrary(library,
+        cacheDir);
+    assertTrue(oldCache.write(createEntries()));
+
+    // changed content invalidates the cache
+    Files.writeString(library.toPath(), "changed library content");
+    final SpectralLibraryBinaryCache newCache = SpectralLibraryBinaryCache.forLibrary(library,
+        cacheDir);
+    assertNotEquals(oldCache.getCacheFile(), newCache.getCacheFile());
+    assertNull(newCache.load());
+
+    // writing the new cache only removes the outdated cache of the same library
+    assertTrue(newCache.write(createEntries()));
+    assertFalse(oldCache.getCacheFile().exists());
+    assertTrue(newCache.getCacheFile().exists());
+    assertTrue(otherCache.getCacheFile().exists());
+    assertNotNull(otherCache.load());
+  }
+}
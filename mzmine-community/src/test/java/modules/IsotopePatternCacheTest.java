@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package modules;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import io.github.mzmine.datamodel.IsotopePattern;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.modules.tools.isotopeprediction.IsotopePatternCache;
+import io.github.mzmine.modules.tools.isotopeprediction.IsotopePatternCalculator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class IsotopePatternCacheTest {
+
+  @BeforeEach
+  void clearCache() {
+    IsotopePatternCache.clear();
+  }
+
+  @Test
+  void testCachedPatternEqualsPrediction() {
+    final IsotopePattern predicted = IsotopePatternCalculator.calculateIsotopePattern(
+        "C20H30O5S", 0.001, 1, PolarityType.POSITIVE, true);
+    final IsotopePattern first = IsotopePatternCalculator.calculateIsotopePattern("C20H30O5S",
+        0.001, 1, PolarityType.POSITIVE);
+    final IsotopePattern cached = IsotopePatternCalculator.calculateIsotopePattern("C20H30O5S",
+        0.001, 1, PolarityType.POSITIVE);
+
+    assertEquals(1, IsotopePatternCache.getStats().hitCount());
+    assertEquals(1, IsotopePatternCache.getStats().missCount());
+    for (IsotopePattern pattern : new IsotopePattern[]{first, cached}) {
+      assertArrayEquals(predicted.getMzValues(new double[predicted.getNumberOfDataPoints()]),
+          pattern.getMzValues(new double[pattern.getNumberOfDataPoints()]));
+      assertArrayEquals(
+          predicted.getIntensityValues(new double[predicted.getNumberOfDataPoints()]),
+          pattern.getIntensityValues(new double[pattern.getNumberOfDataPoints()]));
+      assertEquals(predicted.getDescription(), pattern.getDescription());
+      assertEquals(predicted.getCharge(), pattern.getCharge());
+    }
+  }
+
+  @Test
+  void testKeyContainsChargeAndPolarity() {
+    final IsotopePattern positive = IsotopePatternCalculator.calculateIsotopePattern("C6H12O6",
+        0.01, 1, PolarityType.POSITIVE);
+    final IsotopePattern negative = IsotopePatternCalculator.calculateIsotopePattern("C6H12O6",
+        0.01, 1, PolarityType.NEGATIVE);
+    final IsotopePattern doubleCharged = IsotopePatternCalculator.calculateIsotopePattern(
+        "C6H12O6", 0.01, 2, PolarityType.POSITIVE);
+
+    assertEquals(0, IsotopePatternCache.getStats().hitCount());
+    assertEquals(3, IsotopePatternCache.size());
+    assertNotEquals(positive.getBasePeakMz(), negative.getBasePeakMz());
+    assertNotEquals(positive.getBasePeakMz(), doubleCharged.getBasePeakMz());
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package modules;
+
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeMap;
+import com.google.common.collect.TreeRangeMap;
+import io.github.mzmine.modules.dataprocessing.featdet_recursiveimsbuilder.MzRangeMap;
+import io.github.mzmine.util.scans.SpectraMerging;
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link MzRangeMap} needs to behave like the {@link TreeRangeMap} filled with
+ * {@link SpectraMerging#createNewNonOverlappingRange(RangeMap, Range)} it replaces.
+ */
+class MzRangeMapTest {
+
+  @Test
+  void testPutIfFree() {
+    final Random random = new Random(42);
+    final RangeMap<Double, Integer> expected = TreeRangeMap.create();
+    final MzRangeMap<Integer> map = new MzRangeMap<>();
+
+    for (int i = 0; i < 5000; i++) {
+      final double mz = 100 + random.nextDouble() * 100;
+      Assertions.assertEquals(expected.get(mz), map.get(mz));
+      if (expected.get(mz) == null) {
+        final Range<Double> proposed = Range.closed(mz - 0.005, mz + 0.005);
+        final boolean free = proposed.equals(
+            SpectraMerging.createNewNonOverlappingRange(expected, proposed));
+        if (free) {
+          expected.put(proposed, i);
+        }
+        Assertions.assertEquals(free, map.putIfFree(mz - 0.005, mz + 0.005, i));
+      }
+    }
+    Assertions.assertEquals(new ArrayList<>(expected.asMapOfRanges().values()), map.values());
+  }
+
+  @Test
+  void testPutNonOverlapping() {
+    final Random random = new Random(42);
+    final RangeMap<Double, Integer> expected = TreeRangeMap.create();
+    final MzRangeMap<Integer> map = new MzRangeMap<>();
+
+    // more ranges than fit into a single block
+    for (int i = 0; i < 20000; i++) {
+      final double mz = 100 + random.nextDouble() * 900;
+      Assertions.assertEquals(expected.get(mz), map.get(mz));
+      if (expected.get(mz) == null) {
+        final double tolerance = Math.max(0.003, mz * 10E-6) * (1 + random.nextInt(3));
+        expected.put(SpectraMerging.createNewNonOverlappingRange(expected,
+            Range.closed(mz - tolerance, mz + tolerance)), i);
+        map.putNonOverlapping(mz - tolerance, mz + tolerance, i);
+      }
+    }
+    Assertions.assertEquals(new ArrayList<>(expected.asMapOfRanges().values()), map.values());
+    Assertions.assertEquals(expected.asMapOfRanges().size(), map.size());
+
+    // bounds of truncated ranges are open
+    for (Range<Double> range : expected.asMapOfRanges().keySet()) {
+      Assertions.assertEquals(expected.get(range.lowerEndpoint()),
+          map.get(range.lowerEndpoint()));
+      Assertions.assertEquals(expected.get(range.upperEndpoint()),
+          map.get(range.upperEndpoint()));
+    }
+  }
+}
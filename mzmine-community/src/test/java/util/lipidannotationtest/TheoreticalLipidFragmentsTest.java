@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package util.lipidannotationtest;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.datamodel.impl.masslist.SimpleMassList;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.annotation_modules.LipidAnnotationChainParameters;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.LipidFragmentationRule;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation.LipidFragmentFactory;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.ILipidAnnotation;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidFragment;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javafx.scene.paint.Color;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * The precomputed theoretical fragments need to match the expected fragments of each test
+ * spectrum in lipidannotation/theoretical_lipid_fragments.tsv. The expected fragments were
+ * calculated from the fragmentation rules, the chain parameter defaults and monoisotopic element
+ * masses, independent of {@link LipidFragmentFactory}.
+ */
+class TheoreticalLipidFragmentsTest {
+
+  private static final RawDataFile FILE = new RawDataFileImpl("testfile", null, null, Color.BLACK);
+  private static final MZTolerance MZ_TOLERANCE = new MZTolerance(0.01, 5);
+  /**
+   * The expected exact m/z is rounded to 4 decimals and electron masses may be handled
+   * differently depending on the charge of the formula
+   */
+  private static final double MZ_EXACT_TOLERANCE = 0.002;
+  private static final LipidAnnotationMsMsTestSpectra MSMS_TEST_SPECTRA = //
+      new LipidAnnotationMsMsTestSpectra();
+
+  private static Map<String, List<ExpectedFragment>> expectedFragments;
+
+  @BeforeAll
+  static void loadExpectedFragments() throws IOException, URISyntaxException {
+    final Path file = Path.of(TheoreticalLipidFragmentsTest.class.getClassLoader()
+        .getResource("lipidannotation/theoretical_lipid_fragments.tsv").toURI());
+    try (Stream<String> lines = Files.lines(file)) {
+      expectedFragments = lines.skip(1).filter(line -> !line.isBlank())
+          .map(line -> line.split("\t", -1)).collect(
+              Collectors.groupingBy(values -> values[0],
+                  Collectors.mapping(ExpectedFragment::parse, Collectors.toList())));
+    }
+  }
+
+  static Stream<Method> testSpectra() {
+    return Arrays.stream(LipidAnnotationMsMsTestSpectra.class.getMethods())
+        .filter(m -> m.getReturnType() == LipidAnnotationMsMsTestResource.class);
+  }
+
+  private static SimpleScan createScan(LipidAnnotationMsMsTestResource testSpectrum) {
+    final SimpleScan scan = new SimpleScan(FILE, -1, 2, 0.1F, null, new double[]{500},
+        new double[]{100}, MassSpectrumType.ANY, PolarityType.ANY, "Pseudo", null);
+    final double[] mzs = testSpectrum.getMzFragments();
+    final double[] intensities = testSpectrum.getIntensities();
+    final DataPoint[] dataPoints = new DataPoint[mzs.length];
+    for (int i = 0; i < mzs.length; i++) {
+      dataPoints[i] = new SimpleDataPoint(mzs[i], intensities != null ? intensities[i] : 100);
+    }
+    Arrays.sort(dataPoints, (a, b) -> Double.compare(a.getMZ(), b.getMZ()));
+    scan.addMassList(SimpleMassList.create(null, dataPoints));
+    return scan;
+  }
+
+  @ParameterizedTest
+  @MethodSource("testSpectra")
+  void testExpectedFragments(Method spectrum)
+      throws InvocationTargetException, IllegalAccessException {
+    final var testSpectrum = (LipidAnnotationMsMsTestResource) spectrum.invoke(MSMS_TEST_SPECTRA);
+    final ILipidAnnotation lipid = testSpectrum.getTestLipid();
+    final LipidFragmentationRule[] rules = lipid.getLipidClass().getFragmentationRules();
+    if (rules == null || rules.length == 0) {
+      return;
+    }
+    final String name = spectrum.getName().substring("get".length());
+    final SimpleScan scan = createScan(testSpectrum);
+    final LipidAnnotationChainParameters chainParameters = new LipidAnnotationChainParameters();
+
+    final List<ExpectedFragment> expected = expectedFragments.getOrDefault(name, List.of())
+        .stream().sorted(ExpectedFragment.ORDER).toList();
+    final List<ExpectedFragment> actual = new LipidFragmentFactory(lipid,
+        testSpectrum.getIonizationType(), rules, chainParameters).calculateTheoreticalFragments()
+        .matchFragments(scan, MZ_TOLERANCE).stream().map(ExpectedFragment::of)
+        .sorted(ExpectedFragment.ORDER).toList();
+
+    Assertions.assertFalse(expected.isEmpty(), name);
+    Assertions.assertEquals(expected.stream().map(ExpectedFragment::describe).toList(),
+        actual.stream().map(ExpectedFragment::describe).toList(), name);
+    for (int i = 0; i < expected.size(); i++) {
+      Assertions.assertEquals(expected.get(i).mzExact(), actual.get(i).mzExact(),
+          MZ_EXACT_TOLERANCE, name + " " + expected.get(i).describe());
+    }
+  }
+
+  /**
+   * A matched fragment, the exact m/z is compared with a tolerance
+   */
+  private record ExpectedFragment(String ruleType, String annotationLevel, String rating,
+                                  double mzExact, double mz, double intensity,
+                                  @Nullable String chainType, @Nullable Integer chainLength,
+                                  @Nullable Integer numberOfDBEs,
+                                  @Nullable Integer numberOfOxygens) {
+
+    private static final Comparator<ExpectedFragment> ORDER = Comparator.comparing(
+        ExpectedFragment::describe).thenComparingDouble(ExpectedFragment::mzExact);
+
+    private static ExpectedFragment parse(String[] values) {
+      final boolean hasChain = !values[7].isEmpty();
+      return new ExpectedFragment(values[1], values[2], values[3], Double.parseDouble(values[4]),
+          Double.parseDouble(values[5]), Double.parseDouble(values[6]),
+          hasChain ? values[7] : null, hasChain ? Integer.valueOf(values[8]) : null,
+          hasChain ? Integer.valueOf(values[9]) : null,
+          hasChain ? Integer.valueOf(values[10]) : null);
+    }
+
+    private static ExpectedFragment of(LipidFragment f) {
+      return new ExpectedFragment(f.getRuleType().name(),
+          f.getLipidFragmentInformationLevelType().name(),
+          f.getLipidFragmentationRuleRating().name(), f.getMzExact(), f.getDataPoint().getMZ(),
+          f.getDataPoint().getIntensity(),
+          f.getLipidChainType() != null ? f.getLipidChainType().name() : null,
+          f.getChainLength(), f.getNumberOfDBEs(), f.getNumberOfOxygens());
+    }
+
+    /**
+     * All values but the exact m/z
+     */
+    private String describe() {
+      return String.join("|", ruleType, annotationLevel, rating, String.valueOf(mz),
+          String.valueOf(intensity), String.valueOf(chainType), String.valueOf(chainLength),
+          String.valueOf(numberOfDBEs), String.valueOf(numberOfOxygens));
+    }
+  }
+}